@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.text.JTextComponent;
 
@@ -20,8 +21,23 @@ import javax.swing.text.JTextComponent;
 /**
  * A base class for completion providers.  {@link Completion}s are kept in
  * a sorted list.  To get the list of completions that match a given input,
- * a binary search is done to find the first matching completion, then all
- * succeeding completions that also match are also returned.
+ * a {@link CompletionIndex} is consulted.  By default this is a
+ * {@link SortedListCompletionIndex}, which does a binary search to find the
+ * first matching completion, then returns all succeeding completions that
+ * also match.  Providers with very many completions can install a
+ * {@link TrieCompletionIndex} instead via
+ * {@link #setCompletionIndex(CompletionIndex)}.  Alternatively, completions
+ * can be matched as abbreviations rather than prefixes via
+ * {@link #setFuzzyMatchingEnabled(boolean)}, or prefixes containing typos
+ * can be matched via {@link #setTypoTolerance(int)}.<p>
+ *
+ * Completions may be looked up from any number of threads at once, for
+ * example by many text components sharing one large provider.  Lookups go
+ * through an immutable {@link CompletionIndex#snapshot() snapshot} of the
+ * index and take no locks.  Methods that modify this provider are
+ * synchronized on it; a new snapshot is taken the next time completions are
+ * looked up.  Subclasses that modify the <code>completions</code> list
+ * directly should synchronize on this provider while doing so.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -40,21 +56,92 @@ public abstract class AbstractCompletionProvider
 	 */
 	protected CaseInsensitiveComparator comparator;
 
+	/**
+	 * Kept in sync with <code>completions</code> as it is modified.
+	 */
+	private CompletionIndex completionIndex;
+
+	/**
+	 * The snapshot of <code>completionIndex</code> that lookups are done
+	 * against, or <code>null</code> if this provider has been modified since
+	 * it was taken.
+	 */
+	private volatile IndexSnapshot snapshot;
+
+	/**
+	 * Incremented each time this provider's completions change.
+	 */
+	private volatile long version;
+
+	/**
+	 * Whether completions are matched as abbreviations rather than prefixes.
+	 */
+	private boolean fuzzyMatchingEnabled;
+
+	/**
+	 * Strings shared rather than duplicated when loading completions, and
+	 * the estimated memory that saved.  Access is synchronized on this
+	 * provider.
+	 */
+	private long duplicateStringCount;
+	private long bytesSaved;
+
+	/**
+	 * The maximum number of typos allowed in the text entered, or
+	 * <code>0</code> for none.
+	 */
+	private int typoTolerance;
+
+	/**
+	 * How long to spend looking for completions with typos before giving up
+	 * and returning only exact matches, in nanoseconds.
+	 */
+	private long typoToleranceTimeLimit;
+
+	/**
+	 * The number of characters that must be entered for each typo allowed.
+	 */
+	private static final int CHARS_PER_TYPO = 3;
+
+	/**
+	 * Reused by {@link #getCompletions(JTextComponent, List)} so it does not
+	 * create any objects.
+	 */
+	private static final ThreadLocal<PrefixQuery> PREFIX_QUERY =
+			ThreadLocal.withInitial(PrefixQuery::new);
+
 
 	/**
 	 * Constructor.
 	 */
 	public AbstractCompletionProvider() {
 		comparator = new CaseInsensitiveComparator();
+		setTypoToleranceTimeLimit(3);
 		clearParameterizedCompletionParams();
-		completions = new ArrayList<>();
+		completions = new CompletionList();
+		setCompletionIndex(new SortedListCompletionIndex());
 	}
 
 
 	/**
-	 * Adds a single completion to this provider.  If you are adding multiple
+	 * Records strings that were shared between this provider's completions
+	 * when they were loaded.
+	 *
+	 * @param duplicates The number of strings shared.
+	 * @param bytes The estimated number of bytes saved.
+	 * @see #getStatistics()
+	 */
+	synchronized void addStringPoolStatistics(long duplicates, long bytes) {
+		duplicateStringCount += duplicates;
+		bytesSaved += bytes;
+	}
+
+
+	/**
+	 * Adds a single completion to this provider.  The completion is inserted
+	 * at its sorted position via a binary search.  If you are adding multiple
 	 * completions to this provider, for efficiency reasons please consider
-	 * using {@link #addCompletions(List)} instead.
+	 * using {@link #addCompletions(List)} or {@link #beginBatch()} instead.
 	 *
 	 * @param c The completion to add.
 	 * @throws IllegalArgumentException If the completion's provider isn't
@@ -63,9 +150,24 @@ public abstract class AbstractCompletionProvider
 	 * @see #removeCompletion(Completion)
 	 * @see #clear()
 	 */
-	public void addCompletion(Completion c) {
-		checkProviderAndAdd(c);
-		Collections.sort(completions);
+	public synchronized void addCompletion(Completion c) {
+		checkProvider(c);
+		// Insert after any completions comparing equal to this one, as
+		// Collections.sort() would have done.
+		int low = 0;
+		int high = completions.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (completions.get(mid).compareTo(c)<=0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		completions.add(low, c);
+		completionIndex.add(c);
+		modified();
 	}
 
 
@@ -81,11 +183,10 @@ public abstract class AbstractCompletionProvider
 	 * @see #clear()
 	 */
 	public void addCompletions(List<Completion> completions) {
-		//this.completions.addAll(completions);
 		for (Completion c : completions) {
-			checkProviderAndAdd(c);
+			checkProvider(c);
 		}
-		Collections.sort(this.completions);
+		mergeSorted(new ArrayList<>(completions));
 	}
 
 
@@ -97,17 +198,61 @@ public abstract class AbstractCompletionProvider
 	 */
 	protected void addWordCompletions(String[] words) {
 		int count = words==null ? 0 : words.length;
+		List<Completion> toAdd = new ArrayList<>(count);
 		for (int i=0; i<count; i++) {
-			completions.add(new BasicCompletion(this, words[i]));
+			toAdd.add(new BasicCompletion(this, words[i]));
 		}
-		Collections.sort(completions);
+		mergeSorted(toAdd);
 	}
 
 
-	protected void checkProviderAndAdd(Completion c) {
+	/**
+	 * Starts a batch of additions to this provider.  Completions added to the
+	 * returned batch are buffered, and only sorted and merged into this
+	 * provider when the batch is committed.  This is the fastest way to
+	 * populate a provider incrementally, for example from several plugins:
+	 *
+	 * <pre>
+	 * try (AbstractCompletionProvider.Batch batch = provider.beginBatch()) {
+	 *    for (...) {
+	 *       batch.add(completion);
+	 *    }
+	 * } // Committed here
+	 * </pre>
+	 *
+	 * @return The batch.
+	 * @see #addCompletions(List)
+	 */
+	public Batch beginBatch() {
+		return new Batch();
+	}
+
+
+	/**
+	 * Throws an exception if a completion is not from this provider.
+	 *
+	 * @param c The completion to check.
+	 * @throws IllegalArgumentException If the completion's provider isn't
+	 *         this {@code CompletionProvider}.
+	 */
+	private void checkProvider(Completion c) {
 		if (c.getProvider()!=this) {
 			throw new IllegalArgumentException("Invalid CompletionProvider");
 		}
+	}
+
+
+	/**
+	 * Adds a completion to the end of the <code>completions</code> list,
+	 * without keeping it sorted.  Subclasses calling this method must sort
+	 * the list afterward.
+	 *
+	 * @param c The completion to add.
+	 * @throws IllegalArgumentException If the completion's provider isn't
+	 *         this {@code CompletionProvider}.
+	 */
+	protected void checkProviderAndAdd(Completion c) {
+		checkProvider(c);
 		completions.add(c);
 	}
 
@@ -120,8 +265,10 @@ public abstract class AbstractCompletionProvider
 	 * @see #addCompletions(List)
 	 * @see #removeCompletion(Completion)
 	 */
-	public void clear() {
+	public synchronized void clear() {
 		completions.clear();
+		completionIndex.clear();
+		modified();
 	}
 
 
@@ -133,27 +280,118 @@ public abstract class AbstractCompletionProvider
 	 * @return A list of {@link Completion}s, or <code>null</code> if there
 	 *         are no matching {@code Completion}s.
 	 */
-	@SuppressWarnings("unchecked")
 	public List<Completion> getCompletionByInputText(String inputText) {
+		return getCompletionIndex().getCompletionsByInputText(inputText);
+	}
+
+
+	/**
+	 * Returns a read-only snapshot of the index used to look up completions
+	 * in this provider.  It reflects this provider's completions at the time
+	 * of the call, and can be used from any thread.  If the
+	 * <code>completions</code> list appears to have been modified directly by
+	 * a subclass, the index is first rebuilt.
+	 *
+	 * @return The index snapshot.
+	 * @see #setCompletionIndex(CompletionIndex)
+	 * @see #getCompletionsVersion()
+	 */
+	public CompletionIndex getCompletionIndex() {
+		return getSnapshot().index;
+	}
+
 
-		// Find any entry that matches this input text (there may be > 1).
-		int end = Collections.binarySearch(completions, inputText, comparator);
-		if (end<0) {
-			return null;
+	/**
+	 * Returns the comparator used to sort completions.  If fuzzy matching is
+	 * enabled, completions are sorted by how well they match the text
+	 * already entered, then by relevance.  If typos are tolerated,
+	 * completions matching the text exactly come first.
+	 *
+	 * @param comp The text component.
+	 * @return The comparator.
+	 */
+	@Override
+	protected Comparator<Completion> getCompletionComparator(
+			JTextComponent comp) {
+		if (fuzzyMatchingEnabled) {
+			String text = getQueryCachedAlreadyEnteredText(comp);
+			if (text!=null && text.length()>0) {
+				return new FuzzyMatcher(text).createComparator(
+						getRelevanceComparator());
+			}
+		}
+		else if (typoTolerance>0) {
+			String text = getQueryCachedAlreadyEnteredText(comp);
+			if (text!=null && text.length()>=CHARS_PER_TYPO) {
+				return new ExactPrefixFirstComparator(text,
+						getRelevanceComparator());
+			}
 		}
+		return super.getCompletionComparator(comp);
+	}
+
+
+	/**
+	 * Returns a number that changes each time the completions in this
+	 * provider change.  This can be used to tell whether results cached
+	 * from this provider are stale.  Changes made by subclasses directly to
+	 * the <code>completions</code> list are only counted once completions
+	 * are next looked up.
+	 *
+	 * @return The version.
+	 */
+	public long getCompletionsVersion() {
+		return version;
+	}
 
-		// There might be multiple entries with the same input text.
-		int start = end;
-		while (start>0 &&
-				comparator.compare(completions.get(start-1), inputText)==0) {
-			start--;
+
+	/**
+	 * Returns statistics about the completions in this provider, such as
+	 * how much memory was saved by sharing strings between completions
+	 * loaded from XML.
+	 *
+	 * @return The statistics.
+	 * @see StringPool
+	 */
+	public CompletionProviderStatistics getStatistics() {
+		int count = getCompletionIndex().size();
+		synchronized (this) {
+			return new CompletionProviderStatistics(count,
+					duplicateStringCount, bytesSaved);
 		}
-		int count = completions.size();
-		while (++end<count &&
-				comparator.compare(completions.get(end), inputText)==0);
+	}
 
-		return completions.subList(start, end); // (inclusive, exclusive)
 
+	/**
+	 * Adds the completions in this provider matching the text already
+	 * entered to a list.  Unlike {@link #getCompletions(JTextComponent)},
+	 * parent providers are not consulted, and the completions are left in
+	 * this provider's sorted order rather than sorted by relevance.<p>
+	 *
+	 * The text already entered is read with
+	 * {@link #getAlreadyEnteredText(JTextComponent, CharSequenceSink)}.  If
+	 * that creates no objects, as is the case for a
+	 * {@link DefaultCompletionProvider}, and neither fuzzy matching nor typo
+	 * tolerance is enabled, this method creates no objects either once the
+	 * list has grown large enough.  This makes it suitable for calling on
+	 * every keystroke with the same list, cleared in between.
+	 *
+	 * @param comp The text component.
+	 * @param result The list to add the completions to.
+	 */
+	public void getCompletions(JTextComponent comp, List<Completion> result) {
+		PrefixQuery query = PREFIX_QUERY.get();
+		if (query.provider!=null) { // Called from within a query
+			query = new PrefixQuery();
+		}
+		query.provider = this;
+		query.result = result;
+		try {
+			getAlreadyEnteredText(comp, query);
+		} finally {
+			query.provider = null;
+			query.result = null;
+		}
 	}
 
 
@@ -161,46 +399,210 @@ public abstract class AbstractCompletionProvider
 	 * {@inheritDoc}
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	protected List<Completion> getCompletionsImpl(JTextComponent comp) {
 
 		List<Completion> retVal = new ArrayList<>();
-		String text = getAlreadyEnteredText(comp);
+		String text = getQueryCachedAlreadyEnteredText(comp);
 
 		if (text!=null) {
+			getCompletionsMatching(text, retVal);
+		}
 
-			int index = Collections.binarySearch(completions, text, comparator);
-			if (index<0) { // No exact match
-				index = -index - 1;
-			}
-			else {
-				// If there are several overloads for the function being
-				// completed, Collections.binarySearch() will return the index
-				// of one of those overloads, but we must return all of them,
-				// so search backward until we find the first one.
-				int pos = index - 1;
-				while (pos>0 &&
-						comparator.compare(completions.get(pos), text)==0) {
-					retVal.add(completions.get(pos));
-					pos--;
-				}
+		return retVal;
+
+	}
+
+
+	/**
+	 * Adds the completions matching the text already entered to a list, by
+	 * prefix or by fuzzy matching.  This is called by
+	 * {@link #getCompletionsImpl(JTextComponent)} and
+	 * {@link #getCompletions(JTextComponent, List)}.  Subclasses that
+	 * provide completions from elsewhere can override it to add them.
+	 *
+	 * @param text The text already entered.  This should not be kept after
+	 *        this method returns.
+	 * @param result The list to add to.
+	 */
+	protected void getCompletionsMatching(CharSequence text,
+			List<Completion> result) {
+		if (fuzzyMatchingEnabled && text.length()>0) {
+			getSnapshot().getFuzzyMatchIndex().getMatches(
+					new FuzzyMatcher(text.toString()), result);
+		}
+		else {
+			getCompletionsWithPrefix(text, result);
+		}
+	}
+
+
+	/**
+	 * Adds the completions starting with some text to a list, allowing for
+	 * typos if that is enabled.
+	 *
+	 * @param text The text.
+	 * @param result The list to add to, in sorted order.
+	 */
+	private void getCompletionsWithPrefix(CharSequence text,
+			List<Completion> result) {
+		IndexSnapshot s = getSnapshot();
+		int maxEdits = Math.min(typoTolerance,
+				text.length()/CHARS_PER_TYPO);
+		if (maxEdits>0) {
+			long deadline = System.nanoTime() + typoToleranceTimeLimit;
+			int start = result.size();
+			if (s.getTrie().getApproximateMatches(text.toString(), maxEdits,
+					deadline, result)) {
+				return;
 			}
+			// Out of time, fall back to exact matches only.  Keep anything
+			// the caller already had in the list
+			result.subList(start, result.size()).clear();
+		}
+		s.index.getCompletionsWithPrefix(text, result);
+	}
 
-			while (index<completions.size()) {
-				Completion c = completions.get(index);
-				if (Util.startsWithIgnoreCase(c.getInputText(), text)) {
-					retVal.add(c);
-					index++;
-				}
-				else {
-					break;
-				}
+
+	/**
+	 * Returns a number that changes whenever the <code>completions</code>
+	 * list is modified, even if its size doesn't change.  If a subclass
+	 * replaced the list with one of another type, only changes in size are
+	 * noticed.
+	 *
+	 * @return The modification count.
+	 */
+	private int getModCount() {
+		List<Completion> list = completions;
+		return list instanceof CompletionList ?
+				((CompletionList)list).getModCount() : list.size();
+	}
+
+
+	/**
+	 * Returns the current index snapshot, taking a new one if necessary.
+	 *
+	 * @return The snapshot.
+	 */
+	private IndexSnapshot getSnapshot() {
+		IndexSnapshot s = snapshot;
+		if (s==null || s.modCount!=getModCount()) {
+			s = takeSnapshot();
+		}
+		return s;
+	}
+
+
+	/**
+	 * Returns the maximum number of typos allowed in the text already
+	 * entered.
+	 *
+	 * @return The maximum number of typos, or <code>0</code> if only exact
+	 *         matches are returned.
+	 * @see #setTypoTolerance(int)
+	 */
+	public int getTypoTolerance() {
+		return typoTolerance;
+	}
+
+
+	/**
+	 * Returns how long to spend looking for completions with typos before
+	 * giving up and returning only exact matches.
+	 *
+	 * @return The time limit, in milliseconds.
+	 * @see #setTypoToleranceTimeLimit(int)
+	 */
+	public int getTypoToleranceTimeLimit() {
+		return (int)TimeUnit.NANOSECONDS.toMillis(typoToleranceTimeLimit);
+	}
+
+
+	/**
+	 * Returns whether completions are matched as abbreviations of the text
+	 * already entered, rather than by prefix.
+	 *
+	 * @return Whether fuzzy matching is enabled.
+	 * @see #setFuzzyMatchingEnabled(boolean)
+	 */
+	public boolean isFuzzyMatchingEnabled() {
+		return fuzzyMatchingEnabled;
+	}
+
+
+	/**
+	 * {@inheritDoc}<p>
+	 *
+	 * Incremental narrowing is never used when fuzzy matching is enabled or
+	 * typos are tolerated, since such matches are not narrowed down by
+	 * prefix.
+	 */
+	@Override
+	public boolean isIncrementalNarrowingEnabled() {
+		return !fuzzyMatchingEnabled && typoTolerance==0 &&
+				super.isIncrementalNarrowingEnabled();
+	}
+
+
+	/**
+	 * Merges completions into the sorted <code>completions</code> list.
+	 * Only the new completions are sorted; they are then merged with the
+	 * existing list in a single linear pass, in place, so that completions
+	 * already present stay before new ones comparing equal to them.
+	 *
+	 * @param toAdd The completions to add.  This list is sorted by this
+	 *        method.
+	 */
+	private synchronized void mergeSorted(List<Completion> toAdd) {
+
+		int addCount = toAdd.size();
+		if (addCount==0) {
+			return;
+		}
+		Collections.sort(toAdd);
+
+		// Grow the list, then merge from the back to avoid shifting elements
+		int i = completions.size() - 1;
+		int j = addCount - 1;
+		completions.addAll(toAdd);
+		for (int k=completions.size()-1; j>=0; k--) {
+			if (i>=0 && completions.get(i).compareTo(toAdd.get(j))>0) {
+				completions.set(k, completions.get(i--));
+			}
+			else {
+				completions.set(k, toAdd.get(j--));
 			}
+		}
 
+		for (Completion c : toAdd) {
+			completionIndex.add(c);
 		}
+		modified();
+
+	}
+
+
+	/**
+	 * Notes that this provider's completions have changed, so that lookups
+	 * stop using the current index snapshot.  Must be called while
+	 * synchronized on this provider.
+	 */
+	private void modified() {
+		snapshot = null;
+		version++;
+	}
 
-		return retVal;
 
+	/**
+	 * Re-indexes this provider's completions.  Subclasses that modify the
+	 * <code>completions</code> list directly, rather than via methods such
+	 * as {@link #addCompletions(List)}, should call this method afterward.
+	 * This is not necessary for changes made through the list's own methods,
+	 * which {@link #getCompletionIndex()} notices, but is for changes made
+	 * some other way, such as replacing elements via a sub-list.
+	 */
+	protected synchronized void rebuildCompletionIndex() {
+		completionIndex.rebuild(completions);
+		modified();
 	}
 
 
@@ -215,17 +617,365 @@ public abstract class AbstractCompletionProvider
 	 * @see #addCompletion(Completion)
 	 * @see #addCompletions(List)
 	 */
-	public boolean removeCompletion(Completion c) {
+	public synchronized boolean removeCompletion(Completion c) {
 		// Don't just call completions.remove(c) as it'll be a linear search.
 		int index = Collections.binarySearch(completions, c);
 		if (index<0) {
 			return false;
 		}
-		completions.remove(index);
+		// Completions differing only in case compare equal; prefer removing
+		// the specified instance over another one
+		if (completions.get(index)!=c) {
+			int i = index;
+			while (i>0 && completions.get(i-1).compareTo(c)==0) {
+				i--;
+			}
+			for (; i<completions.size() && completions.get(i).compareTo(c)==0;
+					i++) {
+				if (completions.get(i)==c) {
+					index = i;
+					break;
+				}
+			}
+		}
+		completionIndex.remove(completions.remove(index));
+		modified();
 		return true;
 	}
 
 
+	/**
+	 * Sets the index used to look up completions in this provider.  The
+	 * index is immediately populated with this provider's completions.
+	 *
+	 * @param index The new index.  This cannot be <code>null</code>.
+	 * @see #getCompletionIndex()
+	 */
+	public synchronized void setCompletionIndex(CompletionIndex index) {
+		if (index==null) {
+			throw new IllegalArgumentException("index cannot be null");
+		}
+		completionIndex = index;
+		completionIndex.rebuild(completions);
+		modified();
+	}
+
+
+	/**
+	 * Sets whether completions are matched as abbreviations of the text
+	 * already entered, rather than by prefix.  If this is enabled,
+	 * "<code>gcp</code>" matches "<code>getCompletionProvider</code>" and
+	 * "<code>ac_ev</code>" matches "<code>autocompletion_event</code>", and
+	 * completions are sorted by how well they match; see
+	 * {@link FuzzyMatcher} for details.  The additional index this requires
+	 * is built the first time completions are looked up after a change.
+	 * The default value is <code>false</code>.
+	 *
+	 * @param enabled Whether fuzzy matching is enabled.
+	 * @see #isFuzzyMatchingEnabled()
+	 */
+	public void setFuzzyMatchingEnabled(boolean enabled) {
+		fuzzyMatchingEnabled = enabled;
+	}
+
+
+	/**
+	 * Sets the maximum number of typos allowed in the text already entered.
+	 * For example, with a tolerance of <code>2</code>,
+	 * "<code>fucntion</code>" matches "<code>function</code>".  A typo is an
+	 * inserted, deleted or substituted character, or two adjacent characters
+	 * swapped.  One typo is allowed for every three characters entered, up
+	 * to this maximum, since otherwise short prefixes would match almost
+	 * everything.  Completions matching the text exactly are sorted first.
+	 * This is ignored if fuzzy matching is enabled.<p>
+	 *
+	 * This is fastest when a {@link TrieCompletionIndex} is installed;
+	 * otherwise a trie is built for this purpose the first time completions
+	 * are looked up after a change.  If finding completions with typos takes
+	 * longer than the {@link #setTypoToleranceTimeLimit(int) time limit},
+	 * only exact matches are returned.
+	 *
+	 * @param maxTypos The maximum number of typos, from <code>0</code> (the
+	 *        default, meaning only exact matches) to <code>2</code>.
+	 * @throws IllegalArgumentException If <code>maxTypos</code> is out of
+	 *         range.
+	 * @see #getTypoTolerance()
+	 */
+	public void setTypoTolerance(int maxTypos) {
+		if (maxTypos<0 || maxTypos>2) {
+			throw new IllegalArgumentException(
+					"maxTypos must be between 0 and 2");
+		}
+		typoTolerance = maxTypos;
+	}
+
+
+	/**
+	 * Sets how long to spend looking for completions with typos before
+	 * giving up and returning only exact matches.  This bounds the time
+	 * taken per keystroke, even for very large providers.
+	 *
+	 * @param millis The time limit, in milliseconds.  The default is
+	 *        <code>3</code>.
+	 * @throws IllegalArgumentException If <code>millis</code> is negative.
+	 * @see #getTypoToleranceTimeLimit()
+	 * @see #setTypoTolerance(int)
+	 */
+	public void setTypoToleranceTimeLimit(int millis) {
+		if (millis<0) {
+			throw new IllegalArgumentException("millis cannot be negative");
+		}
+		typoToleranceTimeLimit = TimeUnit.MILLISECONDS.toNanos(millis);
+	}
+
+
+	/**
+	 * Takes a new snapshot of the index, if the current one is stale.
+	 *
+	 * @return The current snapshot.
+	 */
+	private synchronized IndexSnapshot takeSnapshot() {
+		IndexSnapshot s = snapshot;
+		int modCount = getModCount();
+		if (s==null || s.modCount!=modCount) {
+			int size = completions.size();
+			if (s!=null) { // Modified directly by a subclass
+				version++;
+				completionIndex.rebuild(completions);
+			}
+			else if (completionIndex.size()!=size) {
+				completionIndex.rebuild(completions);
+			}
+			s = new IndexSnapshot(completionIndex.snapshot(), size, modCount);
+			snapshot = s;
+		}
+		return s;
+	}
+
+
+	/**
+	 * Buffers completions to add to this provider, so they can be merged into
+	 * it all at once.  Batches are not thread-safe.
+	 *
+	 * @see AbstractCompletionProvider#beginBatch()
+	 */
+	public class Batch implements AutoCloseable {
+
+		private List<Completion> pending;
+
+		/**
+		 * Constructor.
+		 */
+		protected Batch() {
+			pending = new ArrayList<>();
+		}
+
+		/**
+		 * Adds a completion to this batch.
+		 *
+		 * @param c The completion to add.
+		 * @return This batch.
+		 * @throws IllegalArgumentException If the completion's provider isn't
+		 *         the provider that created this batch.
+		 * @throws IllegalStateException If this batch has already been
+		 *         committed.
+		 */
+		public Batch add(Completion c) {
+			checkOpen();
+			checkProvider(c);
+			pending.add(c);
+			return this;
+		}
+
+		/**
+		 * Adds completions to this batch.
+		 *
+		 * @param completions The completions to add.
+		 * @return This batch.
+		 * @throws IllegalArgumentException If a completion's provider isn't
+		 *         the provider that created this batch.
+		 * @throws IllegalStateException If this batch has already been
+		 *         committed.
+		 */
+		public Batch addAll(List<Completion> completions) {
+			checkOpen();
+			for (Completion c : completions) {
+				checkProvider(c);
+			}
+			pending.addAll(completions);
+			return this;
+		}
+
+		private void checkOpen() {
+			if (pending==null) {
+				throw new IllegalStateException("Batch already committed");
+			}
+		}
+
+		/**
+		 * Commits this batch if it hasn't been already.
+		 *
+		 * @see #commit()
+		 */
+		@Override
+		public void close() {
+			if (pending!=null) {
+				commit();
+			}
+		}
+
+		/**
+		 * Merges all completions in this batch into the provider.  After
+		 * this method is called, no more completions may be added to this
+		 * batch.
+		 *
+		 * @throws IllegalStateException If this batch has already been
+		 *         committed.
+		 */
+		public void commit() {
+			checkOpen();
+			mergeSorted(pending);
+			pending = null;
+		}
+
+		/**
+		 * Returns the number of completions waiting to be committed.
+		 *
+		 * @return The number of completions.
+		 */
+		public int getPendingCount() {
+			return pending==null ? 0 : pending.size();
+		}
+
+	}
+
+
+	/**
+	 * The default <code>completions</code> list, which exposes its
+	 * modification count so changes made directly by subclasses are
+	 * noticed.  Unlike <code>ArrayList</code>, replacing an element counts
+	 * as a modification.
+	 */
+	private static final class CompletionList extends ArrayList<Completion> {
+
+		int getModCount() {
+			return modCount;
+		}
+
+		@Override
+		public Completion set(int index, Completion c) {
+			modCount++;
+			return super.set(index, c);
+		}
+
+	}
+
+
+	/**
+	 * An immutable snapshot of the index, along with the number of
+	 * completions in the provider and the modification count of its list
+	 * when it was taken.
+	 */
+	private static final class IndexSnapshot {
+
+		private final CompletionIndex index;
+		private final int size;
+		private final int modCount;
+
+		/**
+		 * Created when first needed.  Since it is immutable, it does no
+		 * harm if two threads happen to both create it.
+		 */
+		private volatile FuzzyMatchIndex fuzzyMatchIndex;
+
+		IndexSnapshot(CompletionIndex index, int size, int modCount) {
+			this.index = index;
+			this.size = size;
+			this.modCount = modCount;
+		}
+
+		/**
+		 * Created when first needed, if the index isn't a trie already.
+		 */
+		private volatile TrieCompletionIndex trie;
+
+		FuzzyMatchIndex getFuzzyMatchIndex() {
+			FuzzyMatchIndex fuzzy = fuzzyMatchIndex;
+			if (fuzzy==null) {
+				List<Completion> all = new ArrayList<>(size);
+				index.getCompletionsWithPrefix(EMPTY_STRING, all);
+				fuzzy = new FuzzyMatchIndex(all);
+				fuzzyMatchIndex = fuzzy;
+			}
+			return fuzzy;
+		}
+
+		TrieCompletionIndex getTrie() {
+			if (index instanceof TrieCompletionIndex) {
+				return (TrieCompletionIndex)index;
+			}
+			TrieCompletionIndex t = trie;
+			if (t==null) {
+				List<Completion> all = new ArrayList<>(size);
+				index.getCompletionsWithPrefix(EMPTY_STRING, all);
+				t = new TrieCompletionIndex();
+				t.rebuild(all);
+				trie = t;
+			}
+			return t;
+		}
+
+	}
+
+
+	/**
+	 * Sorts completions starting with some text before those that don't,
+	 * then by relevance.
+	 */
+	private static final class ExactPrefixFirstComparator
+			implements Comparator<Completion> {
+
+		private final String prefix;
+		private final Comparator<Completion> relevanceComparator;
+
+		ExactPrefixFirstComparator(String prefix,
+				Comparator<Completion> relevanceComparator) {
+			this.prefix = prefix;
+			this.relevanceComparator = relevanceComparator;
+		}
+
+		@Override
+		public int compare(Completion c1, Completion c2) {
+			boolean exact1 = Util.startsWithIgnoreCase(c1.getInputText(),
+					prefix);
+			boolean exact2 = Util.startsWithIgnoreCase(c2.getInputText(),
+					prefix);
+			if (exact1!=exact2) {
+				return exact1 ? -1 : 1;
+			}
+			return relevanceComparator.compare(c1, c2);
+		}
+
+	}
+
+
+	/**
+	 * Receives the text already entered for
+	 * {@link AbstractCompletionProvider#getCompletions(JTextComponent, List)}.
+	 */
+	private static final class PrefixQuery implements CharSequenceSink {
+
+		private AbstractCompletionProvider provider;
+		private List<Completion> result;
+
+		@Override
+		public void accept(CharSequence text) {
+			provider.getCompletionsMatching(text, result);
+		}
+
+	}
+
+
 	/**
 	 * A comparator that compares the input text of a {@link Completion}
 	 * against a String lexicographically, ignoring case.
@@ -0,0 +1,101 @@
+/*
+ * 10/17/2026
+ *
+ * AsyncCompletionProvider.java - A provider that computes completions off
+ * the EDT.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import javax.swing.text.JTextComponent;
+
+
+/**
+ * A {@link CompletionProvider} that can compute its completions in the
+ * background.  This is useful for providers that may be slow, such as those
+ * that scan an entire project for symbols, or that query a remote server.
+ * If an {@link AutoCompletion} has asynchronous completion enabled and its
+ * provider implements this interface, the user can keep typing while
+ * completions are being computed.<p>
+ *
+ * {@link #getCompletionsAsync(JTextComponent, String, Executor)} is called
+ * on the EDT.  Implementations should grab anything they need from the text
+ * component before returning, since Swing text components and documents
+ * should not be accessed from other threads, and do the actual work on the
+ * executor.  If the user types again before the completions are computed,
+ * the returned future is cancelled and its result ignored; long-running
+ * implementations can check {@code CompletableFuture.isCancelled()} to stop
+ * early.<p>
+ *
+ * {@link AsyncCompletionProviderAdapter} implements this interface for any
+ * {@link AbstractCompletionProvider}.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AutoCompletion#setAsyncCompletionEnabled(boolean)
+ */
+public interface AsyncCompletionProvider extends CompletionProvider {
+
+
+	/**
+	 * Starts computing the completions for the text component at its current
+	 * caret position.
+	 *
+	 * @param comp The text component.  This should only be accessed before
+	 *        this method returns.
+	 * @param alreadyEnteredText The text already entered, as returned by
+	 *        {@link #getAlreadyEnteredText(JTextComponent)}.
+	 * @param executor The executor to compute completions on.
+	 * @return A future that will complete with the list of completions, or an
+	 *         empty list if there are none.  The list will be displayed as-is,
+	 *         so it should already be sorted.
+	 */
+	CompletableFuture<List<Completion>> getCompletionsAsync(
+			JTextComponent comp, String alreadyEnteredText, Executor executor);
+
+
+	/**
+	 * Starts computing the completions for the text component at its current
+	 * caret position, passing them to a sink as they become available.  This
+	 * is what {@link AutoCompletion} calls.  The default implementation
+	 * passes the entire result of
+	 * {@link #getCompletionsAsync(JTextComponent, String, Executor)} to the
+	 * sink as a single chunk.  Providers that find their best matches
+	 * quickly, but take a while to find the rest, can override this method
+	 * so the user sees something sooner.
+	 *
+	 * @param comp The text component.  This should only be accessed before
+	 *        this method returns.
+	 * @param alreadyEnteredText The text already entered, as returned by
+	 *        {@link #getAlreadyEnteredText(JTextComponent)}.
+	 * @param executor The executor to compute completions on.
+	 * @param sink Receives the completions.
+	 * @return A future that completes once all completions have been passed
+	 *         to <code>sink</code>.  Cancelling it cancels the future
+	 *         returned by <code>getCompletionsAsync()</code>.
+	 */
+	default CompletableFuture<Void> streamCompletionsAsync(JTextComponent comp,
+			String alreadyEnteredText, Executor executor, CompletionSink sink) {
+		CompletableFuture<List<Completion>> future = getCompletionsAsync(comp,
+				alreadyEnteredText, executor);
+		CompletableFuture<Void> streamed = future.thenAccept(completions -> {
+			if (completions!=null && !completions.isEmpty()) {
+				sink.addCompletions(completions);
+			}
+		});
+		// Cancelling a dependent stage doesn't cancel the stage it depends on
+		streamed.whenComplete((v, error) -> {
+			if (streamed.isCancelled()) {
+				future.cancel(true);
+			}
+		});
+		return streamed;
+	}
+
+
+}
@@ -0,0 +1,366 @@
+/*
+ * 10/17/2026
+ *
+ * AsyncCompletionProviderAdapter.java - Lets an AbstractCompletionProvider
+ * compute its completions off the EDT.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.Point;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import javax.swing.ListCellRenderer;
+import javax.swing.text.JTextComponent;
+
+
+/**
+ * Lets an {@link AbstractCompletionProvider}, such as a
+ * {@link DefaultCompletionProvider}, compute its completions off the EDT.
+ * Install this adapter in an {@link AutoCompletion} instead of the provider
+ * itself, and enable asynchronous completion:
+ *
+ * <pre>
+ * AutoCompletion ac = new AutoCompletion(
+ *       new AsyncCompletionProviderAdapter(provider));
+ * ac.setAsyncCompletionEnabled(true);
+ * </pre>
+ *
+ * The text already entered is read from the text component on the EDT.
+ * Looking up the completions matching it, which is the expensive part for
+ * large providers, is done on the executor against the provider's immutable
+ * index snapshot.  The same goes for parent providers that are
+ * <code>AbstractCompletionProvider</code>s.  Other parent providers may
+ * need the text component to find their completions, so they are still
+ * queried on the EDT.<p>
+ *
+ * Providers whose class overrides <code>getCompletions()</code> or
+ * <code>getCompletionsImpl()</code> may also depend on more than the text
+ * already entered.  Their completions are looked up on the EDT, exactly as
+ * they would be without this adapter.  Subclasses overriding
+ * <code>getCompletionsMatching()</code> are supported, but that method must
+ * then be safe to call from any thread.<p>
+ *
+ * All other methods are passed on to the provider.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AutoCompletion#setAsyncCompletionEnabled(boolean)
+ */
+public class AsyncCompletionProviderAdapter implements AsyncCompletionProvider {
+
+	private final AbstractCompletionProvider provider;
+
+	/**
+	 * Whether a provider class overrides a method that looks up completions
+	 * from the text component, rather than just the text already entered.
+	 */
+	private static final ClassValue<Boolean> OVERRIDES_LOOKUP =
+			new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return CompletionProviderBase.overridesGetCompletions(type) ||
+					getDeclaringClass(type, "getCompletionsImpl")!=
+						AbstractCompletionProvider.class;
+		}
+	};
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param provider The provider to compute completions with.
+	 * @throws IllegalArgumentException If <code>provider</code> is
+	 *         <code>null</code>.
+	 */
+	public AsyncCompletionProviderAdapter(AbstractCompletionProvider provider) {
+		if (provider==null) {
+			throw new IllegalArgumentException("provider cannot be null");
+		}
+		this.provider = provider;
+	}
+
+
+	/**
+	 * Adds lookups for the completions of each of the provider's parents.
+	 * This mirrors how {@link CompletionProviderBase} gets the completions
+	 * of its parents, but defers those that can be looked up by text alone.
+	 *
+	 * @param comp The text component.
+	 * @param lookups The list to add to.
+	 */
+	private void addParentLookups(JTextComponent comp, List<Lookup> lookups) {
+
+		CompletionProvider p = provider.getParent();
+
+		while (p!=null) {
+
+			if (isQueriedByText(p)) {
+				AbstractCompletionProvider acp = (AbstractCompletionProvider)p;
+				lookups.add(new Lookup(acp,
+						acp.getQueryCachedAlreadyEnteredText(comp)));
+				p = acp.getParent();
+			}
+
+			else if (p instanceof CompletionProviderBase &&
+					!CompletionProviderBase.overridesGetCompletions(p.getClass())) {
+				CompletionProviderBase base = (CompletionProviderBase)p;
+				lookups.add(new Lookup(CompletionProviderBase.getAllCompletions(
+						base.getCompletionsImpl(comp))));
+				p = base.getParent();
+			}
+
+			else {
+				// We don't know what this provider does, so let it handle
+				// its own parents.
+				List<Completion> completions = p.getCompletions(comp);
+				if (completions!=null) {
+					lookups.add(new Lookup(CompletionProviderBase.
+							getAllCompletions(completions)));
+				}
+				break;
+			}
+
+		}
+
+	}
+
+
+	@Override
+	public void clearParameterizedCompletionParams() {
+		provider.clearParameterizedCompletionParams();
+	}
+
+
+	@Override
+	public String getAlreadyEnteredText(JTextComponent comp) {
+		return provider.getAlreadyEnteredText(comp);
+	}
+
+
+	@Override
+	public void getAlreadyEnteredText(JTextComponent comp,
+			CharSequenceSink sink) {
+		provider.getAlreadyEnteredText(comp, sink);
+	}
+
+
+	@Override
+	public List<Completion> getCompletions(JTextComponent comp) {
+		return provider.getCompletions(comp);
+	}
+
+
+	@Override
+	public List<Completion> getCompletionsAt(JTextComponent comp, Point p) {
+		return provider.getCompletionsAt(comp, p);
+	}
+
+
+	/**
+	 * Looks up the text already entered for each provider in the chain on
+	 * the EDT, then the completions matching it on the executor.  The
+	 * completions returned are the same as those returned by the provider's
+	 * {@link CompletionProvider#getCompletions(JTextComponent)}.
+	 */
+	@Override
+	public CompletableFuture<List<Completion>> getCompletionsAsync(
+			JTextComponent comp, String alreadyEnteredText, Executor executor) {
+
+		if (!isQueriedByText(provider)) {
+			return CompletableFuture.completedFuture(
+					provider.getCompletions(comp));
+		}
+
+		// Everything that needs the text component is done here, on the EDT
+		List<Lookup> lookups = new ArrayList<>();
+		lookups.add(new Lookup(provider, alreadyEnteredText));
+		addParentLookups(comp, lookups);
+		Comparator<Completion> comparator = provider.getCompletionComparator(
+				comp);
+		int limit = provider.getCompletionLimit();
+		boolean removeDuplicates = provider.getRemoveDuplicateCompletions();
+
+		return CompletableFuture.supplyAsync(() -> {
+			List<Completion> completions;
+			if (lookups.size()==1) {
+				completions = lookups.get(0).getCompletions();
+			}
+			else {
+				List<List<Completion>> lists = new ArrayList<>(lookups.size());
+				for (Lookup lookup : lookups) {
+					lists.add(lookup.getCompletions());
+				}
+				completions = CompletionProviderBase.mergeCompletions(lists,
+						removeDuplicates);
+			}
+			return PagedCompletionList.create(completions, comparator, limit);
+		}, executor);
+
+	}
+
+
+	/**
+	 * Returns the class declaring a (possibly non-public) method of a
+	 * provider class that takes just a text component.
+	 *
+	 * @param type The provider class.
+	 * @param name The name of the method.
+	 * @return The class declaring the method.
+	 */
+	private static Class<?> getDeclaringClass(Class<?> type, String name) {
+		for (Class<?> c=type; c!=null; c=c.getSuperclass()) {
+			for (Method m : c.getDeclaredMethods()) {
+				if (m.getName().equals(name) &&
+						m.getParameterCount()==1 &&
+						m.getParameterTypes()[0]==JTextComponent.class) {
+					return c;
+				}
+			}
+		}
+		return null;
+	}
+
+
+	@Override
+	public ListCellRenderer<Object> getListCellRenderer() {
+		return provider.getListCellRenderer();
+	}
+
+
+	@Override
+	public ParameterChoicesProvider getParameterChoicesProvider() {
+		return provider.getParameterChoicesProvider();
+	}
+
+
+	@Override
+	public List<ParameterizedCompletion> getParameterizedCompletions(
+			JTextComponent tc) {
+		return provider.getParameterizedCompletions(tc);
+	}
+
+
+	@Override
+	public char getParameterListEnd() {
+		return provider.getParameterListEnd();
+	}
+
+
+	@Override
+	public String getParameterListSeparator() {
+		return provider.getParameterListSeparator();
+	}
+
+
+	@Override
+	public char getParameterListStart() {
+		return provider.getParameterListStart();
+	}
+
+
+	@Override
+	public CompletionProvider getParent() {
+		return provider.getParent();
+	}
+
+
+	/**
+	 * Returns the provider this adapter computes completions with.
+	 *
+	 * @return The provider.
+	 */
+	public AbstractCompletionProvider getProvider() {
+		return provider;
+	}
+
+
+	@Override
+	public boolean isAutoActivateOkay(JTextComponent tc) {
+		return provider.isAutoActivateOkay(tc);
+	}
+
+
+	/**
+	 * Returns whether a provider's completions depend only on the text
+	 * already entered, so they can be looked up off the EDT.
+	 *
+	 * @param p The provider.
+	 * @return Whether the provider's completions can be looked up by text.
+	 */
+	private static boolean isQueriedByText(CompletionProvider p) {
+		return p instanceof AbstractCompletionProvider &&
+				!OVERRIDES_LOOKUP.get(p.getClass());
+	}
+
+
+	@Override
+	public void setListCellRenderer(ListCellRenderer<Object> r) {
+		provider.setListCellRenderer(r);
+	}
+
+
+	@Override
+	public void setParameterizedCompletionParams(char listStart,
+			String separator, char listEnd) {
+		provider.setParameterizedCompletionParams(listStart, separator,
+				listEnd);
+	}
+
+
+	@Override
+	public void setParent(CompletionProvider parent) {
+		provider.setParent(parent);
+	}
+
+
+	/**
+	 * The completions of one provider in the chain.  These are either looked
+	 * up on the executor from text read on the EDT, or were already looked
+	 * up on the EDT.
+	 */
+	private static final class Lookup {
+
+		private final AbstractCompletionProvider provider;
+		private final String text;
+		private final List<Completion> completions;
+
+		Lookup(AbstractCompletionProvider provider, String text) {
+			this.provider = provider;
+			this.text = text;
+			completions = null;
+		}
+
+		Lookup(List<Completion> completions) {
+			provider = null;
+			text = null;
+			this.completions = completions;
+		}
+
+		/**
+		 * Returns the completions, looking them up if necessary.
+		 *
+		 * @return The completions.
+		 */
+		List<Completion> getCompletions() {
+			if (provider==null) {
+				return completions;
+			}
+			if (text==null) {
+				return new ArrayList<>(0);
+			}
+			List<Completion> result = new ArrayList<>();
+			provider.getCompletionsMatching(text, result);
+			return result;
+		}
+
+	}
+
+
+}
@@ -72,6 +72,18 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	 */
 	private Completion lastSelection;
 
+	/**
+	 * Used to narrow down completions as the user types, while this window
+	 * is visible.  This may be <code>null</code>.
+	 */
+	private CompletionQuerySession querySession;
+
+	/**
+	 * If the provider only returned its most relevant completions, this is
+	 * the list to load more completions from as the user scrolls down.
+	 */
+	private PagedCompletionList pagedCompletions;
+
 	/**
 	 * Optional popup window containing a description of the currently
 	 * selected completion.
@@ -166,6 +178,14 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	    								JScrollPane.LOWER_LEFT_CORNER;
 	    sp.setCorner(str, corner);
 
+		// Load more completions when scrolled to the bottom, if there are any
+		sp.getViewport().addChangeListener(e -> {
+			if (pagedCompletions!=null && pagedCompletions.hasMore() &&
+					list.getLastVisibleIndex()>=model.getSize()-1) {
+				loadMoreCompletions(pagedCompletions.getPageSize());
+			}
+		});
+
 		contentPane.add(sp);
 		setContentPane(contentPane);
 		applyComponentOrientation(o);
@@ -314,6 +334,18 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	}
 
 
+	/**
+	 * Returns the session used to narrow down completions while this window
+	 * is visible.
+	 *
+	 * @return The session, or <code>null</code> if there is none.
+	 * @see #setQuerySession(CompletionQuerySession)
+	 */
+	public CompletionQuerySession getQuerySession() {
+		return querySession;
+	}
+
+
 	/**
 	 * Returns the selected value, or <code>null</code> if nothing is selected.
 	 *
@@ -419,6 +451,23 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	}
 
 
+	/**
+	 * Appends more completions to the list, if the provider did not return
+	 * all of them at once.
+	 *
+	 * @param count The maximum number of completions to load.
+	 * @return Whether any completions were loaded.
+	 */
+	private boolean loadMoreCompletions(int count) {
+		if (pagedCompletions!=null && pagedCompletions.hasMore()) {
+			pagedCompletions.loadMore(count); // Appends to the list viewed
+			model.contentsAppended();
+			return true;
+		}
+		return false;
+	}
+
+
 	/**
 	 * Positions the description window relative to the completion choices
 	 * window.  We assume there is room on one side of the other for this
@@ -524,6 +573,9 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	 * @see #selectFirstItem()
 	 */
 	private void selectLastItem() {
+		if (pagedCompletions!=null) {
+			loadMoreCompletions(pagedCompletions.getRemainingCount());
+		}
 		int index = model.getSize() - 1;
 		if (index > -1) {
 			list.setSelectedIndex(index);
@@ -540,6 +592,9 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	private void selectNextItem() {
 		int index = list.getSelectedIndex();
 		if (index > -1) {
+			if (index==model.getSize()-1 && pagedCompletions!=null) {
+				loadMoreCompletions(pagedCompletions.getPageSize());
+			}
 			index = (index + 1) % model.getSize();
 			list.setSelectedIndex(index);
 			list.ensureIndexIsVisible(index);
@@ -555,6 +610,12 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	 */
 	private void selectPageDownItem() {
 		int visibleRowCount = list.getVisibleRowCount();
+		int needed = list.getSelectedIndex() + visibleRowCount + 1 -
+				model.getSize();
+		if (needed>0 && pagedCompletions!=null) {
+			loadMoreCompletions(Math.max(needed,
+					pagedCompletions.getPageSize()));
+		}
 		int i = Math.min(list.getModel().getSize()-1,
 						list.getSelectedIndex()+visibleRowCount);
 		list.setSelectedIndex(i);
@@ -603,14 +664,73 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 
 
 	/**
-	 * Sets the completions to display in the choices list.  The first
+	 * Appends completions to the end of the choices list, e.g. as they
+	 * arrive from an {@link AsyncCompletionProvider}.  The selected
+	 * completion does not change, unless the list was empty.
+	 *
+	 * @param completions The completions to append.
+	 * @see #setCompletions(List)
+	 */
+	public void appendCompletions(List<Completion> completions) {
+		boolean wasEmpty = model.getSize()==0;
+		// The model stops viewing the paged list once appended to
+		if (pagedCompletions!=null) {
+			loadMoreCompletions(pagedCompletions.getRemainingCount());
+			pagedCompletions = null;
+		}
+		model.addAll(completions);
+		if (wasEmpty) {
+			selectFirstItem();
+		}
+	}
+
+
+	/**
+	 * Sets the completions to display in the choices list.  If the
+	 * completion selected is among them, for example while completions are
+	 * narrowed down by typing, it stays selected.  Otherwise, the first
 	 * completion is selected.
 	 *
 	 * @param completions The completions to display.
 	 */
 	public void setCompletions(List<Completion> completions) {
-		model.setContents(completions);
-		selectFirstItem();
+
+		pagedCompletions = completions instanceof PagedCompletionList ?
+				(PagedCompletionList)completions : null;
+		Completion selected = list.getSelectedValue();
+		int index = model.setContents(completions, list.getSelectedIndex());
+		if (model.getSize()==0) {
+			return;
+		}
+
+		if (index<0) {
+			index = 0;
+		}
+
+		if (list.getSelectedIndex()!=index) {
+			list.setSelectedIndex(index);
+		}
+		else if (list.getSelectedValue()!=selected) {
+			// No selection event, but a different completion is selected
+			updateDescWindow();
+		}
+		list.ensureIndexIsVisible(index);
+
+	}
+
+
+	/**
+	 * Sets the session used to narrow down completions while this window is
+	 * visible.  The session is closed when this window is hidden.
+	 *
+	 * @param session The session.  This may be <code>null</code>.
+	 * @see #getQuerySession()
+	 */
+	public void setQuerySession(CompletionQuerySession session) {
+		if (querySession!=null && querySession!=session) {
+			querySession.close();
+		}
+		querySession = session;
 	}
 
 
@@ -762,6 +882,8 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 			if (!visible) { // Do after super.setVisible(false)
 				lastSelection = list.getSelectedValue();
 				model.clear();
+				pagedCompletions = null;
+				setQuerySession(null);
 			}
 
 			// Must set descWindow's visibility one way or the other each time,
@@ -830,6 +952,19 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	}
 
 
+	/**
+	 * Shows the description of the selected completion in the description
+	 * window, if it's visible.
+	 */
+	private void updateDescWindow() {
+		Completion value = list.getSelectedValue();
+		if (value!=null && descWindow!=null) {
+			descWindow.setDescriptionFor(value);
+			positionDescWindow();
+		}
+	}
+
+
 	/**
 	 * Called when a new item is selected in the popup list.
 	 *
@@ -838,11 +973,7 @@ class AutoCompletePopupWindow extends JWindow implements CaretListener,
 	@Override
 	public void valueChanged(ListSelectionEvent e) {
 		if (!e.getValueIsAdjusting()) {
-			Completion value = list.getSelectedValue();
-			if (value!=null && descWindow!=null) {
-				descWindow.setDescriptionFor(value);
-				positionDescWindow();
-			}
+			updateDescWindow();
 		}
 	}
 
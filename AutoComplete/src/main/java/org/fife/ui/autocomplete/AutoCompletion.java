@@ -11,7 +11,14 @@ package org.fife.ui.autocomplete;
 import java.awt.*;
 import java.awt.event.*;
 import java.beans.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.text.*;
@@ -226,6 +233,52 @@ public class AutoCompletion {
 	 */
 	private boolean hideOnCompletionProviderChange;
 
+	/**
+	 * Whether completions are computed off the EDT, for providers that
+	 * support it.
+	 */
+	private boolean asyncCompletionEnabled;
+
+	/**
+	 * The executor asynchronous completions are computed on.  If this is
+	 * <code>null</code>, a shared, single-threaded executor is used.
+	 */
+	private Executor asyncExecutor;
+
+	/**
+	 * Notified of errors computing completions asynchronously.  This may be
+	 * <code>null</code>.
+	 */
+	private Consumer<Throwable> asyncErrorHandler;
+
+	/**
+	 * The asynchronous completion request in progress, if any.
+	 */
+	private CompletableFuture<Void> pendingRequest;
+
+	/**
+	 * Incremented each time an asynchronous request is made or cancelled, so
+	 * results of stale requests can be recognized and ignored.
+	 */
+	private int requestCount;
+
+	/**
+	 * The executor shared by all instances that don't have one set.
+	 */
+	private static Executor defaultAsyncExecutor;
+
+	/**
+	 * Records the completions the user inserts.  This may be
+	 * <code>null</code>.
+	 */
+	private CompletionUsageTracker usageTracker;
+
+	/**
+	 * Remembers provider lookups made for the current document state and
+	 * caret position, so each is only made once per keystroke.
+	 */
+	private final CompletionQueryCache queryCache;
+
 	/**
 	 * The key used in the input map for the AutoComplete action.
 	 */
@@ -259,6 +312,7 @@ public class AutoCompletion {
 		setChoicesWindowSize(350, 200);
 		setDescriptionWindowSize(350, 250);
 
+		queryCache = new CompletionQueryCache();
 		setCompletionProvider(provider);
 		setTriggerKey(getDefaultTriggerKey());
 		setAutoCompleteEnabled(true);
@@ -289,6 +343,32 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Appends completions received from an asynchronous request to those
+	 * displayed, if the popup window is still visible.
+	 *
+	 * @param completions The completions to append.
+	 */
+	void appendCompletions(List<Completion> completions) {
+		if (isPopupVisible()) {
+			popupWindow.appendCompletions(completions);
+		}
+	}
+
+
+	/**
+	 * Cancels the asynchronous completion request in progress, if any.  Its
+	 * results, if they arrive, will be ignored.
+	 */
+	private void cancelPendingRequest() {
+		requestCount++;
+		if (pendingRequest != null) {
+			pendingRequest.cancel(true);
+			pendingRequest = null;
+		}
+	}
+
+
 	/**
 	 * Displays the popup window. Hosting applications can call this method to
 	 * programmatically begin an auto-completion operation.
@@ -335,6 +415,31 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Returns the handler notified when a provider fails to compute
+	 * completions asynchronously.
+	 *
+	 * @return The handler, or <code>null</code> if none.
+	 * @see #setAsyncErrorHandler(Consumer)
+	 */
+	public Consumer<Throwable> getAsyncErrorHandler() {
+		return asyncErrorHandler;
+	}
+
+
+	/**
+	 * Returns the executor asynchronous completions are computed on.
+	 *
+	 * @return The executor.  This will never be <code>null</code>.
+	 * @see #setAsyncExecutor(Executor)
+	 * @see #isAsyncCompletionEnabled()
+	 */
+	public Executor getAsyncExecutor() {
+		return asyncExecutor != null ? asyncExecutor :
+				getDefaultAsyncExecutor();
+	}
+
+
 	/**
 	 * Returns whether, if a single auto-complete choice is available, it should
 	 * be automatically inserted, without displaying the popup menu.
@@ -367,6 +472,25 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Returns the executor shared by instances that don't have one set,
+	 * creating it if necessary.  It runs on a single daemon thread, so
+	 * requests are handled in the order they are made.
+	 *
+	 * @return The executor.
+	 */
+	private static synchronized Executor getDefaultAsyncExecutor() {
+		if (defaultAsyncExecutor == null) {
+			defaultAsyncExecutor = Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "AutoCompletion");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return defaultAsyncExecutor;
+	}
+
+
 	/**
 	 * Returns the default auto-complete "trigger key" for this OS. For Windows,
 	 * for example, it is Ctrl+Space.
@@ -457,6 +581,20 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Returns the cache used to remember provider lookups, such as the text
+	 * already entered, made for the current document state and caret
+	 * position.  Its hit and miss counts show how many lookups were
+	 * avoided.
+	 *
+	 * @return The query cache.
+	 * @see CompletionProviderBase#setQueryCache(CompletionQueryCache)
+	 */
+	public CompletionQueryCache getQueryCache() {
+		return queryCache;
+	}
+
+
 	/**
 	 * Returns whether the "description window" should be shown alongside the
 	 * completion window.
@@ -537,6 +675,17 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Returns the tracker that records the completions the user inserts.
+	 *
+	 * @return The usage tracker, or <code>null</code> if none.
+	 * @see #setUsageTracker(CompletionUsageTracker)
+	 */
+	public CompletionUsageTracker getUsageTracker() {
+		return usageTracker;
+	}
+
+
 	/**
 	 * Hides any child windows being displayed by the auto-completion system.
 	 *
@@ -571,6 +720,7 @@ public class AutoCompletion {
 	 * @return Whether the popup window was visible.
 	 */
 	protected boolean hidePopupWindow() {
+		cancelPendingRequest();
 		if (popupWindow != null) {
 			if (popupWindow.isVisible()) {
 				setPopupVisible(false);
@@ -636,6 +786,10 @@ public class AutoCompletion {
 		caret.moveDot(dot);
 		textComp.replaceSelection(replacement);
 
+		if (usageTracker!=null) {
+			usageTracker.recordUsage(c);
+		}
+
 		if (isParameterAssistanceEnabled() &&
 				(c instanceof ParameterizedCompletion)) {
 			ParameterizedCompletion pc = (ParameterizedCompletion) c;
@@ -724,6 +878,19 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Returns whether completions are computed off the EDT.  This only
+	 * applies to providers that implement {@link AsyncCompletionProvider};
+	 * completions from other providers are always computed on the EDT.
+	 *
+	 * @return Whether asynchronous completion is enabled.
+	 * @see #setAsyncCompletionEnabled(boolean)
+	 */
+	public boolean isAsyncCompletionEnabled() {
+		return asyncCompletionEnabled;
+	}
+
+
 	/**
 	 * Returns whether auto-activation is enabled (that is, whether the
 	 * completion popup will automatically appear after a delay when the user
@@ -812,7 +979,8 @@ public class AutoCompletion {
 	protected int refreshPopupWindow() {
 
 		// A return value of null => don't suggest completions
-		String text = provider.getAlreadyEnteredText(textComponent);
+		String text = queryCache.getAlreadyEnteredText(provider,
+				textComponent);
 		if (text == null && !isPopupVisible()) {
 			return getLineOfCaret();
 		}
@@ -829,8 +997,47 @@ public class AutoCompletion {
 			}
 		}
 
-		final List<Completion> completions = provider
-				.getCompletions(textComponent);
+		if (isAsyncCompletionEnabled() &&
+				provider instanceof AsyncCompletionProvider) {
+			if (text == null) {
+				hidePopupWindow();
+			}
+			else {
+				requestCompletionsAsync((AsyncCompletionProvider)provider,
+						text);
+			}
+			return getLineOfCaret();
+		}
+
+		// Keep narrowing down the previous results while the popup is visible
+		CompletionQuerySession session = isPopupVisible() ?
+				popupWindow.getQuerySession() : null;
+		if (session==null || session.getProvider()!=provider) {
+			session = provider instanceof CompletionProviderBase ?
+				((CompletionProviderBase)provider).createQuerySession() : null;
+		}
+
+		List<Completion> completions = session!=null ?
+				session.getCompletions(textComponent, text) :
+				queryCache.getCompletions(provider, textComponent);
+		return showCompletions(completions, textLen, session);
+
+	}
+
+
+	/**
+	 * Displays completions in the popup window, hiding it if there are
+	 * none, or inserting the only one if appropriate.
+	 *
+	 * @param completions The completions.  This may be <code>null</code>.
+	 * @param textLen The length of the text already entered.
+	 * @param session The query session the completions came from, or
+	 *        <code>null</code> for none.
+	 * @return The current line number of the caret.
+	 */
+	int showCompletions(final List<Completion> completions,
+			int textLen, CompletionQuerySession session) {
+
 		int count = completions==null ? 0 : completions.size();
 
 		if (count > 1 || (count == 1 && (isPopupVisible() || textLen == 0)) ||
@@ -857,6 +1064,7 @@ public class AutoCompletion {
 			}
 
 			popupWindow.setCompletions(completions);
+			popupWindow.setQuerySession(session);
 
 			if (!popupWindow.isVisible()) {
 				Rectangle r;
@@ -890,6 +1098,29 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Starts computing completions in the background.  The popup window is
+	 * updated as they become available, unless the user has moved on by then.
+	 *
+	 * @param asyncProvider The provider to get completions from.
+	 * @param text The text already entered.
+	 */
+	private void requestCompletionsAsync(
+			AsyncCompletionProvider asyncProvider, String text) {
+
+		cancelPendingRequest();
+		AsyncRequest request = new AsyncRequest(asyncProvider, text);
+
+		CompletableFuture<Void> future = asyncProvider.streamCompletionsAsync(
+				textComponent, text, getAsyncExecutor(), request);
+		pendingRequest = future;
+
+		future.whenComplete((v, error) ->
+			SwingUtilities.invokeLater(() -> request.finished(error)));
+
+	}
+
+
 	/**
 	 * Removes a listener interested in popup window events from this instance.
 	 *
@@ -901,6 +1132,58 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Sets whether completions are computed off the EDT.  If this is enabled
+	 * and the completion provider implements {@link AsyncCompletionProvider},
+	 * the user can keep typing while completions are computed on the
+	 * {@link #getAsyncExecutor() asynchronous executor}.  Requests that are
+	 * superseded by further typing are cancelled, and their results are only
+	 * displayed if the caret is still where it was when they were made.
+	 * Providers extending {@link AbstractCompletionProvider}, such as a
+	 * {@link DefaultCompletionProvider}, can be wrapped in an
+	 * {@link AsyncCompletionProviderAdapter} to be used this way.  This is
+	 * disabled by default.
+	 *
+	 * @param enabled Whether asynchronous completion is enabled.
+	 * @see #isAsyncCompletionEnabled()
+	 * @see #setAsyncExecutor(Executor)
+	 */
+	public void setAsyncCompletionEnabled(boolean enabled) {
+		if (enabled != asyncCompletionEnabled) {
+			asyncCompletionEnabled = enabled;
+			cancelPendingRequest();
+		}
+	}
+
+
+	/**
+	 * Sets the handler notified when a provider fails to compute completions
+	 * asynchronously.  It is called on the EDT, and only for requests that
+	 * are still current; cancelled requests are not errors.
+	 *
+	 * @param handler The handler.  If this is <code>null</code>, the look
+	 *        and feel's error feedback (usually a beep) is given instead.
+	 * @see #getAsyncErrorHandler()
+	 * @see #setAsyncCompletionEnabled(boolean)
+	 */
+	public void setAsyncErrorHandler(Consumer<Throwable> handler) {
+		asyncErrorHandler = handler;
+	}
+
+
+	/**
+	 * Sets the executor asynchronous completions are computed on.
+	 *
+	 * @param executor The executor.  If this is <code>null</code>, a shared,
+	 *        single-threaded executor is used.
+	 * @see #getAsyncExecutor()
+	 * @see #setAsyncCompletionEnabled(boolean)
+	 */
+	public void setAsyncExecutor(Executor executor) {
+		asyncExecutor = executor;
+	}
+
+
 	/**
 	 * Sets the delay between when the user types a character and when the code
 	 * completion popup should automatically appear (if applicable).
@@ -977,6 +1260,13 @@ public class AutoCompletion {
 			throw new IllegalArgumentException("provider cannot be null");
 		}
 		this.provider = provider;
+		if (provider instanceof CompletionProviderBase) {
+			CompletionProviderBase base = (CompletionProviderBase)provider;
+			if (base.getQueryCache() == null) {
+				base.setQueryCache(queryCache);
+			}
+		}
+		cancelPendingRequest();
 		if (isHideOnCompletionProviderChange()) {
 			hidePopupWindow(); // In case new choices should be displayed.
 		}
@@ -1181,6 +1471,20 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * Sets the tracker that records the completions the user inserts.  To
+	 * rank frequently used completions higher, the same tracker should be
+	 * set on the completion provider.
+	 *
+	 * @param tracker The usage tracker, or <code>null</code> for none.
+	 * @see #getUsageTracker()
+	 * @see CompletionProviderBase#setUsageTracker(CompletionUsageTracker)
+	 */
+	public void setUsageTracker(CompletionUsageTracker tracker) {
+		usageTracker = tracker;
+	}
+
+
 	/**
 	 * Displays a "tool tip" detailing the inputs to the function just entered.
 	 *
@@ -1310,6 +1614,120 @@ public class AutoCompletion {
 	}
 
 
+	/**
+	 * An asynchronous completion request.  This receives completions from the
+	 * provider and displays them on the EDT, as long as the caret is still
+	 * where it was when the request was made.
+	 */
+	private class AsyncRequest implements CompletionSink {
+
+		private final int id;
+		private final AsyncCompletionProvider asyncProvider;
+		private final String text;
+		private final Document doc;
+		private final int caret;
+
+		/**
+		 * Completions received but not yet displayed.
+		 */
+		private List<Completion> received;
+
+		/**
+		 * Whether completions from this request have been displayed.
+		 */
+		private boolean shown;
+
+		AsyncRequest(AsyncCompletionProvider asyncProvider, String text) {
+			id = requestCount;
+			this.asyncProvider = asyncProvider;
+			this.text = text;
+			doc = textComponent.getDocument();
+			caret = textComponent.getCaretPosition();
+			received = new ArrayList<>();
+		}
+
+		@Override
+		public void addCompletions(List<Completion> chunk) {
+			if (!chunk.isEmpty()) {
+				SwingUtilities.invokeLater(() -> chunkReceived(chunk));
+			}
+		}
+
+		private void chunkReceived(List<Completion> chunk) {
+			if (!isCurrent()) {
+				return;
+			}
+			if (shown) {
+				appendCompletions(chunk);
+			}
+			else {
+				received.addAll(chunk);
+				// Synchronously, a single completion is inserted rather than
+				// shown if the popup isn't visible.  Whether there is only
+				// one can't be known until all completions have arrived, so
+				// a lone first completion is held back until another one
+				// arrives or the request finishes.  Otherwise the popup
+				// would flash up only to be replaced by the insertion.
+				if (received.size() > 1 || isPopupVisible() ||
+						!getAutoCompleteSingleChoices()) {
+					show();
+				}
+			}
+		}
+
+		/**
+		 * Called on the EDT once all completions have been received.
+		 *
+		 * @param error The error that occurred, or <code>null</code> for none.
+		 */
+		void finished(Throwable error) {
+			if (!isCurrent()) {
+				return;
+			}
+			pendingRequest = null;
+			if (error != null) {
+				Throwable cause = error instanceof CompletionException ?
+						error.getCause() : error;
+				if (!(cause instanceof CancellationException)) {
+					if (asyncErrorHandler != null) {
+						asyncErrorHandler.accept(cause);
+					}
+					else {
+						UIManager.getLookAndFeel().provideErrorFeedback(
+								textComponent);
+					}
+				}
+			}
+			else if (!shown) {
+				show();
+			}
+		}
+
+		/**
+		 * Returns whether the user is still entering the text this request
+		 * was made for.
+		 *
+		 * @return Whether this request is still current.
+		 */
+		private boolean isCurrent() {
+			return id == requestCount && provider == asyncProvider &&
+					textComponent != null &&
+					textComponent.getDocument() == doc &&
+					textComponent.getCaretPosition() == caret &&
+					text.equals(queryCache.getAlreadyEnteredText(provider,
+							textComponent));
+		}
+
+		private void show() {
+			shown = true;
+			List<Completion> completions = received;
+			received = null;
+			showCompletions(completions, text.length(), null);
+		}
+
+	}
+
+
 	/**
 	 * Listens for events in the text component to auto-activate the code
 	 * completion popup.
@@ -1362,7 +1780,8 @@ public class AutoCompletion {
 			justInserted = false;
 			if (isAutoCompleteEnabled() && isAutoActivationEnabled() &&
 					e.getLength() == 1) {
-				if (textComponent != null && provider.isAutoActivateOkay(textComponent)) {
+				if (textComponent != null &&
+						queryCache.isAutoActivateOkay(provider, textComponent)) {
 					timer.restart();
 					justInserted = true;
 				}
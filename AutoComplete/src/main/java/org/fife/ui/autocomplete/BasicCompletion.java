@@ -136,6 +136,7 @@ public class BasicCompletion extends AbstractCompletion {
 	 */
 	@Override
 	public String toString() {
+		String shortDesc = getShortDescription();
 		if (shortDesc==null) {
 			return getInputText();
 		}
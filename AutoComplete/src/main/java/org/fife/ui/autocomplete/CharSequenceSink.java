@@ -0,0 +1,36 @@
+/*
+ * 10/17/2026
+ *
+ * CharSequenceSink.java - Receives a view of some text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * Receives a read-only view of some text, such as the text already entered
+ * in a text component, without a <code>String</code> being created for it.
+ * The view is usually backed by the document's own character array, so it
+ * is only valid for the duration of the call; a sink that needs to keep the
+ * text must copy it.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionProvider#getAlreadyEnteredText(javax.swing.text.JTextComponent, CharSequenceSink)
+ */
+@FunctionalInterface
+public interface CharSequenceSink {
+
+
+	/**
+	 * Called with the text.
+	 *
+	 * @param text A view of the text.  This should not be modified or kept
+	 *        after this method returns.
+	 */
+	void accept(CharSequence text);
+
+
+}
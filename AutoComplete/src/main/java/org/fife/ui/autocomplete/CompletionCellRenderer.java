@@ -11,12 +11,20 @@ package org.fife.ui.autocomplete;
 
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Dimension;
 import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Insets;
 import java.awt.Rectangle;
 import java.io.File;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.Icon;
@@ -40,6 +48,12 @@ import javax.swing.text.View;
  *    <li>{@link TemplateCompletion}s</li>
  * </ul>
  *
+ * The text displayed for each completion is cached, so rendering the same
+ * completions over and over, as when scrolling or resizing the completion
+ * list, is cheap.  The cache is keyed on the completion's identity, so if a
+ * completion is modified while it is displayed, {@link #clearCache()} should
+ * be called.
+ *
  * @author Robert Futrell
  * @version 1.0
  */
@@ -66,7 +80,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	/**
 	 * The color to use when rendering types in completion text.
 	 */
-	private String typeColor;
+	private Color typeColor;
 
 	/**
 	 * During rendering, whether the item being rendered is selected.
@@ -82,7 +96,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	/**
 	 * The color to use for function arguments.
 	 */
-	private String paramColor;
+	private Color paramColor;
 
 	/**
 	 * An icon to use when no appropriate icon is found.
@@ -99,14 +113,47 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	private DefaultListCellRenderer delegate;
 
-	private static final String SUBSTANCE_RENDERER_CLASS_NAME =
-			"org.pushingpixels.substance.api.renderer.SubstanceDefaultListCellRenderer";
+	/**
+	 * The most recently displayed text of completions, in least- to
+	 * most-recently used order.
+	 */
+	private Map<CellKey, CompletionCellText> cellTextCache;
 
 	/**
-	 * Keeps the HTML descriptions from "wrapping" in the list, which cuts off
-	 * words.
+	 * Reused to look up completions in <code>cellTextCache</code>.
 	 */
-	private static final String PREFIX = "<html><nobr>";
+	private CellKey lookupKey;
+
+	/**
+	 * The preferred sizes of completions' cells, and the font they were
+	 * measured with.  Completions are only weakly referenced, so sizes are
+	 * discarded once their completions are no longer used, for example
+	 * because their provider was discarded.
+	 */
+	private Map<SizeKey, Dimension> cellSizes;
+	private ReferenceQueue<Completion> discardedCompletions;
+	private Font cellSizeFont;
+
+	/**
+	 * During rendering, the text of the item being rendered, and the string
+	 * this renderer's text was set to for it.
+	 */
+	private CompletionCellText cellText;
+	private String cellTextString;
+
+	/**
+	 * Whether this renderer is being prepared to render an item.  Property
+	 * changes are not fired while this is the case.
+	 */
+	private boolean preparing;
+
+	/**
+	 * The maximum number of completions whose text is cached.
+	 */
+	private static final int MAX_CACHED_CELL_TEXTS = 500;
+
+	private static final String SUBSTANCE_RENDERER_CLASS_NAME =
+			"org.pushingpixels.substance.api.renderer.SubstanceDefaultListCellRenderer";
 
 
 	/**
@@ -133,6 +180,33 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	}
 
 
+	/**
+	 * Caches the text displayed for a completion.
+	 *
+	 * @param c The completion.
+	 * @param selected Whether the completion is selected.
+	 * @param text The text displayed for the completion.
+	 */
+	private void cacheCellText(Completion c, boolean selected,
+			CompletionCellText text) {
+		cellTextCache.put(new CellKey(c, selected, getShowTypes()), text);
+	}
+
+
+	/**
+	 * Clears the cached text displayed for completions.  This is done
+	 * automatically when the colors, fonts or other properties of this
+	 * renderer change, but should be done manually if completions that have
+	 * been displayed are modified.
+	 */
+	public void clearCache() {
+		if (cellTextCache!=null) { // Called from super constructor
+			cellTextCache.clear();
+			cellSizes.clear();
+		}
+	}
+
+
 	/**
 	 * Creates the icon to use if no icon is found for a specific completion.
 	 * The default implementation returns a 16x16 empty icon.
@@ -151,9 +225,9 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 *
 	 * @return The parameter color to use.
 	 */
-	private String createParamColor() {
+	private Color createParamColor() {
 		return Util.isLightForeground(getForeground()) ?
-				Util.getHexString(Util.getHyperlinkForeground()): "#aa0077";
+				Util.getHyperlinkForeground() : new Color(0xaa0077);
 	}
 
 
@@ -163,8 +237,8 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 *
 	 * @return The type color to use.
 	 */
-	private String createTypeColor() {
-		return "#808080";
+	private Color createTypeColor() {
+		return new Color(0x808080);
 	}
 
 
@@ -185,6 +259,21 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	}
 
 
+	/**
+	 * Overridden to not fire property changes while this renderer is being
+	 * prepared to render an item.  Changes to the text, font and foreground
+	 * would each cause the HTML to be parsed again, so the HTML view is
+	 * instead updated once preparation is done.
+	 */
+	@Override
+	protected void firePropertyChange(String propertyName, Object oldValue,
+									Object newValue) {
+		if (!preparing) {
+			super.firePropertyChange(propertyName, oldValue, newValue);
+		}
+	}
+
+
 	/**
 	 * Returns the background color to use on alternating lines.
 	 *
@@ -197,6 +286,53 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	}
 
 
+	/**
+	 * Returns the preferred size of the cell for a completion.  Sizes are
+	 * cached per completion.  Unless a delegate renderer is set, or a
+	 * subclass sets the text itself, they are computed from the completion's
+	 * text and the font's metrics, without an HTML view being created and
+	 * laid out.
+	 *
+	 * @param list The list of choices being rendered.
+	 * @param c The completion.
+	 * @param index The index of the completion in <code>list</code>.
+	 * @return The preferred size.  This should not be modified.
+	 */
+	Dimension getCellSize(JList list, Completion c, int index) {
+
+		Font listFont = font!=null ? font : list.getFont();
+		if (!listFont.equals(cellSizeFont)) {
+			cellSizes.clear();
+			cellSizeFont = listFont;
+		}
+
+		Object discarded;
+		while ((discarded=discardedCompletions.poll())!=null) {
+			cellSizes.remove(discarded);
+		}
+
+		SizeKey key = new SizeKey(c, discardedCompletions);
+		Dimension size = cellSizes.get(key);
+		if (size==null) {
+			size = measureCell(list, c, index);
+			cellSizes.put(key, size);
+		}
+		return size;
+
+	}
+
+
+	/**
+	 * Returns the text of the item being rendered.
+	 *
+	 * @return The text, or <code>null</code> if this renderer's text was not
+	 *         set from a {@link CompletionCellText}, e.g. by a subclass.
+	 */
+	CompletionCellText getCellText() {
+		return cellText!=null && getText()==cellTextString ? cellText : null;
+	}
+
+
 	/**
 	 * Returns the delegate renderer, or <code>null</code> if there is none.
 	 *
@@ -269,35 +405,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	public Component getListCellRendererComponent(JList list, Object value,
 						int index, boolean selected, boolean hasFocus) {
 
-		super.getListCellRendererComponent(list,value,index,selected,hasFocus);
-		if (font!=null) {
-			setFont(font); // Overrides super's setFont(list.getFont()).
-		}
-		this.selected = selected;
-		this.realBG = altBG!=null && (index&1)==1 ? altBG : list.getBackground();
-
-		Completion c = (Completion)value;
-		setIcon(c.getIcon());
-
-		if (c instanceof FunctionCompletion) {
-			FunctionCompletion fc = (FunctionCompletion)value;
-			prepareForFunctionCompletion(list, fc, index, selected, hasFocus);
-		}
-		else if (c instanceof VariableCompletion) {
-			VariableCompletion vc = (VariableCompletion)value;
-			prepareForVariableCompletion(list, vc, index, selected, hasFocus);
-		}
-		else if (c instanceof TemplateCompletion) {
-			TemplateCompletion tc = (TemplateCompletion)value;
-			prepareForTemplateCompletion(list, tc, index, selected, hasFocus);
-		}
-		else if (c instanceof MarkupTagCompletion) {
-			MarkupTagCompletion mtc = (MarkupTagCompletion)value;
-			prepareForMarkupTagCompletion(list, mtc, index, selected, hasFocus);
-		}
-		else {
-			prepareForOtherCompletion(list, c, index, selected, hasFocus);
-		}
+		prepare(list, value, index, selected, hasFocus);
 
 		// A delegate renderer might do its own alternate row striping
 		// (Substance does).
@@ -309,6 +417,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			return delegate;
 		}
 
+		updateHtmlView();
 		if (!selected && (index&1)==1 && altBG!=null) {
 			setBackground(altBG);
 		}
@@ -318,6 +427,18 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	}
 
 
+	/**
+	 * Returns whether the text of completions is displayed as HTML.
+	 *
+	 * @return Whether the text is displayed as HTML.  This renderer always
+	 *         returns <code>true</code>.
+	 * @see #setCellText(CompletionCellText)
+	 */
+	boolean isCellTextHtml() {
+		return true;
+	}
+
+
 	/**
 	 * Returns whether the types of fields and return types of methods are
 	 * shown in the completion text.
@@ -331,6 +452,17 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 
 
 	private void init() {
+		cellTextCache = new LinkedHashMap<CellKey, CompletionCellText>(
+				16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<CellKey, CompletionCellText> eldest) {
+				return size()>MAX_CACHED_CELL_TEXTS;
+			}
+		};
+		lookupKey = new CellKey(null, false, false);
+		cellSizes = new HashMap<>();
+		discardedCompletions = new ReferenceQueue<>();
 		//setDisplayFont(new Font("Monospaced", Font.PLAIN, 12));
 		setShowTypes(true);
 		typeColor = createTypeColor();
@@ -339,6 +471,45 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	}
 
 
+	/**
+	 * Measures the cell for a completion.
+	 *
+	 * @param list The list of choices being rendered.
+	 * @param c The completion.
+	 * @param index The index of the completion in <code>list</code>.
+	 * @return The preferred size of the cell.
+	 * @see #getCellSize(JList, Completion, int)
+	 */
+	private Dimension measureCell(JList list, Completion c, int index) {
+
+		if (delegate!=null) {
+			return getListCellRendererComponent(list, c, index, false, false).
+					getPreferredSize();
+		}
+
+		prepare(list, c, index, false, false);
+		CompletionCellText text = getCellText();
+		if (text==null) { // A subclass set text of its own
+			updateHtmlView();
+			return getPreferredSize();
+		}
+
+		// What the label's UI computes for a single line of text
+		FontMetrics fm = getFontMetrics(getFont());
+		int width = text.getWidth(fm);
+		int height = fm.getHeight();
+		Icon icon = getIcon();
+		if (icon!=null) {
+			width += icon.getIconWidth() + (width>0 ? getIconTextGap() : 0);
+			height = Math.max(height, icon.getIconHeight());
+		}
+		Insets insets = getInsets();
+		return new Dimension(insets.left + width + insets.right,
+				insets.top + height + insets.bottom);
+
+	}
+
+
 	@Override
 	protected void paintComponent(Graphics g) {
 
@@ -367,21 +538,87 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 		if (text != null) {
 			paintTextR.setBounds(iconW,0, getWidth()-iconW,getHeight());
 			paintTextR.x += 3; // Force a slight margin
-			int space = paintTextR.height - g.getFontMetrics().getHeight();
-			View v = (View)getClientProperty(BasicHTML.propertyKey);
-			if (v != null) {
-				// HTML rendering doesn't auto-center vertically, for some
-				// reason
-				paintTextR.y += space/2;
-				paintTextR.height -= space;
-				v.paint(g, paintTextR);
+			paintText(g, text, paintTextR);
+		}
+
+	}
+
+
+	/**
+	 * Paints the text of the completion being rendered.
+	 *
+	 * @param g The graphics context.
+	 * @param text The text, which is usually HTML.
+	 * @param textR The bounds to paint the text in.  This may be modified.
+	 */
+	void paintText(Graphics g, String text, Rectangle textR) {
+		int space = textR.height - g.getFontMetrics().getHeight();
+		View v = (View)getClientProperty(BasicHTML.propertyKey);
+		if (v != null) {
+			// HTML rendering doesn't auto-center vertically, for some
+			// reason
+			textR.y += space/2;
+			textR.height -= space;
+			v.paint(g, textR);
+		}
+		else {
+			int textX = textR.x;
+			int textY = textR.y;// + g.getFontMetrics().getAscent();
+			//System.out.println(g.getFontMetrics().getAscent());
+			g.drawString(text, textX, textY);
+		}
+	}
+
+
+	/**
+	 * Prepares this renderer to render an item, without updating the HTML
+	 * view used to paint it.
+	 *
+	 * @param list The list of choices being rendered.
+	 * @param value The {@link Completion} being rendered.
+	 * @param index The index into <code>list</code> being rendered.
+	 * @param selected Whether the item is selected.
+	 * @param hasFocus Whether the item has focus.
+	 */
+	private void prepare(JList list, Object value, int index,
+			boolean selected, boolean hasFocus) {
+
+		preparing = true;
+		cellText = null;
+		try {
+
+			super.getListCellRendererComponent(list,value,index,selected,hasFocus);
+			if (font!=null) {
+				setFont(font); // Overrides super's setFont(list.getFont()).
+			}
+			this.selected = selected;
+			this.realBG = altBG!=null && (index&1)==1 ? altBG : list.getBackground();
+
+			Completion c = (Completion)value;
+			setIcon(c.getIcon());
+
+			if (c instanceof FunctionCompletion) {
+				FunctionCompletion fc = (FunctionCompletion)value;
+				prepareForFunctionCompletion(list, fc, index, selected, hasFocus);
+			}
+			else if (c instanceof VariableCompletion) {
+				VariableCompletion vc = (VariableCompletion)value;
+				prepareForVariableCompletion(list, vc, index, selected, hasFocus);
+			}
+			else if (c instanceof TemplateCompletion) {
+				TemplateCompletion tc = (TemplateCompletion)value;
+				prepareForTemplateCompletion(list, tc, index, selected, hasFocus);
+			}
+			else if (c instanceof MarkupTagCompletion) {
+				MarkupTagCompletion mtc = (MarkupTagCompletion)value;
+				prepareForMarkupTagCompletion(list, mtc, index, selected, hasFocus);
 			}
 			else {
-				int textX = paintTextR.x;
-				int textY = paintTextR.y;// + g.getFontMetrics().getAscent();
-				//System.out.println(g.getFontMetrics().getAscent());
-				g.drawString(text, textX, textY);
+				prepareForOtherCompletion(list, c, index, selected, hasFocus);
 			}
+
+		} finally {
+			preparing = false;
 		}
 
 	}
@@ -399,12 +636,16 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForFunctionCompletion(JList list,
 		FunctionCompletion fc, int index, boolean selected, boolean hasFocus) {
 
-		StringBuilder sb = new StringBuilder(PREFIX);
-		sb.append(fc.getName());
+		if (setCellTextFromCache(fc, selected)) {
+			return;
+		}
+
+		CompletionCellText text = new CompletionCellText();
+		text.append(fc.getName());
 
 		char paramListStart = fc.getProvider().getParameterListStart();
 		if (paramListStart!=0) { // 0 => no start char
-			sb.append(paramListStart);
+			text.append(paramListStart);
 		}
 
 		int paramCount = fc.getParamCount();
@@ -413,42 +654,31 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			String type = param.getType();
 			String name = param.getName();
 			if (type!=null) {
-				if (!selected) {
-					sb.append("<font color='").append(paramColor).append("'>");
-				}
-				sb.append(type);
-				if (!selected) {
-					sb.append("</font>");
-				}
+				text.append(type, selected ? null : paramColor);
 				if (name!=null) {
-					sb.append(' ');
+					text.append(' ');
 				}
 			}
 			if (name!=null) {
-				sb.append(name);
+				text.append(name);
 			}
 			if (i<paramCount-1) {
-				sb.append(fc.getProvider().getParameterListSeparator());
+				text.append(fc.getProvider().getParameterListSeparator());
 			}
 		}
 
 		char paramListEnd = fc.getProvider().getParameterListEnd();
 		if (paramListEnd!=0) { // 0 => No parameter list end char
-			sb.append(paramListEnd);
+			text.append(paramListEnd);
 		}
 
 		if (getShowTypes() && fc.getType()!=null) {
-			sb.append(" : ");
-			if (!selected) {
-				sb.append("<font color='").append(typeColor).append("'>");
-			}
-			sb.append(fc.getType());
-			if (!selected) {
-				sb.append("</font>");
-			}
+			text.append(" : ");
+			text.append(fc.getType(), selected ? null : typeColor);
 		}
 
-		setText(sb.toString());
+		cacheCellText(fc, selected, text);
+		setCellText(text);
 
 	}
 
@@ -465,10 +695,15 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForMarkupTagCompletion(JList list,
 		MarkupTagCompletion mc, int index, boolean selected, boolean hasFocus) {
 
-		StringBuilder sb = new StringBuilder(PREFIX);
-		sb.append(mc.getName());
+		if (setCellTextFromCache(mc, selected)) {
+			return;
+		}
+
+		CompletionCellText text = new CompletionCellText();
+		text.append(mc.getName());
 
-		setText(sb.toString());
+		cacheCellText(mc, selected, text);
+		setCellText(text);
 
 	}
 
@@ -486,24 +721,23 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForOtherCompletion(JList list,
 		Completion c, int index, boolean selected, boolean hasFocus) {
 
-		StringBuilder sb = new StringBuilder(PREFIX);
-		sb.append(c.getInputText());
+		if (setCellTextFromCache(c, selected)) {
+			return;
+		}
+
+		CompletionCellText text = new CompletionCellText();
+		text.append(c.getInputText());
 
 		if (c instanceof BasicCompletion) {
 			String definition = ((BasicCompletion)c).getShortDescription();
 			if (definition!=null) {
-				sb.append(" - ");
-				if (!selected) {
-					sb.append("<font color='").append(typeColor).append("'>");
-				}
-				sb.append(definition);
-				if (!selected) {
-					sb.append("</font>");
-				}
+				text.append(" - ");
+				text.append(definition, selected ? null : typeColor);
 			}
 		}
 
-		setText(sb.toString());
+		cacheCellText(c, selected, text);
+		setCellText(text);
 
 	}
 
@@ -520,22 +754,21 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForTemplateCompletion(JList list,
 		TemplateCompletion tc, int index, boolean selected, boolean hasFocus) {
 
-		StringBuilder sb = new StringBuilder(PREFIX);
-		sb.append(tc.getInputText());
+		if (setCellTextFromCache(tc, selected)) {
+			return;
+		}
+
+		CompletionCellText text = new CompletionCellText();
+		text.append(tc.getInputText());
 
 		String definition = tc.getShortDescription();
 		if (definition!=null) {
-			sb.append(" - ");
-			if (!selected) {
-				sb.append("<font color='").append(typeColor).append("'>");
-			}
-			sb.append(definition);
-			if (!selected) {
-				sb.append("</font>");
-			}
+			text.append(" - ");
+			text.append(definition, selected ? null : typeColor);
 		}
 
-		setText(sb.toString());
+		cacheCellText(tc, selected, text);
+		setCellText(text);
 
 	}
 
@@ -552,21 +785,20 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	protected void prepareForVariableCompletion(JList list,
 		VariableCompletion vc, int index, boolean selected, boolean hasFocus) {
 
-		StringBuilder sb = new StringBuilder(PREFIX);
-		sb.append(vc.getName());
+		if (setCellTextFromCache(vc, selected)) {
+			return;
+		}
+
+		CompletionCellText text = new CompletionCellText();
+		text.append(vc.getName());
 
 		if (getShowTypes() && vc.getType()!=null) {
-			sb.append(" : ");
-			if (!selected) {
-				sb.append("<font color='").append(typeColor).append("'>");
-			}
-			sb.append(vc.getType());
-			if (!selected) {
-				sb.append("</font>");
-			}
+			text.append(" : ");
+			text.append(vc.getType(), selected ? null : typeColor);
 		}
 
-		setText(sb.toString());
+		cacheCellText(vc, selected, text);
+		setCellText(text);
 
 	}
 
@@ -584,6 +816,41 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	}
 
 
+	/**
+	 * Sets the text of the completion being rendered.
+	 *
+	 * @param text The text.
+	 * @see #isCellTextHtml()
+	 */
+	void setCellText(CompletionCellText text) {
+		cellText = text;
+		cellTextString = isCellTextHtml() ? text.toHtml() : text.getText();
+		setText(cellTextString);
+	}
+
+
+	/**
+	 * Sets the text of the completion being rendered to its cached text, if
+	 * it is cached.
+	 *
+	 * @param c The completion being rendered.
+	 * @param selected Whether the completion is selected.
+	 * @return Whether the completion's text was cached.
+	 */
+	private boolean setCellTextFromCache(Completion c, boolean selected) {
+		lookupKey.completion = c;
+		lookupKey.selected = selected;
+		lookupKey.showTypes = getShowTypes();
+		CompletionCellText text = cellTextCache.get(lookupKey);
+		lookupKey.completion = null;
+		if (text!=null) {
+			setCellText(text);
+			return true;
+		}
+		return false;
+	}
+
+
 	/**
 	 * Sets the delegate renderer.  Most users will never use this method; it
 	 * is primarily a hook for Substance and other Look and Feels whose
@@ -609,6 +876,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	public void setDisplayFont(Font font) {
 		this.font = font;
+		clearCache();
 	}
 
 
@@ -648,7 +916,8 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	public void setParamColor(Color color) {
 		if (color!=null) {
-			paramColor = Util.getHexString(color);
+			paramColor = color;
+			clearCache();
 		}
 	}
 
@@ -662,6 +931,7 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	public void setShowTypes(boolean show) {
 		this.showTypes = show;
+		clearCache();
 	}
 
 
@@ -677,7 +947,8 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 	 */
 	public void setTypeColor(Color color) {
 		if (color!=null) {
-			typeColor = Util.getHexString(color);
+			typeColor = color;
+			clearCache();
 		}
 	}
 
@@ -692,6 +963,103 @@ public class CompletionCellRenderer extends DefaultListCellRenderer {
 			SwingUtilities.updateComponentTreeUI(delegate);
 		}
 		paramColor = createParamColor();
+		clearCache();
+	}
+
+
+	/**
+	 * Updates the HTML view used to paint the text of the item being
+	 * rendered.  This is what the label's UI does when the text, font or
+	 * foreground changes, except that a view already created for the
+	 * completion's text is reused if possible.
+	 */
+	private void updateHtmlView() {
+
+		String text = getText();
+		Font font = getFont();
+		Color fg = getForeground();
+		CompletionCellText htmlText = isCellTextHtml() ? getCellText() : null;
+		View view = htmlText!=null ? htmlText.getView(font, fg) : null;
+
+		if (view==null) {
+			// Remove the current view first, as BasicHTML tears down the
+			// view it replaces, and it may be cached
+			putClientProperty(BasicHTML.propertyKey, null);
+			BasicHTML.updateRenderer(this, text);
+			if (htmlText!=null) {
+				view = (View)getClientProperty(BasicHTML.propertyKey);
+				htmlText.setView(view, font, fg);
+			}
+		}
+		else {
+			putClientProperty(BasicHTML.propertyKey, view);
+		}
+
+	}
+
+
+	/**
+	 * Identifies the text displayed for a completion.  Completions are
+	 * compared by identity.
+	 */
+	private static final class CellKey {
+
+		private Completion completion;
+		private boolean selected;
+		private boolean showTypes;
+
+		CellKey(Completion completion, boolean selected, boolean showTypes) {
+			this.completion = completion;
+			this.selected = selected;
+			this.showTypes = showTypes;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof CellKey)) {
+				return false;
+			}
+			CellKey key = (CellKey)o;
+			return completion==key.completion && selected==key.selected &&
+					showTypes==key.showTypes;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(completion)*4 +
+					(selected ? 2 : 0) + (showTypes ? 1 : 0);
+		}
+
+	}
+
+
+	/**
+	 * Weakly references a completion whose cell size is cached.  Completions
+	 * are compared by identity.
+	 */
+	private static final class SizeKey extends WeakReference<Completion> {
+
+		private final int hash;
+
+		SizeKey(Completion completion, ReferenceQueue<Completion> queue) {
+			super(completion, queue);
+			hash = System.identityHashCode(completion);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (o==this) {
+				return true;
+			}
+			Completion c = get();
+			return c!=null && o instanceof SizeKey && ((SizeKey)o).get()==c;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
 	}
 
 
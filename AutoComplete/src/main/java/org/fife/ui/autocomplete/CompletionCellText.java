@@ -0,0 +1,273 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionCellText.java - The text of a completion in the choices list.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.util.Arrays;
+import javax.swing.text.View;
+
+
+/**
+ * The text displayed for a completion in the completion choices list, made
+ * up of runs of text that may each have their own color.
+ * {@link CompletionCellRenderer} builds one of these for each completion it
+ * renders, and either converts it to HTML or, in the case of
+ * {@link StyledCompletionCellRenderer}, paints it directly.  Renderers cache
+ * these, along with the HTML view created to display them, so the same text
+ * does not have to be built and parsed each time a completion is rendered.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class CompletionCellText {
+
+	private final StringBuilder sb;
+
+	/**
+	 * The offset into the text at which each run ends.
+	 */
+	private int[] runEnds;
+
+	/**
+	 * The color of each run.  A <code>null</code> value means the run is
+	 * painted in the renderer's foreground color.
+	 */
+	private Color[] runColors;
+
+	private int runCount;
+
+	/**
+	 * The text, created lazily once appending is done.
+	 */
+	private String text;
+
+	private char[] chars;
+
+	/**
+	 * The width of the text, and the font metrics it was measured with.
+	 */
+	private int width;
+	private FontMetrics widthMetrics;
+
+	/**
+	 * The HTML for this text, created lazily.
+	 */
+	private String html;
+
+	/**
+	 * The HTML view last created to display this text, and the font and
+	 * foreground color it was created with.
+	 */
+	private View view;
+	private Font viewFont;
+	private Color viewForeground;
+
+	/**
+	 * Keeps the HTML descriptions from "wrapping" in the list, which cuts off
+	 * words.
+	 */
+	private static final String HTML_PREFIX = "<html><nobr>";
+
+
+	/**
+	 * Constructor.
+	 */
+	CompletionCellText() {
+		sb = new StringBuilder();
+		runEnds = new int[4];
+		runColors = new Color[4];
+	}
+
+
+	/**
+	 * Appends a character in the foreground color.
+	 *
+	 * @param ch The character to append.
+	 */
+	void append(char ch) {
+		sb.append(ch);
+		endRun(null);
+	}
+
+
+	/**
+	 * Appends text in the foreground color.
+	 *
+	 * @param str The text to append.
+	 */
+	void append(String str) {
+		append(str, null);
+	}
+
+
+	/**
+	 * Appends text in a specific color.
+	 *
+	 * @param str The text to append.
+	 * @param color The color of the text.  If this is <code>null</code>, the
+	 *        foreground color is used.
+	 */
+	void append(String str, Color color) {
+		sb.append(str);
+		endRun(color);
+	}
+
+
+	/**
+	 * Creates the HTML for this text.
+	 *
+	 * @return The HTML.
+	 * @see #toHtml()
+	 */
+	private String createHtml() {
+		StringBuilder buf = new StringBuilder(HTML_PREFIX);
+		int start = 0;
+		for (int i=0; i<runCount; i++) {
+			Color color = runColors[i];
+			if (color!=null) {
+				buf.append("<font color='").append(Util.getHexString(color)).
+					append("'>");
+			}
+			buf.append(sb, start, runEnds[i]);
+			if (color!=null) {
+				buf.append("</font>");
+			}
+			start = runEnds[i];
+		}
+		return buf.toString();
+	}
+
+
+	/**
+	 * Ends the current run after text is appended.  If the color is the same
+	 * as the previous run, that run is extended instead.
+	 *
+	 * @param color The color of the appended text.
+	 */
+	private void endRun(Color color) {
+		text = null;
+		chars = null;
+		html = null;
+		view = null;
+		widthMetrics = null;
+		if (runCount>0 && runColors[runCount-1]==color) {
+			runEnds[runCount-1] = sb.length();
+			return;
+		}
+		if (runCount==runEnds.length) {
+			runEnds = Arrays.copyOf(runEnds, runCount*2);
+			runColors = Arrays.copyOf(runColors, runCount*2);
+		}
+		runEnds[runCount] = sb.length();
+		runColors[runCount] = color;
+		runCount++;
+	}
+
+
+	/**
+	 * Returns the plain text, without any color information.
+	 *
+	 * @return The text.
+	 */
+	String getText() {
+		if (text==null) {
+			text = sb.toString();
+		}
+		return text;
+	}
+
+
+	/**
+	 * Returns the width of the text.
+	 *
+	 * @param fm The metrics of the font to measure with.
+	 * @return The width of the text.
+	 */
+	int getWidth(FontMetrics fm) {
+		if (fm!=widthMetrics) {
+			width = fm.stringWidth(getText());
+			widthMetrics = fm;
+		}
+		return width;
+	}
+
+
+	/**
+	 * Returns the HTML view last created to display this text, if it was
+	 * created with a specific font and foreground color.
+	 *
+	 * @param font The font.
+	 * @param foreground The foreground color.
+	 * @return The view, or <code>null</code> if there is no view for the
+	 *         font and color.
+	 * @see #setView(View, Font, Color)
+	 */
+	View getView(Font font, Color foreground) {
+		return view!=null && font.equals(viewFont) &&
+				foreground.equals(viewForeground) ? view : null;
+	}
+
+
+	/**
+	 * Paints the text.  Each run is painted in its own color.
+	 *
+	 * @param g The graphics context.
+	 * @param fm The metrics of the font being painted with.
+	 * @param x The x-coordinate to start painting at.
+	 * @param y The y-coordinate of the baseline.
+	 * @param foreground The color for runs without a color of their own.
+	 */
+	void paint(Graphics g, FontMetrics fm, int x, int y, Color foreground) {
+		if (chars==null) {
+			chars = getText().toCharArray();
+		}
+		int start = 0;
+		for (int i=0; i<runCount; i++) {
+			int end = runEnds[i];
+			g.setColor(runColors[i]!=null ? runColors[i] : foreground);
+			g.drawChars(chars, start, end - start, x, y);
+			x += fm.charsWidth(chars, start, end - start);
+			start = end;
+		}
+	}
+
+
+	/**
+	 * Sets the HTML view created to display this text.
+	 *
+	 * @param view The view.
+	 * @param font The font the view was created with.
+	 * @param foreground The foreground color the view was created with.
+	 * @see #getView(Font, Color)
+	 */
+	void setView(View view, Font font, Color foreground) {
+		this.view = view;
+		viewFont = font;
+		viewForeground = foreground;
+	}
+
+
+	/**
+	 * Returns this text as HTML, with colored runs in <code>font</code>
+	 * tags.  Note that the text itself is not escaped.
+	 *
+	 * @return The HTML.
+	 */
+	String toHtml() {
+		if (html==null) {
+			html = createHtml();
+		}
+		return html;
+	}
+
+
+}
@@ -0,0 +1,134 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionIndex.java - A lookup structure over a provider's completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+
+
+/**
+ * A lookup structure used by an {@link AbstractCompletionProvider} to find
+ * the completions whose input text starts with, or is equal to, some text,
+ * ignoring case.<p>
+ *
+ * The provider's <code>completions</code> list remains the authoritative,
+ * sorted collection of completions.  An index is kept in sync with it by the
+ * provider via {@link #add(Completion)}, {@link #remove(Completion)},
+ * {@link #clear()} and {@link #rebuild(List)}, and is free to share or copy
+ * that list as it sees fit.<p>
+ *
+ * An index need not be thread-safe.  Instead, the provider is queried via
+ * read-only {@link #snapshot() snapshots} of its index, which any number of
+ * threads may use while the provider's completions are being modified.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see SortedListCompletionIndex
+ * @see TrieCompletionIndex
+ * @see AbstractCompletionProvider#setCompletionIndex(CompletionIndex)
+ */
+public interface CompletionIndex {
+
+
+	/**
+	 * Called after a completion has been added to the provider's list.
+	 *
+	 * @param c The completion that was added.
+	 * @see #remove(Completion)
+	 */
+	void add(Completion c);
+
+
+	/**
+	 * Called after all completions have been removed from the provider.
+	 *
+	 * @see #rebuild(List)
+	 */
+	void clear();
+
+
+	/**
+	 * Returns all completions with the specified input text, ignoring case.
+	 *
+	 * @param inputText The input text to search for.
+	 * @return The matching completions, or <code>null</code> if there are
+	 *         none.  This list should be treated as read-only.
+	 */
+	List<Completion> getCompletionsByInputText(String inputText);
+
+
+	/**
+	 * Adds all completions whose input text starts with the specified prefix,
+	 * ignoring case, to a list.  Completions are added in the same order as
+	 * they appear in the provider's sorted list.
+	 *
+	 * @param prefix The prefix.  This cannot be <code>null</code>.
+	 * @param result The list to add matching completions to.
+	 */
+	void getCompletionsWithPrefix(String prefix, List<Completion> result);
+
+
+	/**
+	 * Adds all completions whose input text starts with the specified prefix,
+	 * ignoring case, to a list.  This is the same as
+	 * {@link #getCompletionsWithPrefix(String, List)}, but implementations
+	 * should not need to create a <code>String</code> from the prefix.  The
+	 * default implementation does.
+	 *
+	 * @param prefix The prefix.  This cannot be <code>null</code>, and is
+	 *        not kept after this method returns.
+	 * @param result The list to add matching completions to.
+	 */
+	default void getCompletionsWithPrefix(CharSequence prefix,
+			List<Completion> result) {
+		getCompletionsWithPrefix(prefix.toString(), result);
+	}
+
+
+	/**
+	 * Discards this index's state and re-indexes the specified list.  This
+	 * is called when the index is installed into a provider, and any time
+	 * the provider's list was modified without going through the provider's
+	 * own mutator methods.
+	 *
+	 * @param completions The provider's completions, sorted.
+	 */
+	void rebuild(List<Completion> completions);
+
+
+	/**
+	 * Called after a completion has been removed from the provider's list.
+	 *
+	 * @param c The completion that was removed.
+	 * @see #add(Completion)
+	 */
+	void remove(Completion c);
+
+
+	/**
+	 * Returns a read-only copy of this index's current state.  Later changes
+	 * to this index do not affect the snapshot, and the snapshot can safely
+	 * be queried from any thread.  Implementations should make this cheap,
+	 * for example by sharing structure with the snapshot and copying it only
+	 * when it is next modified.
+	 *
+	 * @return The snapshot.  Calling any of its mutator methods throws an
+	 *         <code>UnsupportedOperationException</code>.
+	 */
+	CompletionIndex snapshot();
+
+
+	/**
+	 * Returns the number of completions in this index.
+	 *
+	 * @return The number of completions.
+	 */
+	int size();
+
+
+}
@@ -9,16 +9,33 @@
 package org.fife.ui.autocomplete;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 import javax.swing.AbstractListModel;
 
 
 /**
- * A list model implementation that allows the bulk addition of elements.
- * This is the only feature missing from <code>DefaultListModel</code> that
- * we need.
+ * A list model that allows its contents to be replaced cheaply.  Setting a
+ * new list of completions costs little no matter how many completions there
+ * are: at most the references are copied, and few events are fired.  With
+ * a list UI that doesn't measure every cell, such as {@link FastListUI},
+ * the cost of displaying new completions then depends mostly on the number
+ * of rows visible.<p>
+ *
+ * When the new list is the old one with some completions removed, as is
+ * the case while completions are narrowed down by typing, only the ranges
+ * removed are reported, so the list's selection moves with the completion
+ * selected.  Otherwise, the change is reported as the rows both lists share
+ * changing, plus rows being added or removed at the end.<p>
+ *
+ * Lists are copied, since a provider may keep and later modify the lists
+ * it returns.  A {@link PagedCompletionList} is viewed rather than copied:
+ * only this library creates them, and they are only modified by appending
+ * more completions to them.  Those aren't shown until
+ * {@link #contentsAppended()} is called.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -26,16 +43,79 @@ import javax.swing.AbstractListModel;
 class CompletionListModel extends AbstractListModel<Completion> {
 
 	/**
-	 * Container for items in this model.
+	 * The list this model is a view of.  Only the first <code>size</code>
+	 * elements are in this model.
+	 */
+	private List<Completion> contents;
+
+	/**
+	 * The size of this model, which is the size of <code>contents</code>
+	 * when it was last checked.
+	 */
+	private int size;
+
+	/**
+	 * Whether <code>contents</code> isn't this model's own copy, such as a
+	 * paged list being viewed, so must be copied before being modified.
+	 */
+	private boolean shared;
+
+	/**
+	 * While removed ranges are being reported, the old contents of this
+	 * model.  Rows before <code>splitIndex</code> are still read from it.
+	 */
+	private List<Completion> removing;
+
+	/**
+	 * While removed ranges are being reported, the first row read from
+	 * <code>contents</code> rather than <code>removing</code>.  Otherwise,
+	 * <code>0</code>.
+	 */
+	private int splitIndex;
+
+	/**
+	 * While removed ranges are being reported, the number of completions
+	 * removed before <code>splitIndex</code> that aren't reported yet.
+	 * Row <code>i</code> at or after <code>splitIndex</code> is
+	 * <code>contents.get(i - shift)</code>.
 	 */
-	private List<Completion> delegate;
+	private int shift;
+
+	/**
+	 * The most ranges of removed completions reported individually.  If
+	 * more were removed, it's cheaper to report that everything changed.
+	 */
+	private static final int MAX_REMOVED_RANGES = 32;
 
 
 	/**
 	 * Constructor.
 	 */
 	CompletionListModel() {
-		delegate = new ArrayList<>();
+		contents = Collections.emptyList();
+		shared = true;
+	}
+
+
+	/**
+	 * Appends elements to the end of this list.  If this model is a view of
+	 * a paged list, that list is first copied.
+	 *
+	 * @param completions The elements to append.
+	 * @see #setContents(List, int)
+	 */
+	public void addAll(Collection<Completion> completions) {
+		int count = completions.size();
+		if (count>0) {
+			if (shared) {
+				contents = new ArrayList<>(contents.subList(0, size));
+				shared = false;
+			}
+			int start = size;
+			contents.addAll(completions);
+			size = contents.size();
+			fireIntervalAdded(this, start, size-1);
+		}
 	}
 
 
@@ -43,41 +123,208 @@ class CompletionListModel extends AbstractListModel<Completion> {
 	 * Removes all of the elements from this list.  The list will
 	 * be empty after this call returns (unless it throws an exception).
 	 *
-	 * @see #setContents(Collection)
+	 * @see #setContents(List, int)
 	 */
 	public void clear() {
-		int end = delegate.size()-1;
-		delegate.clear();
+		int end = size-1;
+		contents = Collections.emptyList();
+		size = 0;
+		shared = true;
 		if (end >= 0) {
 			fireIntervalRemoved(this, 0, end);
 		}
 	}
 
 
+	/**
+	 * Notes that completions were appended to the list this model is a view
+	 * of, for example by {@link PagedCompletionList#loadMore(int)}.
+	 */
+	public void contentsAppended() {
+		int start = size;
+		size = contents.size();
+		if (size>start) {
+			fireIntervalAdded(this, start, size-1);
+		}
+	}
+
+
 	@Override
 	public Completion getElementAt(int index) {
-		return delegate.get(index);
+		if (index>=size) {
+			throw new IndexOutOfBoundsException(index + " >= " + size);
+		}
+		return index<splitIndex ? removing.get(index) :
+				contents.get(index - shift);
 	}
 
 
 	@Override
 	public int getSize() {
-		return delegate.size();
+		return size;
+	}
+
+
+	/**
+	 * Returns the index of a completion in this list.  Completions are
+	 * compared by identity.
+	 *
+	 * @param c The completion.
+	 * @return The index of the completion, or <code>-1</code> if it isn't
+	 *         in this list.
+	 */
+	public int indexOf(Completion c) {
+		for (int i=0; i<size; i++) {
+			if (getElementAt(i)==c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Finds the ranges of completions removed from the old contents of this
+	 * model to get a new list, if the new list is the old one with some
+	 * completions removed.  The index of the completion selected in the new
+	 * list is found along the way.
+	 *
+	 * @param old The old contents.
+	 * @param oldSize The size of the old contents.
+	 * @param completions The new list.
+	 * @param selected The completion selected, or <code>null</code> if
+	 *        none.
+	 * @param selectedIndex Set to the index of <code>selected</code> in the
+	 *        new list, or <code>-1</code> if it isn't there.  Left alone
+	 *        if the new list is the old one.
+	 * @return The start and end indexes, inclusive, of each range removed,
+	 *         or <code>null</code> if the new list has completions not in
+	 *         the old one, or too many ranges were removed.
+	 */
+	private static int[] getRemovedRanges(List<?> old, int oldSize,
+			List<?> completions, Object selected, int[] selectedIndex) {
+
+		// Lists are taken as List<?> so elements are compared as Objects;
+		// casting each one to Completion makes this several times slower.
+		int newSize = completions.size();
+		if (old==completions) {
+			return new int[0];
+		}
+		int[] ranges = new int[2*MAX_REMOVED_RANGES];
+		int count = 0;
+		int i = 0;
+		int j = 0;
+		selectedIndex[0] = -1;
+
+		// If the sizes are equal, any difference means it isn't just a
+		// removal, so this only skips the common prefix.
+		for (; j<newSize; j++, i++) {
+			Object c = completions.get(j);
+			if (c==selected) {
+				selectedIndex[0] = j;
+			}
+			if (i<oldSize && old.get(i)!=c) {
+				if (count==ranges.length || newSize==oldSize) {
+					break;
+				}
+				ranges[count++] = i;
+				do {
+					i++;
+				} while (i<oldSize && old.get(i)!=c);
+				ranges[count++] = i - 1;
+			}
+			if (i==oldSize) { // c isn't in the old list
+				break;
+			}
+		}
+
+		if (j<newSize) {
+			// Not a removal.  Keep looking for the selected completion,
+			// but only where it wasn't already looked for.
+			for (j++; selectedIndex[0]==-1 && j<newSize; j++) {
+				if (completions.get(j)==selected) {
+					selectedIndex[0] = j;
+				}
+			}
+			return null;
+		}
+
+		if (i<oldSize) {
+			if (count==ranges.length) {
+				return null;
+			}
+			ranges[count++] = i;
+			ranges[count++] = oldSize - 1;
+		}
+
+		return Arrays.copyOf(ranges, count);
+
 	}
 
 
 	/**
 	 * Sets the contents of this model.  All previous contents are removed.
+	 * The list is copied, unless it is a {@link PagedCompletionList}.<p>
 	 *
-	 * @param contents The new contents of this model.
+	 * Listeners see this model change one event at a time: when each event
+	 * is fired, the model already contains exactly the changes reported so
+	 * far.
+	 *
+	 * @param completions The new contents of this model.
+	 * @param selectedIndex The index of the completion selected, or
+	 *        <code>-1</code> if none.
+	 * @return The index of the completion selected in the new contents, or
+	 *         <code>-1</code> if it isn't there.  If the new contents are
+	 *         the old ones with some completions removed, a list's
+	 *         selection has moved with the completion selected.
 	 */
-	public void setContents(Collection<Completion> contents) {
-		clear();
-		int count = contents.size();
-		if (count>0) {
-			delegate.addAll(contents);
-			fireIntervalAdded(this, 0, count-1); // endpoints included (!)
+	public int setContents(List<Completion> completions, int selectedIndex) {
+
+		Completion selected = selectedIndex>=0 ? getElementAt(selectedIndex) :
+				null;
+		List<Completion> old = contents;
+		int oldSize = size;
+		shared = completions instanceof PagedCompletionList;
+		contents = shared ? completions : new ArrayList<>(completions);
+
+		int[] index = { selectedIndex };
+		int[] removed = getRemovedRanges(old, oldSize, contents, selected,
+				index);
+
+		// If completions were only removed, report just those.  Go from
+		// last to first so each range's indexes are still valid, showing
+		// the old contents before each range not yet reported.
+		if (removed!=null) {
+			removing = old;
+			shift = oldSize - contents.size();
+			for (int i=removed.length-2; i>=0; i-=2) {
+				int count = removed[i+1] - removed[i] + 1;
+				splitIndex = removed[i];
+				shift -= count;
+				size -= count;
+				fireIntervalRemoved(this, removed[i], removed[i+1]);
+			}
+			removing = null;
+			splitIndex = 0;
+			return index[0];
+		}
+
+		// Otherwise, describe the change as cheaply as possible, rather than
+		// removing and re-adding every element.  Endpoints are inclusive (!)
+		int newSize = contents.size();
+		if (newSize<oldSize) {
+			size = newSize;
+			fireIntervalRemoved(this, newSize, oldSize-1);
+		}
+		if (size>0) {
+			fireContentsChanged(this, 0, size-1);
 		}
+		if (newSize>oldSize) {
+			size = newSize;
+			fireIntervalAdded(this, oldSize, newSize-1);
+		}
+		return index[0];
+
 	}
 
 
@@ -0,0 +1,494 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionLoader.java - Loads many completion files in parallel.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Loads completions from many XML files and completion packs at once, in
+ * parallel.  This is useful for applications that load completions for
+ * many languages at startup:
+ *
+ * <pre>
+ * CompletionLoader loader = new CompletionLoader();
+ * loader.setValidating(false); // The files ship with the application
+ * loader.addXML(cProvider, "data/c.xml");
+ * loader.addXML(javaProvider, "data/java.xml");
+ * loader.addPack(javaProvider, new File("data/jdk.pack"));
+ * loader.load().thenAccept(sources -&gt; {
+ *    for (CompletionLoader.LoadedSource source : sources) {
+ *       System.out.println(source);
+ *    }
+ * });
+ * // Carry on showing the UI...
+ * </pre>
+ *
+ * Each source is parsed by its own task on a fork-join pool.  Once all
+ * sources are parsed, the completions for each provider are added to it in
+ * a single sorted merge.  If any source fails to load, no provider is
+ * modified.<p>
+ *
+ * Completions from a pack are added to the provider like any others; they
+ * still read their descriptions from the pack, but are all created up
+ * front.  To only create completions as needed, use a
+ * {@link CompletionPackProvider} instead.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class CompletionLoader {
+
+	private ForkJoinPool pool;
+
+	private List<Source> sources;
+
+	private boolean validating;
+
+	private boolean lazyDescriptions;
+
+	private ClassLoader classLoader;
+
+
+	/**
+	 * Constructor.  Sources are loaded on the common fork-join pool.
+	 */
+	public CompletionLoader() {
+		this(ForkJoinPool.commonPool());
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pool The pool to load sources on.
+	 */
+	public CompletionLoader(ForkJoinPool pool) {
+		this.pool = pool;
+		sources = new ArrayList<>();
+		validating = true;
+	}
+
+
+	/**
+	 * Adds a completion pack to be loaded.
+	 *
+	 * @param provider The provider to add the pack's completions to.
+	 * @param file The completion pack.
+	 * @see CompletionPackWriter
+	 */
+	public void addPack(DefaultCompletionProvider provider, File file) {
+		sources.add(new Source(file.getPath(), provider) {
+			@Override
+			void parse(boolean validate, ClassLoader cl) throws IOException {
+				CompletionPack pack = CompletionPack.map(file);
+				completions = pack.createCompletions(provider);
+				paramListStart = pack.getParamStartChar();
+				paramListSeparator = pack.getParamSeparator();
+				paramListEnd = pack.getParamEndChar();
+			}
+		});
+	}
+
+
+	/**
+	 * Adds an XML file to be loaded.  The XML should validate against
+	 * <code>CompletionXml.dtd</code>.
+	 *
+	 * @param provider The provider to add the file's completions to.
+	 * @param file The XML file.
+	 */
+	public void addXML(DefaultCompletionProvider provider, File file) {
+		sources.add(new XMLSource(file.getPath(), provider) {
+			@Override
+			void parse(CompletionXMLParser handler, boolean validate,
+					ClassLoader cl) throws IOException {
+				handler.parse(file, validate, lazyDescriptions);
+			}
+		});
+	}
+
+
+	/**
+	 * Adds an XML file to be loaded.  The XML should validate against
+	 * <code>CompletionXml.dtd</code>.
+	 *
+	 * @param provider The provider to add the file's completions to.
+	 * @param resource A resource the class loader can get to, or failing
+	 *        that, a file name.
+	 * @see #setClassLoader(ClassLoader)
+	 */
+	public void addXML(DefaultCompletionProvider provider, String resource) {
+		sources.add(new XMLSource(resource, provider) {
+			@Override
+			void parse(CompletionXMLParser handler, boolean validate,
+					ClassLoader cl) throws IOException {
+				InputStream in = (cl!=null ? cl :
+						CompletionLoader.class.getClassLoader()).
+						getResourceAsStream(resource);
+				if (in==null) {
+					File file = new File(resource);
+					if (!file.isFile()) {
+						throw new IOException("No such resource: " + resource);
+					}
+					in = new FileInputStream(file);
+				}
+				try (InputStream bin = new BufferedInputStream(in)) {
+					handler.parse(bin, validate);
+				}
+			}
+		});
+	}
+
+
+	/**
+	 * Returns the class loader used to find XML resources, and to load any
+	 * extra classes defined in XML, such as custom
+	 * {@link FunctionCompletion}s.
+	 *
+	 * @return The class loader, or <code>null</code> for the default.
+	 * @see #setClassLoader(ClassLoader)
+	 */
+	public ClassLoader getClassLoader() {
+		return classLoader;
+	}
+
+
+	/**
+	 * Returns whether descriptions in XML files are only read from the file
+	 * when they are needed.
+	 *
+	 * @return Whether descriptions are loaded lazily.
+	 * @see #setLazyDescriptions(boolean)
+	 */
+	public boolean isLazyDescriptions() {
+		return lazyDescriptions;
+	}
+
+
+	/**
+	 * Returns whether XML is validated as it is loaded.
+	 *
+	 * @return Whether XML is validated.
+	 * @see #setValidating(boolean)
+	 */
+	public boolean isValidating() {
+		return validating;
+	}
+
+
+	/**
+	 * Starts loading all sources added since this method was last called,
+	 * using the current settings.  This method returns immediately.
+	 *
+	 * @return A future that completes once all completions have been added
+	 *         to their providers, with information about each source in the
+	 *         order they were added.  If any source fails to load, the
+	 *         future completes exceptionally, and no provider is modified.
+	 */
+	public CompletableFuture<List<LoadedSource>> load() {
+
+		List<Source> toLoad = sources;
+		sources = new ArrayList<>();
+		boolean validate = validating;
+		ClassLoader cl = classLoader;
+		boolean lazy = lazyDescriptions;
+
+		// Sources for the same provider share strings such as type names
+		Map<DefaultCompletionProvider, StringPool> pools =
+				new IdentityHashMap<>();
+		for (Source source : toLoad) {
+			source.stringPool = StringPool.isGlobalPoolEnabled() ?
+					StringPool.getGlobalPool() :
+					pools.computeIfAbsent(source.provider, k -> new StringPool());
+			source.lazyDescriptions = lazy;
+		}
+
+		CompletableFuture<?>[] parsed = new CompletableFuture<?>[toLoad.size()];
+		for (int i=0; i<parsed.length; i++) {
+			Source source = toLoad.get(i);
+			parsed[i] = CompletableFuture.runAsync(() -> {
+				long start = System.nanoTime();
+				try {
+					source.parse(validate, cl);
+				} catch (IOException ioe) {
+					throw new CompletionException(new IOException(
+							source.name + ": " + ioe.getMessage(), ioe));
+				}
+				source.nanos = System.nanoTime() - start;
+			}, pool);
+		}
+
+		return CompletableFuture.allOf(parsed).
+				thenComposeAsync(v -> merge(toLoad), pool);
+
+	}
+
+
+	/**
+	 * Adds the completions loaded from each source to their providers, with
+	 * one merge per provider.
+	 *
+	 * @param loaded The loaded sources.
+	 * @return A future that completes once all completions are added.
+	 */
+	private CompletableFuture<List<LoadedSource>> merge(List<Source> loaded) {
+
+		Map<DefaultCompletionProvider, List<Source>> byProvider =
+				new IdentityHashMap<>();
+		for (Source source : loaded) {
+			byProvider.computeIfAbsent(source.provider,
+					k -> new ArrayList<>()).add(source);
+		}
+
+		List<CompletableFuture<Void>> merges = new ArrayList<>();
+		for (Map.Entry<DefaultCompletionProvider, List<Source>> entry :
+				byProvider.entrySet()) {
+			merges.add(CompletableFuture.runAsync(() ->
+					merge(entry.getKey(), entry.getValue()), pool));
+		}
+
+		return CompletableFuture.allOf(merges.toArray(
+				new CompletableFuture<?>[0])).thenApply(v -> {
+					List<LoadedSource> result = new ArrayList<>();
+					for (Source source : loaded) {
+						result.add(new LoadedSource(source));
+					}
+					return result;
+				});
+
+	}
+
+
+	private static void merge(DefaultCompletionProvider provider,
+			List<Source> loaded) {
+
+		int total = 0;
+		for (Source source : loaded) {
+			total += source.completions.size();
+		}
+		List<Completion> all = new ArrayList<>(total);
+		for (Source source : loaded) {
+			all.addAll(source.completions);
+		}
+		if (!all.isEmpty()) {
+			provider.addCompletions(all);
+		}
+
+		for (Source source : loaded) {
+			provider.addStringPoolStatistics(source.duplicateStringCount,
+					source.bytesSaved);
+			String sep = source.paramListSeparator;
+			if (source.paramListStart!=0 && source.paramListEnd!=0 &&
+					sep!=null && sep.length()>0) { // Sanity
+				provider.setParameterizedCompletionParams(
+						source.paramListStart, sep, source.paramListEnd);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Sets the class loader used to find XML resources, and to load any
+	 * extra classes defined in XML, such as custom
+	 * {@link FunctionCompletion}s.
+	 *
+	 * @param classLoader The class loader, or <code>null</code> for the
+	 *        default.
+	 * @see #getClassLoader()
+	 */
+	public void setClassLoader(ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+
+	/**
+	 * Sets whether descriptions in XML files added via
+	 * {@link #addXML(DefaultCompletionProvider, File)} are only read from the
+	 * file when they are needed, rather than kept in memory.  The files
+	 * should not be modified while the completions are in use.  The default
+	 * is <code>false</code>.
+	 *
+	 * @param lazy Whether to load descriptions lazily.
+	 * @see #isLazyDescriptions()
+	 * @see DefaultCompletionProvider#setLazyDescriptions(boolean)
+	 */
+	public void setLazyDescriptions(boolean lazy) {
+		lazyDescriptions = lazy;
+	}
+
+
+	/**
+	 * Sets whether XML is validated as it is loaded.  Not validating is much
+	 * faster, and is recommended for XML from trusted sources, such as that
+	 * shipped with an application.  The default is <code>true</code>.
+	 *
+	 * @param validating Whether to validate XML.
+	 * @see #isValidating()
+	 * @see CompletionXMLParser#parse(InputStream, boolean)
+	 */
+	public void setValidating(boolean validating) {
+		this.validating = validating;
+	}
+
+
+	/**
+	 * Information about a source that was loaded.
+	 */
+	public static final class LoadedSource {
+
+		private final String name;
+		private final DefaultCompletionProvider provider;
+		private final int completionCount;
+		private final long nanos;
+
+		private LoadedSource(Source source) {
+			name = source.name;
+			provider = source.provider;
+			completionCount = source.completions.size();
+			nanos = source.nanos;
+		}
+
+		/**
+		 * Returns the number of completions loaded from this source.
+		 *
+		 * @return The number of completions.
+		 */
+		public int getCompletionCount() {
+			return completionCount;
+		}
+
+		/**
+		 * Returns how long it took to read and parse this source.  This
+		 * does not include the time taken to add its completions to the
+		 * provider.
+		 *
+		 * @param unit The unit to return the time in.
+		 * @return The time.
+		 */
+		public long getLoadTime(TimeUnit unit) {
+			return unit.convert(nanos, TimeUnit.NANOSECONDS);
+		}
+
+		/**
+		 * Returns the name of this source, that is, its file or resource
+		 * name.
+		 *
+		 * @return The name.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the provider the completions were added to.
+		 *
+		 * @return The provider.
+		 */
+		public DefaultCompletionProvider getProvider() {
+			return provider;
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + completionCount + " completions in " +
+					getLoadTime(TimeUnit.MILLISECONDS) + " ms";
+		}
+
+	}
+
+
+	/**
+	 * A source to load completions from, and the results of loading it.
+	 */
+	private abstract static class Source {
+
+		final String name;
+		final DefaultCompletionProvider provider;
+		StringPool stringPool;
+		boolean lazyDescriptions;
+		List<Completion> completions;
+		long duplicateStringCount;
+		long bytesSaved;
+		char paramListStart;
+		String paramListSeparator;
+		char paramListEnd;
+		long nanos;
+
+		Source(String name, DefaultCompletionProvider provider) {
+			this.name = name;
+			this.provider = provider;
+		}
+
+		/**
+		 * Loads this source's completions and parameter list settings.
+		 *
+		 * @param validate Whether to validate XML.
+		 * @param cl The class loader to use, or <code>null</code> for the
+		 *        default.
+		 * @throws IOException If an IO error occurs.
+		 */
+		abstract void parse(boolean validate, ClassLoader cl)
+				throws IOException;
+
+	}
+
+
+	/**
+	 * A source of XML completions.
+	 */
+	private abstract static class XMLSource extends Source {
+
+		XMLSource(String name, DefaultCompletionProvider provider) {
+			super(name, provider);
+		}
+
+		/**
+		 * Parses the XML.
+		 *
+		 * @param handler The parser to use.
+		 * @param validate Whether to validate the XML.
+		 * @param cl The class loader to use, or <code>null</code> for the
+		 *        default.
+		 * @throws IOException If an IO error occurs.
+		 */
+		abstract void parse(CompletionXMLParser handler, boolean validate,
+				ClassLoader cl) throws IOException;
+
+		@Override
+		void parse(boolean validate, ClassLoader cl) throws IOException {
+			CompletionXMLParser handler = new CompletionXMLParser(provider,
+					cl);
+			handler.setStringPool(stringPool);
+			parse(handler, validate, cl);
+			completions = handler.getCompletions();
+			duplicateStringCount = handler.getDuplicateStringCount();
+			bytesSaved = handler.getBytesSaved();
+			paramListStart = handler.getParamStartChar();
+			paramListSeparator = handler.getParamSeparator();
+			paramListEnd = handler.getParamEndChar();
+		}
+
+	}
+
+
+}
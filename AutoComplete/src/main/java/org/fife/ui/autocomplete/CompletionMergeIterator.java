@@ -0,0 +1,177 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionMergeIterator.java - Lazily merges sorted lists of completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+
+/**
+ * Lazily merges several lists of completions, each sorted by input text
+ * (ignoring case), into a single sequence sorted the same way.  This is how
+ * a {@link CompletionProviderBase} combines its completions with those of its
+ * parent providers: merging <i>n</i> completions from <i>k</i> providers
+ * costs <i>O(n log k)</i>, rather than a full sort of all of them at each
+ * level of the provider chain.<p>
+ *
+ * Completions with equal input text are returned in the order of the lists
+ * they came from; that is, the first list's completions come first.
+ * Optionally, completions whose input text was already returned from an
+ * earlier list are skipped.  This lets a child provider's completions hide
+ * those of its parents with the same name, while still allowing multiple
+ * completions with the same input text (e.g. overloaded functions) from a
+ * single provider.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionProviderBase#setRemoveDuplicateCompletions(boolean)
+ */
+public final class CompletionMergeIterator implements Iterator<Completion> {
+
+	private PriorityQueue<Cursor> queue;
+	private boolean removeDuplicates;
+
+	/**
+	 * The input text of the last completion returned, and the index of the
+	 * list the first completion with that input text came from.  Only used
+	 * when removing duplicates.
+	 */
+	private String lastInputText;
+	private int lastInputTextSource;
+
+	private Completion next;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param lists The lists to merge, highest priority first.  Each must be
+	 *        sorted by input text, ignoring case.  Otherwise the result
+	 *        isn't sorted, and duplicates may not be skipped.
+	 * @param removeDuplicates Whether to skip completions whose input text
+	 *        (ignoring case) has already been returned from an earlier list.
+	 */
+	public CompletionMergeIterator(List<? extends List<Completion>> lists,
+									boolean removeDuplicates) {
+		queue = new PriorityQueue<>(Math.max(1, lists.size()));
+		for (int i=0; i<lists.size(); i++) {
+			List<Completion> list = lists.get(i);
+			if (list!=null && !list.isEmpty()) {
+				queue.add(new Cursor(list, i));
+			}
+		}
+		this.removeDuplicates = removeDuplicates;
+		lastInputTextSource = -1;
+		next = advance();
+	}
+
+
+	/**
+	 * Returns the next completion to return, skipping duplicates if
+	 * necessary.
+	 *
+	 * @return The next completion, or <code>null</code> if there are no more.
+	 */
+	private Completion advance() {
+
+		while (!queue.isEmpty()) {
+
+			Cursor cursor = queue.poll();
+			Completion c = cursor.current;
+			int source = cursor.source;
+			if (cursor.advance()) {
+				queue.add(cursor);
+			}
+
+			if (!removeDuplicates) {
+				return c;
+			}
+
+			String inputText = c.getInputText();
+			if (lastInputText==null ||
+					!lastInputText.equalsIgnoreCase(inputText)) {
+				lastInputText = inputText;
+				lastInputTextSource = source;
+				return c;
+			}
+			else if (source==lastInputTextSource) {
+				return c;
+			}
+
+		}
+
+		return null;
+
+	}
+
+
+	@Override
+	public boolean hasNext() {
+		return next!=null;
+	}
+
+
+	@Override
+	public Completion next() {
+		if (next==null) {
+			throw new NoSuchElementException();
+		}
+		Completion c = next;
+		next = advance();
+		return c;
+	}
+
+
+	/**
+	 * A position in one of the lists being merged.
+	 */
+	private static final class Cursor implements Comparable<Cursor> {
+
+		private final List<Completion> list;
+		private final int source;
+		private int index;
+		private Completion current;
+
+		Cursor(List<Completion> list, int source) {
+			this.list = list;
+			this.source = source;
+			current = list.get(0);
+		}
+
+		boolean advance() {
+			if (++index<list.size()) {
+				current = list.get(index);
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public int compareTo(Cursor other) {
+			int diff = String.CASE_INSENSITIVE_ORDER.compare(
+					current.getInputText(), other.current.getInputText());
+			return diff!=0 ? diff : source - other.source;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Cursor && compareTo((Cursor)other)==0;
+		}
+
+		@Override
+		public int hashCode() {
+			return source;
+		}
+
+	}
+
+
+}
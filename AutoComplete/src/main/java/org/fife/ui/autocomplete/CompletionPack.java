@@ -0,0 +1,382 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionPack.java - Reads completions from a binary completion pack.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Reads a "completion pack," a binary file of completions written by
+ * {@link CompletionPackWriter}.  Everything is read directly from a
+ * <code>ByteBuffer</code>, usually one mapped from the file, so opening a
+ * pack is nearly free; strings are only decoded when asked for.  Only
+ * absolute reads are done on the buffer, so a pack can be read by several
+ * threads at once.<p>
+ *
+ * A pack is laid out as follows, with all values big-endian:
+ *
+ * <ul>
+ *   <li>A header of {@link #HEADER_SIZE} bytes: the magic number, the
+ *       version, the parameter list start and end characters, the
+ *       parameter separator string, the entry count, the offset of the
+ *       entry table, the offset of the parameter table, the string count,
+ *       the offset of the string offset table, and the offset of the string
+ *       data.
+ *   <li>The entry table, one fixed-size record of {@link #ENTRY_SIZE} bytes
+ *       per completion, sorted by name ignoring case, so it can be binary
+ *       searched.  Each record holds the completion's kind, its parameter
+ *       list offset, and the indices of its strings.
+ *   <li>The parameter table.  Each parameter list is a count followed by a
+ *       record of {@link #PARAM_SIZE} bytes per parameter.
+ *   <li>The string table: one <code>int</code> offset per string, plus one
+ *       for the end of the last string, into the string data, which is
+ *       UTF-16.  Each distinct string is stored once.
+ * </ul>
+ *
+ * Offsets are in bytes from the start of the pack; string offsets are in
+ * characters from the start of the string data.  Missing strings and
+ * parameter lists are {@link #NONE}.<p>
+ *
+ * A pack is also the {@link DescriptionSource} for the descriptions of the
+ * completions created from it; a description's reference is its string
+ * index.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionPackProvider
+ */
+final class CompletionPack extends DescriptionSource {
+
+	private ByteBuffer buffer;
+	private int entryCount;
+	private int entries;
+	private int stringCount;
+	private int stringOffsets;
+	private int stringData;
+
+	static final int MAGIC = 0x4143504B; // "ACPK"
+	static final int VERSION = 1;
+
+	static final int HEADER_SIZE = 40;
+	static final int ENTRY_SIZE = 28;
+	static final int PARAM_SIZE = 16;
+	static final int NONE = (int)DescriptionSource.NONE;
+
+	// Offsets of the fields in an entry.
+	static final int ENTRY_NAME = 0;
+	static final int ENTRY_KIND = 4;
+	static final int ENTRY_TYPE = 8;
+	static final int ENTRY_DEFINED_IN = 12;
+	static final int ENTRY_DESC = 16;
+	static final int ENTRY_EXTRA = 20; // Return value description or summary
+	static final int ENTRY_PARAMS = 24;
+
+	// Offsets of the fields in a parameter.
+	static final int PARAM_TYPE = 0;
+	static final int PARAM_NAME = 4;
+	static final int PARAM_DESC = 8;
+	static final int PARAM_END = 12;
+
+	// The kinds of completions.
+	static final int KIND_BASIC = 0;
+	static final int KIND_VARIABLE = 1;
+	static final int KIND_FUNCTION = 2;
+	static final int KIND_MARKUP_TAG = 3;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param buffer The buffer containing the pack, starting at its position.
+	 * @throws IOException If the buffer does not contain a valid pack.
+	 */
+	CompletionPack(ByteBuffer buffer) throws IOException {
+
+		this.buffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+		int size = this.buffer.capacity();
+		if (size<HEADER_SIZE || this.buffer.getInt(0)!=MAGIC) {
+			throw new IOException("Not a completion pack");
+		}
+		if (this.buffer.getInt(4)!=VERSION) {
+			throw new IOException("Unsupported completion pack version: " +
+					this.buffer.getInt(4));
+		}
+
+		entryCount = this.buffer.getInt(16);
+		entries = this.buffer.getInt(20);
+		stringCount = this.buffer.getInt(28);
+		stringOffsets = this.buffer.getInt(32);
+		stringData = this.buffer.getInt(36);
+		if (entryCount<0 || stringCount<0 || entries<HEADER_SIZE ||
+				(long)entries + (long)entryCount*ENTRY_SIZE>size ||
+				stringOffsets<HEADER_SIZE ||
+				(long)stringOffsets + 4L*(stringCount+1)>size ||
+				stringData<HEADER_SIZE ||
+				stringData + 2L*getStringOffset(stringCount)>size) {
+			throw new IOException("Corrupt completion pack");
+		}
+
+	}
+
+
+	/**
+	 * Compares the name of an entry with some text, ignoring case, the same
+	 * way as <code>String.CASE_INSENSITIVE_ORDER</code>.
+	 *
+	 * @param entry The entry.
+	 * @param text The text.
+	 * @param prefixOnly Whether to return <code>0</code> if the name starts
+	 *        with the text.
+	 * @return The comparison result.
+	 */
+	private int compareName(int entry, CharSequence text, boolean prefixOnly) {
+
+		int string = getInt(entry, ENTRY_NAME);
+		int start = stringData + 2*getStringOffset(string);
+		int len = getStringOffset(string + 1) - getStringOffset(string);
+		int textLen = text.length();
+
+		for (int i=0; i<len && i<textLen; i++) {
+			char c1 = buffer.getChar(start + 2*i);
+			char c2 = text.charAt(i);
+			if (c1!=c2) {
+				c1 = Character.toUpperCase(c1);
+				c2 = Character.toUpperCase(c2);
+				if (c1!=c2) {
+					c1 = Character.toLowerCase(c1);
+					c2 = Character.toLowerCase(c2);
+					if (c1!=c2) {
+						return c1 - c2;
+					}
+				}
+			}
+		}
+
+		return prefixOnly && len>=textLen ? 0 : len - textLen;
+
+	}
+
+
+	/**
+	 * Returns the index of the first entry whose name is not less than some
+	 * text, ignoring case.
+	 *
+	 * @param text The text.
+	 * @return The entry index, which is {@link #getEntryCount()} if all
+	 *         names are less than the text.
+	 */
+	private int findFirst(CharSequence text) {
+		int low = 0;
+		int high = entryCount;
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (compareName(mid, text, false)<0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 * Creates the completions for all entries in this pack.
+	 *
+	 * @param provider The provider the completions will belong to.
+	 * @return The completions, sorted by input text.
+	 */
+	List<Completion> createCompletions(CompletionProvider provider) {
+		List<Completion> completions = new ArrayList<>(entryCount);
+		for (int i=0; i<entryCount; i++) {
+			completions.add(CompletionPackProvider.createCompletion(this,
+					provider, i));
+		}
+		return completions;
+	}
+
+
+	/**
+	 * Returns the range of entries whose names equal some text, ignoring
+	 * case.
+	 *
+	 * @param text The text.
+	 * @return The start (inclusive) and end (exclusive) entry indices.
+	 */
+	int[] findName(CharSequence text) {
+		int start = findFirst(text);
+		int end = start;
+		while (end<entryCount && compareName(end, text, false)==0) {
+			end++;
+		}
+		return new int[] { start, end };
+	}
+
+
+	/**
+	 * Returns the range of entries whose names start with some text,
+	 * ignoring case.
+	 *
+	 * @param prefix The text.
+	 * @return The start (inclusive) and end (exclusive) entry indices.
+	 */
+	int[] findPrefix(CharSequence prefix) {
+		int start = findFirst(prefix);
+		int end = start;
+		while (end<entryCount && compareName(end, prefix, true)==0) {
+			end++;
+		}
+		return new int[] { start, end };
+	}
+
+
+	/**
+	 * Returns the number of completions in this pack.
+	 *
+	 * @return The number of completions.
+	 */
+	int getEntryCount() {
+		return entryCount;
+	}
+
+
+	/**
+	 * Returns a field of an entry.
+	 *
+	 * @param entry The entry index.
+	 * @param field The offset of the field, such as {@link #ENTRY_KIND}.
+	 * @return The value of the field.
+	 */
+	int getInt(int entry, int field) {
+		return buffer.getInt(entries + entry*ENTRY_SIZE + field);
+	}
+
+
+	/**
+	 * Returns a field of a parameter.
+	 *
+	 * @param entry The entry index.
+	 * @param param The parameter index.
+	 * @param field The offset of the field, such as {@link #PARAM_NAME}.
+	 * @return The value of the field.
+	 */
+	int getParamInt(int entry, int param, int field) {
+		int params = getInt(entry, ENTRY_PARAMS);
+		return buffer.getInt(params + 4 + param*PARAM_SIZE + field);
+	}
+
+
+	/**
+	 * Returns the number of parameters an entry has.
+	 *
+	 * @param entry The entry index.
+	 * @return The number of parameters, or {@link #NONE} if the entry has
+	 *         no parameter list.
+	 */
+	int getParamCount(int entry) {
+		int params = getInt(entry, ENTRY_PARAMS);
+		return params==NONE ? NONE : buffer.getInt(params);
+	}
+
+
+	@Override
+	protected String loadDescription(long ref) {
+		return getString((int)ref);
+	}
+
+
+	/**
+	 * Memory maps a pack file.
+	 *
+	 * @param file The file.
+	 * @return The pack.
+	 * @throws IOException If an IO error occurs, or the file is not a
+	 *         completion pack.
+	 */
+	static CompletionPack map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			return new CompletionPack(channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size()));
+		}
+	}
+
+
+	/**
+	 * Returns the parameter list end character.
+	 *
+	 * @return The character, or <code>0</code> if none was specified.
+	 */
+	char getParamEndChar() {
+		return buffer.getChar(10);
+	}
+
+
+	/**
+	 * Returns the parameter separator.
+	 *
+	 * @return The separator, or <code>null</code> if none was specified.
+	 */
+	String getParamSeparator() {
+		return getString(buffer.getInt(12));
+	}
+
+
+	/**
+	 * Returns the parameter list start character.
+	 *
+	 * @return The character, or <code>0</code> if none was specified.
+	 */
+	char getParamStartChar() {
+		return buffer.getChar(8);
+	}
+
+
+	/**
+	 * Decodes a string.
+	 *
+	 * @param index The index of the string.
+	 * @return The string, or <code>null</code> if <code>index</code> is
+	 *         {@link #NONE}.
+	 */
+	String getString(int index) {
+		if (index==NONE) {
+			return null;
+		}
+		int offset = getStringOffset(index);
+		int start = stringData + 2*offset;
+		char[] chars = new char[getStringOffset(index + 1) - offset];
+		for (int i=0; i<chars.length; i++) {
+			chars[i] = buffer.getChar(start + 2*i);
+		}
+		return new String(chars);
+	}
+
+
+	/**
+	 * Returns the offset of a string in the string data.
+	 *
+	 * @param index The index of the string, or the string count for the end
+	 *        of the last string.
+	 * @return The offset, in characters.
+	 */
+	private int getStringOffset(int index) {
+		return buffer.getInt(stringOffsets + 4*index);
+	}
+
+
+}
@@ -0,0 +1,287 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionPackProvider.java - A completion provider that serves completions
+ * from a memory-mapped completion pack.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * A completion provider that serves completions from a "completion pack," a
+ * binary file created by {@link CompletionPackWriter}, usually from the XML
+ * that would otherwise be loaded via
+ * {@link DefaultCompletionProvider#loadFromXML(File)}.  The pack is memory
+ * mapped rather than read, so creating this provider takes about the same
+ * time no matter how large the pack is, and the pack does not take up heap
+ * space.<p>
+ *
+ * Completion objects are only created when they are first returned from a
+ * lookup, and are then reused.  Their descriptions, summaries and parameter
+ * descriptions are not kept; they are decoded from the pack when they are
+ * asked for, which is typically only when they are displayed, and the most
+ * recently used ones are cached.<p>
+ *
+ * Completions can also be added to this provider as with any
+ * {@link DefaultCompletionProvider}; they are returned along with those in
+ * the pack.  Note however that fuzzy matching and typo tolerance only apply
+ * to such added completions; completions in the pack are always matched by
+ * prefix.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class CompletionPackProvider extends DefaultCompletionProvider {
+
+	private CompletionPack pack;
+
+	/**
+	 * The completions created from the pack so far, by entry index.
+	 */
+	private AtomicReferenceArray<Completion> packCompletions;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param file The completion pack to serve completions from.  It is
+	 *        memory mapped, so it should not be modified while this provider
+	 *        is in use.
+	 * @throws IOException If an IO error occurs, or the file is not a
+	 *         completion pack.
+	 */
+	public CompletionPackProvider(File file) throws IOException {
+		load(CompletionPack.map(file));
+	}
+
+
+	/**
+	 * Constructor.  This can be used for packs that aren't files, such as
+	 * those loaded from resources.
+	 *
+	 * @param buffer The buffer containing the completion pack, starting at
+	 *        its position.  This should not be modified while this provider
+	 *        is in use.
+	 * @throws IOException If the buffer does not contain a completion pack.
+	 */
+	public CompletionPackProvider(ByteBuffer buffer) throws IOException {
+		load(new CompletionPack(buffer));
+	}
+
+
+	/**
+	 * Creates the completion for an entry in a pack.
+	 *
+	 * @param pack The pack.
+	 * @param provider The provider the completion belongs to.
+	 * @param entry The entry index.
+	 * @return The completion.
+	 */
+	static Completion createCompletion(CompletionPack pack,
+			CompletionProvider provider, int entry) {
+
+		String name = pack.getString(pack.getInt(entry,
+				CompletionPack.ENTRY_NAME));
+		String type = pack.getString(pack.getInt(entry,
+				CompletionPack.ENTRY_TYPE));
+		String definedIn = pack.getString(pack.getInt(entry,
+				CompletionPack.ENTRY_DEFINED_IN));
+
+		int desc = pack.getInt(entry, CompletionPack.ENTRY_DESC);
+		int extra = pack.getInt(entry, CompletionPack.ENTRY_EXTRA);
+
+		switch (pack.getInt(entry, CompletionPack.ENTRY_KIND)) {
+			case CompletionPack.KIND_FUNCTION:
+				FunctionCompletion fc = new LazyCompletions.
+						LazyFunctionCompletion(provider, name, type, pack, desc,
+						extra);
+				fc.setDefinedIn(definedIn);
+				fc.setParams(createParams(pack, entry));
+				return fc;
+			case CompletionPack.KIND_VARIABLE:
+				VariableCompletion vc = new LazyCompletions.
+						LazyVariableCompletion(provider, name, type, pack, desc);
+				vc.setDefinedIn(definedIn);
+				return vc;
+			case CompletionPack.KIND_MARKUP_TAG:
+				MarkupTagCompletion mtc = new LazyCompletions.
+						LazyMarkupTagCompletion(provider, name, pack, desc);
+				mtc.setDefinedIn(definedIn);
+				List<ParameterizedCompletion.Parameter> attrs =
+						createParams(pack, entry);
+				if (attrs!=null) {
+					mtc.setAttributes(attrs);
+				}
+				return mtc;
+			default:
+				return new LazyCompletions.LazyBasicCompletion(provider, name,
+						pack, desc, extra);
+		}
+
+	}
+
+
+	/**
+	 * Creates the parameters of an entry in a pack.
+	 *
+	 * @param pack The pack.
+	 * @param entry The entry index.
+	 * @return The parameters, or <code>null</code> if the entry has no
+	 *         parameter list.
+	 */
+	private static List<ParameterizedCompletion.Parameter> createParams(
+			CompletionPack pack, int entry) {
+		int count = pack.getParamCount(entry);
+		if (count==CompletionPack.NONE) {
+			return null;
+		}
+		List<ParameterizedCompletion.Parameter> params =
+				new ArrayList<>(count);
+		for (int i=0; i<count; i++) {
+			params.add(new LazyCompletions.LazyParameter(
+					pack.getString(pack.getParamInt(entry, i,
+						CompletionPack.PARAM_TYPE)),
+					pack.getString(pack.getParamInt(entry, i,
+						CompletionPack.PARAM_NAME)),
+					pack.getParamInt(entry, i, CompletionPack.PARAM_END)!=0,
+					pack, pack.getParamInt(entry, i, CompletionPack.PARAM_DESC)));
+		}
+		return params;
+	}
+
+
+	/**
+	 * Adds the completions in a range of entries to a list.
+	 *
+	 * @param range The start (inclusive) and end (exclusive) entry indices.
+	 * @param result The list to add to.
+	 */
+	private void getCompletions(int[] range, List<Completion> result) {
+		for (int i=range[0]; i<range[1]; i++) {
+			result.add(getPackCompletion(i));
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public List<Completion> getCompletionByInputText(String inputText) {
+		List<Completion> added = super.getCompletionByInputText(inputText);
+		int[] range = pack.findName(inputText);
+		if (range[0]==range[1]) {
+			return added;
+		}
+		List<Completion> result = new ArrayList<>(range[1] - range[0]);
+		getCompletions(range, result);
+		if (added!=null) {
+			result.addAll(added);
+		}
+		return result;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	protected void getCompletionsMatching(CharSequence text,
+			List<Completion> result) {
+
+		int start = result.size();
+		super.getCompletionsMatching(text, result);
+		int[] range = pack.findPrefix(text);
+		if (range[0]==range[1]) {
+			return;
+		}
+		if (result.size()==start) {
+			getCompletions(range, result);
+			return;
+		}
+
+		List<Completion> addedView = result.subList(start, result.size());
+		List<Completion> added = new ArrayList<>(addedView);
+		addedView.clear();
+		List<Completion> fromPack = new ArrayList<>(range[1] - range[0]);
+		getCompletions(range, fromPack);
+
+		List<List<Completion>> lists = new ArrayList<>(2);
+		lists.add(fromPack);
+		lists.add(added);
+		Iterator<Completion> i = new CompletionMergeIterator(lists, false);
+		while (i.hasNext()) {
+			result.add(i.next());
+		}
+
+	}
+
+
+	/**
+	 * Returns the completion for an entry in the pack, creating it if
+	 * necessary.
+	 *
+	 * @param entry The entry index.
+	 * @return The completion.
+	 */
+	private Completion getPackCompletion(int entry) {
+		Completion c = packCompletions.get(entry);
+		if (c==null) {
+			c = createCompletion(pack, this, entry);
+			if (!packCompletions.compareAndSet(entry, null, c)) {
+				c = packCompletions.get(entry);
+			}
+		}
+		return c;
+	}
+
+
+	/**
+	 * Returns the number of completions in the pack.  This does not include
+	 * completions added to this provider directly.
+	 *
+	 * @return The number of completions in the pack.
+	 */
+	public int getPackSize() {
+		return pack.getEntryCount();
+	}
+
+
+	/**
+	 * {@inheritDoc}  The completion count includes those in the pack.
+	 */
+	@Override
+	public CompletionProviderStatistics getStatistics() {
+		CompletionProviderStatistics stats = super.getStatistics();
+		return new CompletionProviderStatistics(
+				stats.getCompletionCount() + getPackSize(),
+				stats.getDuplicateStringCount(), stats.getBytesSaved());
+	}
+
+
+	private void load(CompletionPack pack) {
+		this.pack = pack;
+		packCompletions = new AtomicReferenceArray<>(pack.getEntryCount());
+		char startChar = pack.getParamStartChar();
+		if (startChar!=0) {
+			char endChar = pack.getParamEndChar();
+			String sep = pack.getParamSeparator();
+			if (endChar!=0 && sep!=null && sep.length()>0) { // Sanity
+				setParameterizedCompletionParams(startChar, sep, endChar);
+			}
+		}
+	}
+
+
+}
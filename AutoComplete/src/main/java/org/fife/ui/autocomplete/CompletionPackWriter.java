@@ -0,0 +1,304 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionPackWriter.java - Writes completions as a binary completion pack.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Writes completions as a "completion pack," a binary file that a
+ * {@link CompletionPackProvider} can serve completions from without parsing
+ * it.  Packs are usually created ahead of time from the same XML files
+ * {@link DefaultCompletionProvider#loadFromXML(File)} reads, either by
+ * calling {@link #convert(File, File)} or from the command line:
+ *
+ * <pre>
+ * java -cp autocomplete.jar org.fife.ui.autocomplete.CompletionPackWriter c.xml c.pack
+ * </pre>
+ *
+ * Only {@link BasicCompletion}s, {@link VariableCompletion}s,
+ * {@link FunctionCompletion}s and {@link MarkupTagCompletion}s can be
+ * written.  Subclasses of these are written as their base class, so custom
+ * function completion types specified in XML are not preserved.  Icons and
+ * relevance are not written either.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public final class CompletionPackWriter {
+
+	/**
+	 * Maps each string written so far to its index.
+	 */
+	private Map<String, Integer> stringIndices;
+
+	private List<String> strings;
+
+	/**
+	 * The parameter table, written as completions are added.
+	 */
+	private ByteArrayOutputStream params;
+
+	private DataOutputStream paramsOut;
+
+
+	private CompletionPackWriter() {
+		stringIndices = new HashMap<>();
+		strings = new ArrayList<>();
+		params = new ByteArrayOutputStream();
+		paramsOut = new DataOutputStream(params);
+	}
+
+
+	/**
+	 * Converts an XML file of completions to a completion pack.  The XML
+	 * should validate against <code>CompletionXml.dtd</code>.
+	 *
+	 * @param xml The XML file to read.
+	 * @param pack The pack file to write.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void convert(File xml, File pack) throws IOException {
+		try (InputStream in = new FileInputStream(xml);
+				OutputStream out = new FileOutputStream(pack)) {
+			convert(in, out);
+		}
+	}
+
+
+	/**
+	 * Converts XML describing completions to a completion pack.  The XML
+	 * should validate against <code>CompletionXml.dtd</code>.  Neither
+	 * stream is closed.
+	 *
+	 * @param xml The stream to read XML from.
+	 * @param out The stream to write the pack to.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void convert(InputStream xml, OutputStream out)
+			throws IOException {
+
+		CompletionXMLParser handler = new CompletionXMLParser(
+				new DefaultCompletionProvider());
+		handler.parse(new BufferedInputStream(xml), true);
+
+		write(handler.getCompletions(), handler.getParamStartChar(),
+				handler.getParamSeparator(), handler.getParamEndChar(), out);
+
+	}
+
+
+	/**
+	 * Returns the index of a string, adding it to the string table if it
+	 * hasn't been written yet.
+	 *
+	 * @param s The string.  This may be <code>null</code>.
+	 * @return The index.
+	 */
+	private int index(String s) {
+		if (s==null) {
+			return CompletionPack.NONE;
+		}
+		return stringIndices.computeIfAbsent(s, k -> {
+			strings.add(k);
+			return strings.size() - 1;
+		});
+	}
+
+
+	/**
+	 * Converts XML files of completions to completion packs from the command
+	 * line.
+	 *
+	 * @param args The XML file to read and the pack file to write.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length!=2) {
+			System.err.println("Usage: CompletionPackWriter <xml-file> <pack-file>");
+			System.exit(1);
+		}
+		convert(new File(args[0]), new File(args[1]));
+	}
+
+
+	/**
+	 * Writes completions as a completion pack.  The stream is not closed.
+	 *
+	 * @param completions The completions to write.  These do not have to be
+	 *        sorted.
+	 * @param paramListStart The parameter list start character, or
+	 *        <code>0</code> for none.
+	 * @param paramListSeparator The parameter separator, or
+	 *        <code>null</code> for none.
+	 * @param paramListEnd The parameter list end character, or
+	 *        <code>0</code> for none.
+	 * @param out The stream to write to.
+	 * @throws IOException If an IO error occurs.
+	 * @throws IllegalArgumentException If a completion is not of a type that
+	 *         can be written.
+	 */
+	public static void write(List<Completion> completions, char paramListStart,
+			String paramListSeparator, char paramListEnd, OutputStream out)
+			throws IOException {
+
+		List<Completion> sorted = new ArrayList<>(completions);
+		sorted.sort(Comparator.comparing(Completion::getInputText,
+				String.CASE_INSENSITIVE_ORDER));
+
+		CompletionPackWriter writer = new CompletionPackWriter();
+		int separator = writer.index(paramListSeparator);
+		int entryInts = CompletionPack.ENTRY_SIZE/4;
+		int[] entries = new int[sorted.size()*entryInts];
+		for (int i=0; i<sorted.size(); i++) {
+			writer.writeEntry(sorted.get(i), entries, i*entryInts);
+		}
+
+		int entryTable = CompletionPack.HEADER_SIZE;
+		int paramTable = entryTable + entries.length*4;
+		int stringOffsets = paramTable + writer.params.size();
+		int stringData = stringOffsets + 4*(writer.strings.size() + 1);
+
+		// Parameter list offsets were relative to the parameter table
+		for (int i=CompletionPack.ENTRY_PARAMS/4; i<entries.length;
+				i+=entryInts) {
+			if (entries[i]!=CompletionPack.NONE) {
+				entries[i] += paramTable;
+			}
+		}
+
+		DataOutputStream dout = new DataOutputStream(
+				new BufferedOutputStream(out));
+		dout.writeInt(CompletionPack.MAGIC);
+		dout.writeInt(CompletionPack.VERSION);
+		dout.writeChar(paramListStart);
+		dout.writeChar(paramListEnd);
+		dout.writeInt(separator);
+		dout.writeInt(sorted.size());
+		dout.writeInt(entryTable);
+		dout.writeInt(paramTable);
+		dout.writeInt(writer.strings.size());
+		dout.writeInt(stringOffsets);
+		dout.writeInt(stringData);
+		for (int value : entries) {
+			dout.writeInt(value);
+		}
+		writer.params.writeTo(dout);
+		int offset = 0;
+		for (String s : writer.strings) {
+			dout.writeInt(offset);
+			offset += s.length();
+		}
+		dout.writeInt(offset);
+		for (String s : writer.strings) {
+			dout.writeChars(s);
+		}
+		dout.flush();
+
+	}
+
+
+	/**
+	 * Adds a completion's fields to the entry table, and its parameters, if
+	 * any, to the parameter table.
+	 *
+	 * @param c The completion.
+	 * @param entries The entry table.
+	 * @param offset The index in <code>entries</code> to write at.
+	 * @throws IOException If an IO error occurs.
+	 */
+	private void writeEntry(Completion c, int[] entries, int offset)
+			throws IOException {
+
+		int kind;
+		String name;
+		String type = null;
+		String definedIn = null;
+		String desc;
+		String extra = null;
+		List<ParameterizedCompletion.Parameter> paramList = null;
+
+		if (c instanceof FunctionCompletion) {
+			FunctionCompletion fc = (FunctionCompletion)c;
+			kind = CompletionPack.KIND_FUNCTION;
+			name = fc.getName();
+			type = fc.getType();
+			definedIn = fc.getDefinedIn();
+			desc = fc.getShortDescription();
+			extra = fc.getReturnValueDescription();
+			paramList = new ArrayList<>();
+			for (int i=0; i<fc.getParamCount(); i++) {
+				paramList.add(fc.getParam(i));
+			}
+		}
+		else if (c instanceof VariableCompletion) {
+			VariableCompletion vc = (VariableCompletion)c;
+			kind = CompletionPack.KIND_VARIABLE;
+			name = vc.getName();
+			type = vc.getType();
+			definedIn = vc.getDefinedIn();
+			desc = vc.getShortDescription();
+		}
+		else if (c instanceof MarkupTagCompletion) {
+			MarkupTagCompletion mtc = (MarkupTagCompletion)c;
+			kind = CompletionPack.KIND_MARKUP_TAG;
+			name = mtc.getName();
+			definedIn = mtc.getDefinedIn();
+			desc = mtc.getDescription();
+			paramList = mtc.getAttributes();
+		}
+		else if (c instanceof BasicCompletion) {
+			BasicCompletion bc = (BasicCompletion)c;
+			kind = CompletionPack.KIND_BASIC;
+			name = bc.getReplacementText();
+			desc = bc.getShortDescription();
+			extra = bc.getSummary();
+		}
+		else {
+			throw new IllegalArgumentException(
+					"Unsupported completion type: " + c.getClass().getName());
+		}
+
+		entries[offset + CompletionPack.ENTRY_NAME/4] = index(name);
+		entries[offset + CompletionPack.ENTRY_KIND/4] = kind;
+		entries[offset + CompletionPack.ENTRY_TYPE/4] = index(type);
+		entries[offset + CompletionPack.ENTRY_DEFINED_IN/4] = index(definedIn);
+		entries[offset + CompletionPack.ENTRY_DESC/4] = index(desc);
+		entries[offset + CompletionPack.ENTRY_EXTRA/4] = index(extra);
+		entries[offset + CompletionPack.ENTRY_PARAMS/4] = paramList==null ?
+				CompletionPack.NONE : params.size();
+
+		if (paramList!=null) {
+			paramsOut.writeInt(paramList.size());
+			for (ParameterizedCompletion.Parameter param : paramList) {
+				paramsOut.writeInt(index(param.getType()));
+				paramsOut.writeInt(index(param.getName()));
+				paramsOut.writeInt(index(param.getDescription()));
+				paramsOut.writeInt(param.isEndParam() ? 1 : 0);
+			}
+		}
+
+	}
+
+
+}
@@ -52,6 +52,27 @@ public interface CompletionProvider {
 	String getAlreadyEnteredText(JTextComponent comp);
 
 
+	/**
+	 * Passes a view of the text just before the current caret position that
+	 * could be the start of something auto-completable to a sink.  This is
+	 * the same text as {@link #getAlreadyEnteredText(JTextComponent)}
+	 * returns, but implementations may avoid creating a <code>String</code>
+	 * for it.  The default implementation simply wraps that method.
+	 *
+	 * @param comp The text component.
+	 * @param sink The sink to pass the text to.  It is not called if nothing
+	 *        should be auto-completed.
+	 * @see #getAlreadyEnteredText(JTextComponent)
+	 */
+	default void getAlreadyEnteredText(JTextComponent comp,
+			CharSequenceSink sink) {
+		String text = getAlreadyEnteredText(comp);
+		if (text!=null) {
+			sink.accept(text);
+		}
+	}
+
+
 	/**
 	 * Gets the possible completions for the text component at the current
 	 * caret position.
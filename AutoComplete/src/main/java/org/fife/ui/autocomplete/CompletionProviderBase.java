@@ -8,8 +8,9 @@
  */
 package org.fife.ui.autocomplete;
 
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 import javax.swing.ListCellRenderer;
 import javax.swing.text.BadLocationException;
@@ -71,9 +72,34 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	private ParameterChoicesProvider paramChoicesProvider;
 
 	/**
-	 * A segment to use for fast char access.
+	 * The maximum number of completions to sort and return at a time, or
+	 * <code>0</code> for no limit.
 	 */
-	private Segment s = new Segment();
+	private int completionLimit;
+
+	/**
+	 * Whether completions from parent providers are dropped if a completion
+	 * with the same input text was found in a child provider.
+	 */
+	private boolean removeDuplicateCompletions;
+
+	/**
+	 * Whether completions for some text are always those of a shorter
+	 * prefix of that text, filtered by input text.
+	 */
+	private boolean incrementalNarrowingEnabled;
+
+	/**
+	 * Blends how often completions have been used into their relevance.
+	 * This may be <code>null</code>.
+	 */
+	private CompletionUsageTracker usageTracker;
+
+	/**
+	 * Remembers lookups made for the current document state and caret
+	 * position.  This may be <code>null</code>.
+	 */
+	private CompletionQueryCache queryCache;
 
 	protected static final String EMPTY_STRING = "";
 
@@ -84,6 +110,68 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	private static final Comparator<Completion> SORT_BY_RELEVANCE_COMPARATOR =
 								new SortByRelevanceComparator();
 
+	/**
+	 * Sorts completions by their input text, ignoring case.  This is the
+	 * order providers' completions must be in to be merged.
+	 */
+	static final Comparator<Completion> INPUT_TEXT_COMPARATOR =
+			Comparator.comparing(Completion::getInputText,
+									String.CASE_INSENSITIVE_ORDER);
+
+	/**
+	 * Whether a provider class overrides {@link #getCompletions(JTextComponent)}.
+	 * If it doesn't, we can get its completions and those of its parents
+	 * directly from {@link #getCompletionsImpl(JTextComponent)} when it is
+	 * used as a parent provider.
+	 */
+	private static final ClassValue<Boolean> OVERRIDES_GET_COMPLETIONS =
+			new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return type.getMethod("getCompletions", JTextComponent.class).
+						getDeclaringClass()!=CompletionProviderBase.class;
+			} catch (NoSuchMethodException nsme) { // Never happens
+				return Boolean.TRUE;
+			}
+		}
+	};
+
+
+	/**
+	 * Adds the completions from each parent provider in the chain to a list.
+	 *
+	 * @param comp The text component.
+	 * @param lists The list to add to.
+	 */
+	private void addParentCompletions(JTextComponent comp,
+			List<List<Completion>> lists) {
+
+		CompletionProvider p = parent;
+
+		while (p!=null) {
+
+			if (p instanceof CompletionProviderBase &&
+					!overridesGetCompletions(p.getClass())) {
+				CompletionProviderBase base = (CompletionProviderBase)p;
+				lists.add(getAllCompletions(base.getCompletionsImpl(comp)));
+				p = base.getParent();
+			}
+
+			else {
+				// We don't know what this provider does, so let it handle
+				// its own parents.
+				List<Completion> completions = p.getCompletions(comp);
+				if (completions!=null) {
+					lists.add(getAllCompletions(completions));
+				}
+				break;
+			}
+
+		}
+
+	}
+
 
 	@Override
 	public void clearParameterizedCompletionParams() {
@@ -92,26 +180,100 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Returns a session that can be used to get completions from this
+	 * provider as the user keeps typing, narrowing down the previous results
+	 * instead of searching from scratch on each keystroke.
+	 *
+	 * @return The session, or <code>null</code> if incremental narrowing is
+	 *         not enabled for this provider or any of its parents.
+	 * @see #setIncrementalNarrowingEnabled(boolean)
+	 */
+	public CompletionQuerySession createQuerySession() {
+		CompletionProvider p = this;
+		while (p!=null) {
+			if (!(p instanceof CompletionProviderBase) ||
+					!((CompletionProviderBase)p).isIncrementalNarrowingEnabled()) {
+				return null;
+			}
+			p = p.getParent();
+		}
+		return new CompletionQuerySession(this);
+	}
+
+
+	/**
+	 * Returns all completions in a list returned by a provider, including
+	 * those not yet loaded if it is a {@link PagedCompletionList}.
+	 *
+	 * @param completions The completions.
+	 * @return A mutable list of all of the completions.
+	 */
+	static List<Completion> getAllCompletions(
+			List<Completion> completions) {
+		if (completions instanceof PagedCompletionList) {
+			return ((PagedCompletionList)completions).getAllCompletions();
+		}
+		return completions instanceof ArrayList ? completions :
+				new ArrayList<>(completions);
+	}
+
+
+	/**
+	 * Returns the comparator used to sort the completions returned by
+	 * {@link #getCompletions(JTextComponent)}.  The default implementation
+	 * returns {@link #getRelevanceComparator()}.  Subclasses can override
+	 * this method to take into account how well each completion matches the
+	 * text at the caret, falling back on relevance for equally good matches.
+	 *
+	 * @param comp The text component completions are being returned for.
+	 * @return The comparator.
+	 */
+	protected Comparator<Completion> getCompletionComparator(
+			JTextComponent comp) {
+		return getRelevanceComparator();
+	}
+
+
+	/**
+	 * Returns the maximum number of completions sorted and returned by
+	 * {@link #getCompletions(JTextComponent)} at a time.
+	 *
+	 * @return The limit, or <code>0</code> for no limit.
+	 * @see #setCompletionLimit(int)
+	 */
+	public int getCompletionLimit() {
+		return completionLimit;
+	}
+
+
+	/**
+	 * {@inheritDoc}<p>
+	 *
+	 * If a completion limit is set and there are more completions than that,
+	 * the returned list is a {@link PagedCompletionList} containing only the
+	 * most relevant ones.
+	 *
+	 * @see #setCompletionLimit(int)
+	 */
 	@Override
 	public List<Completion> getCompletions(JTextComponent comp) {
 
-		List<Completion> completions = getCompletionsImpl(comp);
+		List<Completion> completions = getAllCompletions(
+				getCompletionsImpl(comp));
+
 		if (parent!=null) {
-			List<Completion> parentCompletions = parent.getCompletions(comp);
-			if (parentCompletions!=null) {
-				completions.addAll(parentCompletions);
-				Collections.sort(completions);
-			}
+			List<List<Completion>> lists = new ArrayList<>();
+			lists.add(completions);
+			addParentCompletions(comp, lists);
+			completions = mergeCompletions(lists, removeDuplicateCompletions);
 		}
 
 		// NOTE: We can't sort by relevance prior to this; we need to have
 		// things alphabetical so we can easily narrow down completions to
 		// those starting with what was already typed.
-		if (/*sortByRelevance*/true) {
-			completions.sort(SORT_BY_RELEVANCE_COMPARATOR);
-		}
-
-		return completions;
+		return PagedCompletionList.create(completions,
+				getCompletionComparator(comp), completionLimit);
 
 	}
 
@@ -162,9 +324,90 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Returns the cache used to remember lookups made for the current
+	 * document state and caret position.
+	 *
+	 * @return The cache, or <code>null</code> if none.
+	 * @see #setQueryCache(CompletionQueryCache)
+	 */
+	public CompletionQueryCache getQueryCache() {
+		return queryCache;
+	}
+
+
+	/**
+	 * Returns the text already entered in a text component, using the
+	 * query cache if one is set.  Subclasses should call this rather than
+	 * {@link #getAlreadyEnteredText(JTextComponent)} when the same text may
+	 * already have been looked up for this keystroke.
+	 *
+	 * @param comp The text component.
+	 * @return The text.
+	 * @see #setQueryCache(CompletionQueryCache)
+	 */
+	protected String getQueryCachedAlreadyEnteredText(JTextComponent comp) {
+		CompletionQueryCache cache = queryCache;
+		return cache!=null ? cache.getAlreadyEnteredText(this, comp) :
+				getAlreadyEnteredText(comp);
+	}
+
+
+	/**
+	 * Returns a comparator that sorts completions by relevance, then
+	 * lexicographically.  If a usage tracker is set, how often each
+	 * completion has been used is added to its relevance.  The comparator
+	 * may cache values, so it should only be used for a single sort.
+	 *
+	 * @return The comparator.
+	 * @see #setUsageTracker(CompletionUsageTracker)
+	 */
+	protected Comparator<Completion> getRelevanceComparator() {
+		CompletionUsageTracker tracker = usageTracker;
+		return tracker==null || tracker.isEmpty() ?
+				SORT_BY_RELEVANCE_COMPARATOR :
+				tracker.createRelevanceComparator();
+	}
+
+
+	/**
+	 * Returns whether completions from parent providers are dropped if a
+	 * completion with the same input text is returned by a child provider.
+	 *
+	 * @return Whether duplicate completions are removed.
+	 * @see #setRemoveDuplicateCompletions(boolean)
+	 */
+	public boolean getRemoveDuplicateCompletions() {
+		return removeDuplicateCompletions;
+	}
+
+
+	/**
+	 * Returns the tracker used to rank frequently used completions higher.
+	 *
+	 * @return The usage tracker, or <code>null</code> if none.
+	 * @see #setUsageTracker(CompletionUsageTracker)
+	 */
+	public CompletionUsageTracker getUsageTracker() {
+		return usageTracker;
+	}
+
+
+	/**
+	 * Returns whether incremental narrowing of completions is enabled.
+	 *
+	 * @return Whether incremental narrowing is enabled.
+	 * @see #setIncrementalNarrowingEnabled(boolean)
+	 */
+	public boolean isIncrementalNarrowingEnabled() {
+		return incrementalNarrowingEnabled;
+	}
+
+
 	@Override
 	public boolean isAutoActivateOkay(JTextComponent tc) {
 		Document doc = tc.getDocument();
+		Segment s = new Segment();
 		char ch = 0;
 		try {
 			doc.getText(tc.getCaretPosition(), 1, s);
@@ -177,6 +420,71 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Merges lists of completions into one, sorted by input text.  Lists
+	 * not already sorted that way, such as those from providers that order
+	 * completions by <code>toString()</code> or by how well they match, are
+	 * sorted first.
+	 *
+	 * @param lists The lists to merge, highest priority first.  Lists that
+	 *        need sorting are replaced by sorted copies.
+	 * @param removeDuplicates Whether to drop completions whose input text
+	 *        was already returned from an earlier list.
+	 * @return The merged completions.
+	 * @see CompletionMergeIterator
+	 */
+	static List<Completion> mergeCompletions(List<List<Completion>> lists,
+			boolean removeDuplicates) {
+		int total = 0;
+		for (int i=0; i<lists.size(); i++) {
+			List<Completion> list = lists.get(i);
+			if (!isSortedByInputText(list)) {
+				list = new ArrayList<>(list);
+				list.sort(INPUT_TEXT_COMPARATOR);
+				lists.set(i, list);
+			}
+			total += list.size();
+		}
+		List<Completion> completions = new ArrayList<>(total);
+		Iterator<Completion> i = new CompletionMergeIterator(lists,
+				removeDuplicates);
+		while (i.hasNext()) {
+			completions.add(i.next());
+		}
+		return completions;
+	}
+
+
+	/**
+	 * Returns whether a list of completions is sorted by input text,
+	 * ignoring case.
+	 *
+	 * @param completions The completions.
+	 * @return Whether they are sorted.
+	 */
+	private static boolean isSortedByInputText(List<Completion> completions) {
+		for (int i=1; i<completions.size(); i++) {
+			if (INPUT_TEXT_COMPARATOR.compare(completions.get(i-1),
+					completions.get(i))>0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns whether a provider class overrides
+	 * {@link #getCompletions(JTextComponent)}.
+	 *
+	 * @param type The provider class.
+	 * @return Whether the method is overridden.
+	 */
+	static boolean overridesGetCompletions(Class<?> type) {
+		return OVERRIDES_GET_COMPLETIONS.get(type);
+	}
+
+
 	/**
 	 * Sets the characters that auto-activation should occur after.  A Java
 	 * completion provider, for example, might want to set <code>others</code>
@@ -192,6 +500,50 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Sets the maximum number of completions sorted and returned by
+	 * {@link #getCompletions(JTextComponent)} at a time.  If more completions
+	 * match than this, only the most relevant ones are returned, in a
+	 * {@link PagedCompletionList}, from which the rest can be loaded on
+	 * demand.  The completion popup does this as the user scrolls.  This can
+	 * make a big difference for providers with many completions, since
+	 * otherwise all matching completions are sorted on each keystroke.
+	 *
+	 * @param limit The limit, or <code>0</code> for no limit.  The default
+	 *        value is <code>0</code>.
+	 * @throws IllegalArgumentException If <code>limit</code> is negative.
+	 * @see #getCompletionLimit()
+	 */
+	public void setCompletionLimit(int limit) {
+		if (limit<0) {
+			throw new IllegalArgumentException("limit cannot be negative");
+		}
+		completionLimit = limit;
+	}
+
+
+	/**
+	 * Sets whether incremental narrowing of completions is enabled.  If this
+	 * is <code>true</code>, then while the completion popup is visible, each
+	 * keystroke filters the completions returned for the previous keystroke,
+	 * rather than searching for completions from scratch.<p>
+	 *
+	 * This should only be enabled if the completions returned for some text
+	 * are exactly those returned for any prefix of that text, filtered by
+	 * their input text.  This is true of e.g. a
+	 * {@link DefaultCompletionProvider}, but typically not of providers whose
+	 * completions depend on other context, such as the text before a
+	 * '<code>.</code>'.  The default value is <code>false</code>.
+	 *
+	 * @param enabled Whether incremental narrowing is enabled.
+	 * @see #isIncrementalNarrowingEnabled()
+	 * @see #createQuerySession()
+	 */
+	public void setIncrementalNarrowingEnabled(boolean enabled) {
+		incrementalNarrowingEnabled = enabled;
+	}
+
+
 	/**
 	 * Sets the param choices provider.  This is used when a user
 	 * code-completes a parameterized completion, such as a function or method.
@@ -207,6 +559,37 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Sets the cache used to remember lookups made for the current document
+	 * state and caret position.  An {@link AutoCompletion} sets its own
+	 * cache on its provider if it has none.  A cache can be shared by many
+	 * providers.
+	 *
+	 * @param cache The cache, or <code>null</code> for none.
+	 * @see #getQueryCache()
+	 * @see AutoCompletion#getQueryCache()
+	 */
+	public void setQueryCache(CompletionQueryCache cache) {
+		queryCache = cache;
+	}
+
+
+	/**
+	 * Sets whether completions from parent providers are dropped if a
+	 * completion with the same input text (ignoring case) is returned by
+	 * this provider or a provider closer to it in the parent chain.  This
+	 * only affects completions returned by this provider's
+	 * {@link #getCompletions(JTextComponent)} method, not by those of its
+	 * parents.  The default value is <code>false</code>.
+	 *
+	 * @param remove Whether to remove duplicate completions.
+	 * @see #getRemoveDuplicateCompletions()
+	 */
+	public void setRemoveDuplicateCompletions(boolean remove) {
+		removeDuplicateCompletions = remove;
+	}
+
+
 	@Override
 	public void setListCellRenderer(ListCellRenderer<Object> r) {
 		listCellRenderer = r;
@@ -237,4 +620,22 @@ public abstract class CompletionProviderBase implements CompletionProvider {
 	}
 
 
+	/**
+	 * Sets the tracker used to rank frequently used completions higher.
+	 * How often a completion has been used is added to its relevance when
+	 * sorting the completions returned by
+	 * {@link #getCompletions(JTextComponent)}; the completions themselves
+	 * are not modified.  For the tracker to learn anything, it should also
+	 * be set on the {@link AutoCompletion} using this provider.
+	 *
+	 * @param tracker The usage tracker, or <code>null</code> for none.  A
+	 *        tracker can be shared by many providers.
+	 * @see #getUsageTracker()
+	 * @see AutoCompletion#setUsageTracker(CompletionUsageTracker)
+	 */
+	public void setUsageTracker(CompletionUsageTracker tracker) {
+		usageTracker = tracker;
+	}
+
+
 }
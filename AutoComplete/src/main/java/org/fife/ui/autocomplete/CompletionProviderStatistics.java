@@ -0,0 +1,86 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionProviderStatistics.java - Statistics about a provider.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * Statistics about the completions in an
+ * {@link AbstractCompletionProvider}, taken at a single point in time.
+ * Memory figures are estimates, assuming a 64-bit JVM with compressed
+ * object pointers.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AbstractCompletionProvider#getStatistics()
+ */
+public final class CompletionProviderStatistics {
+
+	private final int completionCount;
+	private final long duplicateStringCount;
+	private final long bytesSaved;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param completionCount The number of completions.
+	 * @param duplicateStringCount The number of strings shared rather than
+	 *        duplicated when loading completions.
+	 * @param bytesSaved The estimated memory saved by sharing strings.
+	 */
+	CompletionProviderStatistics(int completionCount,
+			long duplicateStringCount, long bytesSaved) {
+		this.completionCount = completionCount;
+		this.duplicateStringCount = duplicateStringCount;
+		this.bytesSaved = bytesSaved;
+	}
+
+
+	/**
+	 * Returns an estimate of how much memory was saved by sharing strings,
+	 * such as type names, between completions loaded from XML.
+	 *
+	 * @return The estimated number of bytes saved.
+	 * @see StringPool
+	 */
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+
+	/**
+	 * Returns the number of completions in the provider.
+	 *
+	 * @return The number of completions.
+	 */
+	public int getCompletionCount() {
+		return completionCount;
+	}
+
+
+	/**
+	 * Returns the number of strings that were shared rather than duplicated
+	 * when loading completions from XML.
+	 *
+	 * @return The number of duplicate strings.
+	 * @see StringPool
+	 */
+	public long getDuplicateStringCount() {
+		return duplicateStringCount;
+	}
+
+
+	@Override
+	public String toString() {
+		return completionCount + " completions, " + duplicateStringCount +
+				" duplicate strings shared (~" + bytesSaved + " bytes saved)";
+	}
+
+
+}
@@ -0,0 +1,331 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionQueryCache.java - Remembers provider lookups for a single
+ * document state and caret position.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+
+
+/**
+ * Remembers the results of provider lookups, such as the text already
+ * entered, for as long as the document is not modified and the caret does
+ * not move.  A single keystroke typically results in several such lookups,
+ * by both {@link AutoCompletion} and the providers themselves; with this
+ * cache, each is only computed once.<p>
+ *
+ * Results are keyed by the document's modification stamp (see
+ * {@link #getModificationStamp(Document)}) and length, the caret position,
+ * the provider and the kind of lookup.  The length is checked too since,
+ * while a document event is being dispatched, the listener keeping the
+ * stamp may not have been notified yet.  Only results for the most recent
+ * document state and caret position are kept, so the cache never grows
+ * beyond a handful of entries.  Since a provider's completions can change
+ * without the document changing, completion lists are also keyed on the
+ * provider's {@link AbstractCompletionProvider#getCompletionsVersion()
+ * version}, if it has one.<p>
+ *
+ * An {@link AutoCompletion} creates a cache and installs it into its
+ * provider via {@link CompletionProviderBase#setQueryCache(CompletionQueryCache)}.
+ * This class is meant to be used on the event dispatch thread, but is
+ * thread-safe.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AutoCompletion#getQueryCache()
+ */
+public class CompletionQueryCache {
+
+	/**
+	 * The state the cached results are for.
+	 */
+	private Document doc;
+	private long stamp;
+	private int length;
+	private int caret;
+
+	private final Map<Key, Object> results;
+
+	private long hitCount;
+
+	private long missCount;
+
+	/**
+	 * The kinds of lookups cached by this class itself.
+	 */
+	private static final String ALREADY_ENTERED_TEXT = "alreadyEnteredText";
+	private static final String AUTO_ACTIVATE_OKAY = "autoActivateOkay";
+	private static final String COMPLETIONS = "completions";
+
+	/**
+	 * Stands in for a cached <code>null</code> result.
+	 */
+	private static final Object NULL = new Object();
+
+	/**
+	 * The document property holding a document's {@link StampListener}.
+	 */
+	private static final String STAMP_PROPERTY =
+			"AutoComplete.modificationStamp";
+
+
+	/**
+	 * Constructor.
+	 */
+	public CompletionQueryCache() {
+		results = new HashMap<>();
+	}
+
+
+	/**
+	 * Discards all cached results.  The hit and miss counts are not reset.
+	 *
+	 * @see #resetCounts()
+	 */
+	public synchronized void clear() {
+		results.clear();
+		doc = null;
+	}
+
+
+	/**
+	 * Returns the result of a lookup, computing it if it is not cached for
+	 * the text component's current document state and caret position.
+	 * Providers can use this to cache their own lookups.
+	 *
+	 * @param provider The provider doing the lookup.
+	 * @param query The kind of lookup.  This should be unique to the
+	 *        provider's class, and should identify anything other than the
+	 *        document and caret the result depends on.
+	 * @param comp The text component.
+	 * @param compute Computes the result if it is not cached.  It may use
+	 *        this cache for other lookups.
+	 * @param <T> The type of result.
+	 * @return The result, which may be <code>null</code>.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(CompletionProvider provider, Object query,
+			JTextComponent comp, Supplier<T> compute) {
+
+		Key key = new Key(provider, query);
+		synchronized (this) {
+			Document d = comp.getDocument();
+			long s = getModificationStamp(d);
+			int len = d.getLength();
+			int dot = comp.getCaretPosition();
+			if (d!=doc || s!=stamp || len!=length || dot!=caret) {
+				results.clear();
+				doc = d;
+				stamp = s;
+				length = len;
+				caret = dot;
+			}
+			Object result = results.get(key);
+			if (result!=null) {
+				hitCount++;
+				return result==NULL ? null : (T)result;
+			}
+			missCount++;
+		}
+
+		T result = compute.get();
+		synchronized (this) {
+			// Don't cache if the state changed while computing
+			if (comp.getDocument()==doc && getModificationStamp(doc)==stamp &&
+					doc.getLength()==length && comp.getCaretPosition()==caret) {
+				results.put(key, result==null ? NULL : result);
+			}
+		}
+		return result;
+
+	}
+
+
+	/**
+	 * Returns the text already entered in a text component, as determined
+	 * by a provider.
+	 *
+	 * @param provider The provider.
+	 * @param comp The text component.
+	 * @return The text.
+	 * @see CompletionProvider#getAlreadyEnteredText(JTextComponent)
+	 */
+	public String getAlreadyEnteredText(CompletionProvider provider,
+			JTextComponent comp) {
+		return get(provider, ALREADY_ENTERED_TEXT, comp,
+				() -> provider.getAlreadyEnteredText(comp));
+	}
+
+
+	/**
+	 * Returns the completions a provider offers in a text component.  The
+	 * list returned is shared by all callers until the document or caret
+	 * changes, so it should not be modified.
+	 *
+	 * @param provider The provider.
+	 * @param comp The text component.
+	 * @return The completions.
+	 * @see CompletionProvider#getCompletions(JTextComponent)
+	 */
+	public List<Completion> getCompletions(CompletionProvider provider,
+			JTextComponent comp) {
+		Object query = COMPLETIONS;
+		if (provider instanceof AbstractCompletionProvider) {
+			query = ((AbstractCompletionProvider)provider).
+					getCompletionsVersion();
+		}
+		return get(provider, query, comp,
+				() -> provider.getCompletions(comp));
+	}
+
+
+	/**
+	 * Returns the number of lookups answered from this cache.
+	 *
+	 * @return The number of hits.
+	 * @see #getMissCount()
+	 * @see #resetCounts()
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+
+	/**
+	 * Returns the number of lookups that had to be computed.
+	 *
+	 * @return The number of misses.
+	 * @see #getHitCount()
+	 * @see #resetCounts()
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+
+	/**
+	 * Returns a number that changes each time a document is modified.  The
+	 * first time this is called for a document, a listener is added to it to
+	 * keep track of this.
+	 *
+	 * @param doc The document.
+	 * @return The document's modification stamp.
+	 */
+	public static long getModificationStamp(Document doc) {
+		Object listener = doc.getProperty(STAMP_PROPERTY);
+		if (!(listener instanceof StampListener)) {
+			synchronized (CompletionQueryCache.class) {
+				listener = doc.getProperty(STAMP_PROPERTY);
+				if (!(listener instanceof StampListener)) {
+					listener = new StampListener();
+					doc.addDocumentListener((StampListener)listener);
+					doc.putProperty(STAMP_PROPERTY, listener);
+				}
+			}
+		}
+		return ((StampListener)listener).stamp;
+	}
+
+
+	/**
+	 * Returns whether auto-activation is okay in a text component, as
+	 * determined by a provider.
+	 *
+	 * @param provider The provider.
+	 * @param comp The text component.
+	 * @return Whether auto-activation is okay.
+	 * @see CompletionProvider#isAutoActivateOkay(JTextComponent)
+	 */
+	public boolean isAutoActivateOkay(CompletionProvider provider,
+			JTextComponent comp) {
+		return get(provider, AUTO_ACTIVATE_OKAY, comp,
+				() -> provider.isAutoActivateOkay(comp));
+	}
+
+
+	/**
+	 * Resets the hit and miss counts to zero.
+	 *
+	 * @see #getHitCount()
+	 * @see #getMissCount()
+	 */
+	public synchronized void resetCounts() {
+		hitCount = missCount = 0;
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		return "[CompletionQueryCache: hits=" + hitCount + ", misses=" +
+				missCount + "]";
+	}
+
+
+	/**
+	 * Identifies a cached result.
+	 */
+	private static final class Key {
+
+		private final CompletionProvider provider;
+		private final Object query;
+
+		Key(CompletionProvider provider, Object query) {
+			this.provider = provider;
+			this.query = query;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)o;
+			return provider==other.provider && query.equals(other.query);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(provider)*31 + query.hashCode();
+		}
+
+	}
+
+
+	/**
+	 * Counts the modifications to a document.
+	 */
+	private static final class StampListener implements DocumentListener {
+
+		private volatile long stamp;
+
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+			// Attribute changes don't affect completions
+		}
+
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			stamp++;
+		}
+
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			stamp++;
+		}
+
+	}
+
+
+}
@@ -0,0 +1,178 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionQuerySession.java - Narrows completions as the user keeps typing.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.text.Document;
+import javax.swing.text.JTextComponent;
+
+
+/**
+ * Remembers the completions returned for the text being typed at a single
+ * location, so that they don't have to be looked up from scratch on each
+ * keystroke.  When the user types another character, the previous result
+ * set is simply filtered; when they press backspace, an earlier result set
+ * is returned as-is.  If the text is being entered somewhere else (e.g. the
+ * caret moved to another word), the cached results are discarded.<p>
+ *
+ * This is only valid for providers whose completions for some text are
+ * exactly those of a shorter prefix of that text, filtered by input text.
+ * Sessions are thus created via
+ * {@link CompletionProviderBase#createQuerySession()}, which only returns one
+ * if that provider (and its parents) have opted into it.  An
+ * {@link AutoCompletion} keeps a session open while its popup window is
+ * visible.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionProviderBase#setIncrementalNarrowingEnabled(boolean)
+ */
+public class CompletionQuerySession {
+
+	private CompletionProviderBase provider;
+
+	/**
+	 * The document and offset the text is being entered at.  If either
+	 * changes, the cached results are no longer valid.
+	 */
+	private Document doc;
+	private int startOffs;
+
+	/**
+	 * Results for each prefix typed, shortest prefix first.
+	 */
+	private List<Entry> entries;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param provider The provider to get completions from.
+	 */
+	public CompletionQuerySession(CompletionProviderBase provider) {
+		this.provider = provider;
+		entries = new ArrayList<>();
+		startOffs = -1;
+	}
+
+
+	/**
+	 * Discards any cached results.
+	 */
+	public void close() {
+		entries.clear();
+		doc = null;
+		startOffs = -1;
+	}
+
+
+	/**
+	 * Returns the completions for the text component at its current caret
+	 * position.  This is equivalent to calling the provider's
+	 * <code>getCompletions(JTextComponent)</code> method, but may be faster.
+	 *
+	 * @param comp The text component.
+	 * @param text The text already entered, as returned by the provider's
+	 *        <code>getAlreadyEnteredText(JTextComponent)</code> method.
+	 * @return The completions.  This list should not be modified, other
+	 *         than by loading more completions into it if it is a
+	 *         {@link PagedCompletionList}.
+	 */
+	public List<Completion> getCompletions(JTextComponent comp, String text) {
+
+		if (text==null) {
+			close();
+			return provider.getCompletions(comp);
+		}
+
+		int start = comp.getCaretPosition() - text.length();
+		if (comp.getDocument()!=doc || start!=startOffs) {
+			close();
+			doc = comp.getDocument();
+			startOffs = start;
+		}
+
+		// On backspace, drop results for prefixes no longer typed.
+		while (!entries.isEmpty() && !Util.startsWithIgnoreCase(text,
+				entries.get(entries.size()-1).prefix)) {
+			entries.remove(entries.size() - 1);
+		}
+
+		List<Completion> result;
+		Entry top = entries.isEmpty() ? null : entries.get(entries.size()-1);
+
+		if (top!=null && top.prefix.length()==text.length()) {
+			return top.completions;
+		}
+
+		// Narrowing down "all completions" is slower than an index lookup
+		else if (top!=null && top.prefix.length()>0) {
+			result = narrow(top.completions, text);
+		}
+
+		else {
+			result = provider.getCompletions(comp);
+		}
+
+		entries.add(new Entry(text, result));
+		return result;
+
+	}
+
+
+	/**
+	 * Returns the provider this session gets completions from.
+	 *
+	 * @return The provider.
+	 */
+	public CompletionProviderBase getProvider() {
+		return provider;
+	}
+
+
+	/**
+	 * Returns the completions whose input text starts with some text.
+	 *
+	 * @param completions The completions to filter.
+	 * @param text The text.
+	 * @return The matching completions, in the same order.
+	 */
+	private static List<Completion> narrow(List<Completion> completions,
+			String text) {
+		if (completions instanceof PagedCompletionList) {
+			return ((PagedCompletionList)completions).narrow(text);
+		}
+		List<Completion> result = new ArrayList<>();
+		for (Completion c : completions) {
+			if (Util.startsWithIgnoreCase(c.getInputText(), text)) {
+				result.add(c);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * The completions for a single prefix.
+	 */
+	private static class Entry {
+
+		private String prefix;
+		private List<Completion> completions;
+
+		Entry(String prefix, List<Completion> completions) {
+			this.prefix = prefix;
+			this.completions = completions;
+		}
+
+	}
+
+
+}
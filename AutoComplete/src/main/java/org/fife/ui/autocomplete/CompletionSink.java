@@ -0,0 +1,43 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionSink.java - Receives completions as they are computed.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+
+
+/**
+ * Receives completions from an {@link AsyncCompletionProvider} a chunk at a
+ * time, so they can be displayed before all of them have been computed.
+ * The popup window shows the first chunk as soon as it arrives, and appends
+ * later chunks to the end of its list, leaving the selection alone.  The
+ * exception is a first chunk of a single completion when single choices are
+ * auto-inserted; it is held back until more completions arrive, since if it
+ * is the only one, it is inserted rather than shown.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AsyncCompletionProvider#streamCompletionsAsync(javax.swing.text.JTextComponent, String, java.util.concurrent.Executor, CompletionSink)
+ */
+@FunctionalInterface
+public interface CompletionSink {
+
+
+	/**
+	 * Called with the next chunk of completions.  This may be called from
+	 * any thread.
+	 *
+	 * @param chunk The completions.  These are appended to those already
+	 *        received, so each chunk should be sorted, and ideally more
+	 *        relevant than the chunks after it.  The sink takes ownership
+	 *        of this list.
+	 */
+	void addCompletions(List<Completion> chunk);
+
+
+}
@@ -0,0 +1,379 @@
+/*
+ * 10/17/2026
+ *
+ * CompletionUsageTracker.java - Learns which completions the user accepts.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Keeps track of how often, and how recently, completions are accepted by
+ * the user, so that frequently used completions can be ranked higher.  Each
+ * time a completion is inserted, its usage count goes up by one; counts
+ * decay over time, halving every {@link #setHalfLife(long, TimeUnit) half
+ * life}, so that completions the user stopped using eventually sink back
+ * down.<p>
+ *
+ * To use a tracker, set it on both the completion provider, which blends
+ * usage into the relevance of its completions when sorting them, and the
+ * {@link AutoCompletion}, which records the completions the user accepts:
+ *
+ * <pre>
+ * CompletionUsageTracker tracker = new CompletionUsageTracker();
+ * tracker.load(usageFile);
+ * provider.setUsageTracker(tracker);
+ * autoCompletion.setUsageTracker(tracker);
+ * ...
+ * tracker.save(usageFile); // On shutdown
+ * </pre>
+ *
+ * Completions are identified by their input text, so overloads share a
+ * usage count.  Counts are updated without locking, so a tracker can be
+ * shared by many providers and text components.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionProviderBase#setUsageTracker(CompletionUsageTracker)
+ * @see AutoCompletion#setUsageTracker(CompletionUsageTracker)
+ */
+public class CompletionUsageTracker {
+
+	/**
+	 * Maps input text to usage.  Each usage is packed into a single long so
+	 * it can be updated atomically: the high 32 bits are the usage count, as
+	 * a float, as of the time in the low 32 bits, in minutes since the epoch.
+	 */
+	private final Map<String, AtomicLong> usages;
+
+	private volatile long halfLifeMinutes;
+
+	private volatile double weight;
+
+	/**
+	 * Usage counts below this are forgotten when saving.
+	 */
+	private static final float MIN_SAVED_COUNT = 0.01f;
+
+	private static final int FILE_MAGIC = 0x41435553; // "ACUS"
+	private static final int FILE_VERSION = 1;
+
+
+	/**
+	 * Constructor.  Usage counts have a half life of 14 days and a weight of
+	 * <code>2</code>.
+	 */
+	public CompletionUsageTracker() {
+		usages = new ConcurrentHashMap<>();
+		setHalfLife(14, TimeUnit.DAYS);
+		setWeight(2);
+	}
+
+
+	/**
+	 * Removes all usage information.
+	 */
+	public void clear() {
+		usages.clear();
+	}
+
+
+	/**
+	 * Returns a comparator that sorts completions by their relevance plus
+	 * their {@link #getRelevanceBoost(Completion) relevance boost}, then
+	 * lexicographically.  Boosts are cached, so a comparator should only be
+	 * used for a single sort.
+	 *
+	 * @return The comparator.
+	 */
+	public Comparator<Completion> createRelevanceComparator() {
+		return new RelevanceComparator(this);
+	}
+
+
+	private static int currentMinute() {
+		return (int)TimeUnit.MILLISECONDS.toMinutes(System.currentTimeMillis());
+	}
+
+
+	/**
+	 * Returns a usage count, decayed to the specified time.
+	 */
+	private double decay(long packed, int now) {
+		float count = Float.intBitsToFloat((int)(packed >>> 32));
+		int minutes = now - (int)packed;
+		if (minutes<=0) {
+			return count;
+		}
+		return count * Math.pow(2, -minutes/(double)halfLifeMinutes);
+	}
+
+
+	/**
+	 * Returns the half life of usage counts.
+	 *
+	 * @param unit The unit to return the half life in.
+	 * @return The half life.
+	 * @see #setHalfLife(long, TimeUnit)
+	 */
+	public long getHalfLife(TimeUnit unit) {
+		return unit.convert(halfLifeMinutes, TimeUnit.MINUTES);
+	}
+
+
+	/**
+	 * Returns how much to add to a completion's relevance because of how
+	 * often it has been used.  This is the weight times the base 2 logarithm
+	 * of one plus the usage count, rounded down; so with the default weight,
+	 * a completion used once gets a boost of <code>2</code>, one used three
+	 * times gets <code>4</code>, and so on.
+	 *
+	 * @param c The completion.
+	 * @return The relevance boost.
+	 */
+	public int getRelevanceBoost(Completion c) {
+		return getRelevanceBoost(c, currentMinute());
+	}
+
+
+	private int getRelevanceBoost(Completion c, int now) {
+		AtomicLong usage = usages.get(c.getInputText());
+		if (usage==null) {
+			return 0;
+		}
+		double count = decay(usage.get(), now);
+		return (int)(weight * Math.log(1 + count) / Math.log(2));
+	}
+
+
+	/**
+	 * Returns the usage count of a completion, taking decay into account.
+	 *
+	 * @param c The completion.
+	 * @return The usage count.
+	 */
+	public double getUsageCount(Completion c) {
+		AtomicLong usage = usages.get(c.getInputText());
+		return usage==null ? 0 : decay(usage.get(), currentMinute());
+	}
+
+
+	/**
+	 * Returns the weight usage counts are given when computing relevance.
+	 *
+	 * @return The weight.
+	 * @see #setWeight(double)
+	 */
+	public double getWeight() {
+		return weight;
+	}
+
+
+	/**
+	 * Returns whether any usage has been recorded.
+	 *
+	 * @return Whether this tracker is empty.
+	 */
+	public boolean isEmpty() {
+		return usages.isEmpty();
+	}
+
+
+	/**
+	 * Loads usage information previously saved via {@link #save(File)},
+	 * adding it to any already in this tracker.  If the file does not exist,
+	 * nothing happens.
+	 *
+	 * @param file The file to load from.
+	 * @throws IOException If an IO error occurs, or the file is not a
+	 *         usage file.
+	 */
+	public void load(File file) throws IOException {
+
+		if (!file.isFile()) {
+			return;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+				new FileInputStream(file)))) {
+			if (in.readInt()!=FILE_MAGIC || in.readInt()!=FILE_VERSION) {
+				throw new IOException("Not a completion usage file: " + file);
+			}
+			int count = in.readInt();
+			for (int i=0; i<count; i++) {
+				String inputText = in.readUTF();
+				float usageCount = in.readFloat();
+				int minute = in.readInt();
+				record(inputText, usageCount, minute);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Adds to the usage count for some input text.
+	 *
+	 * @param inputText The input text.
+	 * @param amount The amount to add.
+	 * @param now The current time, in minutes since the epoch.
+	 */
+	private void record(String inputText, float amount, int now) {
+		AtomicLong usage = usages.computeIfAbsent(inputText,
+				k -> new AtomicLong(pack(0, now)));
+		long packed;
+		long updated;
+		do {
+			packed = usage.get();
+			int then = (int)packed;
+			int latest = Math.max(now, then);
+			double count = decay(packed, latest) +
+					decay(pack(amount, now), latest);
+			updated = pack((float)count, latest);
+		} while (!usage.compareAndSet(packed, updated));
+	}
+
+
+	private static long pack(float count, int minute) {
+		return ((long)Float.floatToIntBits(count) << 32) |
+				(minute & 0xffffffffL);
+	}
+
+
+	/**
+	 * Records that a completion was accepted by the user.
+	 *
+	 * @param c The completion.
+	 */
+	public void recordUsage(Completion c) {
+		record(c.getInputText(), 1, currentMinute());
+	}
+
+
+	/**
+	 * Saves usage information to a file.  Completions whose usage has
+	 * decayed to almost nothing are not saved.  The file is written in a
+	 * compact binary format; it is written to a temporary file first, so an
+	 * existing file is not corrupted if an error occurs.
+	 *
+	 * @param file The file to save to.
+	 * @throws IOException If an IO error occurs.
+	 * @see #load(File)
+	 */
+	public void save(File file) throws IOException {
+
+		int now = currentMinute();
+		Map<String, Long> snapshot = new TreeMap<>();
+		for (Map.Entry<String, AtomicLong> entry : usages.entrySet()) {
+			long packed = entry.getValue().get();
+			if (decay(packed, now)>=MIN_SAVED_COUNT) {
+				snapshot.put(entry.getKey(), packed);
+			}
+		}
+
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(FILE_MAGIC);
+			out.writeInt(FILE_VERSION);
+			out.writeInt(snapshot.size());
+			for (Map.Entry<String, Long> entry : snapshot.entrySet()) {
+				long packed = entry.getValue();
+				out.writeUTF(entry.getKey());
+				out.writeFloat(Float.intBitsToFloat((int)(packed >>> 32)));
+				out.writeInt((int)packed);
+			}
+		}
+
+		if (file.exists() && !file.delete()) {
+			throw new IOException("Cannot overwrite " + file);
+		}
+		if (!temp.renameTo(file)) {
+			throw new IOException("Cannot rename " + temp + " to " + file);
+		}
+
+	}
+
+
+	/**
+	 * Sets the half life of usage counts; that is, how long it takes for
+	 * the count of a completion that is no longer used to drop by half.
+	 *
+	 * @param halfLife The half life.
+	 * @param unit The unit of <code>halfLife</code>.
+	 * @throws IllegalArgumentException If the half life is less than a
+	 *         minute.
+	 * @see #getHalfLife(TimeUnit)
+	 */
+	public void setHalfLife(long halfLife, TimeUnit unit) {
+		long minutes = unit.toMinutes(halfLife);
+		if (minutes<1) {
+			throw new IllegalArgumentException(
+					"halfLife must be at least a minute");
+		}
+		halfLifeMinutes = minutes;
+	}
+
+
+	/**
+	 * Sets the weight usage counts are given when computing relevance.
+	 *
+	 * @param weight The weight.  This should be zero or greater.
+	 * @see #getWeight()
+	 * @see #getRelevanceBoost(Completion)
+	 */
+	public void setWeight(double weight) {
+		this.weight = weight;
+	}
+
+
+	/**
+	 * Sorts completions by their relevance plus their relevance boost, then
+	 * lexicographically.
+	 */
+	private static final class RelevanceComparator
+			implements Comparator<Completion> {
+
+		private final CompletionUsageTracker tracker;
+		private final int now;
+		private final Map<Completion, Integer> relevances;
+
+		RelevanceComparator(CompletionUsageTracker tracker) {
+			this.tracker = tracker;
+			now = currentMinute();
+			relevances = new IdentityHashMap<>();
+		}
+
+		@Override
+		public int compare(Completion c1, Completion c2) {
+			int diff = getRelevance(c2) - getRelevance(c1);
+			return diff!=0 ? diff : c1.compareTo(c2);
+		}
+
+		private int getRelevance(Completion c) {
+			return relevances.computeIfAbsent(c, k -> k.getRelevance() +
+					tracker.getRelevanceBoost(k, now));
+		}
+
+	}
+
+
+}
@@ -9,20 +9,40 @@
  */
 package org.fife.ui.autocomplete;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import org.xml.sax.Attributes;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.AttributesImpl;
 import org.xml.sax.helpers.DefaultHandler;
 
 
 /**
  * Parser for an XML file describing a procedural language such as C.  XML
  * files will be validated against the <code>CompletionXml.dtd</code> DTD
- * found in this package.
+ * found in this package.<p>
+ *
+ * This class is a SAX handler, but {@link #parse(InputStream, boolean)} can
+ * also stream XML from trusted sources through StAX without validating it,
+ * which is considerably faster.  Completions can be passed on in batches as
+ * they are parsed via {@link #setCompletionSink(CompletionSink, int)}.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -84,6 +104,52 @@ public class CompletionXMLParser extends DefaultHandler {
 	 */
 	private static ClassLoader defaultCompletionClassLoader;
 
+	/**
+	 * Receives completions in batches as they are parsed, if not
+	 * <code>null</code>.
+	 */
+	private CompletionSink sink;
+
+	private int batchSize;
+
+	/**
+	 * Shared by all validating parses.  Access is synchronized on this
+	 * class.
+	 */
+	private static SAXParserFactory saxParserFactory;
+
+	/**
+	 * Shared by all non-validating parses.  Access is synchronized on this
+	 * class.
+	 */
+	private static XMLInputFactory xmlInputFactory;
+
+	/**
+	 * The contents of <code>CompletionXml.dtd</code>, read once.
+	 */
+	private static byte[] dtd;
+
+	/**
+	 * Shares strings repeated across completions, such as type names.
+	 */
+	private StringPool stringPool;
+
+	private long duplicateStringCount;
+
+	private long bytesSaved;
+
+	/**
+	 * When loading descriptions lazily, where they are loaded from, and the
+	 * references to the description elements in the XML in document order.
+	 */
+	private XMLDescriptionSource descSource;
+	private long[] descRefs;
+	private int descRefIndex;
+
+	private long descRef;
+	private long returnValDescRef;
+	private long paramDescRef;
+
 
 	/**
 	 * Constructor.
@@ -120,6 +186,8 @@ public class CompletionXMLParser extends DefaultHandler {
 		returnValDesc = new StringBuilder();
 		paramStartChar = paramEndChar = 0;
 		paramSeparator = null;
+		stringPool = StringPool.isGlobalPoolEnabled() ?
+				StringPool.getGlobalPool() : new StringPool();
 	}
 
 
@@ -140,6 +208,31 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+	private static synchronized SAXParser createSAXParser()
+			throws ParserConfigurationException, SAXException {
+		if (saxParserFactory==null) {
+			saxParserFactory = SAXParserFactory.newInstance();
+			saxParserFactory.setValidating(true);
+		}
+		return saxParserFactory.newSAXParser();
+	}
+
+
+	private static synchronized XMLStreamReader createXMLStreamReader(
+			InputStream in) throws XMLStreamException {
+		if (xmlInputFactory==null) {
+			xmlInputFactory = XMLInputFactory.newInstance();
+			xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE,
+					Boolean.FALSE);
+			xmlInputFactory.setProperty(XMLInputFactory.IS_VALIDATING,
+					Boolean.FALSE);
+			xmlInputFactory.setProperty(XMLInputFactory.SUPPORT_DTD,
+					Boolean.FALSE);
+		}
+		return xmlInputFactory.createXMLStreamReader(in);
+	}
+
+
 	private FunctionCompletion createFunctionCompletion() {
 
 		FunctionCompletion fc = null;
@@ -164,7 +257,12 @@ public class CompletionXMLParser extends DefaultHandler {
 			}
 		}
 
-		if (fc==null) { // Fallback if completion failed for some reason
+		if (fc==null && (descRef!=DescriptionSource.NONE ||
+				returnValDescRef!=DescriptionSource.NONE)) {
+			fc = new LazyCompletions.LazyFunctionCompletion(provider, name,
+					returnType, descSource, descRef, returnValDescRef);
+		}
+		else if (fc==null) { // Fallback if completion failed for some reason
 			fc = new FunctionCompletion(provider, name, returnType);
 		}
 
@@ -185,7 +283,10 @@ public class CompletionXMLParser extends DefaultHandler {
 
 
 	private BasicCompletion createOtherCompletion() {
-		BasicCompletion bc = new BasicCompletion(provider, name);
+		BasicCompletion bc = descRef==DescriptionSource.NONE ?
+				new BasicCompletion(provider, name) :
+				new LazyCompletions.LazyBasicCompletion(provider, name,
+						descSource, DescriptionSource.NONE, descRef);
 		if (desc.length()>0) {
 			bc.setSummary(desc.toString());
 			desc.setLength(0);
@@ -195,8 +296,10 @@ public class CompletionXMLParser extends DefaultHandler {
 
 
 	private MarkupTagCompletion createMarkupTagCompletion() {
-		MarkupTagCompletion mc = new MarkupTagCompletion(provider,
-				name);
+		MarkupTagCompletion mc = descRef==DescriptionSource.NONE ?
+				new MarkupTagCompletion(provider, name) :
+				new LazyCompletions.LazyMarkupTagCompletion(provider, name,
+						descSource, descRef);
 		if (desc.length()>0) {
 			mc.setDescription(desc.toString());
 			desc.setLength(0);
@@ -208,8 +311,10 @@ public class CompletionXMLParser extends DefaultHandler {
 
 
 	private VariableCompletion createVariableCompletion() {
-		VariableCompletion vc = new VariableCompletion(provider,
-				name, returnType);
+		VariableCompletion vc = descRef==DescriptionSource.NONE ?
+				new VariableCompletion(provider, name, returnType) :
+				new LazyCompletions.LazyVariableCompletion(provider, name,
+						returnType, descSource, descRef);
 		if (desc.length()>0) {
 			vc.setShortDescription(desc.toString());
 			desc.setLength(0);
@@ -227,6 +332,7 @@ public class CompletionXMLParser extends DefaultHandler {
 
 		if ("keywords".equals(qName)) {
 			doingKeywords = false;
+			flushCompletions();
 		}
 
 		else if (doingKeywords) {
@@ -249,11 +355,15 @@ public class CompletionXMLParser extends DefaultHandler {
 					throw new InternalError("Unexpected type: " + type);
 				}
 				completions.add(c);
+				if (sink!=null && completions.size()>=batchSize) {
+					flushCompletions();
+				}
 				inKeyword = false;
 			}
 			else if (inKeyword) {
 				if ("returnValDesc".equals(qName)) {
 					gettingReturnValDesc = false;
+					returnValDescRef = takeDescriptionRef(returnValDesc);
 				}
 				else if (gettingParams) {
 					if ("params".equals(qName)) {
@@ -261,7 +371,10 @@ public class CompletionXMLParser extends DefaultHandler {
 					}
 					else if ("param".equals(qName)) {
 						FunctionCompletion.Parameter param =
-							new FunctionCompletion.Parameter(paramType, paramName, endParam);
+							paramDescRef==DescriptionSource.NONE ?
+							new FunctionCompletion.Parameter(paramType, paramName, endParam) :
+							new LazyCompletions.LazyParameter(paramType, paramName,
+									endParam, descSource, paramDescRef);
 						if (paramDesc.length()>0) {
 							param.setDescription(paramDesc.toString());
 							paramDesc.setLength(0);
@@ -272,11 +385,13 @@ public class CompletionXMLParser extends DefaultHandler {
 					else if (inParam) {
 						if ("desc".equals(qName)) {
 							gettingParamDesc = false;
+							paramDescRef = takeDescriptionRef(paramDesc);
 						}
 					}
 				}
 				else if ("desc".equals(qName)) {
 					gettingDesc = false;
+					descRef = takeDescriptionRef(desc);
 				}
 			}
 
@@ -297,15 +412,56 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 	/**
-	 * Returns the completions found after parsing the XML.
+	 * Passes the completions parsed so far to the sink, if there is one.
+	 */
+	private void flushCompletions() {
+		if (sink!=null && !completions.isEmpty()) {
+			List<Completion> batch = completions;
+			completions = new ArrayList<>(batchSize);
+			sink.addCompletions(batch);
+		}
+	}
+
+
+	/**
+	 * Returns the completions found after parsing the XML.  If a completion
+	 * sink is set, this only returns completions not yet passed to it, and
+	 * will be empty after a successful parse.
 	 *
 	 * @return The completions.
+	 * @see #setCompletionSink(CompletionSink, int)
 	 */
 	public List<Completion> getCompletions() {
 		return completions;
 	}
 
 
+	/**
+	 * Returns an estimate of how much memory was saved by sharing strings
+	 * among the completions parsed since this parser was created or last
+	 * {@link #reset(CompletionProvider) reset}.
+	 *
+	 * @return The estimated number of bytes saved.
+	 * @see #getDuplicateStringCount()
+	 */
+	public long getBytesSaved() {
+		return bytesSaved;
+	}
+
+
+	/**
+	 * Returns the number of strings that were shared rather than duplicated
+	 * among the completions parsed since this parser was created or last
+	 * {@link #reset(CompletionProvider) reset}.
+	 *
+	 * @return The number of duplicate strings.
+	 * @see #getBytesSaved()
+	 */
+	public long getDuplicateStringCount() {
+		return duplicateStringCount;
+	}
+
+
 	/**
 	 * Returns the parameter end character specified.
 	 *
@@ -336,11 +492,178 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+	private static synchronized byte[] getDTD() throws IOException {
+		if (dtd==null) {
+			try (InputStream in = CompletionXMLParser.class.
+					getResourceAsStream("CompletionXml.dtd")) {
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				byte[] buf = new byte[4096];
+				int count;
+				while ((count = in.read(buf))>-1) {
+					out.write(buf, 0, count);
+				}
+				dtd = out.toByteArray();
+			}
+		}
+		return dtd;
+	}
+
+
+	/**
+	 * Returns the string pool used by this parser.
+	 *
+	 * @return The string pool.
+	 * @see #setStringPool(StringPool)
+	 */
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+
 	private static char getSingleChar(String str) {
 		return str.length()==1 ? str.charAt(0) : 0;
 	}
 
 
+	/**
+	 * Returns the pooled instance of a string, noting whether a duplicate
+	 * was avoided.
+	 *
+	 * @param s The string.  This may be <code>null</code>.
+	 * @return The pooled string.
+	 */
+	private String intern(String s) {
+		String pooled = stringPool.intern(s);
+		if (pooled!=s) {
+			duplicateStringCount++;
+			bytesSaved += StringPool.estimateSize(s);
+		}
+		return pooled;
+	}
+
+
+	/**
+	 * Parses an XML file, adding the completions found to this parser's
+	 * list, or passing them to its sink.
+	 *
+	 * @param file The XML file.
+	 * @param validate Whether to validate the XML.  See
+	 *        {@link #parse(InputStream, boolean)}.
+	 * @param lazyDescriptions Whether to leave descriptions, summaries and
+	 *        parameter descriptions in the file, and only read them when they
+	 *        are needed.  If this is <code>true</code>, the file should not be
+	 *        modified while the completions are in use.  This is ignored if
+	 *        the file's encoding is not one in which markup is plain ASCII,
+	 *        such as UTF-8 or ISO-8859-1.
+	 * @throws IOException If an IO error occurs, or the XML is invalid.
+	 * @see DescriptionSource
+	 */
+	public void parse(File file, boolean validate, boolean lazyDescriptions)
+			throws IOException {
+
+		if (lazyDescriptions) {
+			descSource = XMLDescriptionSource.scan(file);
+			descRefs = descSource==null ? null : descSource.takeScannedRefs();
+			descRefIndex = 0;
+		}
+
+		long[] refs = descRefs;
+		try (InputStream in = new BufferedInputStream(
+				new FileInputStream(file))) {
+			parse(in, validate);
+		} finally {
+			descRefs = null;
+		}
+
+		if (refs!=null && descRefIndex!=refs.length) {
+			// Shouldn't happen unless the XML is unusual, e.g. uses
+			// entities declared in its DTD to add elements
+			throw new IOException("Could not find the descriptions in " +
+					file + "; try loading it without lazy descriptions");
+		}
+
+	}
+
+
+	/**
+	 * Parses XML, adding the completions found to this parser's list, or
+	 * passing them to its sink.
+	 *
+	 * @param in The stream to read from.  This is not closed, and should be
+	 *        buffered.
+	 * @param validate Whether to validate the XML against
+	 *        <code>CompletionXml.dtd</code>.  If this is <code>false</code>,
+	 *        the XML is streamed with StAX, which is much faster, but will
+	 *        not catch mistakes such as misspelled elements.  This should
+	 *        only be done for XML from trusted sources, such as that shipped
+	 *        with an application.
+	 * @throws IOException If an IO error occurs, or the XML is invalid.
+	 *         Any completions passed to the sink before the error was found
+	 *         are not taken back.
+	 */
+	public void parse(InputStream in, boolean validate) throws IOException {
+		try {
+			if (validate) {
+				createSAXParser().parse(in, this);
+			}
+			else {
+				parseStreaming(in);
+			}
+		} catch (SAXException | ParserConfigurationException |
+				XMLStreamException e) {
+			throw new IOException(e.toString());
+		}
+		flushCompletions();
+	}
+
+
+	/**
+	 * Parses XML with StAX, without validating it, feeding it to this class's
+	 * SAX callbacks.
+	 *
+	 * @param in The stream to read from.
+	 * @throws XMLStreamException If the XML is not well-formed.
+	 */
+	private void parseStreaming(InputStream in) throws XMLStreamException {
+
+		XMLStreamReader reader = createXMLStreamReader(in);
+		AttributesImpl attrs = new AttributesImpl();
+
+		try {
+			while (reader.hasNext()) {
+				String elemName;
+				switch (reader.next()) {
+					case XMLStreamConstants.START_ELEMENT:
+						attrs.clear();
+						for (int i=0; i<reader.getAttributeCount(); i++) {
+							String attrName = reader.getAttributeLocalName(i);
+							attrs.addAttribute("", attrName, attrName, "CDATA",
+									reader.getAttributeValue(i));
+						}
+						elemName = reader.getLocalName();
+						startElement("", elemName, elemName, attrs);
+						break;
+					case XMLStreamConstants.END_ELEMENT:
+						elemName = reader.getLocalName();
+						endElement("", elemName, elemName);
+						break;
+					case XMLStreamConstants.CHARACTERS:
+					case XMLStreamConstants.CDATA:
+					case XMLStreamConstants.SPACE:
+						characters(reader.getTextCharacters(),
+								reader.getTextStart(), reader.getTextLength());
+						break;
+					default:
+						break;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+	}
+
+
 	/**
 	 * Resets this parser to grab more completions.
 	 *
@@ -353,16 +676,38 @@ public class CompletionXMLParser extends DefaultHandler {
 				gettingParamDesc = false;
 		paramStartChar = paramEndChar = 0;
 		paramSeparator = null;
+		duplicateStringCount = bytesSaved = 0;
+		descSource = null;
+		descRefs = null;
 	}
 
 
-    @Override
+	@Override
 	public InputSource resolveEntity(String publicID,
-			String systemID) throws SAXException {
-		return new InputSource(getClass().
-				getResourceAsStream("CompletionXml.dtd"));
+			String systemID) throws IOException, SAXException {
+		return new InputSource(new ByteArrayInputStream(getDTD()));
+	}
+
+	/**
+	 * Sets a sink to pass completions to in batches as they are parsed,
+	 * rather than collecting them all to be returned by
+	 * {@link #getCompletions()}.
+	 *
+	 * @param sink The sink, or <code>null</code> to collect completions.
+	 * @param batchSize The number of completions to pass to the sink at a
+	 *        time.  The last batch may be smaller.
+	 * @throws IllegalArgumentException If <code>batchSize</code> is less
+	 *         than <code>1</code>.
+	 */
+	public void setCompletionSink(CompletionSink sink, int batchSize) {
+		if (batchSize<1) {
+			throw new IllegalArgumentException("batchSize must be positive");
+		}
+		this.sink = sink;
+		this.batchSize = batchSize;
 	}
 
+
 	/**
 	 * Sets the class loader to use when loading custom classes to use for
 	 * various {@link Completion} types, such as {@link FunctionCompletion}s,
@@ -378,6 +723,24 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+	/**
+	 * Sets the string pool used to share strings, such as type names, that
+	 * are repeated across completions.  By default, each parser has its own
+	 * pool, unless the {@link StringPool#setGlobalPoolEnabled(boolean) global
+	 * pool} is enabled.  Sharing a pool between parsers is useful when
+	 * loading several files for the same language.
+	 *
+	 * @param pool The pool to use.  This cannot be <code>null</code>.
+	 * @see #getStringPool()
+	 */
+	public void setStringPool(StringPool pool) {
+		if (pool==null) {
+			throw new IllegalArgumentException("pool cannot be null");
+		}
+		stringPool = pool;
+	}
+
+
 	/**
 	 * Called when an element starts.
 	 */
@@ -391,9 +754,10 @@ public class CompletionXMLParser extends DefaultHandler {
 			if ("keyword".equals(qName)) {
 				name = attrs.getValue("name");
 				type = attrs.getValue("type");
-				returnType = attrs.getValue("returnType");
+				returnType = intern(attrs.getValue("returnType"));
 				params.clear();
-				definedIn = attrs.getValue("definedIn");
+				definedIn = intern(attrs.getValue("definedIn"));
+				descRef = returnValDescRef = DescriptionSource.NONE;
 				inKeyword = true;
 			}
 			else if (inKeyword) {
@@ -405,9 +769,10 @@ public class CompletionXMLParser extends DefaultHandler {
 				}
 				else if (gettingParams) {
 					if ("param".equals(qName)) {
-						paramName = attrs.getValue("name");
-						paramType = attrs.getValue("type");
+						paramName = intern(attrs.getValue("name"));
+						paramType = intern(attrs.getValue("type"));
 						endParam = Boolean.parseBoolean(attrs.getValue("endParam"));
+						paramDescRef = DescriptionSource.NONE;
 						inParam = true;
 					}
 					if (inParam) {
@@ -438,6 +803,31 @@ public class CompletionXMLParser extends DefaultHandler {
 	}
 
 
+	/**
+	 * Returns the reference to the description element just parsed, if
+	 * descriptions are being loaded lazily and it can be.  If so, its text
+	 * is discarded.
+	 *
+	 * @param text The description text.
+	 * @return The reference, or {@link DescriptionSource#NONE} if the text
+	 *         should be kept.
+	 */
+	private long takeDescriptionRef(StringBuilder text) {
+		if (descRefs==null) {
+			return DescriptionSource.NONE;
+		}
+		int index = descRefIndex++;
+		if (index>=descRefs.length || text.length()==0 ||
+				(funcCompletionType!=null && "function".equals(type))) {
+			// Custom function completion classes get their descriptions
+			// set the usual way
+			return DescriptionSource.NONE;
+		}
+		text.setLength(0);
+		return descRefs[index];
+	}
+
+
 	@Override
 	public void warning(SAXParseException e) throws SAXException {
 		throw e;
@@ -21,10 +21,6 @@ import javax.swing.text.Document;
 import javax.swing.text.Element;
 import javax.swing.text.JTextComponent;
 import javax.swing.text.Segment;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-import org.xml.sax.SAXException;
 
 
 /**
@@ -38,12 +34,16 @@ import org.xml.sax.SAXException;
  */
 public class DefaultCompletionProvider extends AbstractCompletionProvider {
 
-	protected Segment seg;
-
 	/**
-	 * Used to speed up {@link #getCompletionsAt(JTextComponent, Point)}.
+	 * A segment for fast char access.
+	 *
+	 * @deprecated This is no longer used by this class, since a shared
+	 *             segment prevents a provider from being used by several
+	 *             threads at once.  Subclasses should use a local
+	 *             <code>Segment</code> instead.
 	 */
-	private String lastCompletionsAtText;
+	@Deprecated
+	protected Segment seg;
 
 	/**
 	 * Used to speed up {@link #getCompletionsAt(JTextComponent, Point)},
@@ -51,8 +51,30 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	 * called by {@code JTextComponent.getToolTipText()}, and if the user
 	 * wiggles the mouse while a tool tip is displayed, this method gets
 	 * repeatedly called.  It can be costly so we try to speed it up a tad).
+	 * The text and its completions are kept in a single object so they are
+	 * always seen together by other threads.
+	 */
+	private volatile CompletionsAt lastCompletionsAt;
+
+	/**
+	 * The number of completions added at a time when streaming XML.
 	 */
-	private List<Completion> lastParameterizedCompletionsAt;
+	private static final int XML_BATCH_SIZE = 1024;
+
+	/**
+	 * Whether descriptions loaded from XML files are left in the file until
+	 * needed.
+	 */
+	private boolean lazyDescriptions;
+
+	/**
+	 * Segments reused to read text from documents, so that looking up
+	 * completions does not create objects.  A segment is only used within a
+	 * single method call, so this provider can be used by several threads
+	 * at once.
+	 */
+	private static final ThreadLocal<Segment> SEGMENT =
+			ThreadLocal.withInitial(Segment::new);
 
 	/**
 	 * Constructor.  The returned provider will not be aware of any completions.
@@ -78,17 +100,109 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	}
 
 
+	/**
+	 * Adds the completions and settings loaded by an XML parser that are
+	 * not yet added to this provider.
+	 *
+	 * @param handler The parser.
+	 */
+	private void addXMLCompletions(CompletionXMLParser handler) {
+
+		addStringPoolStatistics(handler.getDuplicateStringCount(),
+				handler.getBytesSaved());
+
+		List<Completion> completions = handler.getCompletions();
+		if (!completions.isEmpty()) {
+			addCompletions(completions);
+		}
+		char startChar = handler.getParamStartChar();
+		if (startChar != 0) {
+			char endChar = handler.getParamEndChar();
+			String sep = handler.getParamSeparator();
+			if (endChar != 0 && sep != null && sep.length() > 0) { // Sanity
+				setParameterizedCompletionParams(startChar, sep, endChar);
+			}
+		}
+
+	}
+
+
+	/**
+	 * Creates a parser to load completions from XML.  If not validating,
+	 * completions are added to this provider in batches as they are parsed.
+	 *
+	 * @param cl The class loader to use, or <code>null</code> for the
+	 *        default.
+	 * @param validate Whether the XML will be validated.
+	 * @return The parser.
+	 */
+	private CompletionXMLParser createXMLParser(ClassLoader cl,
+			boolean validate) {
+		CompletionXMLParser handler = new CompletionXMLParser(this, cl);
+		if (!validate) {
+			handler.setCompletionSink(this::addCompletions, XML_BATCH_SIZE);
+		}
+		return handler;
+	}
+
+
 	/**
 	 * Returns the text just before the current caret position that could be
 	 * the start of something auto-completable.<p>
 	 *
 	 * This method returns all characters before the caret that are matched
-	 * by  {@link #isValidChar(char)}.
+	 * by  {@link #isValidChar(char)}.  Subclasses that override this method
+	 * should also override
+	 * {@link #getAlreadyEnteredText(JTextComponent, CharSequenceSink)}.
 	 *
 	 * {@inheritDoc}
 	 */
 	@Override
 	public String getAlreadyEnteredText(JTextComponent comp) {
+		Segment s = getAlreadyEnteredSegment(comp);
+		if (s==null) {
+			return EMPTY_STRING;
+		}
+		return s.count==0 ? EMPTY_STRING :
+				new String(s.array, s.offset, s.count);
+	}
+
+
+	/**
+	 * Passes a view of the text just before the current caret position that
+	 * could be the start of something auto-completable to a sink.  This is
+	 * the same text as {@link #getAlreadyEnteredText(JTextComponent)}
+	 * returns, but no objects are created; the view is a
+	 * <code>Segment</code> into the document's text.
+	 *
+	 * @param comp The text component.
+	 * @param sink The sink to pass the text to.
+	 */
+	@Override
+	public void getAlreadyEnteredText(JTextComponent comp,
+			CharSequenceSink sink) {
+		Segment s = getAlreadyEnteredSegment(comp);
+		if (s==null) {
+			sink.accept(EMPTY_STRING);
+			return;
+		}
+		try {
+			sink.accept(s);
+		} finally {
+			s.array = null; // Don't hold on to the document's text
+		}
+	}
+
+
+	/**
+	 * Returns the text already entered in a text component, as determined
+	 * by {@link #isValidChar(char)}, as this thread's reusable segment.
+	 *
+	 * @param comp The text component.
+	 * @return The segment, or <code>null</code> if the text could not be
+	 *         read.
+	 */
+	private Segment getAlreadyEnteredSegment(JTextComponent comp) {
 
 		Document doc = comp.getDocument();
 
@@ -98,22 +212,24 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 		Element elem = root.getElement(index);
 		int start = elem.getStartOffset();
 		int len = dot-start;
+		Segment s = SEGMENT.get();
 		try {
-			doc.getText(start, len, seg);
+			doc.getText(start, len, s);
 		} catch (BadLocationException ble) {
 			ble.printStackTrace();
-			return EMPTY_STRING;
+			return null;
 		}
 
-		int segEnd = seg.offset + len;
+		int segEnd = s.offset + len;
 		start = segEnd - 1;
-		while (start>=seg.offset && isValidChar(seg.array[start])) {
+		while (start>=s.offset && isValidChar(s.array[start])) {
 			start--;
 		}
 		start++;
 
-		len = segEnd - start;
-		return len==0 ? EMPTY_STRING : new String(seg.array, start, len);
+		s.offset = start;
+		s.count = segEnd - start;
+		return s;
 
 	}
 
@@ -126,11 +242,11 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 
 		int offset = tc.viewToModel(p);
 		if (offset<0 || offset>=tc.getDocument().getLength()) {
-			lastCompletionsAtText = null;
-			return lastParameterizedCompletionsAt = null;
+			lastCompletionsAt = null;
+			return null;
 		}
 
-		Segment s = new Segment();
+		Segment s = SEGMENT.get();
 		Document doc = tc.getDocument();
 		Element root = doc.getDefaultRootElement();
 		int line = root.getElementIndex(offset);
@@ -156,25 +272,31 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 
 			int len = endOffs - startOffs - 1;
 			if (len<=0) {
-				return lastParameterizedCompletionsAt = null;
+				lastCompletionsAt = null;
+				return null;
 			}
-			String text = new String(s.array, startOffs+1, len);
+			s.offset = startOffs + 1;
+			s.count = len;
 
-			if (text.equals(lastCompletionsAtText)) {
-				return lastParameterizedCompletionsAt;
+			CompletionsAt last = lastCompletionsAt;
+			if (last!=null && last.text.contentEquals(s)) {
+				return last.completions;
 			}
+			String text = s.toString();
 
 			// Get a list of all Completions matching the text.
 			List<Completion> list = getCompletionByInputText(text);
-			lastCompletionsAtText = text;
-			return lastParameterizedCompletionsAt = list;
+			lastCompletionsAt = new CompletionsAt(text, list);
+			return list;
 
 		} catch (BadLocationException ble) {
 			ble.printStackTrace(); // Never happens
+		} finally {
+			s.array = null;
 		}
 
-		lastCompletionsAtText = null;
-		return lastParameterizedCompletionsAt = null;
+		lastCompletionsAt = null;
+		return null;
 
 	}
 
@@ -196,7 +318,7 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 		}
 
 		int dot = tc.getCaretPosition();
-		Segment s = new Segment();
+		Segment s = SEGMENT.get();
 		Document doc = tc.getDocument();
 		Element root = doc.getDefaultRootElement();
 		int line = root.getElementIndex(dot);
@@ -240,6 +362,8 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 
 		} catch (BadLocationException ble) {
 			ble.printStackTrace(); // Never happens
+		} finally {
+			s.array = null;
 		}
 
 		return list;
@@ -250,11 +374,24 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	/**
 	 * Initializes this completion provider.
 	 */
+	@SuppressWarnings("deprecation")
 	protected void init() {
 		seg = new Segment();
 	}
 
 
+	/**
+	 * Returns whether descriptions loaded from XML files are only read from
+	 * the file when they are needed.
+	 *
+	 * @return Whether descriptions are loaded lazily.
+	 * @see #setLazyDescriptions(boolean)
+	 */
+	public boolean isLazyDescriptions() {
+		return lazyDescriptions;
+	}
+
+
 	/**
 	 * Returns whether the specified character is valid in an auto-completion.
 	 * The default implementation is equivalent to
@@ -277,10 +414,31 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	 * @throws IOException If an IO error occurs.
 	 */
 	public void loadFromXML(File file) throws IOException {
-		try (BufferedInputStream bin = new BufferedInputStream(
-			new FileInputStream(file))) {
-			loadFromXML(bin);
-		}
+		loadFromXML(file, null, true);
+	}
+
+
+	/**
+	 * Loads completions from an XML file.  The XML should validate against
+	 * <code>CompletionXml.dtd</code>.  If
+	 * {@link #setLazyDescriptions(boolean) lazy descriptions} are enabled,
+	 * descriptions are read from the file when they are needed, so it
+	 * should not be modified while this provider is in use.
+	 *
+	 * @param file An XML file to load from.
+	 * @param cl The class loader to use when loading any extra classes defined
+	 *        in the XML, such as custom {@link FunctionCompletion}s.  This
+	 *        may be <code>null</code> if the default is to be used, or if no
+	 *        custom completions are defined in the XML.
+	 * @param validate Whether to validate the XML.  See
+	 *        {@link #loadFromXML(InputStream, ClassLoader, boolean)}.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void loadFromXML(File file, ClassLoader cl, boolean validate)
+			throws IOException {
+		CompletionXMLParser handler = createXMLParser(cl, validate);
+		handler.parse(file, validate, lazyDescriptions);
+		addXMLCompletions(handler);
 	}
 
 
@@ -308,30 +466,37 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	 * @throws IOException If an IO error occurs.
 	 */
 	public void loadFromXML(InputStream in, ClassLoader cl) throws IOException {
+		loadFromXML(in, cl, true);
+	}
 
-		//long start = System.currentTimeMillis();
 
-		SAXParserFactory factory = SAXParserFactory.newInstance();
-		factory.setValidating(true);
-		CompletionXMLParser handler = new CompletionXMLParser(this, cl);
+	/**
+	 * Loads completions from an XML input stream.  The XML should validate
+	 * against <code>CompletionXml.dtd</code>.<p>
+	 *
+	 * If <code>validate</code> is <code>false</code>, the XML is streamed
+	 * rather than validated, and completions are added to this provider in
+	 * batches as they are parsed.  This is much faster, and is recommended
+	 * for XML from trusted sources, such as that shipped with an
+	 * application.  Note however that if the XML is malformed, the
+	 * completions before the error will already have been added.
+	 *
+	 * @param in The input stream to read from.
+	 * @param cl The class loader to use when loading any extra classes defined
+	 *        in the XML, such as custom {@link FunctionCompletion}s.  This
+	 *        may be <code>null</code> if the default is to be used, or if no
+	 *        custom completions are defined in the XML.
+	 * @param validate Whether to validate the XML.
+	 * @throws IOException If an IO error occurs.
+	 */
+	public void loadFromXML(InputStream in, ClassLoader cl, boolean validate)
+			throws IOException {
+
+		CompletionXMLParser handler = createXMLParser(cl, validate);
 		try (BufferedInputStream bin = new BufferedInputStream(in)) {
-			SAXParser saxParser = factory.newSAXParser();
-			saxParser.parse(bin, handler);
-			List<Completion> completions = handler.getCompletions();
-			addCompletions(completions);
-			char startChar = handler.getParamStartChar();
-			if (startChar != 0) {
-				char endChar = handler.getParamEndChar();
-				String sep = handler.getParamSeparator();
-				if (endChar != 0 && sep != null && sep.length() > 0) { // Sanity
-					setParameterizedCompletionParams(startChar, sep, endChar);
-				}
-			}
-		} catch (SAXException | ParserConfigurationException e) {
-			throw new IOException(e.toString());
+			handler.parse(bin, validate);
 		}
-		//long time = System.currentTimeMillis() - start;
-		//System.out.println("XML loaded in: " + time + "ms");
+		addXMLCompletions(handler);
 
 	}
 
@@ -361,4 +526,42 @@ public class DefaultCompletionProvider extends AbstractCompletionProvider {
 	}
 
 
+	/**
+	 * Sets whether descriptions loaded from XML files are only read from the
+	 * file when they are needed, rather than kept in memory.  Descriptions,
+	 * summaries and parameter descriptions usually take up most of the
+	 * memory used by a large set of completions, but are only shown one at
+	 * a time.  The most recently used descriptions are cached.<p>
+	 *
+	 * This only applies to completions loaded afterward via
+	 * {@link #loadFromXML(File, ClassLoader, boolean)}, and the file should
+	 * not be modified while this provider is in use.  The default is
+	 * <code>false</code>.
+	 *
+	 * @param lazy Whether to load descriptions lazily.
+	 * @see #isLazyDescriptions()
+	 * @see DescriptionSource
+	 */
+	public void setLazyDescriptions(boolean lazy) {
+		lazyDescriptions = lazy;
+	}
+
+
+	/**
+	 * The completions last returned by
+	 * {@link #getCompletionsAt(JTextComponent, Point)}.
+	 */
+	private static final class CompletionsAt {
+
+		private final String text;
+		private final List<Completion> completions;
+
+		CompletionsAt(String text, List<Completion> completions) {
+			this.text = text;
+			this.completions = completions;
+		}
+
+	}
+
+
 }
@@ -34,6 +34,20 @@ class DelegatingCellRenderer extends DefaultListCellRenderer {
 	private ListCellRenderer<Object> fallback;
 
 
+	/**
+	 * Returns the renderer that renders a completion.
+	 *
+	 * @param c The completion.
+	 * @return The completion's provider's renderer, or the fallback renderer
+	 *         if the provider doesn't specify one.  If this is
+	 *         <code>null</code>, {@code this} renders the completion.
+	 */
+	ListCellRenderer<Object> getCellRenderer(Completion c) {
+		ListCellRenderer<Object> r = c.getProvider().getListCellRenderer();
+		return r!=null ? r : fallback;
+	}
+
+
 	/**
 	 * Returns the fallback cell renderer.
 	 *
@@ -48,19 +62,13 @@ class DelegatingCellRenderer extends DefaultListCellRenderer {
 	@Override
 	public Component getListCellRendererComponent(JList<?> list, Object value,
 						int index, boolean selected, boolean hasFocus) {
-		Completion c = (Completion)value;
-		CompletionProvider p = c.getProvider();
-		ListCellRenderer<Object> r = p.getListCellRenderer();
-		if (r!=null) {
-			return r.getListCellRendererComponent(list, value, index, selected,
-													hasFocus);
-		}
-		if (fallback==null) {
+		ListCellRenderer<Object> r = getCellRenderer((Completion)value);
+		if (r==null) {
 			return super.getListCellRendererComponent(list, value, index,
 												selected, hasFocus);
 		}
-		return fallback.getListCellRendererComponent(list, value, index,
-													selected, hasFocus);
+		return r.getListCellRendererComponent(list, value, index, selected,
+												hasFocus);
 	}
 
 
@@ -0,0 +1,151 @@
+/*
+ * 10/17/2026
+ *
+ * DescriptionSource.java - Loads completion descriptions when needed.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Loads the descriptions of completions only when they are needed, rather
+ * than keeping them all in memory.  Descriptions, summaries and parameter
+ * descriptions usually make up most of the memory used by a large set of
+ * completions, but are only displayed one completion at a time, in the
+ * description window.<p>
+ *
+ * Each description is identified by a <code>long</code> reference, whose
+ * meaning is up to the subclass; for example, a position in a file.  The
+ * most recently used descriptions are kept in a bounded cache.<p>
+ *
+ * This class is thread-safe.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see DefaultCompletionProvider#setLazyDescriptions(boolean)
+ */
+public abstract class DescriptionSource {
+
+	private final Map<Long, String> cache;
+
+	private int cacheSize;
+
+	/**
+	 * The reference used when there is no description.
+	 */
+	public static final long NONE = -1;
+
+	/**
+	 * The default number of descriptions to cache.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 256;
+
+
+	/**
+	 * Constructor.
+	 */
+	protected DescriptionSource() {
+		cache = new LinkedHashMap<Long, String>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, String> e) {
+				return size()>cacheSize;
+			}
+		};
+		cacheSize = DEFAULT_CACHE_SIZE;
+	}
+
+
+	/**
+	 * Returns the maximum number of descriptions cached.
+	 *
+	 * @return The cache size.
+	 * @see #setCacheSize(int)
+	 */
+	public int getCacheSize() {
+		synchronized (cache) {
+			return cacheSize;
+		}
+	}
+
+
+	/**
+	 * Returns a description, loading it if it is not cached.  If it cannot
+	 * be loaded, the error is printed and <code>null</code> is returned.
+	 *
+	 * @param ref The reference to the description.
+	 * @return The description, or <code>null</code> if <code>ref</code> is
+	 *         {@link #NONE} or the description cannot be loaded.
+	 */
+	public String getDescription(long ref) {
+
+		if (ref==NONE) {
+			return null;
+		}
+
+		Long key = ref;
+		synchronized (cache) {
+			String desc = cache.get(key);
+			if (desc!=null) {
+				return desc;
+			}
+		}
+
+		String desc;
+		try {
+			desc = loadDescription(ref);
+		} catch (IOException ioe) {
+			ioe.printStackTrace();
+			return null;
+		}
+		if (desc!=null) {
+			synchronized (cache) {
+				cache.put(key, desc);
+			}
+		}
+		return desc;
+
+	}
+
+
+	/**
+	 * Loads a description.  This is called with no locks held, and may be
+	 * called by several threads at once.
+	 *
+	 * @param ref The reference to the description.  This will not be
+	 *        {@link #NONE}.
+	 * @return The description.
+	 * @throws IOException If an IO error occurs.
+	 */
+	protected abstract String loadDescription(long ref) throws IOException;
+
+
+	/**
+	 * Sets the maximum number of descriptions cached.  The default is
+	 * {@link #DEFAULT_CACHE_SIZE}.
+	 *
+	 * @param size The cache size.  This may be <code>0</code> to not cache
+	 *        descriptions at all.
+	 * @throws IllegalArgumentException If <code>size</code> is negative.
+	 * @see #getCacheSize()
+	 */
+	public void setCacheSize(int size) {
+		if (size<0) {
+			throw new IllegalArgumentException("size cannot be negative");
+		}
+		synchronized (cache) {
+			cacheSize = size;
+			while (cache.size()>size) {
+				Long eldest = cache.keySet().iterator().next();
+				cache.remove(eldest);
+			}
+		}
+	}
+
+
+}
@@ -0,0 +1,392 @@
+/*
+ * 10/17/2026
+ *
+ * DocumentWordCompletionProvider.java - Completes words found in a document.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.Segment;
+
+
+/**
+ * A completion provider that completes words already present in a document,
+ * such as identifiers.  A word is a run of characters matched by
+ * {@link #isValidChar(char)} that does not start with a digit.<p>
+ *
+ * Rather than scanning the document each time completions are requested,
+ * this provider listens for changes to the document and keeps track of the
+ * words on each line.  Only the lines touched by an edit are scanned again,
+ * so editing stays fast even in very large documents.  A completion is
+ * added for a word when it first appears anywhere in the document, and
+ * removed when its last occurrence is removed.  Completions are looked up
+ * through a {@link TrieCompletionIndex}, since adding and removing
+ * completions from one is cheap.<p>
+ *
+ * This provider can be used on its own, or as the parent of another
+ * provider, so that words in the document are offered along with that
+ * provider's completions:
+ *
+ * <pre>
+ * DocumentWordCompletionProvider words =
+ *       new DocumentWordCompletionProvider(textArea.getDocument());
+ * DefaultCompletionProvider provider = new DefaultCompletionProvider();
+ * provider.setParent(words);
+ * provider.setRemoveDuplicateCompletions(true);
+ * </pre>
+ *
+ * A word typed at the caret is not offered as a completion of itself,
+ * unless it also appears elsewhere in the document.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class DocumentWordCompletionProvider extends DefaultCompletionProvider {
+
+	/**
+	 * The document whose words are completed.
+	 */
+	private Document document;
+
+	/**
+	 * The words on each line of the document, in the order they appear.
+	 * The strings are those used as keys in <code>words</code>.  This is
+	 * only accessed while the document is locked.
+	 */
+	private final List<String[]> lineWords;
+
+	/**
+	 * The distinct words in the document.  Access is synchronized on this
+	 * provider.
+	 */
+	private final Map<String, Word> words;
+
+	private final Listener listener;
+
+	/**
+	 * Reused to read the document's text.  This is only accessed while the
+	 * document is locked.
+	 */
+	private final Segment segment;
+
+	private static final String[] NO_WORDS = new String[0];
+
+
+	/**
+	 * Constructor.  {@link #setDocument(Document)} should be called before
+	 * this provider is used.
+	 */
+	public DocumentWordCompletionProvider() {
+		this(null);
+	}
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param doc The document whose words are completed.  This may be
+	 *        <code>null</code>.
+	 */
+	public DocumentWordCompletionProvider(Document doc) {
+		lineWords = new ArrayList<>();
+		words = new HashMap<>();
+		listener = new Listener();
+		segment = new Segment();
+		setCompletionIndex(new TrieCompletionIndex());
+		setDocument(doc);
+	}
+
+
+	/**
+	 * Counts the words on some lines.  Words seen for the first time are
+	 * added to a list.
+	 *
+	 * @param lines The words on each line.  Each word is replaced by the
+	 *        string used as the key in <code>words</code>.
+	 * @param newWords The list to add new words' completions to.
+	 */
+	private void countWords(List<String[]> lines, List<Completion> newWords) {
+		for (String[] line : lines) {
+			for (int i=0; i<line.length; i++) {
+				Word word = words.get(line[i]);
+				if (word==null) {
+					word = new Word(new BasicCompletion(this, line[i]));
+					words.put(line[i], word);
+					newWords.add(word.completion);
+				}
+				line[i] = word.completion.getInputText();
+				word.count++;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the document whose words are completed.
+	 *
+	 * @return The document, or <code>null</code> if none.
+	 * @see #setDocument(Document)
+	 */
+	public Document getDocument() {
+		return document;
+	}
+
+
+	/**
+	 * Adds the words matching the text already entered to a list.  If the
+	 * only occurrence of a word in the document is the text already
+	 * entered, which is presumably being typed, it is skipped.
+	 *
+	 * @param text The text already entered.
+	 * @param result The list to add to.
+	 */
+	@Override
+	protected void getCompletionsMatching(CharSequence text,
+			List<Completion> result) {
+		int start = result.size();
+		super.getCompletionsMatching(text, result);
+		for (int i=start; i<result.size(); i++) {
+			String word = result.get(i).getInputText();
+			if (word.length()==text.length() && word.contentEquals(text) &&
+					getWordCount(word)==1) {
+				result.remove(i);
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the number of times a word appears in the document.
+	 *
+	 * @param word The word.  This is case-sensitive.
+	 * @return The number of times the word appears.
+	 */
+	public synchronized int getWordCount(String word) {
+		Word w = words.get(word);
+		return w==null ? 0 : w.count;
+	}
+
+
+	/**
+	 * Scans lines of the document for words.  The document should be
+	 * locked.
+	 *
+	 * @param first The index of the first line to scan.
+	 * @param count The number of lines to scan.
+	 * @return The words on each line.
+	 */
+	private List<String[]> scanLines(int first, int count) {
+
+		Element root = document.getDefaultRootElement();
+		List<String[]> lines = new ArrayList<>(count);
+		List<String> lineWordList = new ArrayList<>();
+
+		for (int i=first; i<first+count; i++) {
+
+			Element line = root.getElement(i);
+			int start = line.getStartOffset();
+			int end = Math.min(line.getEndOffset(), document.getLength());
+			try {
+				document.getText(start, end - start, segment);
+			} catch (BadLocationException ble) { // Never happens
+				ble.printStackTrace();
+				lines.add(NO_WORDS);
+				continue;
+			}
+
+			char[] array = segment.array;
+			int offs = segment.offset;
+			int lineEnd = offs + segment.count;
+			while (offs<lineEnd) {
+				if (!isValidChar(array[offs])) {
+					offs++;
+					continue;
+				}
+				int wordStart = offs;
+				while (offs<lineEnd && isValidChar(array[offs])) {
+					offs++;
+				}
+				if (!Character.isDigit(array[wordStart])) {
+					lineWordList.add(new String(array, wordStart,
+							offs - wordStart));
+				}
+			}
+
+			lines.add(lineWordList.isEmpty() ? NO_WORDS :
+					lineWordList.toArray(new String[0]));
+			lineWordList.clear();
+
+		}
+
+		segment.array = null; // Don't hold on to the document's text
+		return lines;
+
+	}
+
+
+	/**
+	 * Sets the document whose words are completed.  The document is
+	 * scanned for words, and then listened to for changes.
+	 *
+	 * @param doc The document.  This may be <code>null</code>.
+	 * @see #getDocument()
+	 */
+	public void setDocument(Document doc) {
+
+		if (document!=null) {
+			document.removeDocumentListener(listener);
+		}
+		synchronized (this) {
+			words.clear();
+			clear();
+		}
+		lineWords.clear();
+
+		document = doc;
+		if (doc!=null) {
+			// Listen while the document is locked, so no edit is missed
+			doc.render(() -> {
+				doc.addDocumentListener(listener);
+				int lineCount = doc.getDefaultRootElement().getElementCount();
+				List<String[]> lines = scanLines(0, lineCount);
+				updateLines(0, 0, lines);
+			});
+		}
+
+	}
+
+
+	/**
+	 * Rescans the lines touched by an edit.
+	 *
+	 * @param e The document event describing the edit.
+	 */
+	private void update(DocumentEvent e) {
+
+		Element root = document.getDefaultRootElement();
+		DocumentEvent.ElementChange change = e.getChange(root);
+		int first;
+		int removed;
+		int added;
+		if (change!=null) {
+			first = change.getIndex();
+			removed = change.getChildrenRemoved().length;
+			added = change.getChildrenAdded().length;
+		}
+		else {
+			first = root.getElementIndex(e.getOffset());
+			removed = added = 1;
+		}
+
+		// Shouldn't happen, but recover by scanning everything again
+		if (first+removed>lineWords.size() ||
+				lineWords.size()-removed+added!=root.getElementCount()) {
+			first = 0;
+			removed = lineWords.size();
+			added = root.getElementCount();
+		}
+
+		updateLines(first, removed, scanLines(first, added));
+
+	}
+
+
+	/**
+	 * Replaces the words of some lines, adding and removing completions
+	 * for words that appear or disappear from the document.
+	 *
+	 * @param first The index of the first line to replace.
+	 * @param removed The number of lines to replace.
+	 * @param lines The words on the new lines.
+	 */
+	private void updateLines(int first, int removed, List<String[]> lines) {
+
+		List<String[]> oldLines = lineWords.subList(first, first + removed);
+		List<Completion> newWords = new ArrayList<>();
+
+		synchronized (this) {
+
+			for (String[] line : oldLines) {
+				for (String s : line) {
+					words.get(s).count--;
+				}
+			}
+
+			countWords(lines, newWords);
+
+			for (String[] line : oldLines) {
+				for (String s : line) {
+					Word word = words.get(s);
+					if (word!=null && word.count==0) {
+						words.remove(s);
+						removeCompletion(word.completion);
+					}
+				}
+			}
+
+			if (newWords.size()==1) {
+				addCompletion(newWords.get(0));
+			}
+			else if (!newWords.isEmpty()) {
+				addCompletions(newWords);
+			}
+
+		}
+
+		oldLines.clear();
+		lineWords.addAll(first, lines);
+
+	}
+
+
+	/**
+	 * Rescans lines as the document is edited.
+	 */
+	private class Listener implements DocumentListener {
+
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+			// Attribute changes don't affect words
+		}
+
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			update(e);
+		}
+
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			update(e);
+		}
+
+	}
+
+
+	/**
+	 * A distinct word in the document.
+	 */
+	private static final class Word {
+
+		private final Completion completion;
+		private int count;
+
+		Word(Completion completion) {
+			this.completion = completion;
+		}
+
+	}
+
+
+}
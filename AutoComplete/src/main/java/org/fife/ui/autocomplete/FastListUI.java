@@ -11,23 +11,38 @@
 package org.fife.ui.autocomplete;
 
 import java.awt.*;
-import javax.swing.JViewport;
 import javax.swing.ListCellRenderer;
 import javax.swing.ListModel;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
 import javax.swing.plaf.basic.BasicListUI;
 
 
 /**
- * A custom list UI, used by the completion choices list.  If the number of
- * completion choices is "large," it does a fast estimate of the preferred
- * width and height of list items.  This allows HTML renderers to be used (such
- * as {@link CompletionCellRenderer}), with thousands of completion choices,
- * with no performance penalty.  With standard BasicListUI subclasses, this can
- * cause very poor performance <b>each time</b> the list is displayed, which
- * is bad for lists that are repeatedly hidden and re-displayed, such as
- * completion choices.  This is all because the calculation to get the
- * preferred size of each list item, when it is displayed with HTML, is slow.
+ * A custom list UI, used by the completion choices list.  It computes the
+ * preferred width and height of list items really fast.  This allows HTML
+ * renderers to be used (such as {@link CompletionCellRenderer}), with
+ * thousands of completion choices, with no performance penalty.  With
+ * standard BasicListUI subclasses, this can cause very poor performance
+ * <b>each time</b> the list is displayed, which is bad for lists that are
+ * repeatedly hidden and re-displayed, such as completion choices.  This is
+ * all because the calculation to get the preferred size of each list item,
+ * when it is displayed with HTML, is slow.<p>
+ *
+ * Instead, completions rendered by a {@link CompletionCellRenderer} are
+ * measured once, from their text and font metrics, and their sizes are
+ * cached by the renderer.  All cells are given the largest width and height
+ * of any of them, so nothing is clipped.  When rows are appended to the
+ * list, as when more completions are loaded, only the new rows are
+ * measured.  When rows are only removed, as when completions are narrowed
+ * down by typing, nothing is measured; the cells keep their size.<p>
+ *
+ * Only the first {@link #MAX_MEASURED_ROWS} rows are measured up front.
+ * Rows after them are measured once they have been painted, and the cells
+ * grow if any of them are larger.
  *
  * @author Robert Futrell
  * @version 1.0
@@ -47,11 +62,73 @@ class FastListUI extends BasicListUI {
 	private boolean overriddenForeground;
 
 	/**
-	 * If there are more than this many completions in a single list, this
-	 * UI will estimate the cell width and height needed for each item instead
-	 * of computing it, for performance reasons.
+	 * The number of rows, starting with the first, that have been measured
+	 * since the list's contents last changed.
+	 */
+	private int measuredRowCount;
+
+	/**
+	 * Whether rows after the measured ones are measured as they are painted.
+	 * This is <code>false</code> when the superclass lays out the list.
+	 */
+	private boolean measuringPaintedRows;
+
+	/**
+	 * The range of rows painted that weren't measured when the list was
+	 * laid out, to be measured once painting is done.  The first row is
+	 * <code>-1</code> if there are none.
+	 */
+	private int firstPaintedRow;
+	private int lastPaintedRow;
+
+	/**
+	 * The largest preferred width and height of the measured rows, and of
+	 * rows since removed from the list.
+	 */
+	private int maxCellWidth;
+	private int maxCellHeight;
+
+	/**
+	 * The model, font and renderer that the measured rows were measured
+	 * with.
+	 */
+	private ListModel<?> measuredModel;
+	private Font measuredFont;
+	private ListCellRenderer<?> measuredRenderer;
+
+	/**
+	 * The maximum number of rows measured when the list is laid out.  This
+	 * keeps the time taken to display a huge list of completions down.
+	 */
+	static final int MAX_MEASURED_ROWS		= 1000;
+
+
+	/**
+	 * Constructor.
+	 */
+	FastListUI() {
+		firstPaintedRow = -1;
+	}
+
+
+	/**
+	 * Forgets the sizes of all rows measured, so that they are measured
+	 * again.
 	 */
-	private static final int ESTIMATION_THRESHOLD		= 200;
+	private void clearMeasurements() {
+		measuredRowCount = 0;
+		maxCellWidth = maxCellHeight = 0;
+	}
+
+
+	/**
+	 * Overridden so that when rows are appended to the list, only the new
+	 * rows are measured, and when rows are removed, none are.
+	 */
+	@Override
+	protected ListDataListener createListDataListener() {
+		return new ListDataHandler(super.createListDataListener());
+	}
 
 
 	private Color determineSelectionBackground() {
@@ -92,6 +169,41 @@ class FastListUI extends BasicListUI {
 	}
 
 
+	/**
+	 * Returns the preferred size of the cell for a list item.
+	 *
+	 * @param renderer The list's renderer.
+	 * @param value The item.
+	 * @param index The index of the item.
+	 * @return The preferred size.  This should not be modified.
+	 */
+	@SuppressWarnings("unchecked") // BasicListUI has unparameterized JList
+	private Dimension getCellSize(ListCellRenderer<Object> renderer,
+			Object value, int index) {
+
+		ListCellRenderer<Object> r = renderer;
+		if (r instanceof DelegatingCellRenderer && value instanceof Completion) {
+			ListCellRenderer<Object> delegate =
+				((DelegatingCellRenderer)r).getCellRenderer((Completion)value);
+			if (delegate instanceof CompletionCellRenderer) {
+				r = delegate;
+			}
+		}
+
+		// These can be measured without their HTML being laid out
+		if (r instanceof CompletionCellRenderer && value instanceof Completion) {
+			return ((CompletionCellRenderer)r).getCellSize(list,
+					(Completion)value, index);
+		}
+
+		Component c = renderer.getListCellRendererComponent(list, value, index,
+				false, false);
+		rendererPane.add(c);
+		return c.getPreferredSize();
+
+	}
+
+
 	/**
 	 * Overridden to ensure we have selection background/foreground colors
 	 * defined, even if we're in some weirdo LAF such as Nimbus which doesn't
@@ -115,6 +227,72 @@ class FastListUI extends BasicListUI {
 	}
 
 
+	/**
+	 * Measures the rows painted that weren't measured when the list was
+	 * laid out.  If one is larger than the cells, the cells grow, and the
+	 * list is laid out and painted again.
+	 */
+	@SuppressWarnings("unchecked") // BasicListUI has unparameterized JList
+	private void measurePaintedRows() {
+
+		int first = firstPaintedRow;
+		firstPaintedRow = -1;
+		if (list==null || !measuringPaintedRows ||
+				list.getModel()!=measuredModel) {
+			return; // Uninstalled, or laid out from scratch since
+		}
+
+		ListModel<?> model = list.getModel();
+		ListCellRenderer<Object> renderer = (ListCellRenderer<Object>)list.getCellRenderer();
+		int last = Math.min(lastPaintedRow, model.getSize()-1);
+		boolean grew = false;
+		for (int i=Math.max(first, measuredRowCount); i<=last; i++) {
+			Dimension size = getCellSize(renderer, model.getElementAt(i), i);
+			if (size.width>maxCellWidth || size.height>maxCellHeight) {
+				maxCellWidth = Math.max(maxCellWidth, size.width);
+				maxCellHeight = Math.max(maxCellHeight, size.height);
+				grew = true;
+			}
+		}
+
+		if (grew) {
+			cellWidth = maxCellWidth;
+			cellHeight = maxCellHeight;
+			list.revalidate();
+			list.repaint();
+		}
+
+	}
+
+
+	/**
+	 * Overridden to note rows painted that weren't measured when the list
+	 * was laid out.  They are measured once painting is done, rather than
+	 * changing the list's layout while it is being painted.
+	 */
+	@Override
+	@SuppressWarnings("rawtypes") // Signature from BasicListUI
+	protected void paintCell(Graphics g, int row, Rectangle rowBounds,
+			ListCellRenderer cellRenderer, ListModel dataModel,
+			ListSelectionModel selModel, int leadIndex) {
+
+		super.paintCell(g, row, rowBounds, cellRenderer, dataModel, selModel,
+				leadIndex);
+
+		if (measuringPaintedRows && row>=measuredRowCount) {
+			if (firstPaintedRow==-1) {
+				firstPaintedRow = lastPaintedRow = row;
+				SwingUtilities.invokeLater(this::measurePaintedRows);
+			}
+			else {
+				firstPaintedRow = Math.min(firstPaintedRow, row);
+				lastPaintedRow = Math.max(lastPaintedRow, row);
+			}
+		}
+
+	}
+
+
 	/**
 	 * Overridden to work around a Nimbus issue.
 	 */
@@ -136,9 +314,9 @@ class FastListUI extends BasicListUI {
 
 	/**
 	 * Recalculates the cell width and height of each cell in the list.  This
-	 * method is overridden to do a fast estimation if the completion list is
-	 * too long, to improve performance for lists with huge amounts of
-	 * completions.
+	 * method is overridden to use the cached sizes of cells, and to give all
+	 * cells the same size, to improve performance for lists with huge
+	 * amounts of completions.
 	 */
 	@Override
 	@SuppressWarnings("unchecked") // BasicListUI has unparameterized JList
@@ -146,39 +324,80 @@ class FastListUI extends BasicListUI {
 
 		ListModel model = list.getModel();
 		int itemCount = model.getSize();
+		ListCellRenderer<Object> renderer = (ListCellRenderer<Object>)list.getCellRenderer();
+		Font font = list.getFont();
 
-		// If the item count is small enough to run fast on practically all
-		// machines, go ahead and use the super implementation to determine
-		// the optimal cell sizes.
-		if (itemCount<ESTIMATION_THRESHOLD) {
+		if (itemCount==0 || renderer==null || list.getFixedCellWidth()!=-1 ||
+				list.getFixedCellHeight()!=-1) {
 			super.updateLayoutState();
+			clearMeasurements();
+			measuringPaintedRows = false;
 			return;
 		}
 
-		// Otherwise, assume all cells are the same height as the first cell,
-		// and estimate the necessary width.
-		ListCellRenderer<Object> renderer = (ListCellRenderer<Object>)list.getCellRenderer();
+		if (model!=measuredModel || font!=measuredFont ||
+				renderer!=measuredRenderer) {
+			clearMeasurements();
+			measuredModel = model;
+			measuredFont = font;
+			measuredRenderer = renderer;
+		}
 
-		cellWidth = list.getWidth();
-		if (list.getParent() instanceof JViewport) { // Always true for us
-			cellWidth = list.getParent().getWidth();
+		// Only rows appended since the last update need to be measured.
+		// Rows past the limit are measured when they're painted.
+		int end = Math.min(itemCount, MAX_MEASURED_ROWS);
+		for (int i=measuredRowCount; i<end; i++) {
+			Dimension size = getCellSize(renderer, model.getElementAt(i), i);
+			maxCellWidth = Math.max(maxCellWidth, size.width);
+			maxCellHeight = Math.max(maxCellHeight, size.height);
 		}
-		//System.out.println(cellWidth);
+		measuredRowCount = Math.max(measuredRowCount, end);
+		measuringPaintedRows = true;
 
-		// We're getting a fixed cell height for all cells
+		// All cells are the same size
 		cellHeights = null;
+		cellHeight = maxCellHeight;
+		cellWidth = maxCellWidth;
+
+	}
 
-		if (renderer != null) { // Definitely true that itemCount > 0 due to check above
-			Object value = model.getElementAt(0);
-			Component c = renderer.getListCellRendererComponent(list,
-												value, 0, false, false);
-			rendererPane.add(c);
-			Dimension cellSize = c.getPreferredSize();
-			cellHeight = cellSize.height;
-			cellWidth = Math.max(cellWidth, cellSize.width);
-		}
-		else {
-			cellHeight = 20;
+
+	/**
+	 * Tracks how the list changes, so that only rows added to it need to be
+	 * measured.
+	 */
+	private class ListDataHandler implements ListDataListener {
+
+		private final ListDataListener delegate;
+
+		ListDataHandler(ListDataListener delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void contentsChanged(ListDataEvent e) {
+			clearMeasurements();
+			delegate.contentsChanged(e);
+		}
+
+		@Override
+		public void intervalAdded(ListDataEvent e) {
+			// The rows measured before the insertion are still there, so
+			// the largest size is still valid
+			measuredRowCount = Math.min(measuredRowCount, e.getIndex0());
+			delegate.intervalAdded(e);
+		}
+
+		@Override
+		public void intervalRemoved(ListDataEvent e) {
+			// Keep the largest size; it's still large enough for the rows
+			// left.  Rows after those removed are still measured
+			int index0 = e.getIndex0();
+			if (index0<measuredRowCount) {
+				int end = Math.min(e.getIndex1()+1, measuredRowCount);
+				measuredRowCount -= end - index0;
+			}
+			delegate.intervalRemoved(e);
 		}
 
 	}
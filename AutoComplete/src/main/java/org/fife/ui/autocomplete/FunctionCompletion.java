@@ -94,6 +94,7 @@ public class FunctionCompletion extends VariableCompletion
 			sb.append("</td></tr></table></center><br><br>");
 		}
 
+		String returnValDesc = getReturnValueDescription();
 		if (returnValDesc!=null) {
 			sb.append("<b>Returns:</b><br><center><table width='90%'><tr><td>");
 			sb.append(returnValDesc);
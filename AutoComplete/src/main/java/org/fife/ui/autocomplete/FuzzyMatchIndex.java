@@ -0,0 +1,120 @@
+/*
+ * 10/17/2026
+ *
+ * FuzzyMatchIndex.java - Finds completions matching a FuzzyMatcher quickly.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+
+
+/**
+ * An immutable index used to find the completions matching a
+ * {@link FuzzyMatcher} without trying each completion.  For each character,
+ * the index knows which completions have a word starting with it; since a
+ * pattern's first character must match the start of a word, only those
+ * completions need be considered.  Each completion's
+ * {@link FuzzyMatcher#charMask(CharSequence) character mask} is then checked
+ * against the pattern's, so only completions containing every character in
+ * the pattern are actually matched against it.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class FuzzyMatchIndex {
+
+	/**
+	 * The completions, sorted by input text.
+	 */
+	private Completion[] completions;
+
+	private long[] charMasks;
+
+	/**
+	 * For each character bit, the indices of the completions having a word
+	 * starting with a character using that bit, in ascending order.
+	 */
+	private int[][] wordStarts;
+
+	private static final int[] NONE = new int[0];
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param completions The completions to index, sorted by input text.
+	 */
+	FuzzyMatchIndex(List<Completion> completions) {
+
+		int count = completions.size();
+		this.completions = completions.toArray(new Completion[count]);
+		charMasks = new long[count];
+		long[] wordStartMasks = new long[count];
+		int[] bucketSizes = new int[64];
+
+		for (int i=0; i<count; i++) {
+			String text = this.completions[i].getInputText();
+			charMasks[i] = FuzzyMatcher.charMask(text);
+			long mask = 0;
+			for (int j=0; j<text.length(); j++) {
+				if (FuzzyMatcher.isWordStart(text, j)) {
+					mask |= 1L << FuzzyMatcher.charBit(
+							TrieCompletionIndex.fold(text.charAt(j)));
+				}
+			}
+			wordStartMasks[i] = mask;
+			for (long m=mask; m!=0; m&=m-1) {
+				bucketSizes[Long.numberOfTrailingZeros(m)]++;
+			}
+		}
+
+		wordStarts = new int[64][];
+		for (int bit=0; bit<64; bit++) {
+			wordStarts[bit] = bucketSizes[bit]==0 ? NONE :
+					new int[bucketSizes[bit]];
+			bucketSizes[bit] = 0;
+		}
+		for (int i=0; i<count; i++) {
+			for (long m=wordStartMasks[i]; m!=0; m&=m-1) {
+				int bit = Long.numberOfTrailingZeros(m);
+				wordStarts[bit][bucketSizes[bit]++] = i;
+			}
+		}
+
+	}
+
+
+	/**
+	 * Adds all completions matching a pattern to a list.
+	 *
+	 * @param matcher The pattern to match.
+	 * @param result The list to add to.  Completions are added sorted by
+	 *        input text.
+	 */
+	void getMatches(FuzzyMatcher matcher, List<Completion> result) {
+
+		String pattern = matcher.getPattern();
+		if (pattern.isEmpty()) {
+			for (Completion c : completions) {
+				result.add(c);
+			}
+			return;
+		}
+
+		long patternMask = FuzzyMatcher.charMask(pattern);
+		int bit = FuzzyMatcher.charBit(
+				TrieCompletionIndex.fold(pattern.charAt(0)));
+		for (int i : wordStarts[bit]) {
+			if ((charMasks[i]&patternMask)==patternMask &&
+					matcher.matches(completions[i].getInputText())) {
+				result.add(completions[i]);
+			}
+		}
+
+	}
+
+
+}
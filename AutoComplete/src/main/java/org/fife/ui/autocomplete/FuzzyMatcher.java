@@ -0,0 +1,340 @@
+/*
+ * 10/17/2026
+ *
+ * FuzzyMatcher.java - Matches abbreviations such as "gcp" against input text.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+
+/**
+ * Matches a pattern typed by the user against completions' input text as a
+ * subsequence, ignoring case, with awareness of camelCase and snake_case
+ * word boundaries.  For example, "<code>gcp</code>" matches
+ * "<code>getCompletionProvider</code>" and "<code>ac_ev</code>" matches
+ * "<code>autocompletion_event</code>".<p>
+ *
+ * The first character of the pattern must match the first character of a
+ * word in the text; the rest may match anywhere after it, in order.  Each
+ * match is given a score, which is higher when the pattern is a prefix of
+ * the text, when pattern characters match the starts of words, and when
+ * they match consecutive characters.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AbstractCompletionProvider#setFuzzyMatchingEnabled(boolean)
+ */
+public final class FuzzyMatcher {
+
+	private String pattern;
+
+	/**
+	 * The pattern, case-folded.
+	 */
+	private char[] folded;
+
+	private static final int BONUS_PREFIX = 100;
+	private static final int BONUS_FIRST_CHAR = 12;
+	private static final int BONUS_WORD_START = 8;
+	private static final int BONUS_CONSECUTIVE = 4;
+	private static final int BONUS_SAME_CASE = 1;
+	private static final int MAX_GAP_PENALTY = 3;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param pattern The pattern typed by the user.
+	 */
+	public FuzzyMatcher(String pattern) {
+		this.pattern = pattern;
+		folded = new char[pattern.length()];
+		for (int i=0; i<folded.length; i++) {
+			folded[i] = TrieCompletionIndex.fold(pattern.charAt(i));
+		}
+	}
+
+
+	/**
+	 * Returns the bit used for a character in a character mask.  Letters and
+	 * digits each get their own bit; other characters share the rest.
+	 *
+	 * @param ch The character, case-folded.
+	 * @return The bit, from <code>0</code> to <code>63</code>.
+	 */
+	static int charBit(char ch) {
+		if (ch>='a' && ch<='z') {
+			return ch - 'a';
+		}
+		else if (ch>='0' && ch<='9') {
+			return 26 + ch - '0';
+		}
+		else if (ch=='_') {
+			return 36;
+		}
+		return 37 + ch%27;
+	}
+
+
+	/**
+	 * Returns a mask with the bits of all characters in some text set.  If
+	 * the pattern matches the text, the text's mask contains the pattern's
+	 * mask, so comparing masks quickly rules out most non-matches.
+	 *
+	 * @param text The text.
+	 * @return The mask.
+	 * @see #charBit(char)
+	 */
+	static long charMask(CharSequence text) {
+		long mask = 0;
+		for (int i=0; i<text.length(); i++) {
+			mask |= 1L << charBit(TrieCompletionIndex.fold(text.charAt(i)));
+		}
+		return mask;
+	}
+
+
+	/**
+	 * Returns a comparator that sorts completions by how well they match
+	 * this pattern, best first, then by relevance.  Scores are cached, so a
+	 * comparator should only be used for a single sort.
+	 *
+	 * @return The comparator.
+	 */
+	public Comparator<Completion> createComparator() {
+		return createComparator(new SortByRelevanceComparator());
+	}
+
+
+	/**
+	 * Returns a comparator that sorts completions by how well they match
+	 * this pattern, best first, then using another comparator.  Scores are
+	 * cached, so a comparator should only be used for a single sort.
+	 *
+	 * @param tieBreaker Sorts completions that match equally well.
+	 * @return The comparator.
+	 */
+	public Comparator<Completion> createComparator(
+			Comparator<Completion> tieBreaker) {
+		return new ScoreComparator(this, tieBreaker);
+	}
+
+
+	/**
+	 * Returns the position in some text where a match of this pattern
+	 * starts; that is, the first word start matching the pattern's first
+	 * character from which the rest of the pattern can be matched.
+	 *
+	 * @param text The text.
+	 * @return The position, or <code>-1</code> if the text doesn't match.
+	 */
+	private int findStart(String text) {
+
+		int n = text.length();
+		int m = folded.length;
+		if (m==0) {
+			return 0;
+		}
+
+		for (int start=0; start<=n-m; start++) {
+			if (TrieCompletionIndex.fold(text.charAt(start))==folded[0] &&
+					isWordStart(text, start)) {
+				int pi = 1;
+				for (int ti=start+1; ti<n && pi<m; ti++) {
+					if (TrieCompletionIndex.fold(text.charAt(ti))==folded[pi]) {
+						pi++;
+					}
+				}
+				// If the rest didn't fit after this start, it won't fit
+				// after any later one either.
+				return pi==m ? start : -1;
+			}
+		}
+
+		return -1;
+
+	}
+
+
+	/**
+	 * Returns the pattern.
+	 *
+	 * @return The pattern.
+	 */
+	public String getPattern() {
+		return pattern;
+	}
+
+
+	/**
+	 * Returns whether a character in some text starts a word.  Words start
+	 * at the start of the text, after a character that is not a letter or
+	 * digit, at an upper case letter following a lower case one (or at the
+	 * last upper case letter in a run of them followed by a lower case
+	 * letter, as in "<code>XMLParser</code>"), and at the first digit in a
+	 * run of digits.
+	 *
+	 * @param text The text.
+	 * @param i The index of the character.
+	 * @return Whether the character starts a word.
+	 */
+	static boolean isWordStart(CharSequence text, int i) {
+		char ch = text.charAt(i);
+		if (i==0) {
+			return true;
+		}
+		char prev = text.charAt(i - 1);
+		if (!Character.isLetterOrDigit(prev)) {
+			return Character.isLetterOrDigit(ch);
+		}
+		if (Character.isUpperCase(ch)) {
+			return !Character.isUpperCase(prev) ||
+					(i+1<text.length() &&
+						Character.isLowerCase(text.charAt(i + 1)));
+		}
+		return Character.isDigit(ch) && !Character.isDigit(prev);
+	}
+
+
+	/**
+	 * Returns whether some text matches this pattern.  This is cheaper than
+	 * computing its score.
+	 *
+	 * @param text The text.
+	 * @return Whether the text matches.
+	 * @see #score(String)
+	 */
+	public boolean matches(String text) {
+		return findStart(text)>-1;
+	}
+
+
+	/**
+	 * Returns how well some text matches this pattern.
+	 *
+	 * @param text The text.
+	 * @return The score, which is zero or greater, or <code>-1</code> if the
+	 *         text doesn't match.  Higher is better.
+	 * @see #matches(String)
+	 */
+	public int score(String text) {
+
+		int start = findStart(text);
+		if (start<0) {
+			return -1;
+		}
+		int n = text.length();
+		int m = folded.length;
+		if (m==0) {
+			return 0;
+		}
+
+		// The last position each pattern char can match at and still leave
+		// room for the rest of the pattern.
+		int[] last = new int[m];
+		int ti = n - 1;
+		for (int pi=m-1; pi>=0; pi--) {
+			while (TrieCompletionIndex.fold(text.charAt(ti))!=folded[pi]) {
+				ti--;
+			}
+			last[pi] = ti--;
+		}
+
+		int score = 0;
+		int prev = -1;
+		for (int pi=0; pi<m; pi++) {
+
+			char pc = folded[pi];
+			int pos = -1;
+			if (pi==0) {
+				pos = start;
+			}
+			// Prefer continuing a run of matches...
+			else if (prev+1<=last[pi] &&
+					TrieCompletionIndex.fold(text.charAt(prev+1))==pc) {
+				pos = prev + 1;
+			}
+			else {
+				// ... then the start of a later word...
+				for (int i=prev+1; i<=last[pi]; i++) {
+					if (TrieCompletionIndex.fold(text.charAt(i))==pc &&
+							isWordStart(text, i)) {
+						pos = i;
+						break;
+					}
+				}
+				// ... and otherwise, the first occurrence.
+				if (pos==-1) {
+					pos = prev + 1;
+					while (TrieCompletionIndex.fold(text.charAt(pos))!=pc) {
+						pos++;
+					}
+				}
+			}
+
+			if (pos==prev+1 && pi>0) {
+				score += BONUS_CONSECUTIVE;
+			}
+			else if (pi>0) {
+				score -= Math.min(pos - prev - 1, MAX_GAP_PENALTY);
+			}
+			if (isWordStart(text, pos)) {
+				score += BONUS_WORD_START;
+			}
+			if (text.charAt(pos)==pattern.charAt(pi)) {
+				score += BONUS_SAME_CASE;
+			}
+			prev = pos;
+
+		}
+
+		if (start==0) {
+			score += BONUS_FIRST_CHAR;
+			if (prev==m-1) {
+				score += BONUS_PREFIX;
+			}
+		}
+		return Math.max(0, score);
+
+	}
+
+
+	/**
+	 * Sorts completions by how well they match a pattern, then using another
+	 * comparator.
+	 */
+	private static final class ScoreComparator
+			implements Comparator<Completion> {
+
+		private final FuzzyMatcher matcher;
+		private final Comparator<Completion> tieBreaker;
+		private final Map<Completion, Integer> scores;
+
+		ScoreComparator(FuzzyMatcher matcher,
+				Comparator<Completion> tieBreaker) {
+			this.matcher = matcher;
+			this.tieBreaker = tieBreaker;
+			scores = new IdentityHashMap<>();
+		}
+
+		@Override
+		public int compare(Completion c1, Completion c2) {
+			int diff = getScore(c2) - getScore(c1);
+			return diff!=0 ? diff : tieBreaker.compare(c1, c2);
+		}
+
+		private int getScore(Completion c) {
+			return scores.computeIfAbsent(c,
+					k -> matcher.score(k.getInputText()));
+		}
+
+	}
+
+
+}
@@ -11,14 +11,18 @@ package org.fife.ui.autocomplete;
 
 import java.awt.Point;
 import java.awt.event.MouseEvent;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
+import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 
 import org.fife.ui.rsyntaxtextarea.RSyntaxDocument;
 import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
 import org.fife.ui.rsyntaxtextarea.RSyntaxUtilities;
 import org.fife.ui.rsyntaxtextarea.Token;
+import org.fife.ui.rsyntaxtextarea.TokenTypes;
 import org.fife.ui.rtextarea.RTextArea;
 import org.fife.ui.rtextarea.ToolTipSupplier;
 
@@ -36,7 +40,14 @@ import org.fife.ui.rtextarea.ToolTipSupplier;
  * </ul>
  *
  * This allows for different completion choices in comments than  in code,
- * for example.<p>
+ * for example.  Other token types, such as regular expressions or markup
+ * tags, can be given their own providers with
+ * {@link #setCompletionProviderForTokenType(int, CompletionProvider)}.<p>
+ *
+ * The provider to use is looked up from the token at the caret.  The result
+ * is remembered until the document is modified, the caret moves or the
+ * syntax style changes, so the caret's line is only tokenized once per
+ * keystroke.<p>
  *
  * This provider also implements the
  * {@code org.fife.ui.rtextarea.ToolTipSupplier} interface, which allows it
@@ -73,6 +84,45 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 	 */
 	private CompletionProvider docCommentCompletionProvider;
 
+	/**
+	 * Providers assigned to specific token types, indexed by token type.
+	 * These take precedence over the providers above.
+	 */
+	private final CompletionProvider[] tokenTypeProviders =
+			new CompletionProvider[TokenTypes.DEFAULT_NUM_TOKEN_TYPES];
+
+	/**
+	 * The token at the caret the last time it was looked up.
+	 */
+	private volatile CaretToken caretToken;
+
+	/**
+	 * How the token types are routed to providers, unless a provider is
+	 * assigned to a type.
+	 */
+	private static final byte ROUTE_NONE = 0;
+	private static final byte ROUTE_DEFAULT = 1;
+	private static final byte ROUTE_STRING = 2;
+	private static final byte ROUTE_COMMENT = 3;
+	private static final byte ROUTE_DOC_COMMENT = 4;
+
+	/**
+	 * The route for each token type when the caret is inside a token.
+	 */
+	private static final byte[] ROUTES = createRoutes(false);
+
+	/**
+	 * The route for each token type when the caret is at the end of a line,
+	 * based on the last token type on that line.
+	 */
+	private static final byte[] END_OF_LINE_ROUTES = createRoutes(true);
+
+	/**
+	 * The token type cached when the default provider should be used
+	 * regardless of the token at the caret.
+	 */
+	private static final int DEFAULT_PROVIDER_TYPE = Integer.MIN_VALUE;
+
 
 	/**
 	 * Constructor subclasses can use when they don't have their default
@@ -110,6 +160,37 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 	}
 
 
+	/**
+	 * Creates the table of routes for each token type.
+	 *
+	 * @param endOfLine Whether to create the routes used at the end of a
+	 *        line.
+	 * @return The routes.
+	 */
+	private static byte[] createRoutes(boolean endOfLine) {
+		byte[] routes = new byte[TokenTypes.DEFAULT_NUM_TOKEN_TYPES];
+		if (endOfLine) {
+			Arrays.fill(routes, ROUTE_DEFAULT);
+		}
+		else {
+			routes[TokenTypes.LITERAL_STRING_DOUBLE_QUOTE] = ROUTE_STRING;
+			routes[TokenTypes.NULL] = ROUTE_DEFAULT;
+			routes[TokenTypes.WHITESPACE] = ROUTE_DEFAULT;
+			routes[TokenTypes.IDENTIFIER] = ROUTE_DEFAULT;
+			routes[TokenTypes.VARIABLE] = ROUTE_DEFAULT;
+			routes[TokenTypes.PREPROCESSOR] = ROUTE_DEFAULT;
+			routes[TokenTypes.DATA_TYPE] = ROUTE_DEFAULT;
+			routes[TokenTypes.FUNCTION] = ROUTE_DEFAULT;
+			routes[TokenTypes.OPERATOR] = ROUTE_DEFAULT;
+		}
+		routes[TokenTypes.ERROR_STRING_DOUBLE] = ROUTE_STRING;
+		routes[TokenTypes.COMMENT_EOL] = ROUTE_COMMENT;
+		routes[TokenTypes.COMMENT_MULTILINE] = ROUTE_COMMENT;
+		routes[TokenTypes.COMMENT_DOCUMENTATION] = ROUTE_DOC_COMMENT;
+		return routes;
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -119,7 +200,12 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 			return EMPTY_STRING;
 		}
 		CompletionProvider provider = getProviderFor(comp);
-		return provider!=null ? provider.getAlreadyEnteredText(comp) : null;
+		if (provider==null) {
+			return null;
+		}
+		CompletionQueryCache cache = getQueryCache();
+		return cache!=null ? cache.getAlreadyEnteredText(provider, comp) :
+				provider.getAlreadyEnteredText(comp);
 	}
 
 
@@ -163,6 +249,22 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 	}
 
 
+	/**
+	 * Returns the completion provider used when the caret is inside a token
+	 * of a given type.  This is the provider assigned to that type, if any,
+	 * and otherwise the string, comment, documentation comment or default
+	 * provider, as appropriate.
+	 *
+	 * @param type The token type.
+	 * @return The completion provider, or <code>null</code> if completion
+	 *         isn't done in tokens of that type.
+	 * @see #setCompletionProviderForTokenType(int, CompletionProvider)
+	 */
+	public CompletionProvider getCompletionProviderForTokenType(int type) {
+		return getProviderForTokenType(type, false);
+	}
+
+
 	/**
 	 * Returns the completion provider used when one isn't defined for a
 	 * particular token type.
@@ -239,76 +341,60 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 
 		RSyntaxTextArea rsta = (RSyntaxTextArea)comp;
 		RSyntaxDocument doc = (RSyntaxDocument)rsta.getDocument();
+		long stamp = CompletionQueryCache.getModificationStamp(doc);
 		int line = rsta.getCaretLineNumber();
-		Token t = doc.getTokenListForLine(line);
-		if (t==null) {
-			return getDefaultCompletionProvider();
+		int dot = rsta.getCaretPosition();
+		String style = rsta.getSyntaxEditingStyle();
+
+		CaretToken token = caretToken;
+		if (token==null || !token.isFor(doc, stamp, line, dot, style)) {
+			token = new CaretToken(doc, stamp, line, dot, style);
+			token.find(doc);
+			caretToken = token;
 		}
 
-		int dot = rsta.getCaretPosition();
-		Token curToken = RSyntaxUtilities.getTokenAtOffset(t, dot);
+		return token.type==DEFAULT_PROVIDER_TYPE ? getDefaultCompletionProvider() :
+				getProviderForTokenType(token.type, token.endOfLine);
 
-		if (curToken==null) { // At end of the line
+	}
 
-			int type = doc.getLastTokenTypeOnLine(line);
-			if (type==Token.NULL) {
-				Token temp = t.getLastPaintableToken();
-				if (temp==null) {
-					return getDefaultCompletionProvider();
-				}
-				type = temp.getType();
-			}
 
-			// TokenMakers can use types < 0 for "internal types."  This
-			// gives them a chance to map their internal types back to "real"
-			// types to get completion providers.
-			else if (type<0) {
-				type = doc.getClosestStandardTokenTypeForInternalType(type);
-			}
+	/**
+	 * Returns the completion provider to use for a token type.
+	 *
+	 * @param type The token type.
+	 * @param endOfLine Whether the caret is at the end of a line ending in
+	 *        a token of this type, rather than inside such a token.
+	 * @return The completion provider, or <code>null</code> if none.
+	 */
+	private CompletionProvider getProviderForTokenType(int type,
+			boolean endOfLine) {
 
-			switch (type) {
-				case Token.ERROR_STRING_DOUBLE:
-					return getStringCompletionProvider();
-				case Token.COMMENT_EOL:
-				case Token.COMMENT_MULTILINE:
-					return getCommentCompletionProvider();
-				case Token.COMMENT_DOCUMENTATION:
-					return getDocCommentCompletionProvider();
-				default:
-					return getDefaultCompletionProvider();
+		byte route;
+		if (type>=0 && type<tokenTypeProviders.length) {
+			CompletionProvider provider = tokenTypeProviders[type];
+			if (provider!=null) {
+				return provider;
 			}
-
+			route = endOfLine ? END_OF_LINE_ROUTES[type] : ROUTES[type];
 		}
-
-		// FIXME: This isn't always a safe assumption.
-		if (dot==curToken.getOffset()) { // At the very beginning of a new token
-			// Need to check previous token for its type before deciding.
-			// Previous token may also be on previous line!
-			return getDefaultCompletionProvider();
+		else {
+			route = endOfLine ? ROUTE_DEFAULT : ROUTE_NONE;
 		}
 
-		switch (curToken.getType()) {
-			case Token.LITERAL_STRING_DOUBLE_QUOTE:
-			case Token.ERROR_STRING_DOUBLE:
+		switch (route) {
+			case ROUTE_DEFAULT:
+				return getDefaultCompletionProvider();
+			case ROUTE_STRING:
 				return getStringCompletionProvider();
-			case Token.COMMENT_EOL:
-			case Token.COMMENT_MULTILINE:
+			case ROUTE_COMMENT:
 				return getCommentCompletionProvider();
-			case Token.COMMENT_DOCUMENTATION:
+			case ROUTE_DOC_COMMENT:
 				return getDocCommentCompletionProvider();
-			case Token.NULL:
-			case Token.WHITESPACE:
-			case Token.IDENTIFIER:
-			case Token.VARIABLE:
-			case Token.PREPROCESSOR:
-			case Token.DATA_TYPE:
-			case Token.FUNCTION:
-			case Token.OPERATOR:
-				return getDefaultCompletionProvider();
+			default:
+				return null; // A token type we can't auto-complete from.
 		}
 
-		return null; // In a token type we can't auto-complete from.
-
 	}
 
 
@@ -329,7 +415,12 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 	@Override
 	public boolean isAutoActivateOkay(JTextComponent tc) {
 		CompletionProvider provider = getProviderFor(tc);
-		return provider!=null ? provider.isAutoActivateOkay(tc) : false;
+		if (provider==null) {
+			return false;
+		}
+		CompletionQueryCache cache = getQueryCache();
+		return cache!=null ? cache.isAutoActivateOkay(provider, tc) :
+				provider.isAutoActivateOkay(tc);
 	}
 
 
@@ -344,6 +435,29 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 	}
 
 
+	/**
+	 * Assigns a completion provider to a token type.  This provider is used
+	 * when the caret is inside a token of that type, or at the end of a
+	 * line ending in one, instead of the string, comment, documentation
+	 * comment or default provider.  For example, a provider can be assigned
+	 * to {@link TokenTypes#REGEX} to complete regular expressions.
+	 *
+	 * @param type The token type, from {@link TokenTypes}.
+	 * @param provider The provider, or <code>null</code> to use the usual
+	 *        provider for the token type.
+	 * @throws IllegalArgumentException If <code>type</code> is not a valid
+	 *         token type.
+	 * @see #getCompletionProviderForTokenType(int)
+	 */
+	public void setCompletionProviderForTokenType(int type,
+			CompletionProvider provider) {
+		if (type<0 || type>=tokenTypeProviders.length) {
+			throw new IllegalArgumentException("Invalid token type: " + type);
+		}
+		tokenTypeProviders[type] = provider;
+	}
+
+
 	/**
 	 * Sets the default completion provider.
 	 *
@@ -428,4 +542,105 @@ public class LanguageAwareCompletionProvider extends CompletionProviderBase
 	}
 
 
+	/**
+	 * The type of the token at the caret, along with the state of the text
+	 * area it was found for.
+	 */
+	private static final class CaretToken {
+
+		private final Document doc;
+		private final long stamp;
+		private final int length;
+		private final int line;
+		private final int dot;
+		private final String style;
+
+		/**
+		 * The token type, or {@link #DEFAULT_PROVIDER_TYPE}.
+		 */
+		private int type;
+
+		/**
+		 * Whether the caret is at the end of its line.
+		 */
+		private boolean endOfLine;
+
+		CaretToken(RSyntaxDocument doc, long stamp, int line, int dot,
+				String style) {
+			this.doc = doc;
+			this.stamp = stamp;
+			this.length = doc.getLength();
+			this.line = line;
+			this.dot = dot;
+			this.style = style;
+		}
+
+		/**
+		 * Finds the type of the token at the caret.
+		 *
+		 * @param document The document.
+		 */
+		void find(RSyntaxDocument document) {
+
+			type = DEFAULT_PROVIDER_TYPE;
+			Token t = document.getTokenListForLine(line);
+			if (t==null) {
+				return;
+			}
+
+			Token curToken = RSyntaxUtilities.getTokenAtOffset(t, dot);
+
+			if (curToken==null) { // At end of the line
+				int lastType = document.getLastTokenTypeOnLine(line);
+				if (lastType==TokenTypes.NULL) {
+					Token temp = t.getLastPaintableToken();
+					if (temp==null) {
+						return;
+					}
+					lastType = temp.getType();
+				}
+				// TokenMakers can use types < 0 for "internal types."  This
+				// gives them a chance to map their internal types back to
+				// "real" types to get completion providers.
+				else if (lastType<0) {
+					lastType = document.
+							getClosestStandardTokenTypeForInternalType(lastType);
+				}
+				type = lastType;
+				endOfLine = true;
+			}
+
+			// FIXME: This isn't always a safe assumption.
+			else if (dot!=curToken.getOffset()) {
+				type = curToken.getType();
+			}
+			// Else at the very beginning of a new token.  Need to check
+			// previous token for its type before deciding.  Previous token
+			// may also be on previous line!
+
+		}
+
+		/**
+		 * Returns whether this token was found for a given state.  The
+		 * document length is checked too since, while a document event is
+		 * being dispatched, the modification stamp may not have been
+		 * updated yet.
+		 *
+		 * @param document The document.
+		 * @param modStamp The document's modification stamp.
+		 * @param caretLine The caret's line.
+		 * @param caret The caret position.
+		 * @param syntaxStyle The text area's syntax style.
+		 * @return Whether this token is for the given state.
+		 */
+		boolean isFor(Document document, long modStamp, int caretLine,
+				int caret, String syntaxStyle) {
+			return doc==document && stamp==modStamp &&
+					length==document.getLength() && line==caretLine &&
+					dot==caret && Objects.equals(style, syntaxStyle);
+		}
+
+	}
+
+
 }
@@ -0,0 +1,174 @@
+/*
+ * 10/17/2026
+ *
+ * LazyCompletions.java - Completions whose descriptions are loaded lazily.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+
+/**
+ * Completions whose descriptions are loaded from a
+ * {@link DescriptionSource} when needed, rather than kept in memory.  Any
+ * description whose reference is {@link DescriptionSource#NONE} falls back
+ * to the usual setter and getter.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+final class LazyCompletions {
+
+
+	/**
+	 * Private constructor to prevent instantiation.
+	 */
+	private LazyCompletions() {
+	}
+
+
+	/**
+	 * A basic completion whose description and summary are loaded when
+	 * needed.
+	 */
+	static final class LazyBasicCompletion extends BasicCompletion {
+
+		private final DescriptionSource source;
+		private final long shortDescRef;
+		private final long summaryRef;
+
+		LazyBasicCompletion(CompletionProvider provider, String name,
+				DescriptionSource source, long shortDescRef, long summaryRef) {
+			super(provider, name);
+			this.source = source;
+			this.shortDescRef = shortDescRef;
+			this.summaryRef = summaryRef;
+		}
+
+		@Override
+		public String getShortDescription() {
+			return shortDescRef==DescriptionSource.NONE ?
+					super.getShortDescription() :
+					source.getDescription(shortDescRef);
+		}
+
+		@Override
+		public String getSummary() {
+			return summaryRef==DescriptionSource.NONE ? super.getSummary() :
+					source.getDescription(summaryRef);
+		}
+
+	}
+
+
+	/**
+	 * A function completion whose descriptions are loaded when needed.
+	 */
+	static final class LazyFunctionCompletion extends FunctionCompletion {
+
+		private final DescriptionSource source;
+		private final long descRef;
+		private final long returnValDescRef;
+
+		LazyFunctionCompletion(CompletionProvider provider, String name,
+				String returnType, DescriptionSource source, long descRef,
+				long returnValDescRef) {
+			super(provider, name, returnType);
+			this.source = source;
+			this.descRef = descRef;
+			this.returnValDescRef = returnValDescRef;
+		}
+
+		@Override
+		public String getReturnValueDescription() {
+			return returnValDescRef==DescriptionSource.NONE ?
+					super.getReturnValueDescription() :
+					source.getDescription(returnValDescRef);
+		}
+
+		@Override
+		public String getShortDescription() {
+			return descRef==DescriptionSource.NONE ?
+					super.getShortDescription() :
+					source.getDescription(descRef);
+		}
+
+	}
+
+
+	/**
+	 * A markup tag completion whose description is loaded when needed.
+	 */
+	static final class LazyMarkupTagCompletion extends MarkupTagCompletion {
+
+		private final DescriptionSource source;
+		private final long descRef;
+
+		LazyMarkupTagCompletion(CompletionProvider provider, String name,
+				DescriptionSource source, long descRef) {
+			super(provider, name);
+			this.source = source;
+			this.descRef = descRef;
+		}
+
+		@Override
+		public String getDescription() {
+			return descRef==DescriptionSource.NONE ? super.getDescription() :
+					source.getDescription(descRef);
+		}
+
+	}
+
+
+	/**
+	 * A parameter whose description is loaded when needed.
+	 */
+	static final class LazyParameter
+			extends ParameterizedCompletion.Parameter {
+
+		private final DescriptionSource source;
+		private final long descRef;
+
+		LazyParameter(Object type, String name, boolean endParam,
+				DescriptionSource source, long descRef) {
+			super(type, name, endParam);
+			this.source = source;
+			this.descRef = descRef;
+		}
+
+		@Override
+		public String getDescription() {
+			return descRef==DescriptionSource.NONE ? super.getDescription() :
+					source.getDescription(descRef);
+		}
+
+	}
+
+
+	/**
+	 * A variable completion whose description is loaded when needed.
+	 */
+	static final class LazyVariableCompletion extends VariableCompletion {
+
+		private final DescriptionSource source;
+		private final long descRef;
+
+		LazyVariableCompletion(CompletionProvider provider, String name,
+				String type, DescriptionSource source, long descRef) {
+			super(provider, name, type);
+			this.source = source;
+			this.descRef = descRef;
+		}
+
+		@Override
+		public String getShortDescription() {
+			return descRef==DescriptionSource.NONE ?
+					super.getShortDescription() :
+					source.getDescription(descRef);
+		}
+
+	}
+
+
+}
@@ -0,0 +1,236 @@
+/*
+ * 10/17/2026
+ *
+ * PagedCompletionList.java - The most relevant completions, with more
+ * available on demand.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+
+/**
+ * A list of completions returned by a {@link CompletionProviderBase} that
+ * has a completion limit set.  This list contains only the most relevant
+ * completions, sorted; the rest are kept, unsorted, and can be fetched a
+ * page at a time via {@link #loadMore(int)}.  Selecting the top <i>k</i> of
+ * <i>n</i> completions with a bounded heap costs <i>O(n log k)</i>, which
+ * is far cheaper than sorting them all when only the first screenful is
+ * likely to be looked at.<p>
+ *
+ * Every completion in this list is at least as relevant as every completion
+ * not yet loaded.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionProviderBase#setCompletionLimit(int)
+ */
+public final class PagedCompletionList extends ArrayList<Completion> {
+
+	/**
+	 * Completions not yet in this list, in no particular order.
+	 */
+	private ArrayList<Completion> remaining;
+
+	private Comparator<Completion> comparator;
+
+	private int pageSize;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param comparator The comparator defining the relevance order.
+	 * @param pageSize The number of completions to load at a time.
+	 */
+	private PagedCompletionList(Comparator<Completion> comparator,
+								int pageSize) {
+		super(pageSize);
+		this.comparator = comparator;
+		this.pageSize = pageSize;
+		remaining = new ArrayList<>(0);
+	}
+
+
+	/**
+	 * Sorts completions, or only the first page of them if there are more
+	 * than will fit in one page.
+	 *
+	 * @param completions The completions.  This list may be sorted or kept
+	 *        by this method.
+	 * @param comparator The comparator defining the relevance order.
+	 * @param pageSize The number of completions to sort.  If this is less
+	 *        than or equal to zero, all completions are sorted.
+	 * @return Either <code>completions</code>, sorted, or a
+	 *         <code>PagedCompletionList</code> containing the first page of
+	 *         them.
+	 */
+	static List<Completion> create(List<Completion> completions,
+			Comparator<Completion> comparator, int pageSize) {
+		if (pageSize<=0 || completions.size()<=pageSize) {
+			completions.sort(comparator);
+			return completions;
+		}
+		PagedCompletionList list = new PagedCompletionList(comparator,
+				pageSize);
+		list.remaining = new ArrayList<>(completions);
+		list.loadMore(pageSize);
+		return list;
+	}
+
+
+	/**
+	 * Returns all completions, both those loaded and those not.
+	 *
+	 * @return The completions.  Only those loaded are sorted.
+	 */
+	public List<Completion> getAllCompletions() {
+		List<Completion> all = new ArrayList<>(size() + remaining.size());
+		all.addAll(this);
+		all.addAll(remaining);
+		return all;
+	}
+
+
+	/**
+	 * Returns the number of completions loaded at a time.
+	 *
+	 * @return The page size.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+
+	/**
+	 * Returns the number of completions not yet loaded.
+	 *
+	 * @return The number of completions not yet loaded.
+	 * @see #hasMore()
+	 */
+	public int getRemainingCount() {
+		return remaining.size();
+	}
+
+
+	/**
+	 * Returns whether there are completions not yet loaded.
+	 *
+	 * @return Whether there are more completions.
+	 * @see #loadMore(int)
+	 */
+	public boolean hasMore() {
+		return !remaining.isEmpty();
+	}
+
+
+	/**
+	 * Loads more completions, appending them to this list.
+	 *
+	 * @param count The maximum number of completions to load.  If this is
+	 *        not positive, nothing is loaded.
+	 * @return The completions loaded, sorted.  This will be empty if there
+	 *         were no more completions.
+	 * @see #hasMore()
+	 */
+	public List<Completion> loadMore(int count) {
+
+		if (count<=0) {
+			return new ArrayList<>(0);
+		}
+
+		count = Math.min(count, remaining.size());
+		List<Completion> page;
+
+		if (count==remaining.size()) {
+			page = remaining;
+			remaining = new ArrayList<>(0);
+		}
+
+		else {
+
+			// Keep the "count" most relevant completions, with the least
+			// relevant of them at the head so it's the one to be evicted.
+			PriorityQueue<Completion> heap = new PriorityQueue<>(count,
+					comparator.reversed());
+			for (Completion c : remaining) {
+				if (heap.size()<count) {
+					heap.add(c);
+				}
+				else if (comparator.compare(c, heap.peek())<0) {
+					heap.poll();
+					heap.add(c);
+				}
+			}
+			page = new ArrayList<>(heap);
+
+			// Remove by identity, not by equals(), as distinct completions
+			// may compare as equal.
+			Map<Completion, int[]> selected = new IdentityHashMap<>(count);
+			for (Completion c : page) {
+				selected.computeIfAbsent(c, k -> new int[1])[0]++;
+			}
+			ArrayList<Completion> rest = new ArrayList<>(
+					remaining.size() - count);
+			for (Completion c : remaining) {
+				int[] selectCount = selected.get(c);
+				if (selectCount!=null && selectCount[0]>0) {
+					selectCount[0]--;
+				}
+				else {
+					rest.add(c);
+				}
+			}
+			remaining = rest;
+
+		}
+
+		page.sort(comparator);
+		addAll(page);
+		return page;
+
+	}
+
+
+	/**
+	 * Returns the completions in this list whose input text starts with the
+	 * specified prefix, ignoring case.  Since any completion in this list
+	 * outranks any completion not yet loaded, the matches already loaded
+	 * remain the most relevant matches, in order; the page is topped up from
+	 * the matches not yet loaded if necessary.
+	 *
+	 * @param prefix The prefix.
+	 * @return The matching completions.
+	 */
+	public PagedCompletionList narrow(String prefix) {
+		PagedCompletionList narrowed = new PagedCompletionList(comparator,
+				pageSize);
+		addMatches(this, prefix, narrowed);
+		addMatches(remaining, prefix, narrowed.remaining);
+		if (narrowed.size()<pageSize) {
+			narrowed.loadMore(pageSize - narrowed.size());
+		}
+		return narrowed;
+	}
+
+
+	private static void addMatches(Collection<Completion> completions,
+			String prefix, List<Completion> result) {
+		for (Completion c : completions) {
+			if (Util.startsWithIgnoreCase(c.getInputText(), prefix)) {
+				result.add(c);
+			}
+		}
+	}
+
+
+}
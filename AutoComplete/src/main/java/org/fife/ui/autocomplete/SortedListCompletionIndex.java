@@ -0,0 +1,456 @@
+/*
+ * 10/17/2026
+ *
+ * SortedListCompletionIndex.java - Binary searches a provider's sorted list.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * The default {@link CompletionIndex}.  This index keeps no state of its
+ * own; it simply does a binary search on the provider's sorted list to find
+ * the first matching completion, then walks forward over all succeeding
+ * completions that also match.<p>
+ *
+ * This is cheap in memory and fine for most providers, but the forward walk
+ * does a string comparison per match, which can be slow for very large
+ * providers and short prefixes.  In such cases consider using a
+ * {@link TrieCompletionIndex}.<p>
+ *
+ * Snapshots are built incrementally.  The first snapshot copies the
+ * provider's list; later ones share that copy and record only the
+ * completions added and removed since.  Once more than about the square
+ * root of the number of completions have changed, the list is copied
+ * again.  Alternately modifying the provider and looking up completions
+ * thus costs far less than copying the list each time.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class SortedListCompletionIndex implements CompletionIndex {
+
+	/**
+	 * The provider's sorted list of completions.  In a snapshot, the
+	 * shared copy of it the changes apply to.
+	 */
+	private List<Completion> completions;
+
+	private AbstractCompletionProvider.CaseInsensitiveComparator comparator;
+
+	/**
+	 * Whether this index is a read-only snapshot.
+	 */
+	private boolean readOnly;
+
+	/**
+	 * The copy of the provider's list shared by snapshots, or
+	 * <code>null</code> if the next snapshot must copy it again.
+	 */
+	private List<Completion> base;
+
+	/**
+	 * The completions added and removed since <code>base</code> was
+	 * copied, in order.  A set bit in <code>removals</code> means the
+	 * corresponding completion was removed.
+	 */
+	private List<Completion> changes;
+	private BitSet removals;
+
+	/**
+	 * In a snapshot, the completions added since <code>base</code> was
+	 * copied, sorted.
+	 */
+	private List<Completion> added;
+
+	/**
+	 * In a snapshot, the indexes in <code>completions</code> of completions
+	 * removed since it was copied, sorted.
+	 */
+	private int[] removed;
+
+	/**
+	 * Changes are always recorded rather than copying the list if there are
+	 * at most this many of them.
+	 */
+	private static final int MIN_CHANGES = 64;
+
+	private static final int[] NO_INDEXES = new int[0];
+
+
+	/**
+	 * Constructor.
+	 */
+	public SortedListCompletionIndex() {
+		completions = Collections.emptyList();
+		comparator = new AbstractCompletionProvider.CaseInsensitiveComparator();
+		changes = new ArrayList<>();
+		removals = new BitSet();
+		added = Collections.emptyList();
+		removed = NO_INDEXES;
+	}
+
+
+	@Override
+	public void add(Completion c) {
+		checkWritable();
+		// We share the provider's list; just note the change for snapshots
+		changed(c, false);
+	}
+
+
+	/**
+	 * Adds the completions in a range of <code>completions</code> to a
+	 * list, along with any added completions that fall among them.
+	 *
+	 * @param start The start of the range.
+	 * @param end The end of the range, exclusive.
+	 * @param addedStart The start of the range of added completions.
+	 * @param addedEnd The end of the range of added completions, exclusive.
+	 * @param result The list to add to.
+	 */
+	private void addRange(int start, int end, int addedStart, int addedEnd,
+			List<Completion> result) {
+
+		// Skip removed completions, and put added ones after any that
+		// compare equal to them, as the provider did.
+		int r = Arrays.binarySearch(removed, start);
+		if (r<0) {
+			r = -(r + 1);
+		}
+		int j = addedStart;
+		for (int i=start; i<end; i++) {
+			if (r<removed.length && removed[r]==i) {
+				r++;
+				continue;
+			}
+			Completion c = completions.get(i);
+			while (j<addedEnd && added.get(j).compareTo(c)<0) {
+				result.add(added.get(j++));
+			}
+			result.add(c);
+		}
+		while (j<addedEnd) {
+			result.add(added.get(j++));
+		}
+
+	}
+
+
+	/**
+	 * Sets the changes a snapshot applies to its shared copy of the
+	 * provider's list.
+	 *
+	 * @param changes The completions added and removed, in order.
+	 * @param removals Which of those completions were removed.
+	 */
+	private void applyChanges(List<Completion> changes, BitSet removals) {
+
+		// A completion added, then removed, is in neither list
+		List<Completion> addedList = new ArrayList<>();
+		List<Completion> removedList = new ArrayList<>();
+		for (int i=0; i<changes.size(); i++) {
+			Completion c = changes.get(i);
+			if (!removals.get(i)) {
+				addedList.add(c);
+				continue;
+			}
+			int j = addedList.size() - 1;
+			while (j>=0 && addedList.get(j)!=c) {
+				j--;
+			}
+			if (j>=0) {
+				addedList.remove(j);
+			}
+			else {
+				removedList.add(c);
+			}
+		}
+
+		// Stable, so completions comparing equal stay in the order added
+		Completion[] sorted = addedList.toArray(new Completion[0]);
+		Arrays.sort(sorted);
+		added = Arrays.asList(sorted);
+
+		int[] indexes = new int[removedList.size()];
+		int count = 0;
+		for (Completion c : removedList) {
+			int index = indexOf(c, indexes, count);
+			if (index>-1) {
+				indexes[count++] = index;
+			}
+		}
+		removed = Arrays.copyOf(indexes, count);
+		Arrays.sort(removed);
+
+	}
+
+
+	/**
+	 * Notes that the provider's list changed, so snapshots taken later
+	 * account for it.
+	 *
+	 * @param c The completion added or removed.
+	 * @param removal Whether it was removed.
+	 */
+	private void changed(Completion c, boolean removal) {
+		if (base!=null) {
+			if (changes.size()>=getMaxChanges(base.size())) {
+				resetChanges();
+			}
+			else {
+				removals.set(changes.size(), removal);
+				changes.add(c);
+			}
+		}
+	}
+
+
+	/**
+	 * Throws an exception if this index is a read-only snapshot.
+	 *
+	 * @throws UnsupportedOperationException If this index is a snapshot.
+	 */
+	private void checkWritable() {
+		if (readOnly) {
+			throw new UnsupportedOperationException("Index is read-only");
+		}
+	}
+
+
+	@Override
+	public void clear() {
+		checkWritable();
+		// We share the provider's list; snapshots must copy it again
+		resetChanges();
+	}
+
+
+	/**
+	 * Returns the index of the first completion in a list whose input
+	 * text is not less than the specified text, ignoring case.
+	 *
+	 * @param list The list.
+	 * @param text The text.
+	 * @return The index, which may be equal to the size of the list.
+	 */
+	private static int firstIndexNotLessThan(List<Completion> list,
+			CharSequence text) {
+		int low = 0;
+		int high = list.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (Util.compareIgnoreCase(list.get(mid).getInputText(),
+					text)<0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+
+	@Override
+	public List<Completion> getCompletionsByInputText(String inputText) {
+
+		// There might be multiple entries with the same input text.
+		int start = firstIndexNotLessThan(completions, inputText);
+		int end = getInputTextEnd(completions, start, inputText);
+		if (added.isEmpty() && removed.length==0) {
+			return start==end ? null : completions.subList(start, end);
+		}
+
+		int addedStart = firstIndexNotLessThan(added, inputText);
+		List<Completion> result = new ArrayList<>();
+		addRange(start, end, addedStart,
+				getInputTextEnd(added, addedStart, inputText), result);
+		return result.isEmpty() ? null : Collections.unmodifiableList(result);
+
+	}
+
+
+	@Override
+	public void getCompletionsWithPrefix(String prefix,
+										List<Completion> result) {
+		getCompletionsWithPrefix((CharSequence)prefix, result);
+	}
+
+
+	@Override
+	public void getCompletionsWithPrefix(CharSequence prefix,
+										List<Completion> result) {
+		int start = firstIndexNotLessThan(completions, prefix);
+		int end = getPrefixEnd(completions, start, prefix);
+		if (added.isEmpty() && removed.length==0) {
+			for (int i=start; i<end; i++) {
+				result.add(completions.get(i));
+			}
+		}
+		else {
+			int addedStart = firstIndexNotLessThan(added, prefix);
+			addRange(start, end, addedStart,
+					getPrefixEnd(added, addedStart, prefix), result);
+		}
+	}
+
+
+	/**
+	 * Returns the end of a range of completions with some input text,
+	 * ignoring case.
+	 *
+	 * @param list The list.
+	 * @param start The start of the range.
+	 * @param inputText The input text.
+	 * @return The end of the range, exclusive.
+	 */
+	@SuppressWarnings("unchecked")
+	private int getInputTextEnd(List<Completion> list, int start,
+			String inputText) {
+		int end = start;
+		int count = list.size();
+		while (end<count && comparator.compare(list.get(end), inputText)==0) {
+			end++;
+		}
+		return end;
+	}
+
+
+	/**
+	 * Returns the most changes a snapshot records rather than copying the
+	 * provider's list again.
+	 *
+	 * @param size The number of completions when the list was last copied.
+	 * @return The most changes to record.
+	 */
+	private static int getMaxChanges(int size) {
+		return Math.max(MIN_CHANGES, (int)Math.sqrt(size));
+	}
+
+
+	/**
+	 * Returns the end of a range of completions starting with some prefix,
+	 * ignoring case.
+	 *
+	 * @param list The list.
+	 * @param start The start of the range.
+	 * @param prefix The prefix.
+	 * @return The end of the range, exclusive.
+	 */
+	private static int getPrefixEnd(List<Completion> list, int start,
+			CharSequence prefix) {
+		int end = start;
+		int count = list.size();
+		while (end<count &&
+				Util.startsWithIgnoreCase(list.get(end).getInputText(), prefix)) {
+			end++;
+		}
+		return end;
+	}
+
+
+	/**
+	 * Returns the index of a completion in <code>completions</code>, other
+	 * than indexes already found.
+	 *
+	 * @param c The completion.
+	 * @param found The indexes already found.
+	 * @param count The number of indexes already found.
+	 * @return The index, or <code>-1</code> if it isn't found.
+	 */
+	private int indexOf(Completion c, int[] found, int count) {
+
+		int low = 0;
+		int high = completions.size();
+		while (low<high) {
+			int mid = (low + high) >>> 1;
+			if (completions.get(mid).compareTo(c)<0) {
+				low = mid + 1;
+			}
+			else {
+				high = mid;
+			}
+		}
+
+		outer:
+		for (int i=low; i<completions.size(); i++) {
+			Completion c2 = completions.get(i);
+			if (c2==c) {
+				for (int j=0; j<count; j++) {
+					if (found[j]==i) {
+						continue outer;
+					}
+				}
+				return i;
+			}
+			if (c2.compareTo(c)!=0) {
+				break;
+			}
+		}
+		return -1;
+
+	}
+
+
+	@Override
+	public void rebuild(List<Completion> completions) {
+		checkWritable();
+		this.completions = completions;
+		resetChanges();
+	}
+
+
+	@Override
+	public void remove(Completion c) {
+		checkWritable();
+		// We share the provider's list; just note the change for snapshots
+		changed(c, true);
+	}
+
+
+	/**
+	 * Discards the changes recorded, so the next snapshot copies the
+	 * provider's list again.
+	 */
+	private void resetChanges() {
+		base = null;
+		changes.clear();
+		removals.clear();
+	}
+
+
+	@Override
+	public CompletionIndex snapshot() {
+		if (readOnly) {
+			return this;
+		}
+		if (base==null) {
+			base = Collections.unmodifiableList(Arrays.asList(
+					completions.toArray(new Completion[0])));
+		}
+		SortedListCompletionIndex snapshot = new SortedListCompletionIndex();
+		snapshot.completions = base;
+		if (!changes.isEmpty()) {
+			snapshot.applyChanges(changes, removals);
+		}
+		snapshot.readOnly = true;
+		return snapshot;
+	}
+
+
+	@Override
+	public int size() {
+		return completions.size() - removed.length + added.size();
+	}
+
+
+}
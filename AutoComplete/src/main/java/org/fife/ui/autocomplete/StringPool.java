@@ -0,0 +1,176 @@
+/*
+ * 10/17/2026
+ *
+ * StringPool.java - Shares equal strings between completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A pool of strings, used to share a single instance of strings that are
+ * repeated across many completions, such as type names and header file
+ * names.  Unlike <code>String.intern()</code>, a pool can be thrown away
+ * once it is no longer needed.<p>
+ *
+ * {@link CompletionXMLParser} uses a new pool for each parser by default.
+ * If the {@link #setGlobalPoolEnabled(boolean) global pool} is enabled, it
+ * is used instead, and {@link VariableCompletion}s and
+ * {@link FunctionCompletion}s created by other means use it as well.  The
+ * global pool is never emptied, so it should only be enabled if the set of
+ * distinct type names and the like is reasonably small, as it is for most
+ * languages.<p>
+ *
+ * This class is thread-safe.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class StringPool {
+
+	private final Map<String, String> strings;
+
+	private final AtomicLong duplicateCount;
+
+	private final AtomicLong bytesSaved;
+
+	private static final StringPool GLOBAL_POOL = new StringPool();
+
+	private static volatile boolean globalPoolEnabled;
+
+
+	/**
+	 * Constructor.
+	 */
+	public StringPool() {
+		strings = new ConcurrentHashMap<>();
+		duplicateCount = new AtomicLong();
+		bytesSaved = new AtomicLong();
+	}
+
+
+	/**
+	 * Returns an estimate of the memory used by a string, assuming a 64-bit
+	 * JVM with compressed object pointers.
+	 *
+	 * @param s The string.
+	 * @return The estimated number of bytes used.
+	 */
+	static long estimateSize(String s) {
+		long array = (16 + 2L*s.length() + 7) & ~7L;
+		return 24 + array;
+	}
+
+
+	/**
+	 * Returns an estimate of how much memory this pool has saved, assuming
+	 * the duplicate strings would otherwise have been kept.
+	 *
+	 * @return The estimated number of bytes saved.
+	 */
+	public long getBytesSaved() {
+		return bytesSaved.get();
+	}
+
+
+	/**
+	 * Returns the number of times a string was replaced by an equal one
+	 * already in this pool.
+	 *
+	 * @return The number of duplicate strings.
+	 */
+	public long getDuplicateCount() {
+		return duplicateCount.get();
+	}
+
+
+	/**
+	 * Returns the global string pool.
+	 *
+	 * @return The global pool.
+	 * @see #isGlobalPoolEnabled()
+	 */
+	public static StringPool getGlobalPool() {
+		return GLOBAL_POOL;
+	}
+
+
+	/**
+	 * Returns the string in this pool equal to a string, adding it if there
+	 * is none.
+	 *
+	 * @param s The string.  This may be <code>null</code>.
+	 * @return The string in this pool equal to <code>s</code>, which is
+	 *         <code>s</code> itself if there was none before, or
+	 *         <code>null</code> if <code>s</code> is <code>null</code>.
+	 */
+	public String intern(String s) {
+		if (s==null) {
+			return null;
+		}
+		String pooled = strings.putIfAbsent(s, s);
+		if (pooled==null) {
+			return s;
+		}
+		if (pooled!=s) {
+			duplicateCount.incrementAndGet();
+			bytesSaved.addAndGet(estimateSize(s));
+		}
+		return pooled;
+	}
+
+
+	/**
+	 * Returns a string from the global pool, if it is enabled.
+	 *
+	 * @param s The string.  This may be <code>null</code>.
+	 * @return The pooled string if the global pool is enabled, otherwise
+	 *         <code>s</code> itself.
+	 * @see #setGlobalPoolEnabled(boolean)
+	 */
+	static String internGlobal(String s) {
+		return globalPoolEnabled ? GLOBAL_POOL.intern(s) : s;
+	}
+
+
+	/**
+	 * Returns whether the global pool is enabled.
+	 *
+	 * @return Whether the global pool is enabled.
+	 * @see #setGlobalPoolEnabled(boolean)
+	 */
+	public static boolean isGlobalPoolEnabled() {
+		return globalPoolEnabled;
+	}
+
+
+	/**
+	 * Sets whether the global pool is enabled.  The default is
+	 * <code>false</code>.  This only affects completions created afterward.
+	 *
+	 * @param enabled Whether the global pool is enabled.
+	 * @see #isGlobalPoolEnabled()
+	 * @see #getGlobalPool()
+	 */
+	public static void setGlobalPoolEnabled(boolean enabled) {
+		globalPoolEnabled = enabled;
+	}
+
+
+	/**
+	 * Returns the number of distinct strings in this pool.
+	 *
+	 * @return The number of strings.
+	 */
+	public int size() {
+		return strings.size();
+	}
+
+
+}
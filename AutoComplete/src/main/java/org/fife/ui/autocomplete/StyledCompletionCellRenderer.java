@@ -0,0 +1,98 @@
+/*
+ * 10/17/2026
+ *
+ * StyledCompletionCellRenderer.java - A completion cell renderer that paints
+ * styled text directly, rather than with HTML.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.util.Map;
+import javax.swing.DefaultListCellRenderer;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxUtilities;
+
+
+/**
+ * A {@link CompletionCellRenderer} that paints the names, parameters and
+ * types of completions directly, instead of building HTML and having Swing
+ * parse and lay it out for each row.  Rendering HTML is by far the most
+ * expensive part of painting the completion list, so this renderer makes
+ * displaying and scrolling through long lists of completions noticeably
+ * faster.  Completions look the same as they do with the standard renderer.
+ * <p>
+ *
+ * Subclasses can customize completions as they can with the standard
+ * renderer.  If a subclass sets the text itself, for example to HTML, that
+ * text is rendered as the standard renderer would.<p>
+ *
+ * If a delegate renderer is set, such as a Substance renderer, it is
+ * responsible for painting the text, so it is still given HTML.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see AutoCompletion#setListCellRenderer(javax.swing.ListCellRenderer)
+ */
+public class StyledCompletionCellRenderer extends CompletionCellRenderer {
+
+	/**
+	 * Constructor.
+	 */
+	public StyledCompletionCellRenderer() {
+	}
+
+
+	/**
+	 * Constructor.  This is primarily a hook for Substance, or any other
+	 * Look and Feel whose renderers look drastically different than standard
+	 * <code>DefaultListCellRenderer</code>s.
+	 *
+	 * @param delegate The delegate renderer.
+	 * @see #delegateToSubstanceRenderer()
+	 */
+	public StyledCompletionCellRenderer(DefaultListCellRenderer delegate) {
+		super(delegate);
+	}
+
+
+	/**
+	 * Returns whether the text of completions is displayed as HTML.
+	 *
+	 * @return Whether a delegate renderer is set.
+	 */
+	@Override
+	boolean isCellTextHtml() {
+		return getDelegateRenderer()!=null;
+	}
+
+
+	@Override
+	void paintText(Graphics g, String text, Rectangle textR) {
+
+		// A subclass may have set text of its own
+		CompletionCellText cellText = getCellText();
+		if (cellText==null || isCellTextHtml()) {
+			super.paintText(g, text, textR);
+			return;
+		}
+
+		Map<?, ?> hints = RSyntaxUtilities.getDesktopAntiAliasHints();
+		if (hints!=null) {
+			((Graphics2D)g).addRenderingHints(hints);
+		}
+
+		// Center vertically, like the HTML view
+		FontMetrics fm = g.getFontMetrics();
+		int y = textR.y + (textR.height - fm.getHeight())/2 + fm.getAscent();
+		cellText.paint(g, fm, textR.x, y, getForeground());
+
+	}
+
+
+}
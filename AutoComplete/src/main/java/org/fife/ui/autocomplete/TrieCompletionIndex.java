@@ -0,0 +1,761 @@
+/*
+ * 10/17/2026
+ *
+ * TrieCompletionIndex.java - A case-folded radix trie over completions.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * A {@link CompletionIndex} backed by a radix trie keyed on the case-folded
+ * input text of each completion.  Finding the completions for a prefix
+ * costs time proportional to the length of the prefix to locate its node,
+ * plus time proportional to the number of matches to collect them; unlike
+ * {@link SortedListCompletionIndex}, no string comparisons are done per
+ * match.  This makes a big difference for very large providers, where a
+ * prefix of one or two characters can match tens of thousands of
+ * completions.<p>
+ *
+ * Characters are folded the same way <code>String.CASE_INSENSITIVE_ORDER</code>
+ * folds them, so a depth-first walk of the trie visits completions in the
+ * same order as the provider's sorted list.  Characters outside of the BMP
+ * are not specially handled.<p>
+ *
+ * Snapshots are cheap: a {@link #snapshot()} shares all of its nodes with
+ * this index, and this index copies a node the first time it modifies it
+ * after a snapshot was taken.  Each addition or removal thus copies at most
+ * the nodes on the path to the completion's node.<p>
+ *
+ * A trie also supports finding completions that start with text
+ * <i>similar</i> to a prefix, in the presence of typos; see
+ * {@link #getApproximateMatches(String, int, long, List)}.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ */
+public class TrieCompletionIndex implements CompletionIndex {
+
+	private Node root;
+
+	/**
+	 * Identifies the nodes this index may modify in place: those created
+	 * since the last snapshot was taken.  This is <code>null</code> if this
+	 * index is a read-only snapshot.
+	 */
+	private Object owner;
+
+	private static final char[] EMPTY_LABEL = new char[0];
+
+
+	/**
+	 * Constructor.
+	 */
+	public TrieCompletionIndex() {
+		owner = new Object();
+		root = new Node(EMPTY_LABEL, owner);
+	}
+
+
+	/**
+	 * Creates a read-only snapshot.
+	 *
+	 * @param root The root of the snapshot.
+	 */
+	private TrieCompletionIndex(Node root) {
+		this.root = root;
+	}
+
+
+	@Override
+	public void add(Completion c) {
+
+		checkWritable();
+		String key = c.getInputText();
+		int len = key.length();
+		root = writable(root);
+		Node node = root;
+		node.subtreeSize++;
+		int i = 0;
+
+		while (i<len) {
+
+			char ch = fold(key.charAt(i));
+			int index = node.indexOfChild(ch);
+			if (index<0) {
+				char[] label = new char[len - i];
+				for (int j=0; j<label.length; j++) {
+					label[j] = fold(key.charAt(i + j));
+				}
+				Node leaf = new Node(label, owner);
+				leaf.addValue(c);
+				leaf.subtreeSize = 1;
+				node.insertChild(-index - 1, leaf);
+				return;
+			}
+
+			Node child = writableChild(node, index);
+			char[] label = child.label;
+			int common = 1; // First char matches since we found the child
+			while (common<label.length && i+common<len &&
+					label[common]==fold(key.charAt(i + common))) {
+				common++;
+			}
+
+			if (common<label.length) {
+				child = node.splitChild(index, common, owner);
+			}
+			child.subtreeSize++;
+			node = child;
+			i += common;
+
+		}
+
+		node.addValue(c);
+
+	}
+
+
+	/**
+	 * Throws an exception if this index is a read-only snapshot.
+	 *
+	 * @throws UnsupportedOperationException If this index is a snapshot.
+	 */
+	private void checkWritable() {
+		if (owner==null) {
+			throw new UnsupportedOperationException("Index is read-only");
+		}
+	}
+
+
+	@Override
+	public void clear() {
+		checkWritable();
+		root = new Node(EMPTY_LABEL, owner);
+	}
+
+
+	/**
+	 * Adds all completions in the subtree rooted at a node to a list, in
+	 * sorted order.
+	 *
+	 * @param node The root of the subtree.
+	 * @param result The list to add to.
+	 */
+	private static void collect(Node node, List<Completion> result) {
+		for (int i=0; i<node.valueCount; i++) {
+			result.add(node.values[i]);
+		}
+		for (int i=0; i<node.childCount; i++) {
+			collect(node.children[i], result);
+		}
+	}
+
+
+	/**
+	 * Computes the next row of edit distances between the prefix being
+	 * matched and the path through the trie, after one more character of
+	 * the path.  Distances greater than <code>maxEdits</code> are all
+	 * stored as <code>maxEdits + 1</code>, and only the band of entries
+	 * that can be within <code>maxEdits</code> is computed.
+	 *
+	 * @return The smallest distance in the new row.
+	 */
+	private static int computeRow(char[] prefix, int maxEdits, int[][] rows,
+			char[] path, int depth, char ch) {
+
+		int[] prev = rows[depth];
+		int[] row = rows[depth + 1];
+		int tooMany = maxEdits + 1;
+		int pathLen = depth + 1;
+		row[0] = Math.min(pathLen, tooMany);
+		int min = row[0];
+
+		int lo = Math.max(1, pathLen - maxEdits);
+		int hi = Math.min(prefix.length, pathLen + maxEdits);
+		if (lo>1) {
+			row[lo - 1] = tooMany;
+		}
+
+		for (int j=lo; j<=hi; j++) {
+			int cost = prefix[j-1]==ch ? 0 : 1;
+			int d = Math.min(Math.min(prev[j] + 1, row[j-1] + 1),
+					prev[j-1] + cost);
+			// Two adjacent characters swapped count as one edit.
+			if (j>1 && depth>0 && prefix[j-1]==path[depth-1] &&
+					prefix[j-2]==ch) {
+				d = Math.min(d, rows[depth-1][j-2] + 1);
+			}
+			d = Math.min(d, tooMany);
+			row[j] = d;
+			min = Math.min(min, d);
+		}
+		if (hi<prefix.length) {
+			row[hi + 1] = tooMany;
+		}
+
+		path[depth] = ch;
+		return min;
+
+	}
+
+
+	/**
+	 * Folds a character's case the same way
+	 * <code>String.CASE_INSENSITIVE_ORDER</code> does.
+	 *
+	 * @param ch The character.
+	 * @return The folded character.
+	 */
+	static char fold(char ch) {
+		return Character.toLowerCase(Character.toUpperCase(ch));
+	}
+
+
+	/**
+	 * Adds all completions that start with text within a given edit
+	 * distance of a prefix, ignoring case, to a list.  For example, with a
+	 * maximum of two edits, "<code>fucntion</code>" matches
+	 * "<code>function</code>" and "<code>functional</code>".  An edit is an
+	 * inserted, deleted or substituted character, or two adjacent characters
+	 * swapped.  The first character must match exactly, since typos are
+	 * rarely made there, and this makes the search much faster.<p>
+	 *
+	 * Rather than computing the distance to every completion, this walks a
+	 * Levenshtein automaton over the trie: each trie edge extends one row of
+	 * edit distances, and subtrees where every distance in the row exceeds
+	 * the maximum are skipped.  The walk, including collecting the
+	 * completions under each match, gives up once a deadline passes.
+	 *
+	 * @param prefix The prefix.
+	 * @param maxEdits The maximum number of edits.
+	 * @param deadline The <code>System.nanoTime()</code> value after which
+	 *        to give up.
+	 * @param result The list to add matching completions to, in sorted
+	 *        order.  This includes completions matching the prefix exactly.
+	 * @return Whether the search completed.  If this is <code>false</code>,
+	 *         the deadline passed and <code>result</code> may be incomplete.
+	 */
+	public boolean getApproximateMatches(String prefix, int maxEdits,
+			long deadline, List<Completion> result) {
+
+		char[] folded = new char[prefix.length()];
+		for (int i=0; i<folded.length; i++) {
+			folded[i] = fold(prefix.charAt(i));
+		}
+
+		int maxDepth = folded.length + maxEdits + 1;
+		int[][] rows = new int[maxDepth + 1][folded.length + 1];
+		for (int j=0; j<=folded.length; j++) {
+			rows[0][j] = Math.min(j, maxEdits + 1);
+		}
+		if (folded.length==0) {
+			collect(root, result);
+			return true;
+		}
+
+		int index = root.indexOfChild(folded[0]);
+		if (index<0) {
+			return true;
+		}
+		ApproximateSearch search = new ApproximateSearch(folded, maxEdits,
+				rows, new char[maxDepth], deadline, result);
+		return search.visit(root.children[index], 0);
+
+	}
+
+
+	/**
+	 * Returns the number of completions whose input text starts with the
+	 * specified prefix, ignoring case.  This does not visit the completions
+	 * themselves, so it is cheap even when there are many matches.
+	 *
+	 * @param prefix The prefix.
+	 * @return The number of matching completions.
+	 */
+	public int getCompletionCount(String prefix) {
+		Node node = getNode(prefix, false);
+		return node==null ? 0 : node.subtreeSize;
+	}
+
+
+	@Override
+	public List<Completion> getCompletionsByInputText(String inputText) {
+		Node node = getNode(inputText, true);
+		if (node==null || node.valueCount==0) {
+			return null;
+		}
+		return Collections.unmodifiableList(Arrays.asList(
+				Arrays.copyOf(node.values, node.valueCount)));
+	}
+
+
+	@Override
+	public void getCompletionsWithPrefix(String prefix,
+										List<Completion> result) {
+		getCompletionsWithPrefix((CharSequence)prefix, result);
+	}
+
+
+	@Override
+	public void getCompletionsWithPrefix(CharSequence prefix,
+										List<Completion> result) {
+		Node node = getNode(prefix, false);
+		if (node!=null) {
+			if (result instanceof ArrayList) {
+				((ArrayList<Completion>)result).ensureCapacity(
+						result.size() + node.subtreeSize);
+			}
+			collect(node, result);
+		}
+	}
+
+
+	/**
+	 * Returns the node for some text.
+	 *
+	 * @param text The text.
+	 * @param exact If this is <code>true</code>, the text must end exactly
+	 *        at a node.  If it is <code>false</code>, the text may end in
+	 *        the middle of a node's label, in which case that node is
+	 *        returned, since all completions below it start with the text.
+	 * @return The node, or <code>null</code> if there is no such node.
+	 */
+	Node getNode(CharSequence text, boolean exact) {
+
+		int len = text.length();
+		Node node = root;
+		int i = 0;
+
+		while (i<len) {
+			int index = node.indexOfChild(fold(text.charAt(i)));
+			if (index<0) {
+				return null;
+			}
+			node = node.children[index];
+			char[] label = node.label;
+			int j = 1;
+			i++;
+			while (j<label.length && i<len) {
+				if (label[j++]!=fold(text.charAt(i++))) {
+					return null;
+				}
+			}
+			if (exact && j<label.length) {
+				return null;
+			}
+		}
+
+		return node;
+
+	}
+
+
+	@Override
+	public void rebuild(List<Completion> completions) {
+		clear();
+		for (Completion c : completions) {
+			add(c);
+		}
+	}
+
+
+	@Override
+	public void remove(Completion c) {
+
+		checkWritable();
+		String key = c.getInputText();
+		int len = key.length();
+		List<Node> path = new ArrayList<>();
+		Node node = root;
+		path.add(node);
+		int i = 0;
+
+		while (i<len) {
+			int index = node.indexOfChild(fold(key.charAt(i)));
+			if (index<0) {
+				return;
+			}
+			node = node.children[index];
+			char[] label = node.label;
+			if (i+label.length>len) {
+				return;
+			}
+			for (char ch : label) {
+				if (ch!=fold(key.charAt(i++))) {
+					return;
+				}
+			}
+			path.add(node);
+		}
+
+		if (node.indexOfValue(c)<0) {
+			return;
+		}
+
+		// Copy any nodes on the path shared with a snapshot
+		root = writable(root);
+		path.set(0, root);
+		for (int p=1; p<path.size(); p++) {
+			Node parent = path.get(p - 1);
+			path.set(p, writableChild(parent,
+					parent.indexOfChild(path.get(p).label[0])));
+		}
+		node = path.get(path.size() - 1);
+
+		node.removeValue(c);
+		for (Node n : path) {
+			n.subtreeSize--;
+		}
+
+		// Prune nodes left empty, and merge nodes left with only one child,
+		// so the trie stays compact.
+		for (int p=path.size()-1; p>0; p--) {
+			Node n = path.get(p);
+			Node parent = path.get(p - 1);
+			if (n.valueCount>0 || n.childCount>1) {
+				break;
+			}
+			if (n.childCount==0) {
+				parent.removeChild(n);
+			}
+			else {
+				parent.replaceChild(n, n.mergeWithOnlyChild(owner));
+				break;
+			}
+		}
+
+	}
+
+
+	@Override
+	public int size() {
+		return root.subtreeSize;
+	}
+
+
+	@Override
+	public CompletionIndex snapshot() {
+		if (owner==null) {
+			return this;
+		}
+		// The nodes are now shared, so any we modify must first be copied
+		owner = new Object();
+		return new TrieCompletionIndex(root);
+	}
+
+
+	/**
+	 * Returns a version of a node that this index may modify.
+	 *
+	 * @param node The node.
+	 * @return The node itself, or a copy of it if it is shared with a
+	 *         snapshot.
+	 */
+	private Node writable(Node node) {
+		return node.owner==owner ? node : node.copy(owner);
+	}
+
+
+	/**
+	 * Returns a version of a node's child that this index may modify,
+	 * replacing the child with a copy if necessary.
+	 *
+	 * @param parent The parent node, which must be writable.
+	 * @param index The index of the child.
+	 * @return The child.
+	 */
+	private Node writableChild(Node parent, int index) {
+		Node child = parent.children[index];
+		if (child.owner!=owner) {
+			child = child.copy(owner);
+			parent.children[index] = child;
+		}
+		return child;
+	}
+
+
+	/**
+	 * The state of a call to
+	 * {@link TrieCompletionIndex#getApproximateMatches(String, int, long, List)}.
+	 */
+	private static final class ApproximateSearch {
+
+		private final char[] prefix;
+		private final int maxEdits;
+		private final int[][] rows;
+		private final char[] path;
+		private final long deadline;
+		private final List<Completion> result;
+
+		/**
+		 * How many more nodes and completions to visit before the deadline
+		 * is checked again.
+		 */
+		private int untilDeadlineCheck;
+
+		/**
+		 * How many nodes and completions to visit between checks of the
+		 * deadline.
+		 */
+		private static final int DEADLINE_CHECK_INTERVAL = 256;
+
+		ApproximateSearch(char[] prefix, int maxEdits, int[][] rows,
+				char[] path, long deadline, List<Completion> result) {
+			this.prefix = prefix;
+			this.maxEdits = maxEdits;
+			this.rows = rows;
+			this.path = path;
+			this.deadline = deadline;
+			this.result = result;
+			untilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+		}
+
+		/**
+		 * Adds all completions in the subtree rooted at a node to the
+		 * result, in sorted order, unless the deadline passes.
+		 *
+		 * @param node The root of the subtree.
+		 * @return Whether the walk should continue.
+		 */
+		boolean collect(Node node) {
+			if (isPastDeadline(1 + node.valueCount)) {
+				return false;
+			}
+			for (int i=0; i<node.valueCount; i++) {
+				result.add(node.values[i]);
+			}
+			for (int i=0; i<node.childCount; i++) {
+				if (!collect(node.children[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Notes that some nodes or completions are being visited, and
+		 * checks the deadline if enough have been since it was last
+		 * checked.
+		 *
+		 * @param count The number of nodes and completions.
+		 * @return Whether the deadline has passed.
+		 */
+		private boolean isPastDeadline(int count) {
+			untilDeadlineCheck -= count;
+			if (untilDeadlineCheck<=0) {
+				untilDeadlineCheck = DEADLINE_CHECK_INTERVAL;
+				return System.nanoTime()-deadline>0;
+			}
+			return false;
+		}
+
+		/**
+		 * Visits a node, and then its children if they might match.
+		 *
+		 * @param node The node.
+		 * @param depth The number of characters on the path to the node's
+		 *        parent.
+		 * @return Whether the walk should continue.
+		 */
+		boolean visit(Node node, int depth) {
+
+			if (isPastDeadline(1)) {
+				return false;
+			}
+
+			char[] label = node.label;
+			int d = depth;
+			for (char ch : label) {
+				if (d+1>=rows.length) {
+					return true; // Too many extra chars to match
+				}
+				int min = computeRow(prefix, maxEdits, rows, path, d++, ch);
+				if (d>=prefix.length-maxEdits &&
+						rows[d][prefix.length]<=maxEdits) {
+					return collect(node);
+				}
+				if (min>maxEdits) {
+					return true;
+				}
+			}
+
+			for (int i=0; i<node.childCount; i++) {
+				if (!visit(node.children[i], d)) {
+					return false;
+				}
+			}
+			return true;
+
+		}
+
+	}
+
+
+	/**
+	 * A node in the trie.  Its label is the (case-folded) text on the edge
+	 * leading into it from its parent.  Labels are never modified in place,
+	 * so they may be shared between copies of a node.
+	 */
+	static final class Node {
+
+		/**
+		 * The index that may modify this node in place.
+		 */
+		private final Object owner;
+
+		private char[] label;
+		private Node[] children;
+		private int childCount;
+		private Completion[] values;
+		private int valueCount;
+
+		/**
+		 * The number of completions in this node and all of its descendants.
+		 */
+		private int subtreeSize;
+
+		private static final Node[] NO_CHILDREN = new Node[0];
+		private static final Completion[] NO_VALUES = new Completion[0];
+
+		Node(char[] label, Object owner) {
+			this.label = label;
+			this.owner = owner;
+			children = NO_CHILDREN;
+			values = NO_VALUES;
+		}
+
+		/**
+		 * Adds a completion to this node, after any other completions that
+		 * compare equal to it.
+		 */
+		void addValue(Completion c) {
+			if (valueCount==values.length) {
+				values = Arrays.copyOf(values, Math.max(1, valueCount*2));
+			}
+			int index = valueCount;
+			while (index>0 && values[index-1].compareTo(c)>0) {
+				index--;
+			}
+			System.arraycopy(values, index, values, index+1,
+					valueCount-index);
+			values[index] = c;
+			valueCount++;
+		}
+
+		Node copy(Object owner) {
+			Node copy = new Node(label, owner);
+			copy.children = childCount==0 ? NO_CHILDREN :
+					Arrays.copyOf(children, childCount);
+			copy.childCount = childCount;
+			copy.values = valueCount==0 ? NO_VALUES :
+					Arrays.copyOf(values, valueCount);
+			copy.valueCount = valueCount;
+			copy.subtreeSize = subtreeSize;
+			return copy;
+		}
+
+		/**
+		 * Returns the index of the child whose label starts with the given
+		 * character, or <code>-(insertionPoint) - 1</code> if there is none.
+		 */
+		int indexOfChild(char ch) {
+			int low = 0;
+			int high = childCount - 1;
+			while (low<=high) {
+				int mid = (low + high) >>> 1;
+				char midCh = children[mid].label[0];
+				if (midCh<ch) {
+					low = mid + 1;
+				}
+				else if (midCh>ch) {
+					high = mid - 1;
+				}
+				else {
+					return mid;
+				}
+			}
+			return -(low + 1);
+		}
+
+		void insertChild(int index, Node child) {
+			if (childCount==children.length) {
+				children = Arrays.copyOf(children, Math.max(2, childCount*2));
+			}
+			System.arraycopy(children, index, children, index+1,
+					childCount-index);
+			children[index] = child;
+			childCount++;
+		}
+
+		int indexOfValue(Completion c) {
+			for (int i=0; i<valueCount; i++) {
+				if (values[i]==c) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Merges this node's only child into this node, returning the
+		 * merged node.
+		 */
+		Node mergeWithOnlyChild(Object owner) {
+			Node child = children[0];
+			if (child.owner!=owner) {
+				child = child.copy(owner);
+			}
+			char[] merged = Arrays.copyOf(label, label.length +
+					child.label.length);
+			System.arraycopy(child.label, 0, merged, label.length,
+					child.label.length);
+			child.label = merged;
+			return child;
+		}
+
+		void removeChild(Node child) {
+			int index = indexOfChild(child.label[0]);
+			System.arraycopy(children, index+1, children, index,
+					childCount-index-1);
+			children[--childCount] = null;
+		}
+
+		void removeValue(Completion c) {
+			int i = indexOfValue(c);
+			System.arraycopy(values, i+1, values, i, valueCount-i-1);
+			values[--valueCount] = null;
+		}
+
+		void replaceChild(Node child, Node replacement) {
+			children[indexOfChild(child.label[0])] = replacement;
+		}
+
+		/**
+		 * Splits the label of a child so that it is <code>length</code>
+		 * characters long, moving the remainder into a new node below it.
+		 * Returns the (new) node now at that index.
+		 */
+		Node splitChild(int index, int length, Object owner) {
+			Node child = children[index];
+			Node mid = new Node(Arrays.copyOf(child.label, length), owner);
+			child.label = Arrays.copyOfRange(child.label, length,
+					child.label.length);
+			mid.children = new Node[] { child, null };
+			mid.childCount = 1;
+			mid.subtreeSize = child.subtreeSize;
+			children[index] = mid;
+			return mid;
+		}
+
+	}
+
+
+}
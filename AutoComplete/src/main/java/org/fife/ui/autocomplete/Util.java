@@ -264,6 +264,54 @@ public final class Util {
 	}
 
 
+	/**
+	 * Compares two character sequences, ignoring case, in the same order as
+	 * <code>String.CASE_INSENSITIVE_ORDER</code>.
+	 *
+	 * @param s1 The first sequence.
+	 * @param s2 The second sequence.
+	 * @return A negative number, zero, or a positive number as
+	 *         <code>s1</code> is less than, equal to, or greater than
+	 *         <code>s2</code>.
+	 */
+	static int compareIgnoreCase(CharSequence s1, CharSequence s2) {
+		int len1 = s1.length();
+		int len2 = s2.length();
+		int min = Math.min(len1, len2);
+		for (int i=0; i<min; i++) {
+			char c1 = s1.charAt(i);
+			char c2 = s2.charAt(i);
+			if (c1!=c2) {
+				c1 = Character.toUpperCase(c1);
+				c2 = Character.toUpperCase(c2);
+				if (c1!=c2) {
+					c1 = Character.toLowerCase(c1);
+					c2 = Character.toLowerCase(c2);
+					if (c1!=c2) {
+						return c1 - c2;
+					}
+				}
+			}
+		}
+		return len1 - len2;
+	}
+
+
+	/**
+	 * Returns whether two characters are equal, ignoring case, in the same
+	 * way as <code>String.regionMatches(true, ...)</code>.
+	 */
+	private static boolean equalsIgnoreCase(char c1, char c2) {
+		if (c1==c2) {
+			return true;
+		}
+		char u1 = Character.toUpperCase(c1);
+		char u2 = Character.toUpperCase(c2);
+		return u1==u2 ||
+				Character.toLowerCase(u1)==Character.toLowerCase(u2);
+	}
+
+
 	/**
 	 * Returns whether the specified color is "light" to use as a foreground.
 	 * Colors that return <code>true</code> indicate that the current Look and
@@ -277,6 +325,30 @@ public final class Util {
 	}
 
 
+	/**
+	 * Returns whether some text starts with a specified prefix, ignoring
+	 * case, in the same way as
+	 * {@link #startsWithIgnoreCase(String, String)}.
+	 *
+	 * @param text The text to check.  This cannot be {@code null}.
+	 * @param prefix The prefix to check for.  This cannot be {@code null}.
+	 * @return Whether {@code text} starts with {@code prefix}, ignoring case.
+	 */
+	public static boolean startsWithIgnoreCase(CharSequence text,
+			CharSequence prefix) {
+		int prefixLength = prefix.length();
+		if (text.length()<prefixLength) {
+			return false;
+		}
+		for (int i=0; i<prefixLength; i++) {
+			if (!equalsIgnoreCase(text.charAt(i), prefix.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
 	/**
 	 * Returns whether a string starts with a specified prefix, ignoring case.
 	 * This method does not support characters outside of the BMP.
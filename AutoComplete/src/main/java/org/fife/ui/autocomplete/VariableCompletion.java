@@ -47,7 +47,7 @@ public class VariableCompletion extends BasicCompletion {
 	public VariableCompletion(CompletionProvider provider, String name,
 							String type) {
 		super(provider, name);
-		this.type = type;
+		this.type = StringPool.internGlobal(type);
 	}
 
 
@@ -178,7 +178,7 @@ public class VariableCompletion extends BasicCompletion {
 	 * @see #getDefinedIn()
 	 */
 	public void setDefinedIn(String definedIn) {
-		this.definedIn = definedIn;
+		this.definedIn = StringPool.internGlobal(definedIn);
 	}
 
 
@@ -0,0 +1,429 @@
+/*
+ * 10/17/2026
+ *
+ * XMLDescriptionSource.java - Loads descriptions from completion XML.
+ *
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+/**
+ * Loads descriptions from a completion XML file when they are needed.  A
+ * reference is the byte offset of the content of a <code>desc</code> or
+ * <code>returnValDesc</code> element in the file, and the content's length
+ * in bytes.<p>
+ *
+ * The offsets are found by {@link #scan(File)}, a quick scan of the raw
+ * bytes that lists these elements in document order; the parser matches
+ * them up with the elements it reports, in the same order.  Only encodings
+ * in which markup characters are single ASCII bytes, such as UTF-8 and
+ * ISO-8859-1, are supported.
+ *
+ * @author Robert Futrell
+ * @version 1.0
+ * @see CompletionXMLParser#parse(File, boolean, boolean)
+ */
+final class XMLDescriptionSource extends DescriptionSource {
+
+	private final File file;
+
+	private final Charset charset;
+
+	private long[] refs;
+
+	private static final int LENGTH_BITS = 24;
+	private static final long MAX_LENGTH = (1L<<LENGTH_BITS) - 1;
+
+
+	private XMLDescriptionSource(File file, Charset charset, long[] refs) {
+		this.file = file;
+		this.charset = charset;
+		this.refs = refs;
+	}
+
+
+	/**
+	 * Decodes the content of an element: CDATA sections, character and
+	 * predefined entity references, comments and processing instructions,
+	 * and line ends are handled as an XML parser would.
+	 *
+	 * @param raw The raw content.
+	 * @return The text.
+	 */
+	static String decode(String raw) {
+
+		if (raw.indexOf('&')==-1 && raw.indexOf('<')==-1 &&
+				raw.indexOf('\r')==-1) {
+			return raw;
+		}
+
+		StringBuilder sb = new StringBuilder(raw.length());
+		int len = raw.length();
+		int i = 0;
+		while (i<len) {
+			char ch = raw.charAt(i);
+			if (ch=='\r') {
+				sb.append('\n');
+				i += i+1<len && raw.charAt(i+1)=='\n' ? 2 : 1;
+			}
+			else if (ch=='&') {
+				int end = raw.indexOf(';', i);
+				String entity = end==-1 ? null : raw.substring(i+1, end);
+				String value = entity==null ? null : decodeEntity(entity);
+				if (value==null) { // Not something we know; leave as is
+					sb.append(ch);
+					i++;
+				}
+				else {
+					sb.append(value);
+					i = end + 1;
+				}
+			}
+			else if (raw.startsWith("<![CDATA[", i)) {
+				int start = i + 9;
+				int end = raw.indexOf("]]>", start);
+				if (end==-1) {
+					end = len;
+				}
+				String cdata = raw.substring(start, end);
+				sb.append(cdata.replace("\r\n", "\n").replace('\r', '\n'));
+				i = end + 3;
+			}
+			else if (raw.startsWith("<!--", i)) {
+				int end = raw.indexOf("-->", i + 4);
+				i = end==-1 ? len : end + 3;
+			}
+			else if (raw.startsWith("<?", i)) {
+				int end = raw.indexOf("?>", i + 2);
+				i = end==-1 ? len : end + 2;
+			}
+			else {
+				sb.append(ch);
+				i++;
+			}
+		}
+		return sb.toString();
+
+	}
+
+
+	/**
+	 * Decodes a predefined entity or character reference.
+	 *
+	 * @param entity The entity name, without the <code>&amp;</code> and
+	 *        <code>;</code>.
+	 * @return The value, or <code>null</code> if it is not a predefined
+	 *         entity or valid character reference.
+	 */
+	private static String decodeEntity(String entity) {
+		switch (entity) {
+			case "lt":
+				return "<";
+			case "gt":
+				return ">";
+			case "amp":
+				return "&";
+			case "quot":
+				return "\"";
+			case "apos":
+				return "'";
+			default:
+				if (entity.length()<2 || entity.charAt(0)!='#') {
+					return null;
+				}
+				try {
+					int cp = entity.charAt(1)=='x' ?
+							Integer.parseInt(entity.substring(2), 16) :
+							Integer.parseInt(entity.substring(1));
+					return new String(Character.toChars(cp));
+				} catch (IllegalArgumentException iae) {
+					return null;
+				}
+		}
+	}
+
+
+	/**
+	 * Returns the charset named in an XML declaration, if it is one this
+	 * class supports.
+	 *
+	 * @param decl The XML declaration.
+	 * @return The charset, or <code>null</code> if it is not supported.
+	 */
+	private static Charset getCharset(String decl) {
+		int index = decl.indexOf("encoding");
+		if (index==-1) {
+			return StandardCharsets.UTF_8;
+		}
+		int start = index + 8;
+		while (start<decl.length() && decl.charAt(start)!='"' &&
+				decl.charAt(start)!='\'') {
+			start++;
+		}
+		int end = start + 1;
+		while (end<decl.length() && decl.charAt(end)!=decl.charAt(start)) {
+			end++;
+		}
+		if (end>=decl.length()) {
+			return null;
+		}
+		Charset cs;
+		try {
+			cs = Charset.forName(decl.substring(start+1, end));
+		} catch (IllegalArgumentException iae) {
+			return null;
+		}
+		String name = cs.name();
+		return "UTF-8".equals(name) || "US-ASCII".equals(name) ||
+				name.startsWith("ISO-8859-") || name.startsWith("windows-125") ?
+				cs : null;
+	}
+
+
+	/**
+	 * Returns the index of some ASCII text in a buffer.
+	 *
+	 * @param buf The buffer.
+	 * @param text The text to find.
+	 * @param from The index to start at.
+	 * @return The index of the text, or the buffer's limit if it is not
+	 *         found.
+	 */
+	private static int indexOf(ByteBuffer buf, String text, int from) {
+		int limit = buf.limit() - text.length();
+		char first = text.charAt(0);
+		for (int i=from; i<=limit; i++) {
+			if (buf.get(i)==first && startsWith(buf, text, i)) {
+				return i;
+			}
+		}
+		return buf.limit();
+	}
+
+
+	/**
+	 * Returns whether a character is a name character, for the purposes of
+	 * finding the end of an element name.
+	 */
+	private static boolean isNameEnd(byte b) {
+		return b=='>' || b=='/' || b==' ' || b=='\t' || b=='\n' || b=='\r';
+	}
+
+
+	@Override
+	protected String loadDescription(long ref) throws IOException {
+		long offset = ref>>>LENGTH_BITS;
+		int length = (int)(ref & MAX_LENGTH);
+		ByteBuffer buf = ByteBuffer.allocate(length);
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			while (buf.hasRemaining()) {
+				if (channel.read(buf, offset + buf.position())==-1) {
+					throw new EOFException(file + " has been modified");
+				}
+			}
+		}
+		buf.flip();
+		return decode(charset.decode(buf).toString());
+	}
+
+
+	/**
+	 * Scans a completion XML file for the content of its <code>desc</code>
+	 * and <code>returnValDesc</code> elements.
+	 *
+	 * @param file The XML file.
+	 * @return The source to load the descriptions from, or <code>null</code>
+	 *         if the file's encoding is not supported.
+	 * @throws IOException If an IO error occurs.
+	 */
+	static XMLDescriptionSource scan(File file) throws IOException {
+
+		ByteBuffer buf;
+		try (FileChannel channel = FileChannel.open(file.toPath(),
+				StandardOpenOption.READ)) {
+			buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+
+		int len = buf.limit();
+		int i = 0;
+		if (len>=3 && buf.get(0)==(byte)0xef && buf.get(1)==(byte)0xbb &&
+				buf.get(2)==(byte)0xbf) {
+			i = 3;
+		}
+		if (i+1<len && (buf.get(i)==0 || buf.get(i+1)==0 ||
+				(buf.get(i) & 0xff)>=0xfe)) {
+			return null; // UTF-16 or UTF-32
+		}
+
+		Charset charset = StandardCharsets.UTF_8;
+		if (startsWith(buf, "<?xml", i)) {
+			int end = indexOf(buf, "?>", i);
+			byte[] decl = new byte[end - i];
+			for (int j=0; j<decl.length; j++) {
+				decl[j] = buf.get(i + j);
+			}
+			charset = getCharset(new String(decl, StandardCharsets.US_ASCII));
+			if (charset==null) {
+				return null;
+			}
+		}
+
+		long[] refs = new long[64];
+		int count = 0;
+		while ((i = indexOf(buf, "<", i))<len) {
+			if (startsWith(buf, "<!--", i)) {
+				i = indexOf(buf, "-->", i + 4) + 3;
+			}
+			else if (startsWith(buf, "<![CDATA[", i)) {
+				i = indexOf(buf, "]]>", i + 9) + 3;
+			}
+			else if (startsWith(buf, "<?", i)) {
+				i = indexOf(buf, "?>", i + 2) + 2;
+			}
+			else if (startsWith(buf, "<!", i)) { // DOCTYPE
+				i = skipTag(buf, i, true);
+			}
+			else {
+				int nameStart = buf.get(i + 1)=='/' ? i + 2 : i + 1;
+				int nameEnd = nameStart;
+				while (nameEnd<len && !isNameEnd(buf.get(nameEnd))) {
+					nameEnd++;
+				}
+				boolean endTag = nameStart==i + 2;
+				i = skipTag(buf, i, false);
+				int nameLen = nameEnd - nameStart;
+				if (!endTag && ((nameLen==4 &&
+						startsWith(buf, "desc", nameStart)) || (nameLen==13 &&
+						startsWith(buf, "returnValDesc", nameStart)))) {
+					int start = Math.min(i, len);
+					int end = start;
+					if (buf.get(i - 2)!='/') { // Not an empty element
+						end = skipContent(buf, start);
+						i = end;
+					}
+					long length = end - start;
+					if (length>MAX_LENGTH) {
+						return null;
+					}
+					if (count==refs.length) {
+						refs = Arrays.copyOf(refs, count*2);
+					}
+					refs[count++] = ((long)start<<LENGTH_BITS) | length;
+				}
+			}
+		}
+
+		return new XMLDescriptionSource(file, charset,
+				Arrays.copyOf(refs, count));
+
+	}
+
+
+	/**
+	 * Skips the content of an element that contains only text.
+	 *
+	 * @param buf The buffer.
+	 * @param i The start of the content.
+	 * @return The offset of the element's end tag.
+	 */
+	private static int skipContent(ByteBuffer buf, int i) {
+		int len = buf.limit();
+		while ((i = indexOf(buf, "<", i))<len) {
+			if (startsWith(buf, "<![CDATA[", i)) {
+				i = indexOf(buf, "]]>", i + 9) + 3;
+			}
+			else if (startsWith(buf, "<!--", i)) {
+				i = indexOf(buf, "-->", i + 4) + 3;
+			}
+			else if (startsWith(buf, "<?", i)) {
+				i = indexOf(buf, "?>", i + 2) + 2;
+			}
+			else {
+				return i;
+			}
+		}
+		return len;
+	}
+
+
+	/**
+	 * Skips a tag, taking quoted attribute values and, for a document type
+	 * declaration, its internal subset into account.
+	 *
+	 * @param buf The buffer.
+	 * @param i The offset of the tag's <code>&lt;</code>.
+	 * @param doctype Whether this is a document type declaration.
+	 * @return The offset just past the tag's <code>&gt;</code>.
+	 */
+	private static int skipTag(ByteBuffer buf, int i, boolean doctype) {
+		int len = buf.limit();
+		byte quote = 0;
+		int depth = 0;
+		for (i++; i<len; i++) {
+			byte b = buf.get(i);
+			if (quote!=0) {
+				if (b==quote) {
+					quote = 0;
+				}
+			}
+			else if (b=='"' || b=='\'') {
+				quote = b;
+			}
+			else if (doctype && b=='[') {
+				depth++;
+			}
+			else if (doctype && b==']') {
+				depth--;
+			}
+			else if (b=='>' && depth<=0) {
+				return i + 1;
+			}
+		}
+		return len;
+	}
+
+
+	/**
+	 * Returns whether some ASCII text occurs at an offset in a buffer.
+	 */
+	private static boolean startsWith(ByteBuffer buf, String text, int i) {
+		if (i<0 || i+text.length()>buf.limit()) {
+			return false;
+		}
+		for (int j=0; j<text.length(); j++) {
+			if (buf.get(i + j)!=text.charAt(j)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	/**
+	 * Returns the references to the descriptions found by the scan, in
+	 * document order, and forgets them.  Empty elements have zero-length
+	 * references.
+	 *
+	 * @return The references.
+	 */
+	long[] takeScannedRefs() {
+		long[] result = refs;
+		refs = null;
+		return result;
+	}
+
+
+}
@@ -0,0 +1,291 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class AbstractCompletionProviderTest {
+
+
+	private static void assertSorted(List<Completion> completions) {
+		List<Completion> sorted = new ArrayList<>(completions);
+		Collections.sort(sorted);
+		Assert.assertEquals(sorted, completions);
+	}
+
+
+	@Test
+	public void addCompletion_keepsListSorted() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		for (String word : new String[] { "m", "b", "z", "a", "B", "n" }) {
+			provider.addCompletion(new BasicCompletion(provider, word));
+		}
+
+		assertSorted(provider.completions);
+		Assert.assertEquals("b", provider.completions.get(1).getInputText());
+		Assert.assertEquals("B", provider.completions.get(2).getInputText());
+
+	}
+
+
+	@Test
+	public void beginBatch_mergesOnCommit() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(
+			new String[] { "c", "e", "g" });
+
+		AbstractCompletionProvider.Batch batch = provider.beginBatch();
+		batch.addAll(Arrays.asList(new BasicCompletion(provider, "h"),
+			new BasicCompletion(provider, "a")));
+		batch.add(new BasicCompletion(provider, "d"));
+		Assert.assertEquals(3, batch.getPendingCount());
+		Assert.assertEquals(3, provider.completions.size());
+
+		batch.close();
+		Assert.assertEquals(6, provider.completions.size());
+		assertSorted(provider.completions);
+		Assert.assertEquals(0, batch.getPendingCount());
+
+	}
+
+
+	@Test(expected = IllegalStateException.class)
+	public void beginBatch_addAfterCommit() {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		AbstractCompletionProvider.Batch batch = provider.beginBatch();
+		batch.commit();
+		batch.add(new BasicCompletion(provider, "a"));
+	}
+
+
+	@Test(expected = IllegalArgumentException.class)
+	public void beginBatch_wrongProvider() {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.beginBatch().add(new BasicCompletion(new DefaultCompletionProvider(), "a"));
+	}
+
+
+	@Test
+	public void getCompletionIndex_concurrentReadsDuringWrites() throws Exception {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.setCompletionIndex(new TrieCompletionIndex());
+		int count = 2000;
+		AtomicReference<Throwable> error = new AtomicReference<>();
+		AtomicBoolean done = new AtomicBoolean();
+		long version = provider.getCompletionsVersion();
+
+		Thread[] readers = new Thread[4];
+		for (int i=0; i<readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				try {
+					while (!done.get()) {
+						List<Completion> result = new ArrayList<>();
+						provider.getCompletionIndex().getCompletionsWithPrefix("w", result);
+						assertSorted(result);
+					}
+				} catch (Throwable t) {
+					error.set(t);
+				}
+			});
+			readers[i].start();
+		}
+
+		for (int i=0; i<count; i++) {
+			provider.addCompletion(new BasicCompletion(provider, "w" + (i*7919 % count)));
+		}
+		done.set(true);
+		for (Thread reader : readers) {
+			reader.join();
+		}
+
+		Assert.assertNull(error.get());
+		Assert.assertEquals(count, provider.getCompletionIndex().size());
+		Assert.assertEquals(version + count, provider.getCompletionsVersion());
+
+	}
+
+
+	@Test
+	public void getCompletionIndex_noticesDirectChangesOfSameSize() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(
+			new String[] { "a", "b", "c" });
+		Assert.assertEquals(1, provider.getCompletionByInputText("b").size());
+		long version = provider.getCompletionsVersion();
+
+		// As a subclass might do
+		provider.completions.remove(1);
+		provider.completions.add(1, new BasicCompletion(provider, "bb"));
+
+		Assert.assertNull(provider.getCompletionByInputText("b"));
+		Assert.assertEquals(1, provider.getCompletionByInputText("bb").size());
+		Assert.assertEquals(version + 1, provider.getCompletionsVersion());
+
+		provider.completions.set(1, new BasicCompletion(provider, "bc"));
+		Assert.assertEquals(1, provider.getCompletionByInputText("bc").size());
+
+	}
+
+
+	@Test
+	public void getCompletionIndex_snapshotsReflectEachChange() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Random random = new Random(1);
+		String[] prefixes = { "", "a", "ab", "B", "ba", "c" };
+		CompletionIndex first = null;
+		List<Completion> firstExpected = null;
+
+		for (int i=0; i<3000; i++) {
+
+			// Mostly additions, with completions comparing equal to others
+			if (random.nextInt(3)>0 || provider.completions.isEmpty()) {
+				String word = Integer.toString(random.nextInt(200), 3).
+						replace('0', 'a').replace('1', 'b').replace('2', 'c');
+				if (random.nextBoolean()) {
+					word = word.toUpperCase();
+				}
+				provider.addCompletion(new BasicCompletion(provider, word));
+			}
+			else {
+				provider.removeCompletion(provider.completions.get(
+						random.nextInt(provider.completions.size())));
+			}
+
+			CompletionIndex index = provider.getCompletionIndex();
+			String prefix = prefixes[random.nextInt(prefixes.length)];
+			List<Completion> expected = new ArrayList<>();
+			for (Completion c : provider.completions) {
+				if (c.getInputText().toLowerCase().startsWith(prefix.toLowerCase())) {
+					expected.add(c);
+				}
+			}
+			List<Completion> result = new ArrayList<>();
+			index.getCompletionsWithPrefix(prefix, result);
+			assertSameCompletions(expected, result);
+			Assert.assertEquals(provider.completions.size(), index.size());
+
+			if (!expected.isEmpty()) {
+				String text = expected.get(0).getInputText();
+				List<Completion> byText = new ArrayList<>();
+				for (Completion c : expected) {
+					if (c.getInputText().equalsIgnoreCase(text)) {
+						byText.add(c);
+					}
+				}
+				assertSameCompletions(byText,
+						index.getCompletionsByInputText(text));
+			}
+
+			if (i==100) {
+				first = index;
+				firstExpected = new ArrayList<>(provider.completions);
+			}
+
+		}
+
+		// Snapshots don't change once taken
+		List<Completion> result = new ArrayList<>();
+		first.getCompletionsWithPrefix("", result);
+		assertSameCompletions(firstExpected, result);
+		Assert.assertEquals(firstExpected.size(), first.size());
+
+	}
+
+
+	private static void assertSameCompletions(List<Completion> expected,
+			List<Completion> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			Assert.assertSame(expected.get(i), actual.get(i));
+		}
+	}
+
+
+	@Test
+	public void getCompletions_mergesFuzzyChildWithPrefixParent() {
+
+		DefaultCompletionProvider parent = new DefaultCompletionProvider(
+			new String[] { "gc", "gcd", "gCode", "getCount", "other" });
+
+		// Sorted by label, so not by input text
+		DefaultCompletionProvider child = new DefaultCompletionProvider();
+		String[] words = { "getComponent", "gCode", "glyphCache", "gc",
+				"getCount", "GC" };
+		for (int i=0; i<words.length; i++) {
+			String label = "label" + i;
+			child.addCompletion(new BasicCompletion(child, words[i]) {
+				@Override
+				public String toString() {
+					return label;
+				}
+			});
+		}
+		child.setFuzzyMatchingEnabled(true);
+		child.setParent(parent);
+		child.setRemoveDuplicateCompletions(true);
+
+		JTextArea textArea = new JTextArea("gc");
+		textArea.setCaretPosition(2);
+		List<Completion> completions = child.getCompletions(textArea);
+
+		List<String> expected = Arrays.asList("GC", "gc", "gcd", "gCode",
+				"getComponent", "getCount", "glyphCache");
+		List<String> actual = new ArrayList<>();
+		for (Completion c : completions) {
+			actual.add(c.getInputText());
+			if (!c.getInputText().equals("gcd")) {
+				Assert.assertSame(child, c.getProvider());
+			}
+		}
+		actual.sort(String.CASE_INSENSITIVE_ORDER.thenComparing(s -> s));
+		Assert.assertEquals(expected, actual);
+
+	}
+
+
+	@Test
+	public void getCompletions_mergesParentChain() {
+
+		DefaultCompletionProvider grandparent = new DefaultCompletionProvider(
+			new String[] { "foo", "fob", "bar" });
+		DefaultCompletionProvider parent = new DefaultCompletionProvider(
+			new String[] { "foo", "food" });
+		parent.setParent(grandparent);
+		DefaultCompletionProvider child = new DefaultCompletionProvider(
+			new String[] { "Foo", "foo", "fox" });
+		child.setParent(parent);
+
+		JTextArea textArea = new JTextArea("fo");
+		textArea.setCaretPosition(2);
+
+		Assert.assertEquals(7, child.getCompletions(textArea).size());
+
+		child.setRemoveDuplicateCompletions(true);
+		List<Completion> completions = child.getCompletions(textArea);
+		Assert.assertEquals(5, completions.size());
+		for (Completion c : completions) {
+			if (c.getInputText().equalsIgnoreCase("foo")) {
+				Assert.assertSame(child, c.getProvider());
+			}
+		}
+
+	}
+
+
+}
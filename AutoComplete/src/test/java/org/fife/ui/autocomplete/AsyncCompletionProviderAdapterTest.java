@@ -0,0 +1,140 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.swing.JTextArea;
+import javax.swing.text.JTextComponent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class AsyncCompletionProviderAdapterTest {
+
+
+	private static DefaultCompletionProvider createProvider(String... words) {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		for (String word : words) {
+			provider.addCompletion(new BasicCompletion(provider, word));
+		}
+		return provider;
+	}
+
+
+	/**
+	 * Returns the input text of all completions in a paged list, including
+	 * those not yet loaded, sorted.
+	 */
+	private static List<String> toSortedStrings(List<Completion> completions) {
+		List<String> strings = toStrings(
+				((PagedCompletionList)completions).getAllCompletions());
+		strings.sort(null);
+		return strings;
+	}
+
+
+	private static List<String> toStrings(List<Completion> completions) {
+		List<String> strings = new ArrayList<>();
+		for (Completion c : completions) {
+			strings.add(c.getInputText());
+		}
+		return strings;
+	}
+
+
+	@Test
+	public void getCompletionsAsync_looksUpCompletionsOnExecutor() {
+
+		DefaultCompletionProvider parent = createProvider("abacus", "abc",
+				"xyz");
+		DefaultCompletionProvider provider = createProvider("abc", "abd",
+				"abstract", "other");
+		provider.setParent(parent);
+		provider.setRemoveDuplicateCompletions(true);
+		provider.setCompletionLimit(2);
+		AsyncCompletionProviderAdapter adapter =
+				new AsyncCompletionProviderAdapter(provider);
+
+		JTextArea textArea = new JTextArea("ab");
+		textArea.setCaretPosition(2);
+		List<Completion> expected = provider.getCompletions(textArea);
+
+		List<Runnable> tasks = new ArrayList<>();
+		CompletableFuture<List<Completion>> future = adapter.getCompletionsAsync(
+				textArea, "ab", tasks::add);
+		Assert.assertFalse(future.isDone());
+		Assert.assertEquals(1, tasks.size());
+
+		// The text was read when the request was made, so this is ignored
+		textArea.setText("x");
+		tasks.get(0).run();
+		List<Completion> completions = future.join();
+		Assert.assertTrue(completions instanceof PagedCompletionList);
+		Assert.assertEquals(2, completions.size());
+		Assert.assertEquals(toStrings(expected), toStrings(completions));
+		Assert.assertEquals(Arrays.asList("abacus", "abc", "abd", "abstract"),
+				toSortedStrings(expected));
+		Assert.assertEquals(toSortedStrings(expected),
+				toSortedStrings(completions));
+
+	}
+
+
+	@Test
+	public void getCompletionsAsync_mergesFuzzyMatches() {
+
+		DefaultCompletionProvider parent = createProvider("gc", "gcd",
+				"getCount");
+		DefaultCompletionProvider provider = createProvider("getComponent",
+				"glyphCache", "gc", "getCount");
+		provider.setFuzzyMatchingEnabled(true);
+		provider.setParent(parent);
+		provider.setRemoveDuplicateCompletions(true);
+		AsyncCompletionProviderAdapter adapter =
+				new AsyncCompletionProviderAdapter(provider);
+
+		JTextArea textArea = new JTextArea("gc");
+		textArea.setCaretPosition(2);
+		List<Completion> completions = adapter.getCompletionsAsync(textArea,
+				"gc", Runnable::run).join();
+
+		Assert.assertEquals(toStrings(provider.getCompletions(textArea)),
+				toStrings(completions));
+		List<String> sorted = toStrings(completions);
+		sorted.sort(null);
+		Assert.assertEquals(Arrays.asList("gc", "gcd", "getComponent",
+				"getCount", "glyphCache"), sorted);
+
+	}
+
+
+	@Test
+	public void getCompletionsAsync_overriddenLookupIsDoneImmediately() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider() {
+			@Override
+			protected List<Completion> getCompletionsImpl(JTextComponent comp) {
+				return new ArrayList<>(Arrays.asList(
+						new BasicCompletion(this, "fromComponent")));
+			}
+		};
+		AsyncCompletionProviderAdapter adapter =
+				new AsyncCompletionProviderAdapter(provider);
+
+		List<Runnable> tasks = new ArrayList<>();
+		CompletableFuture<List<Completion>> future = adapter.getCompletionsAsync(
+				new JTextArea(), "", tasks::add);
+		Assert.assertTrue(tasks.isEmpty());
+		Assert.assertEquals(Arrays.asList("fromComponent"),
+				toStrings(future.join()));
+
+	}
+
+
+}
@@ -0,0 +1,432 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainDocument;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class AutoCompletionTest {
+
+	private ExecutorService executor;
+	private BlockingProvider provider;
+	private JTextArea textArea;
+	private RecordingAutoCompletion ac;
+
+
+	@Before
+	public void setUp() throws Exception {
+		executor = Executors.newSingleThreadExecutor();
+		provider = new BlockingProvider();
+		provider.addCompletions(Arrays.asList(
+				new BasicCompletion(provider, "ab"),
+				new BasicCompletion(provider, "abc"),
+				new BasicCompletion(provider, "abcd"),
+				new BasicCompletion(provider, "abd")));
+		SwingUtilities.invokeAndWait(() -> {
+			textArea = new JTextArea("ab");
+			textArea.setCaretPosition(2);
+			ac = new RecordingAutoCompletion(provider);
+			ac.setAsyncCompletionEnabled(true);
+			ac.setAsyncExecutor(executor);
+			ac.install(textArea);
+		});
+	}
+
+
+	@After
+	public void tearDown() {
+		provider.release.countDown();
+		executor.shutdownNow();
+	}
+
+
+	/**
+	 * Waits for the executor to finish the work queued so far, then for the
+	 * EDT to process the events that work posted.
+	 */
+	private void awaitIdle() throws Exception {
+		executor.submit(() -> { }).get();
+		SwingUtilities.invokeAndWait(() -> { });
+		SwingUtilities.invokeAndWait(() -> { });
+	}
+
+
+	/**
+	 * Switches to a provider whose completions are streamed by the test.
+	 */
+	private StreamingProvider useStreamingProvider() throws Exception {
+		StreamingProvider streaming = new StreamingProvider();
+		SwingUtilities.invokeAndWait(() -> ac.setCompletionProvider(streaming));
+		return streaming;
+	}
+
+
+	private List<Completion> createCompletions(String... words) {
+		List<Completion> completions = new ArrayList<>();
+		for (String word : words) {
+			completions.add(new BasicCompletion(provider, word));
+		}
+		return completions;
+	}
+
+
+	private static List<String> toStrings(List<Completion> completions) {
+		List<String> strings = new ArrayList<>();
+		for (Completion c : completions) {
+			strings.add(c.getInputText());
+		}
+		return strings;
+	}
+
+
+	@Test
+	public void doCompletion_async_errorGoesToHandler() throws Exception {
+
+		List<Throwable> errors = new ArrayList<>();
+		provider.error = new IllegalStateException("Provider failed");
+		SwingUtilities.invokeAndWait(() -> {
+			ac.setAsyncErrorHandler(e -> {
+				Assert.assertTrue(SwingUtilities.isEventDispatchThread());
+				errors.add(e);
+			});
+			ac.doCompletion();
+		});
+
+		provider.release.countDown();
+		awaitIdle();
+		Assert.assertEquals(1, errors.size());
+		Assert.assertSame(provider.error, errors.get(0));
+		Assert.assertTrue(ac.shown.isEmpty());
+
+	}
+
+
+	@Test
+	public void doCompletion_async_showsResultsOnEdt() throws Exception {
+
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		Assert.assertTrue(ac.shown.isEmpty()); // Still computing
+
+		provider.release.countDown();
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+		Assert.assertEquals(Arrays.asList("ab", "abc", "abcd", "abd"),
+				toStrings(ac.shown.get(0)));
+		Assert.assertTrue(ac.shownOnEdt);
+
+	}
+
+
+	@Test
+	public void doCompletion_async_supersededRequestIsCancelledAndDropped()
+			throws Exception {
+
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		SwingUtilities.invokeAndWait(() -> {
+			textArea.append("c");
+			textArea.setCaretPosition(3);
+			ac.doCompletion();
+		});
+		Assert.assertEquals(2, provider.futures.size());
+		Assert.assertTrue(provider.futures.get(0).isCancelled());
+		Assert.assertFalse(provider.futures.get(1).isCancelled());
+
+		provider.release.countDown();
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+		Assert.assertEquals(Arrays.asList("abc", "abcd"),
+				toStrings(ac.shown.get(0)));
+
+	}
+
+
+	@Test
+	public void doCompletion_async_resultsDroppedIfCaretMoved()
+			throws Exception {
+
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		SwingUtilities.invokeAndWait(() -> textArea.setCaretPosition(1));
+
+		provider.release.countDown();
+		awaitIdle();
+		Assert.assertTrue(ac.shown.isEmpty());
+
+	}
+
+
+	@Test
+	public void doCompletion_async_resultsDroppedIfTextChanged()
+			throws Exception {
+
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		SwingUtilities.invokeAndWait(() -> {
+			// Same caret position, but different text before it
+			textArea.replaceRange("x", 0, 1);
+			textArea.setCaretPosition(2);
+		});
+
+		provider.release.countDown();
+		awaitIdle();
+		Assert.assertTrue(ac.shown.isEmpty());
+
+	}
+
+
+	@Test
+	public void doCompletion_async_resultsDroppedIfDocumentChanged()
+			throws Exception {
+
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		SwingUtilities.invokeAndWait(() -> {
+			textArea.setDocument(new PlainDocument());
+			textArea.setText("ab");
+			textArea.setCaretPosition(2);
+		});
+
+		provider.release.countDown();
+		awaitIdle();
+		Assert.assertTrue(ac.shown.isEmpty());
+
+	}
+
+
+	@Test
+	public void streamCompletions_chunksAppendedToShownCompletions()
+			throws Exception {
+
+		StreamingProvider streaming = useStreamingProvider();
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		streaming.sink.addCompletions(createCompletions("ab", "abc"));
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+
+		streaming.sink.addCompletions(createCompletions("abd"));
+		streaming.sink.addCompletions(createCompletions("abe", "abf"));
+		streaming.future.complete(null);
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+		Assert.assertEquals(Arrays.asList("ab", "abc"),
+				toStrings(ac.shown.get(0)));
+		Assert.assertEquals(2, ac.appended.size());
+		Assert.assertEquals(Arrays.asList("abd"), toStrings(ac.appended.get(0)));
+		Assert.assertEquals(Arrays.asList("abe", "abf"),
+				toStrings(ac.appended.get(1)));
+
+	}
+
+
+	@Test
+	public void streamCompletions_chunksDroppedOncePopupHidden()
+			throws Exception {
+
+		StreamingProvider streaming = useStreamingProvider();
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		streaming.sink.addCompletions(createCompletions("ab", "abc"));
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+
+		SwingUtilities.invokeAndWait(ac::hidePopupWindow);
+		Assert.assertTrue(streaming.future.isCancelled());
+		streaming.sink.addCompletions(createCompletions("abd"));
+		awaitIdle();
+		Assert.assertTrue(ac.appended.isEmpty());
+
+	}
+
+
+	@Test
+	public void streamCompletions_chunksFromSupersededRequestDropped()
+			throws Exception {
+
+		StreamingProvider streaming = useStreamingProvider();
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		CompletionSink oldSink = streaming.sink;
+		oldSink.addCompletions(createCompletions("ab", "abc", "abd"));
+		awaitIdle();
+
+		// Typing narrows the completions with a new request
+		SwingUtilities.invokeAndWait(() -> {
+			textArea.append("c");
+			textArea.setCaretPosition(3);
+			ac.doCompletion();
+		});
+		oldSink.addCompletions(createCompletions("abe"));
+		streaming.sink.addCompletions(createCompletions("abc", "abcd"));
+		oldSink.addCompletions(createCompletions("abf"));
+		awaitIdle();
+
+		Assert.assertEquals(2, ac.shown.size());
+		Assert.assertEquals(Arrays.asList("abc", "abcd"),
+				toStrings(ac.shown.get(1)));
+		Assert.assertTrue(ac.appended.isEmpty());
+
+	}
+
+
+	@Test
+	public void streamCompletions_singleFirstCompletionHeldBack()
+			throws Exception {
+
+		StreamingProvider streaming = useStreamingProvider();
+		Assert.assertTrue(ac.getAutoCompleteSingleChoices());
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+
+		// It may turn out to be the only one, so it may be inserted
+		streaming.sink.addCompletions(createCompletions("ab"));
+		awaitIdle();
+		Assert.assertTrue(ac.shown.isEmpty());
+
+		streaming.sink.addCompletions(createCompletions("abc"));
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+		Assert.assertEquals(Arrays.asList("ab", "abc"),
+				toStrings(ac.shown.get(0)));
+
+	}
+
+
+	@Test
+	public void streamCompletions_singleCompletionShownWhenFinished()
+			throws Exception {
+
+		StreamingProvider streaming = useStreamingProvider();
+		SwingUtilities.invokeAndWait(ac::doCompletion);
+		streaming.sink.addCompletions(createCompletions("ab"));
+		awaitIdle();
+		Assert.assertTrue(ac.shown.isEmpty());
+
+		streaming.future.complete(null);
+		awaitIdle();
+		Assert.assertEquals(1, ac.shown.size());
+		Assert.assertEquals(Arrays.asList("ab"), toStrings(ac.shown.get(0)));
+
+	}
+
+
+	/**
+	 * A provider whose asynchronous lookups block until released.
+	 */
+	private static class BlockingProvider extends DefaultCompletionProvider
+			implements AsyncCompletionProvider {
+
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final List<CompletableFuture<List<Completion>>> futures =
+				new ArrayList<>();
+		private volatile RuntimeException error;
+
+		@Override
+		public CompletableFuture<List<Completion>> getCompletionsAsync(
+				JTextComponent comp, String text, Executor executor) {
+			CompletableFuture<List<Completion>> future =
+					CompletableFuture.supplyAsync(() -> {
+				try {
+					release.await();
+				} catch (InterruptedException ie) {
+					throw new CompletionException(ie);
+				}
+				if (error!=null) {
+					throw error;
+				}
+				List<Completion> result = new ArrayList<>();
+				getCompletionsMatching(text, result);
+				return result;
+			}, executor);
+			futures.add(future);
+			return future;
+		}
+
+	}
+
+
+	/**
+	 * Records the completions it is asked to show and append, rather than
+	 * displaying them.
+	 */
+	private static class RecordingAutoCompletion extends AutoCompletion {
+
+		private final List<List<Completion>> shown = new ArrayList<>();
+		private final List<List<Completion>> appended = new ArrayList<>();
+		private boolean shownOnEdt = true;
+		private boolean popupVisible;
+
+		RecordingAutoCompletion(CompletionProvider provider) {
+			super(provider);
+		}
+
+		@Override
+		void appendCompletions(List<Completion> completions) {
+			if (popupVisible) {
+				appended.add(completions);
+			}
+		}
+
+		@Override
+		protected boolean hidePopupWindow() {
+			popupVisible = false;
+			return super.hidePopupWindow();
+		}
+
+		@Override
+		public boolean isPopupVisible() {
+			return popupVisible;
+		}
+
+		@Override
+		int showCompletions(List<Completion> completions, int textLen,
+				CompletionQuerySession session) {
+			shownOnEdt &= SwingUtilities.isEventDispatchThread();
+			shown.add(completions);
+			popupVisible = completions.size()>1;
+			return 0;
+		}
+
+	}
+
+
+	/**
+	 * A provider whose completions are passed to the sink by the test.
+	 */
+	private static class StreamingProvider extends DefaultCompletionProvider
+			implements AsyncCompletionProvider {
+
+		private volatile CompletionSink sink;
+		private volatile CompletableFuture<Void> future;
+
+		@Override
+		public CompletableFuture<List<Completion>> getCompletionsAsync(
+				JTextComponent comp, String text, Executor executor) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletableFuture<Void> streamCompletionsAsync(
+				JTextComponent comp, String text, Executor executor,
+				CompletionSink sink) {
+			this.sink = sink;
+			future = new CompletableFuture<>();
+			return future;
+		}
+
+	}
+
+
+}
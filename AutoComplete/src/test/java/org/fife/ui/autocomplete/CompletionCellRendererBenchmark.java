@@ -0,0 +1,144 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+
+
+/**
+ * Measures how long it takes to render and paint rows of the completion
+ * list with the HTML-based {@code CompletionCellRenderer} and with
+ * {@code StyledCompletionCellRenderer}.  This isn't run as part of the test
+ * suite; run it by hand (it works headless):
+ *
+ * <pre>
+ * java org.fife.ui.autocomplete.CompletionCellRendererBenchmark [rows] [passes]
+ * </pre>
+ *
+ * "First paint" renders each row once with a new renderer.  "Repaint"
+ * renders the rows visible in a typical completion popup over and over, as
+ * when scrolling or resizing.
+ */
+public final class CompletionCellRendererBenchmark {
+
+	private static final int WIDTH = 400;
+
+	private static final int VISIBLE_ROWS = 20;
+
+
+	private CompletionCellRendererBenchmark() {
+	}
+
+
+	private static String createWord(Random random) {
+		StringBuilder sb = new StringBuilder();
+		int len = 3 + random.nextInt(10);
+		for (int i = 0; i < len; i++) {
+			sb.append((char)('a' + random.nextInt(26)));
+		}
+		return sb.toString();
+	}
+
+
+	private static JList<Completion> createList(int count) {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.setParameterizedCompletionParams('(', ", ", ')');
+		Random random = new Random(42);
+		DefaultListModel<Completion> model = new DefaultListModel<>();
+
+		for (int i = 0; i < count; i++) {
+			switch (i % 3) {
+				case 0:
+					FunctionCompletion fc = new FunctionCompletion(provider,
+							createWord(random), "int");
+					List<ParameterizedCompletion.Parameter> params = new ArrayList<>();
+					for (int j = random.nextInt(4); j > 0; j--) {
+						params.add(new ParameterizedCompletion.Parameter(
+								"const char *", createWord(random)));
+					}
+					fc.setParams(params);
+					model.addElement(fc);
+					break;
+				case 1:
+					model.addElement(new VariableCompletion(provider,
+							createWord(random), "long"));
+					break;
+				default:
+					model.addElement(new BasicCompletion(provider,
+							createWord(random), createWord(random)));
+					break;
+			}
+		}
+
+		return new JList<>(model);
+
+	}
+
+
+	/**
+	 * Renders and paints the first rows of a list, as the list does when it
+	 * is displayed or scrolled.
+	 */
+	private static void paintRows(CompletionCellRenderer renderer,
+			JList<Completion> list, int count, Graphics g) {
+		for (int i = 0; i < count; i++) {
+			Completion c = list.getModel().getElementAt(i);
+			Component comp = renderer.getListCellRendererComponent(list, c, i,
+					i == 0, false);
+			comp.setSize(WIDTH, comp.getPreferredSize().height);
+			comp.paint(g);
+		}
+	}
+
+
+	private static void time(String label, int count, int passes,
+			CompletionCellRenderer renderer, JList<Completion> list) {
+		BufferedImage image = new BufferedImage(WIDTH, 32, BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+		g.setFont(list.getFont());
+		long start = System.nanoTime();
+		for (int pass = 0; pass < passes; pass++) {
+			paintRows(renderer, list, count, g);
+		}
+		long nanos = System.nanoTime() - start;
+		g.dispose();
+		System.out.printf("%-50s %8d rows %10.2f us/row%n", label, count,
+				nanos / 1000.0 / count / passes);
+	}
+
+
+	private static void timeRenderer(String label, int count, int passes,
+			CompletionCellRenderer renderer, JList<Completion> list) {
+		time(label + ", first paint", count, 1, renderer, list);
+		time(label + ", repaint", VISIBLE_ROWS, passes, renderer, list);
+	}
+
+
+	public static void main(String[] args) {
+
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int passes = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		JList<Completion> list = createList(count);
+
+		for (int run = 0; run < 2; run++) { // First run is warm-up
+			System.out.println(run == 0 ? "Warm-up:" : "Results:");
+			timeRenderer("CompletionCellRenderer (HTML)", count, passes,
+					new CompletionCellRenderer(), list);
+			timeRenderer("StyledCompletionCellRenderer", count, passes,
+					new StyledCompletionCellRenderer(), list);
+		}
+
+	}
+
+
+}
@@ -0,0 +1,68 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.plaf.basic.BasicHTML;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionCellRendererTest {
+
+
+	@Test
+	public void getCellSize_cachesSizePerCompletionInstance() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Completion shortType = new FunctionCompletion(provider, "f", "int");
+		Completion longType = new FunctionCompletion(provider, "f",
+				"SomeVeryLongReturnTypeName");
+		Assert.assertEquals(shortType, longType);
+		JList<Completion> list = new JList<>();
+		CompletionCellRenderer renderer = new CompletionCellRenderer();
+
+		Dimension size = renderer.getCellSize(list, shortType, 0);
+		Assert.assertSame(size, renderer.getCellSize(list, shortType, 0));
+		Assert.assertTrue(renderer.getCellSize(list, longType, 1).width>
+				size.width);
+
+	}
+
+
+	@Test
+	public void getListCellRendererComponent_reusesCachedText() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Completion a = new VariableCompletion(provider, "a", "int");
+		Completion b = new VariableCompletion(provider, "b", "long");
+		JList<Completion> list = new JList<>();
+		CompletionCellRenderer renderer = new CompletionCellRenderer();
+
+		JLabel label = (JLabel)renderer.getListCellRendererComponent(list, a,
+				0, false, false);
+		String text = label.getText();
+		Object view = label.getClientProperty(BasicHTML.propertyKey);
+		Assert.assertNotNull(view);
+
+		renderer.getListCellRendererComponent(list, b, 1, false, false);
+		Assert.assertNotSame(view, label.getClientProperty(BasicHTML.propertyKey));
+		renderer.getListCellRendererComponent(list, a, 0, false, false);
+		Assert.assertSame(text, label.getText());
+		Assert.assertSame(view, label.getClientProperty(BasicHTML.propertyKey));
+
+		renderer.setTypeColor(Color.RED);
+		renderer.getListCellRendererComponent(list, a, 0, false, false);
+		Assert.assertEquals("<html><nobr>a : <font color='#ff0000'>int</font>",
+				label.getText());
+
+	}
+
+
+}
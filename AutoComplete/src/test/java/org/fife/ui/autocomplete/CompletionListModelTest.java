@@ -0,0 +1,235 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JList;
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionListModelTest {
+
+
+	private static List<Completion> createCompletions(int count) {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = new ArrayList<>(count);
+		for (int i=0; i<count; i++) {
+			completions.add(new BasicCompletion(provider, "word" + i));
+		}
+		return completions;
+	}
+
+
+	private static List<String> listenForEvents(CompletionListModel model) {
+		List<String> events = new ArrayList<>();
+		model.addListDataListener(new ListDataListener() {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				events.add("added " + e.getIndex0() + "-" + e.getIndex1());
+			}
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+			}
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+				events.add("changed " + e.getIndex0() + "-" + e.getIndex1());
+			}
+		});
+		return events;
+	}
+
+
+	@Test
+	public void addAll_chunksAppendedKeepSelection() {
+
+		CompletionListModel model = new CompletionListModel();
+		JList<Completion> list = new JList<>(model);
+		List<Completion> completions = createCompletions(40);
+		PagedCompletionList paged = (PagedCompletionList)PagedCompletionList.
+				create(new ArrayList<>(completions.subList(0, 30)),
+						new SortByRelevanceComparator(), 10);
+		model.setContents(paged, -1);
+		list.setSelectedIndex(3);
+		Completion selected = list.getSelectedValue();
+		List<String> events = listenForEvents(model);
+
+		// The popup loads the rest of a paged list before appending chunks
+		paged.loadMore(paged.getRemainingCount());
+		model.contentsAppended();
+		model.addAll(completions.subList(30, 35));
+		model.addAll(completions.subList(35, 40));
+
+		Assert.assertEquals("[added 10-29, added 30-34, added 35-39]",
+				events.toString());
+		Assert.assertEquals(40, model.getSize());
+		Assert.assertSame(completions.get(39), model.getElementAt(39));
+		Assert.assertEquals(30, paged.size()); // Copied before appending
+		Assert.assertSame(selected, list.getSelectedValue());
+		Assert.assertEquals(3, list.getSelectedIndex());
+
+	}
+
+
+	@Test
+	public void setContents_copiesListsOtherThanPagedLists() {
+
+		CompletionListModel model = new CompletionListModel();
+		List<String> events = listenForEvents(model);
+
+		// E.g. a provider's cached list, modified by a later lookup
+		List<Completion> completions = createCompletions(5);
+		List<Completion> expected = new ArrayList<>(completions);
+		model.setContents(completions, -1);
+		completions.remove(0);
+		completions.set(0, createCompletions(1).get(0));
+		completions.addAll(createCompletions(3));
+		for (int i=0; i<expected.size(); i++) {
+			Assert.assertSame(expected.get(i), model.getElementAt(i));
+		}
+		Assert.assertEquals(5, model.getSize());
+
+		// Paged lists are viewed, but loaded completions aren't shown until
+		// the model is told about them
+		List<Completion> all = createCompletions(30);
+		PagedCompletionList paged = (PagedCompletionList)PagedCompletionList.
+				create(new ArrayList<>(all), new SortByRelevanceComparator(), 10);
+		model.setContents(paged, -1);
+		paged.loadMore(10);
+		Assert.assertEquals(10, model.getSize());
+		model.contentsAppended();
+		Assert.assertEquals(20, model.getSize());
+		Assert.assertSame(paged.get(19), model.getElementAt(19));
+
+		Assert.assertEquals("[added 0-4, changed 0-4, added 5-9, added 10-19]",
+				events.toString());
+
+	}
+
+
+	@Test
+	public void setContents_eventsSeeModelAsReported() {
+
+		CompletionListModel model = new CompletionListModel();
+		List<Completion> completions = createCompletions(10);
+		model.setContents(completions, -1);
+
+		// Each removal is checked against the list as listeners expect it
+		List<Completion> expected = new ArrayList<>(completions);
+		List<String> events = new ArrayList<>();
+		model.addListDataListener(new ListDataListener() {
+			@Override
+			public void intervalAdded(ListDataEvent e) {
+				Assert.fail("Unexpected event: " + e);
+			}
+			@Override
+			public void intervalRemoved(ListDataEvent e) {
+				expected.subList(e.getIndex0(), e.getIndex1()+1).clear();
+				events.add("removed " + e.getIndex0() + "-" + e.getIndex1());
+				Assert.assertEquals(expected.size(), model.getSize());
+				for (int i=0; i<expected.size(); i++) {
+					Assert.assertSame(expected.get(i), model.getElementAt(i));
+				}
+			}
+			@Override
+			public void contentsChanged(ListDataEvent e) {
+				Assert.fail("Unexpected event: " + e);
+			}
+		});
+
+		List<Completion> narrowed = new ArrayList<>(completions);
+		narrowed.remove(8);
+		narrowed.subList(3, 6).clear();
+		narrowed.remove(1);
+		model.setContents(narrowed, -1);
+
+		Assert.assertEquals("[removed 8-8, removed 3-5, removed 1-1]",
+				events.toString());
+		Assert.assertEquals(narrowed, expected);
+
+	}
+
+
+	@Test
+	public void setContents_findsSelectedCompletion() {
+
+		CompletionListModel model = new CompletionListModel();
+		List<Completion> completions = createCompletions(10);
+		model.setContents(completions, -1);
+
+		Assert.assertEquals(4, model.setContents(completions, 4));
+		List<Completion> narrowed = new ArrayList<>(completions.subList(2, 8));
+		Assert.assertEquals(2, model.setContents(narrowed, 4));
+		Assert.assertEquals(-1, model.setContents(narrowed.subList(3, 6), 0));
+
+		// Same size, different completions
+		List<Completion> reversed = new ArrayList<>(completions);
+		Collections.reverse(reversed);
+		model.setContents(completions, -1);
+		Assert.assertEquals(1, model.setContents(reversed, 8));
+		Assert.assertEquals(0, model.setContents(completions, 9));
+		Assert.assertEquals(-1, model.setContents(createCompletions(10), 9));
+
+	}
+
+
+	@Test
+	public void setContents_narrowingReportsOnlyRemovedRanges() {
+
+		CompletionListModel model = new CompletionListModel();
+		List<Completion> completions = createCompletions(10);
+		model.setContents(completions, -1);
+		List<String> events = listenForEvents(model);
+
+		List<Completion> narrowed = new ArrayList<>(completions);
+		narrowed.remove(9);
+		narrowed.subList(3, 6).clear();
+		narrowed.remove(0);
+		Assert.assertEquals(2, model.setContents(narrowed, 6));
+		Assert.assertEquals(5, model.getSize());
+		Assert.assertSame(completions.get(6), model.getElementAt(2));
+		Assert.assertEquals(2, model.indexOf(completions.get(6)));
+		Assert.assertEquals(-1, model.indexOf(completions.get(0)));
+
+		// Not a narrowing of the previous list
+		model.setContents(completions.subList(0, 2), -1);
+		model.setContents(narrowed, -1);
+
+		Assert.assertEquals("[removed 9-9, removed 3-5, removed 0-0, " +
+				"removed 2-4, changed 0-1, changed 0-1, added 2-4]",
+				events.toString());
+
+	}
+
+
+	@Test
+	public void setContents_replacesListWithMinimalEvents() {
+
+		CompletionListModel model = new CompletionListModel();
+		List<String> events = listenForEvents(model);
+
+		List<Completion> completions = createCompletions(50000);
+		model.setContents(completions, -1);
+		Assert.assertEquals(50000, model.getSize());
+		Assert.assertSame(completions.get(49999), model.getElementAt(49999));
+
+		model.setContents(createCompletions(20), -1);
+		model.addAll(createCompletions(5));
+		Assert.assertEquals(50000, completions.size()); // Not modified
+		model.clear();
+
+		Assert.assertEquals("[added 0-49999, removed 20-49999, changed 0-19, " +
+				"added 20-24, removed 0-24]", events.toString());
+
+	}
+
+
+}
@@ -0,0 +1,100 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionLoaderTest {
+
+
+	private static File createXML(String... names) throws IOException {
+		StringBuilder sb = new StringBuilder(
+			"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n" +
+			"<!DOCTYPE api SYSTEM \"CompletionXml.dtd\">\n" +
+			"<api language=\"C\">\n" +
+			"<environment paramStartChar=\"(\" paramEndChar=\")\" paramSeparator=\", \" terminal=\";\"/>\n" +
+			"<keywords>\n");
+		for (String name : names) {
+			sb.append("<keyword name=\"").append(name).
+				append("\" type=\"function\" returnType=\"int\"/>\n");
+		}
+		sb.append("</keywords>\n</api>\n");
+		File file = File.createTempFile("completions", ".xml");
+		file.deleteOnExit();
+		Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+
+	@Test
+	public void load() throws Exception {
+
+		File xml1 = createXML("printf", "abs");
+		File xml2 = createXML("puts");
+		File xml3 = createXML("exp", "sqrt", "pow");
+		File pack = File.createTempFile("completions", ".pack");
+		pack.deleteOnExit();
+		try (OutputStream out = new FileOutputStream(pack)) {
+			CompletionPackWriter.write(Collections.singletonList(
+					new BasicCompletion(null, "malloc")), '(', ", ", ')', out);
+		}
+
+		DefaultCompletionProvider cProvider = new DefaultCompletionProvider();
+		DefaultCompletionProvider mathProvider = new DefaultCompletionProvider();
+		CompletionLoader loader = new CompletionLoader();
+		loader.setValidating(false);
+		loader.addXML(cProvider, xml1);
+		loader.addXML(mathProvider, xml3);
+		loader.addPack(cProvider, pack);
+		loader.addXML(cProvider, xml2.getPath());
+		List<CompletionLoader.LoadedSource> sources = loader.load().get();
+
+		Assert.assertEquals(4, sources.size());
+		Assert.assertEquals(xml1.getPath(), sources.get(0).getName());
+		Assert.assertEquals(2, sources.get(0).getCompletionCount());
+		Assert.assertSame(mathProvider, sources.get(1).getProvider());
+		Assert.assertEquals(1, sources.get(2).getCompletionCount());
+
+		Assert.assertEquals(4, cProvider.getCompletionIndex().size());
+		Assert.assertEquals('(', cProvider.getParameterListStart());
+		Assert.assertNotNull(cProvider.getCompletionByInputText("malloc"));
+		Assert.assertNotNull(cProvider.getCompletionByInputText("puts"));
+		Assert.assertEquals(3, mathProvider.getCompletionIndex().size());
+
+	}
+
+
+	@Test
+	public void load_failureModifiesNothing() throws Exception {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		CompletionLoader loader = new CompletionLoader();
+		loader.addXML(provider, createXML("printf"));
+		loader.addXML(provider, "no/such/file.xml");
+
+		try {
+			loader.load().get();
+			Assert.fail("Expected an exception");
+		} catch (ExecutionException ee) {
+			Assert.assertTrue(ee.getCause() instanceof IOException);
+		}
+		Assert.assertEquals(0, provider.getCompletionIndex().size());
+
+	}
+
+
+}
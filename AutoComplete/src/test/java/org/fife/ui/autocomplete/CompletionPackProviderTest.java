@@ -0,0 +1,127 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionPackProviderTest {
+
+	private static final String XML =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n" +
+		"<!DOCTYPE api SYSTEM \"CompletionXml.dtd\">\n" +
+		"<api language=\"C\">\n" +
+		"<environment paramStartChar=\"(\" paramEndChar=\")\" paramSeparator=\", \" terminal=\";\"/>\n" +
+		"<keywords>\n" +
+		"<keyword name=\"printf\" type=\"function\" returnType=\"int\" definedIn=\"stdio.h\">\n" +
+		"  <params>\n" +
+		"    <param type=\"const char *\" name=\"format\"><desc>The format.</desc></param>\n" +
+		"    <param name=\"...\"/>\n" +
+		"  </params>\n" +
+		"  <desc>Prints formatted output.</desc>\n" +
+		"  <returnValDesc>The number of characters printed.</returnValDesc>\n" +
+		"</keyword>\n" +
+		"<keyword name=\"PI\" type=\"constant\" returnType=\"double\" definedIn=\"math.h\">\n" +
+		"  <desc>Pi.</desc>\n" +
+		"</keyword>\n" +
+		"<keyword name=\"pow\" type=\"function\" returnType=\"double\" definedIn=\"math.h\">\n" +
+		"  <params><param type=\"double\" name=\"x\"/><param type=\"double\" name=\"y\"/></params>\n" +
+		"</keyword>\n" +
+		"<keyword name=\"p\" type=\"tag\">\n" +
+		"  <params><param name=\"class\"><desc>The CSS class.</desc></param></params>\n" +
+		"  <desc>A paragraph.</desc>\n" +
+		"</keyword>\n" +
+		"<keyword name=\"puts\" type=\"other\">\n" +
+		"  <desc>Writes a string.</desc>\n" +
+		"</keyword>\n" +
+		"<keyword name=\"sin\" type=\"function\" returnType=\"double\" definedIn=\"math.h\"/>\n" +
+		"</keywords>\n" +
+		"</api>\n";
+
+
+	private static CompletionPackProvider createPackProvider()
+			throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		CompletionPackWriter.convert(new ByteArrayInputStream(
+				XML.getBytes(StandardCharsets.UTF_8)), out);
+		return new CompletionPackProvider(ByteBuffer.wrap(out.toByteArray()));
+	}
+
+
+	@Test
+	public void getCompletions_sameAsXml() throws IOException {
+
+		CompletionPackProvider packProvider = createPackProvider();
+		Assert.assertEquals(6, packProvider.getPackSize());
+		Assert.assertEquals('(', packProvider.getParameterListStart());
+		Assert.assertEquals(", ", packProvider.getParameterListSeparator());
+		Assert.assertEquals(')', packProvider.getParameterListEnd());
+
+		DefaultCompletionProvider xmlProvider = new DefaultCompletionProvider();
+		xmlProvider.loadFromXML(new ByteArrayInputStream(
+				XML.getBytes(StandardCharsets.UTF_8)));
+
+		JTextArea textArea = new JTextArea("p");
+		textArea.setCaretPosition(1);
+		List<Completion> fromPack = packProvider.getCompletions(textArea);
+		List<Completion> fromXml = xmlProvider.getCompletions(textArea);
+		Assert.assertEquals(5, fromPack.size());
+		Assert.assertEquals(fromXml.size(), fromPack.size());
+		for (int i=0; i<fromXml.size(); i++) {
+			Completion expected = fromXml.get(i);
+			Completion actual = fromPack.get(i);
+			Assert.assertEquals(expected.getClass(),
+					actual.getClass().getSuperclass());
+			Assert.assertEquals(expected.getInputText(), actual.getInputText());
+			Assert.assertEquals(expected.getSummary(), actual.getSummary());
+			Assert.assertEquals(expected.toString(), actual.toString());
+		}
+
+		// Completions are created once and reused
+		Assert.assertSame(fromPack.get(0),
+				packProvider.getCompletions(textArea).get(0));
+
+	}
+
+
+	@Test
+	public void getCompletionByInputText() throws IOException {
+
+		CompletionPackProvider provider = createPackProvider();
+		Assert.assertNull(provider.getCompletionByInputText("print"));
+
+		List<Completion> completions = provider.getCompletionByInputText("PRINTF");
+		Assert.assertEquals(1, completions.size());
+		FunctionCompletion printf = (FunctionCompletion)completions.get(0);
+		Assert.assertEquals("int printf(const char * format, ...)",
+				printf.getDefinitionString());
+		Assert.assertEquals("The format.", printf.getParam(0).getDescription());
+		Assert.assertEquals("The number of characters printed.",
+				printf.getReturnValueDescription());
+
+		// Completions added directly are found too
+		provider.addCompletion(new BasicCompletion(provider, "printf"));
+		Assert.assertEquals(2, provider.getCompletionByInputText("printf").size());
+
+	}
+
+
+	@Test(expected = IOException.class)
+	public void constructor_notAPack() throws IOException {
+		new CompletionPackProvider(ByteBuffer.wrap(
+				XML.getBytes(StandardCharsets.UTF_8)));
+	}
+
+
+}
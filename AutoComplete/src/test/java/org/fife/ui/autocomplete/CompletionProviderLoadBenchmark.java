@@ -0,0 +1,112 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Measures how long it takes to populate a large {@code DefaultCompletionProvider}.
+ * This isn't run as part of the test suite; run it by hand:
+ *
+ * <pre>
+ * java org.fife.ui.autocomplete.CompletionProviderLoadBenchmark [count] [legacyCount]
+ * </pre>
+ *
+ * "Legacy" emulates the old {@code addCompletion()}, which re-sorted the
+ * entire list after each insertion.  Since that is quadratic, it is run on
+ * a smaller count by default.
+ */
+public final class CompletionProviderLoadBenchmark {
+
+	private CompletionProviderLoadBenchmark() {
+	}
+
+
+	private static List<Completion> createCompletions(CompletionProvider provider, int count) {
+		Random random = new Random(42);
+		List<Completion> completions = new ArrayList<>(count);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			sb.setLength(0);
+			int len = 3 + random.nextInt(12);
+			for (int j = 0; j < len; j++) {
+				char ch = (char)('a' + random.nextInt(26));
+				sb.append(random.nextInt(5) == 0 ? Character.toUpperCase(ch) : ch);
+			}
+			completions.add(new BasicCompletion(provider, sb.toString()));
+		}
+		return completions;
+	}
+
+
+	private static void time(String label, int count, Runnable r) {
+		long start = System.nanoTime();
+		r.run();
+		long millis = (System.nanoTime() - start) / 1_000_000;
+		System.out.printf("%-40s %8d entries %8d ms%n", label, count, millis);
+	}
+
+
+	public static void main(String[] args) {
+
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+		int legacyCount = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+
+		for (int run = 0; run < 2; run++) { // First run is warm-up
+
+			System.out.println(run == 0 ? "Warm-up:" : "Results:");
+
+			DefaultCompletionProvider legacy = new DefaultCompletionProvider();
+			List<Completion> legacyCompletions = createCompletions(legacy, legacyCount);
+			time("addCompletion(), re-sort each (legacy)", legacyCount, () -> {
+				for (Completion c : legacyCompletions) {
+					legacy.completions.add(c);
+					Collections.sort(legacy.completions);
+				}
+			});
+
+			DefaultCompletionProvider single = new DefaultCompletionProvider();
+			List<Completion> singleCompletions = createCompletions(single, legacyCount);
+			time("addCompletion(), binary insertion", legacyCount, () -> {
+				for (Completion c : singleCompletions) {
+					single.addCompletion(c);
+				}
+			});
+
+			DefaultCompletionProvider bulk = new DefaultCompletionProvider();
+			List<Completion> bulkCompletions = createCompletions(bulk, count);
+			time("addCompletions()", count, () -> bulk.addCompletions(bulkCompletions));
+
+			DefaultCompletionProvider batched = new DefaultCompletionProvider();
+			List<Completion> batchCompletions = createCompletions(batched, count);
+			time("beginBatch(), add() one at a time", count, () -> {
+				try (AbstractCompletionProvider.Batch batch = batched.beginBatch()) {
+					for (Completion c : batchCompletions) {
+						batch.add(c);
+					}
+				}
+			});
+
+			DefaultCompletionProvider trie = new DefaultCompletionProvider();
+			trie.setCompletionIndex(new TrieCompletionIndex());
+			List<Completion> trieCompletions = createCompletions(trie, count);
+			time("beginBatch() with trie index", count, () -> {
+				try (AbstractCompletionProvider.Batch batch = trie.beginBatch()) {
+					for (Completion c : trieCompletions) {
+						batch.add(c);
+					}
+				}
+			});
+
+		}
+
+	}
+
+
+}
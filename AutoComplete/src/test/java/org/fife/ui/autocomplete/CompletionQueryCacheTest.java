@@ -0,0 +1,54 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionQueryCacheTest {
+
+
+	@Test
+	public void get_answersRepeatedLookupsUntilDocumentOrCaretChanges() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(
+				new String[] { "printf", "println", "return" });
+		CompletionQueryCache cache = new CompletionQueryCache();
+		provider.setQueryCache(cache);
+		JTextArea textArea = new JTextArea("x = pri");
+		textArea.setCaretPosition(7);
+
+		Assert.assertEquals("pri", cache.getAlreadyEnteredText(provider,
+				textArea));
+		// The provider looks up the text already entered itself
+		List<Completion> completions = cache.getCompletions(provider,
+				textArea);
+		Assert.assertEquals(2, completions.size());
+		Assert.assertSame(completions, cache.getCompletions(provider,
+				textArea));
+		Assert.assertEquals(2, cache.getMissCount());
+		Assert.assertEquals(2, cache.getHitCount());
+
+		textArea.append("n");
+		textArea.setCaretPosition(8);
+		Assert.assertEquals("prin", cache.getAlreadyEnteredText(provider,
+				textArea));
+		textArea.setCaretPosition(5);
+		Assert.assertEquals("p", cache.getAlreadyEnteredText(provider,
+				textArea));
+		Assert.assertEquals(4, cache.getMissCount());
+
+		provider.addCompletion(new BasicCompletion(provider, "puts"));
+		Assert.assertNotSame(completions, cache.getCompletions(provider,
+				textArea));
+
+	}
+
+
+}
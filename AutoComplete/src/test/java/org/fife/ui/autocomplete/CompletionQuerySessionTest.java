@@ -0,0 +1,234 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.JTextArea;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+public class CompletionQuerySessionTest {
+
+	private CountingProvider provider;
+	private JTextArea textArea;
+
+
+	@Before
+	public void setUp() {
+		provider = new CountingProvider();
+		Random random = new Random(1);
+		List<Completion> completions = new ArrayList<>();
+		for (int i=0; i<200; i++) {
+			BasicCompletion c = new BasicCompletion(provider,
+					"abc".substring(0, 1 + i%3) + i);
+			c.setRelevance(random.nextInt(5));
+			completions.add(c);
+		}
+		provider.addCompletions(completions);
+		provider.setIncrementalNarrowingEnabled(true);
+		textArea = new JTextArea();
+	}
+
+
+	/**
+	 * Returns the completions the provider looks up for the current text,
+	 * without counting the lookup.
+	 */
+	private List<Completion> lookUp() {
+		int count = provider.lookups;
+		List<Completion> completions = provider.getCompletions(textArea);
+		provider.lookups = count;
+		return completions;
+	}
+
+
+	/**
+	 * Replaces the text area's content and puts the caret at the end.
+	 */
+	private List<Completion> type(CompletionQuerySession session,
+			String text) {
+		textArea.setText(text);
+		textArea.setCaretPosition(text.length());
+		return session.getCompletions(textArea,
+				provider.getAlreadyEnteredText(textArea));
+	}
+
+
+	/**
+	 * Returns all completions in a list, loading any not yet loaded.
+	 */
+	private static List<String> loadAll(List<Completion> completions) {
+		if (completions instanceof PagedCompletionList) {
+			PagedCompletionList paged = (PagedCompletionList)completions;
+			while (paged.hasMore()) {
+				paged.loadMore(paged.getPageSize());
+			}
+		}
+		return toStrings(completions);
+	}
+
+
+	/**
+	 * Returns the input text and relevance of each completion, so lists from
+	 * different lookups can be compared.
+	 */
+	private static List<String> toStrings(List<Completion> completions) {
+		List<String> strings = new ArrayList<>();
+		for (Completion c : completions) {
+			strings.add(c.getInputText() + "/" + c.getRelevance());
+		}
+		return strings;
+	}
+
+
+	@Test
+	public void createQuerySession_onlyIfEnabled() {
+		Assert.assertNotNull(provider.createQuerySession());
+		provider.setParent(new DefaultCompletionProvider());
+		Assert.assertNull(provider.createQuerySession());
+	}
+
+
+	@Test
+	public void getCompletions_extendedPrefixNarrowsCachedResult() {
+
+		CompletionQuerySession session = provider.createQuerySession();
+		type(session, "a");
+		Assert.assertEquals(1, provider.lookups);
+
+		List<Completion> ab = type(session, "ab");
+		List<Completion> abc1 = type(session, "abc1");
+		Assert.assertEquals(1, provider.lookups);
+
+		Assert.assertEquals(toStrings(lookUp()),
+				toStrings(abc1));
+		type(session, "ab");
+		Assert.assertEquals(toStrings(lookUp()),
+				toStrings(ab));
+		Assert.assertFalse(ab.isEmpty());
+
+	}
+
+
+	@Test
+	public void getCompletions_backspaceRestoresEarlierResult() {
+
+		CompletionQuerySession session = provider.createQuerySession();
+		List<Completion> a = type(session, "a");
+		List<Completion> ab = type(session, "ab");
+		type(session, "abc");
+
+		Assert.assertSame(ab, type(session, "ab"));
+		Assert.assertSame(a, type(session, "a"));
+		Assert.assertEquals(1, provider.lookups);
+
+		// A different character after backspacing is narrowed from "a"
+		List<Completion> ac = type(session, "ac");
+		Assert.assertEquals(1, provider.lookups);
+		Assert.assertTrue(ac.isEmpty());
+
+	}
+
+
+	@Test
+	public void getCompletions_documentChangeInvalidatesResults() {
+
+		CompletionQuerySession session = provider.createQuerySession();
+		type(session, "a");
+		textArea.setDocument(new PlainDocument());
+		type(session, "ab");
+		Assert.assertEquals(2, provider.lookups);
+
+	}
+
+
+	@Test
+	public void getCompletions_startOffsetMoveInvalidatesResults() {
+
+		CompletionQuerySession session = provider.createQuerySession();
+		type(session, "a");
+
+		// The same text, typed at another word
+		List<Completion> result = type(session, "x a");
+		Assert.assertEquals(2, provider.lookups);
+		type(session, "x ab");
+		Assert.assertEquals(2, provider.lookups);
+		Assert.assertEquals(toStrings(lookUp()),
+				toStrings(type(session, "x ab")));
+		Assert.assertFalse(result.isEmpty());
+
+	}
+
+
+	@Test
+	public void getCompletions_noTextClosesSession() {
+
+		CompletionQuerySession session = provider.createQuerySession();
+		type(session, "a");
+		Assert.assertEquals(1, provider.lookups);
+		session.getCompletions(textArea, null);
+		Assert.assertEquals(2, provider.lookups);
+		type(session, "ab");
+		Assert.assertEquals(3, provider.lookups);
+
+	}
+
+
+	@Test
+	public void getCompletions_narrowedPagedListPullsFromRemaining() {
+
+		provider.setCompletionLimit(5);
+		CompletionQuerySession session = provider.createQuerySession();
+
+		List<Completion> a = type(session, "a");
+		Assert.assertTrue(a instanceof PagedCompletionList);
+		Assert.assertEquals(5, a.size());
+
+		// Most of the matches for "ab" weren't among the 5 loaded for "a"
+		List<Completion> ab = type(session, "ab");
+		Assert.assertEquals(1, provider.lookups);
+		Assert.assertTrue(ab instanceof PagedCompletionList);
+		Assert.assertEquals(5, ab.size());
+		Assert.assertTrue(((PagedCompletionList)ab).hasMore());
+
+		List<String> expected = loadAll(lookUp());
+		Assert.assertEquals(133, expected.size());
+		Assert.assertEquals(expected, loadAll(ab));
+
+		// Narrowing a list that had more loaded into it
+		Assert.assertEquals(expected.subList(0, 10).toString(),
+				toStrings(ab.subList(0, 10)).toString());
+		List<Completion> abc = type(session, "abc");
+		Assert.assertEquals(1, provider.lookups);
+		Assert.assertEquals(loadAll(lookUp()),
+				loadAll(abc));
+
+	}
+
+
+	/**
+	 * Counts how many times completions are looked up, rather than narrowed.
+	 */
+	private static class CountingProvider extends DefaultCompletionProvider {
+
+		private int lookups;
+
+		@Override
+		public List<Completion> getCompletions(JTextComponent comp) {
+			lookups++;
+			return super.getCompletions(comp);
+		}
+
+	}
+
+
+}
@@ -0,0 +1,74 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.File;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionUsageTrackerTest {
+
+
+	@Test
+	public void getCompletions_usedCompletionsRankHigher() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Completion print = new BasicCompletion(provider, "print");
+		Completion printf = new BasicCompletion(provider, "printf");
+		Completion println = new BasicCompletion(provider, "println");
+		provider.addCompletion(print);
+		provider.addCompletion(printf);
+		provider.addCompletion(println);
+
+		CompletionUsageTracker tracker = new CompletionUsageTracker();
+		provider.setUsageTracker(tracker);
+		tracker.recordUsage(println);
+		tracker.recordUsage(println);
+		tracker.recordUsage(printf);
+
+		JTextArea textArea = new JTextArea("pri");
+		textArea.setCaretPosition(3);
+		List<Completion> completions = provider.getCompletions(textArea);
+		Assert.assertEquals(3, completions.size());
+		Assert.assertSame(println, completions.get(0));
+		Assert.assertSame(printf, completions.get(1));
+		Assert.assertSame(print, completions.get(2));
+
+	}
+
+
+	@Test
+	public void saveAndLoad() throws Exception {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Completion used = new BasicCompletion(provider, "used");
+		Completion unused = new BasicCompletion(provider, "unused");
+
+		CompletionUsageTracker tracker = new CompletionUsageTracker();
+		tracker.recordUsage(used);
+		tracker.recordUsage(used);
+
+		File file = File.createTempFile("usage", ".bin");
+		try {
+			tracker.save(file);
+			CompletionUsageTracker loaded = new CompletionUsageTracker();
+			loaded.load(file);
+			Assert.assertEquals(2, loaded.getUsageCount(used), 0.01);
+			Assert.assertEquals(0, loaded.getUsageCount(unused), 0);
+			Assert.assertEquals(tracker.getRelevanceBoost(used),
+					loaded.getRelevanceBoost(used));
+		}
+		finally {
+			Assert.assertTrue(file.delete());
+		}
+
+	}
+
+
+}
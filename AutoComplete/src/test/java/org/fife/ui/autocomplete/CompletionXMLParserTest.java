@@ -0,0 +1,158 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class CompletionXMLParserTest {
+
+	private static final String XML =
+		"<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n" +
+		"<!DOCTYPE api SYSTEM \"CompletionXml.dtd\">\n" +
+		"<api language=\"C\">\n" +
+		"<environment paramStartChar=\"(\" paramEndChar=\")\" paramSeparator=\", \" terminal=\";\"/>\n" +
+		"<keywords>\n" +
+		"<keyword name=\"abs\" type=\"function\" returnType=\"int\" definedIn=\"stdlib.h\">\n" +
+		"  <params><param type=\"int\" name=\"n\"><desc>A &lt;number&gt;.</desc></param></params>\n" +
+		"  <desc><![CDATA[The <b>absolute</b> value.]]></desc>\n" +
+		"  <returnValDesc>|n|</returnValDesc>\n" +
+		"</keyword>\n" +
+		"<keyword name=\"EOF\" type=\"constant\" definedIn=\"stdio.h\"><desc>End of file.</desc></keyword>\n" +
+		"<keyword name=\"html\" type=\"tag\"><desc>The root.</desc></keyword>\n" +
+		"<keyword name=\"goto\" type=\"other\"><desc>Jumps.</desc></keyword>\n" +
+		"<keyword name=\"exit\" type=\"function\" returnType=\"void\"/>\n" +
+		"</keywords>\n" +
+		"</api>\n";
+
+
+	private static InputStream xml() {
+		return new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8));
+	}
+
+
+	@Test
+	public void parse_streamingMatchesValidating() throws IOException {
+
+		CompletionXMLParser validating = new CompletionXMLParser(null);
+		validating.parse(xml(), true);
+		List<Completion> expected = validating.getCompletions();
+		Assert.assertEquals(5, expected.size());
+
+		CompletionXMLParser streaming = new CompletionXMLParser(null);
+		List<Integer> batchSizes = new ArrayList<>();
+		List<Completion> actual = new ArrayList<>();
+		streaming.setCompletionSink(chunk -> {
+			batchSizes.add(chunk.size());
+			actual.addAll(chunk);
+		}, 2);
+		streaming.parse(xml(), false);
+
+		Assert.assertTrue(streaming.getCompletions().isEmpty());
+		Assert.assertEquals("[2, 2, 1]", batchSizes.toString());
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i=0; i<expected.size(); i++) {
+			Assert.assertEquals(expected.get(i).getClass(),
+					actual.get(i).getClass());
+			Assert.assertEquals(expected.get(i).toString(),
+					actual.get(i).toString());
+		}
+		FunctionCompletion abs = (FunctionCompletion)actual.get(0);
+		Assert.assertEquals("The <b>absolute</b> value.",
+				abs.getShortDescription());
+		Assert.assertEquals("A <number>.", abs.getParam(0).getDescription());
+		Assert.assertEquals("|n|", abs.getReturnValueDescription());
+		Assert.assertEquals(", ", streaming.getParamSeparator());
+
+	}
+
+
+	@Test
+	public void parse_sharesRepeatedStrings() throws IOException {
+
+		CompletionXMLParser parser = new CompletionXMLParser(null);
+		parser.parse(xml(), false);
+		List<Completion> completions = parser.getCompletions();
+		Assert.assertEquals(1, parser.getDuplicateStringCount()); // "int"
+
+		// The pool is kept across a reset
+		parser.reset(null);
+		parser.parse(xml(), false);
+		Assert.assertEquals(6, parser.getDuplicateStringCount());
+		Assert.assertTrue(parser.getBytesSaved()>0);
+		FunctionCompletion abs1 = (FunctionCompletion)completions.get(0);
+		FunctionCompletion abs2 = (FunctionCompletion)parser.getCompletions().get(0);
+		Assert.assertSame(abs1.getType(), abs2.getType());
+		Assert.assertSame(abs1.getDefinedIn(), abs2.getDefinedIn());
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.loadFromXML(xml(), null, false);
+		CompletionProviderStatistics stats = provider.getStatistics();
+		Assert.assertEquals(5, stats.getCompletionCount());
+		Assert.assertEquals(1, stats.getDuplicateStringCount());
+
+	}
+
+
+	@Test
+	public void parse_lazyDescriptionsMatchEager() throws IOException {
+
+		String xml = XML.replace("<desc>Jumps.</desc>",
+				"<desc>Jumps\r\nfar &amp; <!-- </desc> --><![CDATA[</desc> \u00e9]]>&#x41;</desc>").
+				replace("name=\"EOF\"", "name=\"EOF\" returnType=\"a>b\"");
+		File file = File.createTempFile("completions", ".xml");
+		try {
+			Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+
+			CompletionProvider provider = new DefaultCompletionProvider();
+			CompletionXMLParser eager = new CompletionXMLParser(provider);
+			eager.parse(file, false, false);
+			CompletionXMLParser lazy = new CompletionXMLParser(provider);
+			lazy.parse(file, true, true);
+
+			List<Completion> expected = eager.getCompletions();
+			List<Completion> actual = lazy.getCompletions();
+			Assert.assertEquals(expected.size(), actual.size());
+			for (int i=0; i<expected.size(); i++) {
+				Assert.assertEquals(expected.get(i).getSummary(),
+						actual.get(i).getSummary());
+			}
+			Assert.assertEquals("Jumps\nfar & </desc> \u00e9A",
+					actual.get(3).getSummary());
+			FunctionCompletion abs = (FunctionCompletion)actual.get(0);
+			Assert.assertEquals("A <number>.", abs.getParam(0).getDescription());
+			Assert.assertEquals("|n|", abs.getReturnValueDescription());
+
+			Assert.assertNotSame(FunctionCompletion.class, abs.getClass());
+			// "exit" has no descriptions to load
+			Assert.assertSame(FunctionCompletion.class, actual.get(4).getClass());
+		} finally {
+			file.delete();
+		}
+
+	}
+
+
+	@Test
+	public void loadFromXML_withoutValidation() throws IOException {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.loadFromXML(xml(), null, false);
+		Assert.assertEquals(1, provider.getCompletionByInputText("abs").size());
+		Assert.assertEquals(1, provider.getCompletionByInputText("EOF").size());
+		Assert.assertEquals('(', provider.getParameterListStart());
+	}
+
+
+}
@@ -0,0 +1,94 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+
+public class DefaultCompletionProviderTest {
+
+	private static final String[] WORDS = {
+		"printf", "println", "private", "protected", "public", "puts",
+		"return", "short", "sizeof", "static", "struct", "switch",
+	};
+
+
+	private static JTextArea createTextArea(String text) {
+		JTextArea textArea = new JTextArea();
+		textArea.append(text);
+		textArea.setCaretPosition(text.length());
+		return textArea;
+	}
+
+
+	@Test
+	public void getAlreadyEnteredText_sinkSeesSameText() {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		JTextArea textArea = createTextArea("int x = pri");
+		StringBuilder sb = new StringBuilder();
+		provider.getAlreadyEnteredText(textArea, sb::append);
+		Assert.assertEquals("pri", sb.toString());
+		Assert.assertEquals("pri", provider.getAlreadyEnteredText(textArea));
+	}
+
+
+	@Test
+	public void getCompletions_bufferMatchesList() {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(WORDS);
+		JTextArea textArea = createTextArea("x = PR");
+		List<Completion> result = new ArrayList<>();
+		provider.getCompletions(textArea, result);
+		Assert.assertEquals(4, result.size());
+		Assert.assertEquals(provider.getCompletions(textArea).size(),
+				result.size());
+	}
+
+
+	@Test
+	public void getCompletions_steadyStateAllocatesNothing() {
+
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof
+				com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean)
+				ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(bean.isThreadAllocatedMemorySupported() &&
+				bean.isThreadAllocatedMemoryEnabled());
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(WORDS);
+		JTextArea textArea = createTextArea("if (x) { pr");
+		List<Completion> result = new ArrayList<>();
+		int iterations = 20000;
+		for (int i=0; i<iterations; i++) { // Warm up
+			result.clear();
+			provider.getCompletions(textArea, result);
+		}
+
+		long id = Thread.currentThread().getId();
+		long start = bean.getThreadAllocatedBytes(id);
+		long overhead = bean.getThreadAllocatedBytes(id) - start;
+		start = bean.getThreadAllocatedBytes(id);
+		for (int i=0; i<iterations; i++) {
+			result.clear();
+			provider.getCompletions(textArea, result);
+		}
+		long allocated = bean.getThreadAllocatedBytes(id) - start - overhead;
+
+		Assert.assertEquals(4, result.size());
+		// Allow for anything the JVM itself does, e.g. while compiling; even
+		// one small object per call would be hundreds of KB
+		Assert.assertTrue("Allocated " + allocated + " bytes",
+				allocated<iterations);
+
+	}
+
+
+}
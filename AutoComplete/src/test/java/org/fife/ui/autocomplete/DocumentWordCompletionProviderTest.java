@@ -0,0 +1,78 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class DocumentWordCompletionProviderTest {
+
+
+	private static List<String> getCompletions(CompletionProvider provider,
+			JTextArea textArea) {
+		List<String> result = new ArrayList<>();
+		for (Completion c : provider.getCompletions(textArea)) {
+			result.add(c.getInputText());
+		}
+		return result;
+	}
+
+
+	@Test
+	public void getCompletions_tracksEdits() throws Exception {
+
+		JTextArea textArea = new JTextArea("int count = 0;\nFoo foo;\n");
+		DocumentWordCompletionProvider provider =
+				new DocumentWordCompletionProvider(textArea.getDocument());
+		Assert.assertEquals(1, provider.getWordCount("Foo"));
+		Assert.assertEquals(1, provider.getWordCount("foo"));
+		Assert.assertEquals(0, provider.getWordCount("0"));
+
+		// The word being typed isn't offered until it appears elsewhere
+		textArea.append("co");
+		textArea.setCaretPosition(textArea.getDocument().getLength());
+		Assert.assertEquals("[count]", getCompletions(provider, textArea).
+				toString());
+		textArea.append("unter = counter");
+		textArea.setCaretPosition(textArea.getDocument().getLength());
+		Assert.assertEquals("[counter]",
+				getCompletions(provider, textArea).toString());
+
+		// Joining and removing lines
+		textArea.getDocument().remove(14, 1);
+		Assert.assertEquals(1, provider.getWordCount("count"));
+		Assert.assertEquals(1, provider.getWordCount("foo"));
+		textArea.replaceRange("", 0, textArea.getLineEndOffset(0));
+		Assert.assertEquals(0, provider.getWordCount("count"));
+		Assert.assertEquals(0, provider.getWordCount("Foo"));
+		Assert.assertEquals(0, provider.getWordCount("foo"));
+		Assert.assertEquals(2, provider.getWordCount("counter"));
+		Assert.assertEquals(1, provider.getCompletionIndex().size());
+
+	}
+
+
+	@Test
+	public void getCompletions_asParent() {
+
+		JTextArea textArea = new JTextArea("printMessage(); pr");
+		textArea.setCaretPosition(textArea.getDocument().getLength());
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(
+				new String[] { "print", "private" });
+		provider.setParent(
+				new DocumentWordCompletionProvider(textArea.getDocument()));
+
+		Assert.assertEquals("[print, printMessage, private]",
+				getCompletions(provider, textArea).toString());
+
+	}
+
+
+}
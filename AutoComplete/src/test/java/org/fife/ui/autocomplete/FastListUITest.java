@@ -0,0 +1,155 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.JList;
+import javax.swing.SwingUtilities;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class FastListUITest {
+
+
+	private static List<Completion> createCompletions(
+			CompletionProvider provider, int count) {
+		List<Completion> completions = new ArrayList<>();
+		for (int i=0; i<count; i++) {
+			completions.add(new VariableCompletion(provider, "var" + i, "int"));
+		}
+		return completions;
+	}
+
+
+	private static JList<Completion> createList(CompletionListModel model,
+			CompletionCellRenderer renderer) {
+		JList<Completion> list = new JList<>(model);
+		list.setUI(new FastListUI());
+		DelegatingCellRenderer delegating = new DelegatingCellRenderer();
+		delegating.setFallbackCellRenderer(renderer);
+		list.setCellRenderer(delegating);
+		return list;
+	}
+
+
+	@Test
+	public void paintCell_growsCellsForLongerRowsPastMeasuredRows()
+			throws Exception {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = createCompletions(provider,
+				FastListUI.MAX_MEASURED_ROWS + 100);
+		int index = FastListUI.MAX_MEASURED_ROWS + 50;
+		Completion longest = new VariableCompletion(provider,
+				"theLongestVariableNameOfAll", "String");
+		completions.set(index, longest);
+
+		CompletionListModel model = new CompletionListModel();
+		CompletionCellRenderer renderer = new CompletionCellRenderer();
+		JList<Completion> list = createList(model, renderer);
+		model.setContents(completions, -1);
+		int longestWidth = renderer.getListCellRendererComponent(list,
+				longest, index, false, false).getPreferredSize().width;
+
+		// Rows past the limit aren't measured until they're painted
+		Assert.assertTrue(list.getPreferredSize().width<longestWidth);
+		list.setSize(list.getPreferredSize());
+		Rectangle bounds = list.getCellBounds(index, index);
+		BufferedImage image = new BufferedImage(1, 1,
+				BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.createGraphics();
+		g.setClip(bounds);
+		list.getUI().paint(g, list);
+		g.dispose();
+
+		// They're measured once painting is done, not while painting
+		Assert.assertTrue(list.getPreferredSize().width<longestWidth);
+		SwingUtilities.invokeAndWait(() -> { });
+		Assert.assertEquals(longestWidth, list.getPreferredSize().width);
+
+	}
+
+
+	@Test
+	public void updateLayoutState_doesNotMeasureWhenRowsRemoved() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = createCompletions(provider, 500);
+		Completion longer = new VariableCompletion(provider,
+				"aMuchLongerVariableName", "int");
+		completions.set(400, longer);
+
+		final int[] measured = new int[1];
+		CompletionCellRenderer renderer = new CompletionCellRenderer() {
+			@Override
+			Dimension getCellSize(JList list, Completion c, int index) {
+				measured[0]++;
+				return super.getCellSize(list, c, index);
+			}
+		};
+		CompletionListModel model = new CompletionListModel();
+		JList<Completion> list = createList(model, renderer);
+		model.setContents(completions, -1);
+		Dimension size = list.getPreferredSize();
+		Assert.assertEquals(500, measured[0]);
+
+		// Narrow the list down, as typing does.  The cells keep their size.
+		List<Completion> narrowed = new ArrayList<>(completions);
+		narrowed.subList(300, 500).clear();
+		narrowed.subList(0, 100).clear();
+		Assert.assertEquals(100, model.setContents(narrowed, 200));
+		Assert.assertEquals(new Dimension(size.width, 200*size.height/500),
+				list.getPreferredSize());
+		Assert.assertEquals(500, measured[0]);
+
+	}
+
+
+	@Test
+	public void updateLayoutState_sizesCellsToWidestCompletion() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = new ArrayList<>();
+		for (int i=0; i<500; i++) {
+			completions.add(new VariableCompletion(provider, "var" + i, "int"));
+		}
+		Completion longer = new VariableCompletion(provider,
+				"aMuchLongerVariableName", "int");
+		completions.set(400, longer);
+		Completion longest = new VariableCompletion(provider,
+				"theLongestVariableNameOfAll", "String");
+
+		CompletionListModel model = new CompletionListModel();
+		JList<Completion> list = new JList<>(model);
+		list.setUI(new FastListUI());
+		CompletionCellRenderer renderer = new CompletionCellRenderer();
+		DelegatingCellRenderer delegating = new DelegatingCellRenderer();
+		delegating.setFallbackCellRenderer(renderer);
+		list.setCellRenderer(delegating);
+
+		model.setContents(completions, -1);
+		Dimension size = renderer.getListCellRendererComponent(list, longer,
+				400, false, false).getPreferredSize();
+		Assert.assertEquals(new Dimension(size.width, 500*size.height),
+				list.getPreferredSize());
+
+		// Appended rows are measured too
+		model.addAll(Collections.singletonList(longest));
+		Assert.assertEquals(renderer.getListCellRendererComponent(list,
+				longest, 500, false, false).getPreferredSize().width,
+				list.getPreferredSize().width);
+
+	}
+
+
+}
@@ -0,0 +1,75 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class FuzzyMatcherTest {
+
+
+	@Test
+	public void matches_wordBoundaries() {
+
+		Assert.assertTrue(new FuzzyMatcher("gcp").matches("getCompletionProvider"));
+		Assert.assertTrue(new FuzzyMatcher("GCP").matches("getCompletionProvider"));
+		Assert.assertTrue(new FuzzyMatcher("ac_ev").matches("autocompletion_event"));
+		Assert.assertTrue(new FuzzyMatcher("comp").matches("getCompletionProvider"));
+		Assert.assertTrue(new FuzzyMatcher("parser").matches("XMLParser"));
+		Assert.assertTrue(new FuzzyMatcher("").matches("anything"));
+
+		// The first char must start a word
+		Assert.assertFalse(new FuzzyMatcher("etc").matches("getCompletion"));
+		Assert.assertFalse(new FuzzyMatcher("gpc").matches("getCompletionProvider"));
+		Assert.assertFalse(new FuzzyMatcher("getx").matches("get"));
+
+	}
+
+
+	@Test
+	public void score_ranksPrefixesAndWordStartsFirst() {
+
+		FuzzyMatcher matcher = new FuzzyMatcher("gcp");
+		int prefix = matcher.score("gcpSettings");
+		int wordStarts = matcher.score("getCompletionProvider");
+		int scattered = matcher.score("glibcpp");
+		Assert.assertTrue(prefix > wordStarts);
+		Assert.assertTrue(wordStarts > scattered);
+		Assert.assertEquals(-1, matcher.score("getProvider"));
+
+	}
+
+
+	@Test
+	public void getCompletions_fuzzyProvider() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(new String[] {
+			"getCompletionProvider", "glibcpp", "gcpSettings", "getProvider",
+			"GC_PAUSE", "autocompletion_event",
+		});
+		provider.setFuzzyMatchingEnabled(true);
+		provider.setIncrementalNarrowingEnabled(true);
+		Assert.assertNull(provider.createQuerySession());
+
+		JTextArea textArea = new JTextArea("gcp");
+		textArea.setCaretPosition(3);
+		List<String> actual = new ArrayList<>();
+		for (Completion c : provider.getCompletions(textArea)) {
+			actual.add(c.getInputText());
+		}
+
+		Assert.assertEquals(4, actual.size());
+		Assert.assertEquals("gcpSettings", actual.get(0));
+		Assert.assertEquals("glibcpp", actual.get(3));
+
+	}
+
+
+}
@@ -0,0 +1,65 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.awt.GraphicsEnvironment;
+import java.util.List;
+
+import org.fife.ui.rsyntaxtextarea.RSyntaxTextArea;
+import org.fife.ui.rsyntaxtextarea.SyntaxConstants;
+import org.fife.ui.rsyntaxtextarea.TokenTypes;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+
+public class LanguageAwareCompletionProviderTest {
+
+
+	private static String getOnlyCompletion(CompletionProvider provider,
+			RSyntaxTextArea textArea) {
+		List<Completion> completions = provider.getCompletions(textArea);
+		Assert.assertEquals(1, completions.size());
+		return completions.get(0).getInputText();
+	}
+
+
+	@Test
+	public void getCompletions_routesByTokenType() {
+
+		// RSyntaxTextArea can't be created in a headless environment
+		Assume.assumeFalse(GraphicsEnvironment.isHeadless());
+
+		LanguageAwareCompletionProvider provider =
+				new LanguageAwareCompletionProvider(
+						new DefaultCompletionProvider(new String[] { "code" }));
+		provider.setCommentCompletionProvider(
+				new DefaultCompletionProvider(new String[] { "comment" }));
+		provider.setStringCompletionProvider(
+				new DefaultCompletionProvider(new String[] { "constant" }));
+
+		RSyntaxTextArea textArea = new RSyntaxTextArea();
+		textArea.setSyntaxEditingStyle(SyntaxConstants.SYNTAX_STYLE_JAVA);
+		textArea.setText("c\n// c");
+		textArea.setCaretPosition(1);
+		Assert.assertEquals("code", getOnlyCompletion(provider, textArea));
+		textArea.setCaretPosition(textArea.getDocument().getLength());
+		Assert.assertEquals("comment", getOnlyCompletion(provider, textArea));
+
+		provider.setCompletionProviderForTokenType(TokenTypes.COMMENT_EOL,
+				new DefaultCompletionProvider(new String[] { "custom" }));
+		Assert.assertEquals("custom", getOnlyCompletion(provider, textArea));
+		provider.setCompletionProviderForTokenType(TokenTypes.COMMENT_EOL,
+				null);
+		Assert.assertEquals("comment", getOnlyCompletion(provider, textArea));
+
+		textArea.setText("\"c\"");
+		textArea.setCaretPosition(2);
+		Assert.assertEquals("constant", getOnlyCompletion(provider, textArea));
+
+	}
+
+
+}
@@ -0,0 +1,111 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class PagedCompletionListTest {
+
+	private static final Comparator<Completion> COMPARATOR = new SortByRelevanceComparator();
+
+
+	private static List<Completion> createCompletions(int count) {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		Random random = new Random(1);
+		List<Completion> completions = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			BasicCompletion c = new BasicCompletion(provider, (i % 2 == 0 ? "a" : "b") + random.nextInt(1000));
+			c.setRelevance(random.nextInt(5));
+			completions.add(c);
+		}
+		return completions;
+	}
+
+
+	/**
+	 * Distinct completions with the same text and relevance may be in either order.
+	 */
+	private static List<String> toStrings(List<Completion> completions) {
+		List<String> strings = new ArrayList<>();
+		for (Completion c : completions) {
+			strings.add(c.getInputText() + "/" + c.getRelevance());
+		}
+		return strings;
+	}
+
+
+	@Test
+	public void create_smallListIsFullySorted() {
+		List<Completion> completions = createCompletions(10);
+		List<Completion> result = PagedCompletionList.create(completions, COMPARATOR, 10);
+		Assert.assertFalse(result instanceof PagedCompletionList);
+		Assert.assertSame(completions, result);
+	}
+
+
+	@Test
+	public void loadMore_pagesMatchFullSort() {
+
+		List<Completion> completions = createCompletions(500);
+		List<Completion> expected = new ArrayList<>(completions);
+		expected.sort(COMPARATOR);
+
+		PagedCompletionList paged = (PagedCompletionList)PagedCompletionList.create(
+			new ArrayList<>(completions), COMPARATOR, 15);
+		Assert.assertEquals(15, paged.size());
+		Assert.assertEquals(485, paged.getRemainingCount());
+
+		while (paged.hasMore()) {
+			paged.loadMore(paged.getPageSize());
+		}
+		Assert.assertEquals(toStrings(expected), toStrings(paged));
+
+	}
+
+
+	@Test
+	public void loadMore_nonPositiveCountLoadsNothing() {
+
+		PagedCompletionList paged = (PagedCompletionList)PagedCompletionList.create(
+			createCompletions(50), COMPARATOR, 15);
+
+		Assert.assertTrue(paged.loadMore(0).isEmpty());
+		Assert.assertTrue(paged.loadMore(-1).isEmpty());
+		Assert.assertEquals(15, paged.size());
+		Assert.assertEquals(35, paged.getRemainingCount());
+
+	}
+
+
+	@Test
+	public void narrow_keepsRelevanceOrder() {
+
+		List<Completion> completions = createCompletions(500);
+		List<Completion> expected = new ArrayList<>();
+		for (Completion c : completions) {
+			if (c.getInputText().startsWith("a1")) {
+				expected.add(c);
+			}
+		}
+		expected.sort(COMPARATOR);
+
+		PagedCompletionList paged = (PagedCompletionList)PagedCompletionList.create(
+			new ArrayList<>(completions), COMPARATOR, 15);
+		PagedCompletionList narrowed = paged.narrow("A1");
+		Assert.assertEquals(toStrings(expected.subList(0, 15)), toStrings(narrowed));
+		narrowed.loadMore(narrowed.getRemainingCount());
+		Assert.assertEquals(toStrings(expected), toStrings(narrowed));
+
+	}
+
+
+}
@@ -0,0 +1,44 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.Collections;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JLabel;
+import javax.swing.JList;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class StyledCompletionCellRendererTest {
+
+
+	@Test
+	public void getListCellRendererComponent_htmlOnlyForDelegate() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		provider.setParameterizedCompletionParams('(', ", ", ')');
+		FunctionCompletion fc = new FunctionCompletion(provider, "abs", "int");
+		fc.setParams(Collections.singletonList(
+				new ParameterizedCompletion.Parameter("int", "x")));
+		JList<Completion> list = new JList<>();
+
+		StyledCompletionCellRenderer renderer =
+				new StyledCompletionCellRenderer();
+		JLabel label = (JLabel)renderer.getListCellRendererComponent(list, fc,
+				0, false, false);
+		Assert.assertEquals("abs(int x) : int", label.getText());
+
+		// The delegate paints the text, so it needs the colors in HTML
+		renderer.setDelegateRenderer(new DefaultListCellRenderer());
+		label = (JLabel)renderer.getListCellRendererComponent(list, fc, 0,
+				true, false);
+		Assert.assertEquals("<html><nobr>abs(int x) : int", label.getText());
+
+	}
+
+
+}
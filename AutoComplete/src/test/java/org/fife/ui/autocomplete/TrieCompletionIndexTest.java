@@ -0,0 +1,233 @@
+/*
+ * This library is distributed under a modified BSD license.  See the included
+ * AutoComplete.License.txt file for details.
+ */
+package org.fife.ui.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.JTextArea;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+
+public class TrieCompletionIndexTest {
+
+	private static final String[] WORDS = {
+		"get", "getClass", "getcount", "GetComponent", "getComponent",
+		"go", "goto", "set", "setText", "s", "", "\u0131nt", "Integer",
+	};
+
+
+	private static DefaultCompletionProvider createProvider(CompletionIndex index) {
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(WORDS);
+		provider.setCompletionIndex(index);
+		return provider;
+	}
+
+
+	private static List<Completion> withPrefix(CompletionIndex index, String prefix) {
+		List<Completion> result = new ArrayList<>();
+		index.getCompletionsWithPrefix(prefix, result);
+		return result;
+	}
+
+
+	@Test
+	public void getCompletionsWithPrefix_matchesSortedList() {
+
+		CompletionIndex trie = createProvider(new TrieCompletionIndex()).getCompletionIndex();
+		CompletionIndex list = createProvider(new SortedListCompletionIndex()).getCompletionIndex();
+
+		String[] prefixes = { "", "g", "G", "get", "getc", "getComp", "gets", "x", "s", "se", "i", "I" };
+		for (String prefix : prefixes) {
+			Assert.assertEquals(prefix, toStrings(withPrefix(list, prefix)),
+				toStrings(withPrefix(trie, prefix)));
+		}
+
+	}
+
+
+	@Test
+	public void getCompletionsByInputText_overloads() {
+
+		TrieCompletionIndex trie = new TrieCompletionIndex();
+		createProvider(trie);
+
+		List<Completion> matches = trie.getCompletionsByInputText("GETCOMPONENT");
+		Assert.assertEquals(2, matches.size());
+		Assert.assertNull(trie.getCompletionsByInputText("getComp"));
+		Assert.assertNull(trie.getCompletionsByInputText("getComponents"));
+		Assert.assertEquals(1, trie.getCompletionsByInputText("").size());
+
+	}
+
+
+	@Test
+	public void remove_prunesAndMerges() {
+
+		TrieCompletionIndex trie = new TrieCompletionIndex();
+		DefaultCompletionProvider provider = createProvider(trie);
+
+		for (Completion c : provider.getCompletionByInputText("getClass")) {
+			Assert.assertTrue(provider.removeCompletion(c));
+		}
+		Assert.assertEquals(WORDS.length - 1, trie.size());
+		Assert.assertEquals(4, trie.getCompletionCount("get"));
+		Assert.assertEquals(0, trie.getCompletionCount("getCl"));
+
+		provider.clear();
+		Assert.assertEquals(0, trie.size());
+		Assert.assertTrue(withPrefix(trie, "").isEmpty());
+
+	}
+
+
+	@Test
+	public void getCompletionIndex_rebuildsAfterDirectModification() {
+
+		TrieCompletionIndex trie = new TrieCompletionIndex();
+		DefaultCompletionProvider provider = createProvider(trie);
+
+		provider.completions.add(new BasicCompletion(provider, "getz"));
+		Assert.assertEquals(6, withPrefix(provider.getCompletionIndex(), "get").size());
+
+	}
+
+
+	@Test
+	public void snapshot_isUnaffectedByLaterChanges() {
+
+		TrieCompletionIndex trie = new TrieCompletionIndex();
+		DefaultCompletionProvider provider = createProvider(trie);
+		CompletionIndex snapshot = trie.snapshot();
+		List<String> expected = toStrings(withPrefix(snapshot, ""));
+
+		provider.addCompletion(new BasicCompletion(provider, "getAll"));
+		for (Completion c : provider.getCompletionByInputText("getClass")) {
+			provider.removeCompletion(c);
+		}
+		provider.removeCompletion(provider.getCompletionByInputText("goto").get(0));
+
+		Assert.assertEquals(expected, toStrings(withPrefix(snapshot, "")));
+		Assert.assertEquals(WORDS.length, snapshot.size());
+		Assert.assertEquals(WORDS.length - 1, trie.size());
+		Assert.assertEquals(toStrings(withPrefix(createProvider(new SortedListCompletionIndex()).getCompletionIndex(), "get")).size(),
+			((TrieCompletionIndex)snapshot).getCompletionCount("get"));
+		Assert.assertEquals(5, trie.getCompletionCount("get"));
+
+	}
+
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void snapshot_isReadOnly() {
+		new TrieCompletionIndex().snapshot().add(new BasicCompletion(null, "a"));
+	}
+
+
+	@Test
+	public void getApproximateMatches_typos() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(new String[] {
+			"function", "functional", "fiction", "junction", "fun", "unrelated",
+		});
+		TrieCompletionIndex trie = new TrieCompletionIndex();
+		provider.setCompletionIndex(trie);
+		long deadline = System.nanoTime() + 1000000000L;
+
+		List<Completion> result = new ArrayList<>();
+		Assert.assertTrue(trie.getApproximateMatches("fucntion", 1, deadline, result));
+		Assert.assertEquals(Arrays.asList("function", "functional"), toStrings(result));
+
+		result.clear();
+		Assert.assertTrue(trie.getApproximateMatches("FUNCTOIN", 2, deadline, result));
+		// The first char must match
+		Assert.assertEquals(Arrays.asList("function", "functional"), toStrings(result));
+
+	}
+
+
+	@Test
+	public void getApproximateMatches_deadlineStopsCollectingMatches() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = new ArrayList<>();
+		for (int i=0; i<5000; i++) {
+			completions.add(new BasicCompletion(provider, "fun" + i));
+		}
+		provider.addCompletions(completions);
+		TrieCompletionIndex trie = new TrieCompletionIndex();
+		provider.setCompletionIndex(trie);
+
+		// "fun" matches after a few nodes, but its subtree is large
+		List<Completion> result = new ArrayList<>();
+		Assert.assertFalse(trie.getApproximateMatches("fun", 1,
+				System.nanoTime() - 1, result));
+		Assert.assertTrue(result.size()<completions.size());
+
+	}
+
+
+	@Test
+	public void getCompletions_typoTolerance() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider(new String[] {
+			"fucntional", "function", "fun", "unrelated",
+		});
+		provider.setTypoTolerance(2);
+
+		JTextArea textArea = new JTextArea("fucntion");
+		textArea.setCaretPosition(8);
+		Assert.assertEquals(Arrays.asList("fucntional", "function"),
+			toStrings(provider.getCompletions(textArea)));
+
+		// One typo allowed per three chars typed
+		textArea.setText("fnu");
+		textArea.setCaretPosition(3);
+		Assert.assertEquals(Arrays.asList("fucntional", "fun", "function"),
+			toStrings(provider.getCompletions(textArea)));
+		textArea.setText("nu");
+		textArea.setCaretPosition(2);
+		Assert.assertTrue(provider.getCompletions(textArea).isEmpty());
+
+	}
+
+
+	@Test
+	public void getCompletions_typoToleranceTimeLimitKeepsExistingResults() {
+
+		DefaultCompletionProvider provider = new DefaultCompletionProvider();
+		List<Completion> completions = new ArrayList<>();
+		for (int i=0; i<5000; i++) {
+			completions.add(new BasicCompletion(provider, "fun" + i));
+		}
+		provider.addCompletions(completions);
+		provider.setTypoTolerance(1);
+		provider.setTypoToleranceTimeLimit(0);
+
+		JTextArea textArea = new JTextArea("fun499");
+		textArea.setCaretPosition(6);
+		List<Completion> result = new ArrayList<>();
+		result.add(new BasicCompletion(provider, "existing"));
+		provider.getCompletions(textArea, result);
+
+		// Out of time, so only exact matches follow the existing completion
+		Assert.assertEquals(Arrays.asList("existing", "fun499", "fun4990",
+				"fun4991", "fun4992", "fun4993", "fun4994", "fun4995",
+				"fun4996", "fun4997", "fun4998", "fun4999"), toStrings(result));
+
+	}
+
+
+	private static List<String> toStrings(List<Completion> completions) {
+		List<String> strings = new ArrayList<>();
+		for (Completion c : completions) {
+			strings.add(c.getInputText());
+		}
+		return strings;
+	}
+
+
+}